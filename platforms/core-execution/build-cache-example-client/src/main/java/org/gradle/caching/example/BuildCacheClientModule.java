@@ -67,6 +67,7 @@
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.DefaultStreamHasher;
 import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationIdFactory;
@@ -388,6 +389,7 @@ public void chmod(File file, int mode) {
                 fileSystemSupport,
                 filePermissionAccess,
                 streamHasher,
+                Hashing.defaultFunction(),
                 stringInterner,
                 () -> new byte[4096]
             )
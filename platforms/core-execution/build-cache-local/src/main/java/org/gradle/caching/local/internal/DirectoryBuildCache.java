@@ -36,6 +36,8 @@
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -87,22 +89,35 @@ public boolean load(HashCode key, IoConsumer<InputStream> reader) {
 
     @Override
     public void loadLocally(HashCode key, Consumer<? super File> reader) {
+        loadLocally(key, Collections.singletonMap("", reader));
+    }
+
+    /**
+     * Loads an entry that can be stored in different formats, which are told apart by a suffix after the key in the name of the entry file.
+     *
+     * The formats are checked in iteration order while holding the locks once, and only the reader of the first format found is executed.
+     */
+    public void loadLocally(HashCode key, Map<String, ? extends Consumer<? super File>> readersByEntryFileSuffix) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
             // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
             lock.readLock().lock();
             try {
-                loadInsideLock(key, reader);
+                for (Map.Entry<String, ? extends Consumer<? super File>> entry : readersByEntryFileSuffix.entrySet()) {
+                    if (loadInsideLock(key, entry.getKey(), entry.getValue())) {
+                        return;
+                    }
+                }
             } finally {
                 lock.readLock().unlock();
             }
         });
     }
 
-    private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
-        File file = getCacheEntryFile(key);
+    private boolean loadInsideLock(HashCode key, String entryFileSuffix, Consumer<? super File> reader) {
+        File file = getCacheEntryFile(key, entryFileSuffix);
         if (!file.exists()) {
-            return;
+            return false;
         }
 
         fileAccessTracker.markAccessed(file);
@@ -119,6 +134,7 @@ private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
 
             throw UncheckedException.throwAsUncheckedException(e);
         }
+        return true;
     }
 
     @Override
@@ -143,20 +159,29 @@ public void store(HashCode key, IoConsumer<OutputStream> result) {
 
     @Override
     public void storeLocally(HashCode key, File file) {
+        storeLocally(key, "", file);
+    }
+
+    /**
+     * Stores an entry in the format told apart by the given suffix after the key in the name of the entry file.
+     *
+     * @see #loadLocally(HashCode, Map)
+     */
+    public void storeLocally(HashCode key, String entryFileSuffix, File file) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
             // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
             lock.writeLock().lock();
             try {
-                storeInsideLock(key, file);
+                storeInsideLock(key, entryFileSuffix, file);
             } finally {
                 lock.writeLock().unlock();
             }
         });
     }
 
-    private void storeInsideLock(HashCode key, File sourceFile) {
-        File targetFile = getCacheEntryFile(key);
+    private void storeInsideLock(HashCode key, String entryFileSuffix, File sourceFile) {
+        File targetFile = getCacheEntryFile(key, entryFileSuffix);
         try {
             Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
         } catch (FileAlreadyExistsException ignore) {
@@ -180,7 +205,7 @@ public void close() {
         persistentCache.close();
     }
 
-    private File getCacheEntryFile(HashCode key) {
-        return new File(persistentCache.getBaseDir(), key.toString());
+    private File getCacheEntryFile(HashCode key, String entryFileSuffix) {
+        return new File(persistentCache.getBaseDir(), key + entryFileSuffix);
     }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local.internal;
 
+import com.google.common.collect.ImmutableMap;
 import org.gradle.api.NonNullApi;
 import org.gradle.cache.PersistentCache;
 import org.gradle.caching.BuildCacheEntryReader;
@@ -24,20 +25,41 @@
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.BuildCacheKeyInternal;
+import org.gradle.caching.internal.packaging.impl.ContentAddressedFileStore;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.StreamHasher;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 @NonNullApi
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
+    private static final String MANIFEST_FILE_SUFFIX = ".manifest";
+
     private final DirectoryBuildCache cache;
+    @Nullable
+    private final ContentAddressedFileStore contentAddressedFileStore;
 
     public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(persistentCache, fileAccessTracker, failedFileSuffix, null);
+    }
+
+    /**
+     * Creates a service that keeps file contents deduplicated for local use when a {@code contentHasher} is given.
+     *
+     * Local entries are then stored as manifests next to the contents, while entries stored via the
+     * {@link BuildCacheService} methods or {@link #storePackedLocally(BuildCacheKey, File)} keep using the packed format.
+     */
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, @Nullable StreamHasher contentHasher) {
         this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix);
+        this.contentAddressedFileStore = contentHasher != null
+            ? new DirectoryContentAddressedFileStore(persistentCache, fileAccessTracker, contentHasher)
+            : null;
     }
 
     @Override
@@ -47,7 +69,16 @@ public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws Buil
 
     @Override
     public void loadLocally(BuildCacheKey key, Consumer<? super File> reader) {
-        cache.loadLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), reader);
+        cache.loadLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), ImmutableMap.of(getLocalEntryFileSuffix(), reader));
+    }
+
+    @Override
+    public void loadLocally(BuildCacheKey key, Consumer<? super File> reader, Consumer<? super File> packedReader) {
+        if (contentAddressedFileStore == null) {
+            loadLocally(key, reader);
+        } else {
+            cache.loadLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), ImmutableMap.of(MANIFEST_FILE_SUFFIX, reader, "", packedReader));
+        }
     }
 
     @Override
@@ -57,9 +88,23 @@ public void store(BuildCacheKey key, BuildCacheEntryWriter result) throws BuildC
 
     @Override
     public void storeLocally(BuildCacheKey key, File file) {
+        cache.storeLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), getLocalEntryFileSuffix(), file);
+    }
+
+    @Override
+    public void storePackedLocally(BuildCacheKey key, File file) {
         cache.storeLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), file);
     }
 
+    @Override
+    public Optional<ContentAddressedFileStore> getContentAddressedFileStore() {
+        return Optional.ofNullable(contentAddressedFileStore);
+    }
+
+    private String getLocalEntryFileSuffix() {
+        return contentAddressedFileStore == null ? "" : MANIFEST_FILE_SUFFIX;
+    }
+
     @Override
     public void withTempFile(HashCode key, Consumer<? super File> action) {
         cache.withTempFile(key, action);
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.NonNullApi;
+import org.gradle.cache.PersistentCache;
+import org.gradle.caching.internal.packaging.impl.ContentAddressedFileStore;
+import org.gradle.internal.file.FileAccessTracker;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.StreamHasher;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores file contents in the directory of a local build cache, next to the cache entries referencing them.
+ *
+ * Contents live directly in the cache directory so they are tracked and cleaned up the same way as entries.
+ * Stored or restored contents are marked as accessed together with the entry referencing them,
+ * so contents are never removed before the last entry that references them.
+ *
+ * Contents are restored by copying, never by hard-linking: outputs are often modified in place later on,
+ * which would corrupt the stored contents for every other entry that shares them.
+ * The copy is left to the JDK, which uses native copying that may clone the file on copy-on-write file systems.
+ */
+@NonNullApi
+public class DirectoryContentAddressedFileStore implements ContentAddressedFileStore {
+    private static final String CONTENT_FILE_SUFFIX = ".blob";
+
+    private final PersistentCache persistentCache;
+    private final FileAccessTracker fileAccessTracker;
+    private final StreamHasher streamHasher;
+    private final BuildCacheTempFileStore tempFileStore;
+
+    public DirectoryContentAddressedFileStore(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, StreamHasher streamHasher) {
+        this.persistentCache = persistentCache;
+        this.fileAccessTracker = fileAccessTracker;
+        this.streamHasher = streamHasher;
+        // Create temporary files in the cache directory, so they can be moved into the store atomically
+        this.tempFileStore = new DefaultBuildCacheTempFileStore((prefix, suffix) -> {
+            try {
+                return Files.createTempFile(persistentCache.getBaseDir().toPath(), prefix, suffix).toFile();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public boolean contains(HashCode contentHash) {
+        return getContentFile(contentHash).isFile();
+    }
+
+    @Override
+    public void store(HashCode contentHash, File source) throws IOException {
+        try {
+            // We need to lock other processes out here because garbage collection can be under way in another process
+            persistentCache.withFileLock(() -> {
+                File contentFile = getContentFile(contentHash);
+                if (!contentFile.isFile()) {
+                    tempFileStore.withTempFile(contentHash, tempFile -> storeInsideLock(contentHash, source, tempFile, contentFile));
+                }
+                fileAccessTracker.markAccessed(contentFile);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void storeInsideLock(HashCode contentHash, File source, File tempFile, File contentFile) {
+        try {
+            HashCode actualHash;
+            try (InputStream input = new FileInputStream(source); OutputStream output = new FileOutputStream(tempFile)) {
+                actualHash = streamHasher.hashCopy(input, output);
+            }
+            if (!actualHash.equals(contentHash)) {
+                throw new IOException(String.format("Content of '%s' has changed since it was snapshotted", source));
+            }
+            Files.move(tempFile.toPath(), contentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Another thread or process may have stored the same content concurrently
+            if (!contentFile.isFile()) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void restore(HashCode contentHash, File target) throws IOException {
+        File contentFile = getContentFile(contentHash);
+        Files.copy(contentFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        fileAccessTracker.markAccessed(contentFile);
+    }
+
+    private File getContentFile(HashCode contentHash) {
+        return new File(persistentCache.getBaseDir(), contentHash + CONTENT_FILE_SUFFIX);
+    }
+}
@@ -25,6 +25,8 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.function.Consumer
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheTest extends Specification {
@@ -87,6 +89,25 @@ class DirectoryBuildCacheTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
     }
 
+    def "loads entry of the first format found with one lookup"() {
+        given:
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "packed"
+        cache.storeLocally(key, originalFile)
+        def loaded = []
+
+        when:
+        cache.loadLocally(key, [
+            ".manifest": { File file -> loaded << "manifest" } as Consumer<File>,
+            "": { File file -> loaded << file.text } as Consumer<File>
+        ])
+
+        then:
+        loaded == ["packed"]
+        1 * persistentCache.withFileLock(_) >> { Runnable r -> r.run() }
+        1 * fileAccessTracker.markAccessed(new File(cacheDir, hashCode))
+    }
+
     def "marks file accessed when storing and loading using writer and reader"() {
         File cachedFile = null
 
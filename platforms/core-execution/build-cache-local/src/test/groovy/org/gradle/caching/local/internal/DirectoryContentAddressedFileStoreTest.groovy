@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal
+
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.file.FileAccessTracker
+import org.gradle.internal.hash.DefaultStreamHasher
+import org.gradle.internal.hash.Hashing
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+@CleanupTestDirectory
+class DirectoryContentAddressedFileStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+    def cacheDir = temporaryFolder.createDir("cache")
+    def persistentCache = Mock(PersistentCache) {
+        getBaseDir() >> cacheDir
+        withFileLock(_) >> { Runnable r -> r.run() }
+    }
+    def fileAccessTracker = Mock(FileAccessTracker)
+    def store = new DirectoryContentAddressedFileStore(persistentCache, fileAccessTracker, new DefaultStreamHasher())
+
+    def "stores identical contents once and restores them as copies"() {
+        def first = temporaryFolder.createFile("first.txt") << "content"
+        def second = temporaryFolder.createFile("second.txt") << "content"
+        def contentHash = Hashing.hashBytes("content".bytes)
+        def target = temporaryFolder.file("target.txt") << "previous"
+
+        when:
+        store.store(contentHash, first)
+        store.store(contentHash, second)
+
+        then:
+        2 * fileAccessTracker.markAccessed(_)
+        store.contains(contentHash)
+        cacheDir.listFiles().length == 1
+
+        when:
+        store.restore(contentHash, target)
+
+        then:
+        1 * fileAccessTracker.markAccessed(_)
+        target.text == "content"
+
+        when:
+        target.text = "modified"
+
+        then:
+        cacheDir.listFiles()[0].text == "content"
+    }
+
+    def "does not store content that does not match its hash"() {
+        def source = temporaryFolder.createFile("source.txt") << "changed"
+        def contentHash = Hashing.hashBytes("original".bytes)
+
+        when:
+        store.store(contentHash, source)
+
+        then:
+        def ex = thrown IOException
+        ex.message.contains("has changed since it was snapshotted")
+        !store.contains(contentHash)
+        cacheDir.listFiles() as List == []
+    }
+}
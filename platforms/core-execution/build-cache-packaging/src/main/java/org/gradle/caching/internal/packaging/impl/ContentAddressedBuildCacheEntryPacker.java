@@ -0,0 +1,455 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import org.apache.commons.io.FileUtils;
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginMetadata;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.file.PathTraversalChecker;
+import org.gradle.internal.file.TreeType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+import org.gradle.internal.snapshot.FileSystemSnapshotHierarchyVisitor;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotVisitResult;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.gradle.internal.file.FileMetadata.AccessType.DIRECT;
+import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
+
+/**
+ * Packages build cache entries as a manifest of the output trees, with the contents of
+ * the output files kept in a {@link ContentAddressedFileStore}.
+ *
+ * Contents shared between cache entries are only stored once, and the manifest itself is small.
+ * All referenced contents are checked to be present before any output is touched during unpacking.
+ */
+public class ContentAddressedBuildCacheEntryPacker implements BuildCacheEntryPacker {
+
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final byte END_OF_MANIFEST = 0;
+    private static final byte TREE = 1;
+    private static final byte MISSING = 2;
+    private static final byte FILE = 3;
+    private static final byte DIRECTORY = 4;
+    private static final byte END_OF_DIRECTORY = 5;
+
+    @SuppressWarnings("OctalInteger")
+    private static final int DEFAULT_DIR_PERM = 0755;
+
+    private final ContentAddressedFileStore fileStore;
+    private final TarPackerFileSystemSupport fileSystemSupport;
+    private final FilePermissionAccess filePermissionAccess;
+    private final HashFunction directoryHashFunction;
+    private final Interner<String> stringInterner;
+
+    public ContentAddressedBuildCacheEntryPacker(
+        ContentAddressedFileStore fileStore,
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        HashFunction directoryHashFunction,
+        Interner<String> stringInterner
+    ) {
+        this.fileStore = fileStore;
+        this.fileSystemSupport = fileSystemSupport;
+        this.filePermissionAccess = filePermissionAccess;
+        this.directoryHashFunction = directoryHashFunction;
+        this.stringInterner = stringInterner;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        DataOutputStream manifest = new DataOutputStream(new BufferedOutputStream(output));
+        manifest.writeInt(MANIFEST_VERSION);
+        ByteArrayOutputStream origin = new ByteArrayOutputStream();
+        writeOrigin.execute(origin);
+        manifest.writeInt(origin.size());
+        origin.writeTo(manifest);
+
+        AtomicLong entries = new AtomicLong(1);
+        entity.visitOutputTrees((treeName, type, root) -> {
+            FileSystemSnapshot treeSnapshots = snapshots.get(treeName);
+            try {
+                PackingVisitor packingVisitor = new PackingVisitor(manifest, treeName, type);
+                treeSnapshots.accept(packingVisitor);
+                entries.addAndGet(packingVisitor.getPackedEntryCount());
+            } catch (Exception ex) {
+                throw new RuntimeException(String.format("Could not pack tree '%s': %s", treeName, ex.getMessage()), ex);
+            }
+        });
+        manifest.writeByte(END_OF_MANIFEST);
+        manifest.flush();
+        return new PackResult(entries.get());
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        DataInputStream manifest = new DataInputStream(new BufferedInputStream(input));
+        int version = manifest.readInt();
+        if (version != MANIFEST_VERSION) {
+            throw new IllegalStateException("Cached entry format error, unsupported manifest version: " + version);
+        }
+        byte[] origin = new byte[manifest.readInt()];
+        manifest.readFully(origin);
+        OriginMetadata originMetadata = readOrigin.execute(new ByteArrayInputStream(origin));
+
+        ImmutableMap.Builder<String, CacheableTree> treesBuilder = ImmutableMap.builder();
+        entity.visitOutputTrees((name, type, root) -> treesBuilder.put(name, new CacheableTree(type, root)));
+        ImmutableMap<String, CacheableTree> treesByName = treesBuilder.build();
+
+        Map<String, ManifestEntry> treeEntries = new HashMap<>();
+        byte tag;
+        while ((tag = manifest.readByte()) != END_OF_MANIFEST) {
+            if (tag != TREE) {
+                throw new IllegalStateException("Cached entry format error, expected a tree but saw: " + tag);
+            }
+            String treeName = manifest.readUTF();
+            if (!treesByName.containsKey(treeName)) {
+                throw new IllegalStateException(String.format("No tree '%s' registered", treeName));
+            }
+            treeEntries.put(treeName, readEntry(manifest.readByte(), manifest));
+        }
+
+        for (Map.Entry<String, ManifestEntry> treeEntry : treeEntries.entrySet()) {
+            checkContentsArePresent(treeEntry.getKey(), treeEntry.getValue());
+        }
+
+        long entries = 1;
+        Map<String, FileSystemLocationSnapshot> snapshots = new HashMap<>();
+        for (Map.Entry<String, ManifestEntry> treeEntry : treeEntries.entrySet()) {
+            String treeName = treeEntry.getKey();
+            entries += unpackTree(treeName, treesByName.get(treeName), treeEntry.getValue(), snapshots);
+        }
+        return new UnpackResult(originMetadata, entries, snapshots);
+    }
+
+    private static ManifestEntry readEntry(byte tag, DataInputStream manifest) throws IOException {
+        switch (tag) {
+            case MISSING:
+                return new ManifestEntry(MISSING, "", 0, null, ImmutableList.of());
+            case FILE: {
+                String name = safeChildName(manifest.readUTF());
+                int mode = manifest.readInt();
+                byte[] hash = new byte[manifest.readUnsignedByte()];
+                manifest.readFully(hash);
+                return new ManifestEntry(FILE, name, mode, HashCode.fromBytes(hash), ImmutableList.of());
+            }
+            case DIRECTORY: {
+                String name = safeChildName(manifest.readUTF());
+                int mode = manifest.readInt();
+                ImmutableList.Builder<ManifestEntry> children = ImmutableList.builder();
+                byte childTag;
+                while ((childTag = manifest.readByte()) != END_OF_DIRECTORY) {
+                    children.add(readEntry(childTag, manifest));
+                }
+                return new ManifestEntry(DIRECTORY, name, mode, null, children.build());
+            }
+            default:
+                throw new IllegalStateException("Cached entry format error, invalid entry type: " + tag);
+        }
+    }
+
+    /**
+     * Returns a safe name for a single path segment in the manifest.
+     *
+     * @see PathTraversalChecker#safePathName(String)
+     */
+    private static String safeChildName(String name) {
+        if (name.equals(".") || name.equals("..") || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException(String.format("'%s' is not a safe archive entry or path name.", name));
+        }
+        return PathTraversalChecker.safePathName(name);
+    }
+
+    private void checkContentsArePresent(String treeName, ManifestEntry entry) {
+        HashCode contentHash = entry.getContentHash();
+        if (contentHash != null && !fileStore.contains(contentHash)) {
+            throw new IllegalStateException(String.format("Cached entry format error, content %s of tree '%s' is missing", contentHash, treeName));
+        }
+        for (ManifestEntry child : entry.getChildren()) {
+            checkContentsArePresent(treeName, child);
+        }
+    }
+
+    private long unpackTree(String treeName, CacheableTree tree, ManifestEntry rootEntry, Map<String, FileSystemLocationSnapshot> snapshots) throws IOException {
+        File treeRoot = tree.getRoot();
+        if (rootEntry.getType() == MISSING) {
+            fileSystemSupport.ensureFileIsMissing(treeRoot);
+            return 1;
+        }
+
+        fileSystemSupport.ensureDirectoryForTree(tree.getType(), treeRoot);
+        if (tree.getType() == TreeType.FILE) {
+            if (rootEntry.getType() != FILE) {
+                throw new IllegalStateException("Should be a file: " + treeName);
+            }
+            snapshots.put(treeName, unpackFile(rootEntry, treeRoot, treeRoot.getName()));
+            return 1;
+        }
+
+        if (rootEntry.getType() != DIRECTORY) {
+            throw new IllegalStateException("Should be a directory: " + treeName);
+        }
+        filePermissionAccess.chmod(treeRoot, rootEntry.getMode());
+
+        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired(directoryHashFunction);
+        builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
+        long entries = 1 + unpackChildren(rootEntry, treeRoot, builder);
+        builder.leaveDirectory();
+
+        snapshots.put(treeName, builder.getResult());
+        return entries;
+    }
+
+    private long unpackChildren(ManifestEntry directoryEntry, File directory, DirectorySnapshotBuilder builder) throws IOException {
+        long entries = 0;
+        for (ManifestEntry child : directoryEntry.getChildren()) {
+            entries++;
+            File file = new File(directory, child.getName());
+            if (child.getType() == DIRECTORY) {
+                FileUtils.forceMkdir(file);
+                filePermissionAccess.chmod(file, child.getMode());
+                builder.enterDirectory(DIRECT, stringInterner.intern(file.getAbsolutePath()), stringInterner.intern(child.getName()), INCLUDE_EMPTY_DIRS);
+                entries += unpackChildren(child, file, builder);
+                builder.leaveDirectory();
+            } else if (child.getType() == FILE) {
+                builder.visitLeafElement(unpackFile(child, file, child.getName()));
+            } else {
+                throw new IllegalStateException("Cached entry format error, missing entry inside tree: " + file);
+            }
+        }
+        return entries;
+    }
+
+    private RegularFileSnapshot unpackFile(ManifestEntry entry, File file, String fileName) throws IOException {
+        HashCode contentHash = entry.getContentHash();
+        assert contentHash != null;
+        fileStore.restore(contentHash, file);
+        filePermissionAccess.chmod(file, entry.getMode());
+        String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+        String internedFileName = stringInterner.intern(fileName);
+        return new RegularFileSnapshot(internedAbsolutePath, internedFileName, contentHash, DefaultFileMetadata.file(file.length(), file.lastModified(), DIRECT));
+    }
+
+    private static class CacheableTree {
+        private final TreeType type;
+        private final File root;
+
+        public CacheableTree(TreeType type, File root) {
+            this.type = type;
+            this.root = root;
+        }
+
+        public TreeType getType() {
+            return type;
+        }
+
+        public File getRoot() {
+            return root;
+        }
+    }
+
+    private static class ManifestEntry {
+        private final byte type;
+        private final String name;
+        private final int mode;
+        private final HashCode contentHash;
+        private final List<ManifestEntry> children;
+
+        public ManifestEntry(byte type, String name, int mode, @Nullable HashCode contentHash, List<ManifestEntry> children) {
+            this.type = type;
+            this.name = name;
+            this.mode = mode;
+            this.contentHash = contentHash;
+            this.children = children;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMode() {
+            return mode;
+        }
+
+        @Nullable
+        public HashCode getContentHash() {
+            return contentHash;
+        }
+
+        public List<ManifestEntry> getChildren() {
+            return children;
+        }
+    }
+
+    private class PackingVisitor implements FileSystemSnapshotHierarchyVisitor {
+        private final DataOutputStream manifest;
+        private final String treeName;
+        private final TreeType type;
+
+        private int depth;
+        private long packedEntryCount;
+
+        public PackingVisitor(DataOutputStream manifest, String treeName, TreeType type) {
+            this.manifest = manifest;
+            this.treeName = treeName;
+            this.type = type;
+        }
+
+        @Override
+        public void enterDirectory(DirectorySnapshot directorySnapshot) {
+            depth++;
+        }
+
+        @Override
+        public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot) {
+            boolean isRoot = depth == 0;
+            try {
+                if (isRoot) {
+                    assertCorrectType(snapshot);
+                    manifest.writeByte(TREE);
+                    manifest.writeUTF(treeName);
+                }
+                snapshot.accept(new FileSystemLocationSnapshotVisitor() {
+                    @Override
+                    public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                        int dirMode = isRoot ? DEFAULT_DIR_PERM : filePermissionAccess.getUnixMode(new File(snapshot.getAbsolutePath()));
+                        writeEntry(DIRECTORY, snapshot.getName(), dirMode);
+                    }
+
+                    @Override
+                    public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                        File file = new File(snapshot.getAbsolutePath());
+                        HashCode contentHash = fileSnapshot.getHash();
+                        try {
+                            fileStore.store(contentHash, file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        writeEntry(FILE, snapshot.getName(), filePermissionAccess.getUnixMode(file));
+                        writeHash(contentHash);
+                    }
+
+                    @Override
+                    public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                        if (!isRoot) {
+                            throw new RuntimeException(String.format("Couldn't read content of file '%s'", snapshot.getAbsolutePath()));
+                        }
+                        writeTag(MISSING);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            packedEntryCount++;
+            return SnapshotVisitResult.CONTINUE;
+        }
+
+        @Override
+        public void leaveDirectory(DirectorySnapshot directorySnapshot) {
+            depth--;
+            writeTag(END_OF_DIRECTORY);
+        }
+
+        public long getPackedEntryCount() {
+            return packedEntryCount;
+        }
+
+        private void assertCorrectType(FileSystemLocationSnapshot snapshot) {
+            switch (type) {
+                case DIRECTORY:
+                    if (snapshot.getType() == FileType.RegularFile) {
+                        throw new IllegalArgumentException(String.format("Expected '%s' to be a directory", snapshot.getAbsolutePath()));
+                    }
+                    break;
+                case FILE:
+                    if (snapshot.getType() == FileType.Directory) {
+                        throw new IllegalArgumentException(String.format("Expected '%s' to be a file", snapshot.getAbsolutePath()));
+                    }
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        private void writeTag(byte tag) {
+            try {
+                manifest.writeByte(tag);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeEntry(byte tag, String name, int mode) {
+            try {
+                manifest.writeByte(tag);
+                manifest.writeUTF(name);
+                manifest.writeInt(mode);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeHash(HashCode hash) {
+            try {
+                byte[] bytes = hash.toByteArray();
+                manifest.writeByte(bytes.length);
+                manifest.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Stores the contents of files once, addressed by the hash of their content.
+ */
+public interface ContentAddressedFileStore {
+    /**
+     * Whether content with the given hash is present in the store.
+     */
+    boolean contains(HashCode contentHash);
+
+    /**
+     * Stores the content of the given file under the given hash, unless the store already contains it.
+     *
+     * @throws IOException if the content of the file does not match the given hash anymore.
+     */
+    void store(HashCode contentHash, File source) throws IOException;
+
+    /**
+     * Replaces the given target file with the stored content with the given hash.
+     */
+    void restore(HashCode contentHash, File target) throws IOException;
+}
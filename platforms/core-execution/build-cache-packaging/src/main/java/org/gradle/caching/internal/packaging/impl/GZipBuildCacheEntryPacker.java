@@ -22,22 +22,41 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class GZipBuildCacheEntryPacker implements BuildCacheEntryPacker {
     private final BuildCacheEntryPacker delegate;
+    @Nullable
+    private final Executor compressionExecutor;
 
     public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Creates a packer that compresses blocks of the entry concurrently on the given executor, if any.
+     *
+     * @see ParallelGZipOutputStream
+     */
+    public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate, @Nullable Executor compressionExecutor) {
         this.delegate = delegate;
+        this.compressionExecutor = compressionExecutor;
     }
 
     @Override
     public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        if (compressionExecutor != null) {
+            try (ParallelGZipOutputStream gzipOutput = new ParallelGZipOutputStream(output, compressionExecutor)) {
+                return delegate.pack(entity, snapshots, gzipOutput, writeOrigin);
+            }
+        }
         try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
             return delegate.pack(entity, snapshots, gzipOutput, writeOrigin);
         }
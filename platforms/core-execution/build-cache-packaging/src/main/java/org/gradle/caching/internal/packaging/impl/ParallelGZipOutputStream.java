@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the written data as a sequence of GZIP members, each of a fixed size block of the data.
+ *
+ * The blocks are compressed concurrently, and written in order. Since every block is compressed independently,
+ * the output only depends on the written data. Readers like {@link java.util.zip.GZIPInputStream} decompress
+ * the concatenated members as a single stream.
+ */
+class ParallelGZipOutputStream extends OutputStream {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int MAX_PENDING_BLOCKS = 16;
+
+    private final OutputStream output;
+    private final Executor executor;
+    private final Deque<CompletableFuture<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private boolean anyBlockWritten;
+    private boolean closed;
+
+    public ParallelGZipOutputStream(OutputStream output, Executor executor) {
+        this.output = output;
+        this.executor = executor;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockLength == BLOCK_SIZE) {
+            submitBlock(true);
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(true);
+            }
+            int count = Math.min(length, BLOCK_SIZE - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void submitBlock(boolean moreToCome) throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        pendingBlocks.addLast(CompletableFuture.supplyAsync(() -> compress(data, length), executor));
+        anyBlockWritten = true;
+        block = moreToCome ? new byte[BLOCK_SIZE] : null;
+        blockLength = 0;
+        while (pendingBlocks.size() > MAX_PENDING_BLOCKS) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        CompletableFuture<byte[]> compressed = pendingBlocks.removeFirst();
+        try {
+            output.write(compressed.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static byte[] compress(byte[] data, int length) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(compressed)) {
+            gzipOutput.write(data, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Flushing would end the current block early, and make the output depend on the flushes
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0 || !anyBlockWritten) {
+                submitBlock(false);
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -38,6 +38,7 @@
 import org.gradle.internal.file.TreeType;
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.snapshot.DirectorySnapshot;
 import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
@@ -53,6 +54,7 @@
 
 import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -66,9 +68,18 @@
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,6 +88,10 @@
 
 /**
  * Packages build cache entries to a POSIX TAR file.
+ *
+ * When given an executor, the packer reads the contents of small files ahead on the executor while packing,
+ * and writes small files on the executor while unpacking. Entries are still written to the archive in the
+ * same order, so the archive is the same as when packing on a single thread.
  */
 public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker {
 
@@ -93,24 +108,52 @@ private interface UnixPermissions {
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
 
+    /**
+     * Files up to this size are read and written concurrently, larger files are streamed.
+     */
+    private static final long MAX_CONCURRENT_FILE_SIZE = 256 * 1024;
+
+    /**
+     * The maximum number of files read or written concurrently per entry, bounding the memory used for buffering their contents.
+     */
+    private static final int MAX_PENDING_FILES = 64;
+
     private final TarPackerFileSystemSupport fileSystemSupport;
     private final FilePermissionAccess filePermissionAccess;
     private final StreamHasher streamHasher;
+    private final HashFunction directoryHashFunction;
     private final Interner<String> stringInterner;
     private final BufferProvider bufferProvider;
+    @Nullable
+    private final Executor fileExecutor;
 
     public TarBuildCacheEntryPacker(
         TarPackerFileSystemSupport fileSystemSupport,
         FilePermissionAccess filePermissionAccess,
         StreamHasher streamHasher,
+        HashFunction directoryHashFunction,
         Interner<String> stringInterner,
         BufferProvider bufferProvider
+    ) {
+        this(fileSystemSupport, filePermissionAccess, streamHasher, directoryHashFunction, stringInterner, bufferProvider, null);
+    }
+
+    public TarBuildCacheEntryPacker(
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        StreamHasher streamHasher,
+        HashFunction directoryHashFunction,
+        Interner<String> stringInterner,
+        BufferProvider bufferProvider,
+        @Nullable Executor fileExecutor
     ) {
         this.fileSystemSupport = fileSystemSupport;
         this.filePermissionAccess = filePermissionAccess;
         this.streamHasher = streamHasher;
+        this.directoryHashFunction = directoryHashFunction;
         this.stringInterner = stringInterner;
         this.bufferProvider = bufferProvider;
+        this.fileExecutor = fileExecutor;
     }
 
     @Override
@@ -131,7 +174,7 @@ public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemS
         }
     }
 
-    private static void packMetadata(OriginWriter writeMetadata, TarArchiveOutputStream tarOutput) throws IOException {
+    private void packMetadata(OriginWriter writeMetadata, TarArchiveOutputStream tarOutput) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         writeMetadata.execute(output);
         createTarEntry(METADATA_PATH, output.size(), UnixPermissions.FILE_FLAG | UnixPermissions.DEFAULT_FILE_PERM, tarOutput);
@@ -156,13 +199,19 @@ private long pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapsh
     private long packTree(String name, TreeType type, FileSystemSnapshot snapshots, TarArchiveOutputStream tarOutput) {
         PackingVisitor packingVisitor = new PackingVisitor(tarOutput, name, type);
         snapshots.accept(new RelativePathTracker(), packingVisitor);
+        packingVisitor.writePendingEntries(0);
         return packingVisitor.getPackedEntryCount();
     }
 
-    private static void createTarEntry(String path, long size, int mode, TarArchiveOutputStream tarOutput) throws IOException {
+    private void createTarEntry(String path, long size, int mode, TarArchiveOutputStream tarOutput) throws IOException {
         TarArchiveEntry entry = new TarArchiveEntry(path, true);
         entry.setSize(size);
         entry.setMode(mode);
+        if (fileExecutor != null) {
+            // The modification time is not restored when unpacking, so use a fixed one to keep archives reproducible.
+            // Only done when packing concurrently, so archives created by the default mode stay byte-for-byte unchanged.
+            entry.setModTime(0);
+        }
         tarOutput.putArchiveEntry(entry);
     }
 
@@ -280,39 +329,134 @@ private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEn
     private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, FileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName) throws IOException {
         RelativePathParser parser = new RelativePathParser(safeEntryName(rootEntry));
 
-        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
-        builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
+        UnpackedTreeSnapshotBuilder builder = new UnpackedTreeSnapshotBuilder(directoryHashFunction);
+        builder.enterDirectory(stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()));
 
         TarArchiveEntry entry;
 
-        while ((entry = input.getNextEntry()) != null) {
-            boolean isDir = entry.isDirectory();
-            boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, builder::leaveDirectory);
-            if (outsideOfRoot) {
-                break;
-            }
-            entries.incrementAndGet();
-
-            File file = new File(treeRoot, parser.getRelativePath());
-            if (isDir) {
-                FileUtils.forceMkdir(file);
-                chmodUnpackedFile(entry, file);
-                String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
-                String internedName = stringInterner.intern(parser.getName());
-                builder.enterDirectory(DIRECT, internedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS);
-            } else {
-                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, parser.getName());
-                builder.visitLeafElement(fileSnapshot);
+        try {
+            while ((entry = input.getNextEntry()) != null) {
+                boolean isDir = entry.isDirectory();
+                boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, builder::leaveDirectory);
+                if (outsideOfRoot) {
+                    break;
+                }
+                entries.incrementAndGet();
+
+                File file = new File(treeRoot, parser.getRelativePath());
+                if (isDir) {
+                    FileUtils.forceMkdir(file);
+                    chmodUnpackedFile(entry, file);
+                    String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+                    String internedName = stringInterner.intern(parser.getName());
+                    builder.enterDirectory(internedAbsolutePath, internedName);
+                } else if (fileExecutor != null && entry.getSize() <= MAX_CONCURRENT_FILE_SIZE) {
+                    builder.visitFile(unpackFileConcurrently(input, entry, file, parser.getName()));
+                } else {
+                    builder.visitFile(CompletableFuture.completedFuture(unpackFile(input, entry, file, parser.getName())));
+                }
             }
+        } catch (IOException | RuntimeException e) {
+            builder.awaitPendingFiles();
+            throw e;
         }
 
         parser.exitToRoot(builder::leaveDirectory);
         builder.leaveDirectory();
 
-        snapshots.put(treeName, builder.getResult());
+        snapshots.put(treeName, builder.build());
         return entry;
     }
 
+    private CompletableFuture<RegularFileSnapshot> unpackFileConcurrently(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+        byte[] content = IOUtils.toByteArray(input, entry.getSize());
+        int mode = entry.getMode();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                HashCode hash;
+                try (FileOutputStream output = new FileOutputStream(file)) {
+                    hash = streamHasher.hashCopy(new ByteArrayInputStream(content), output);
+                }
+                filePermissionAccess.chmod(file, mode & UnixPermissions.PERM_MASK);
+                String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+                String internedFileName = stringInterner.intern(fileName);
+                return new RegularFileSnapshot(internedAbsolutePath, internedFileName, hash, DefaultFileMetadata.file(content.length, file.lastModified(), DIRECT));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, fileExecutor);
+    }
+
+    /**
+     * Records the structure of an unpacked directory tree while files are still being written,
+     * and builds its snapshot once all files have been written.
+     */
+    private static class UnpackedTreeSnapshotBuilder {
+        private final List<Consumer<DirectorySnapshotBuilder>> operations = new ArrayList<>();
+        private final Deque<CompletableFuture<RegularFileSnapshot>> pendingFiles = new ArrayDeque<>();
+        private final HashFunction directoryHashFunction;
+
+        public UnpackedTreeSnapshotBuilder(HashFunction directoryHashFunction) {
+            this.directoryHashFunction = directoryHashFunction;
+        }
+
+        public void enterDirectory(String absolutePath, String name) {
+            operations.add(builder -> builder.enterDirectory(DIRECT, absolutePath, name, INCLUDE_EMPTY_DIRS));
+        }
+
+        public void leaveDirectory() {
+            operations.add(DirectorySnapshotBuilder::leaveDirectory);
+        }
+
+        public void visitFile(CompletableFuture<RegularFileSnapshot> file) throws IOException {
+            operations.add(builder -> builder.visitLeafElement(file.join()));
+            if (!file.isDone()) {
+                pendingFiles.addLast(file);
+                while (pendingFiles.size() > MAX_PENDING_FILES) {
+                    join(pendingFiles.removeFirst());
+                }
+            }
+        }
+
+        public void awaitPendingFiles() {
+            for (CompletableFuture<RegularFileSnapshot> pendingFile : pendingFiles) {
+                try {
+                    pendingFile.join();
+                } catch (CompletionException ignored) {
+                    // Only waiting for the file to be written, the original failure is reported
+                }
+            }
+        }
+
+        @Nullable
+        public FileSystemLocationSnapshot build() throws IOException {
+            DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired(directoryHashFunction);
+            try {
+                operations.forEach(operation -> operation.accept(builder));
+            } catch (CompletionException e) {
+                awaitPendingFiles();
+                throw unwrap(e);
+            }
+            return builder.getResult();
+        }
+
+        private static void join(CompletableFuture<?> future) throws IOException {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        private static IOException unwrap(CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                return ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Returns a safe name for the name of a tar archive entry.
      *
@@ -347,6 +491,7 @@ private class PackingVisitor implements RelativePathTrackingFileSystemSnapshotHi
         private final String treePath;
         private final String treeRoot;
         private final TreeType type;
+        private final Deque<Runnable> pendingEntries = new ArrayDeque<>();
 
         private long packedEntryCount;
 
@@ -367,7 +512,7 @@ public void visitDirectory(DirectorySnapshot directorySnapshot) {
                     assertCorrectType(isRoot, snapshot);
                     File dir = new File(snapshot.getAbsolutePath());
                     int dirMode = isRoot ? UnixPermissions.DEFAULT_DIR_PERM : filePermissionAccess.getUnixMode(dir);
-                    storeDirectoryEntry(targetPath, dirMode, tarOutput);
+                    writeInOrder(() -> storeDirectoryEntry(targetPath, dirMode, tarOutput));
                 }
 
                 @Override
@@ -375,7 +520,13 @@ public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
                     assertCorrectType(isRoot, snapshot);
                     File file = new File(snapshot.getAbsolutePath());
                     int fileMode = filePermissionAccess.getUnixMode(file);
-                    storeFileEntry(file, targetPath, file.length(), fileMode, tarOutput);
+                    long fileLength = file.length();
+                    if (fileExecutor != null && fileLength <= MAX_CONCURRENT_FILE_SIZE) {
+                        CompletableFuture<byte[]> content = CompletableFuture.supplyAsync(() -> readContent(file), fileExecutor);
+                        writeInOrder(() -> storeFileEntry(content, targetPath, fileMode, tarOutput));
+                    } else {
+                        writeInOrder(() -> storeFileEntry(file, targetPath, fileLength, fileMode, tarOutput));
+                    }
                 }
 
                 @Override
@@ -383,7 +534,7 @@ public void visitMissing(MissingFileSnapshot missingSnapshot) {
                     if (!isRoot) {
                         throw new RuntimeException(String.format("Couldn't read content of file '%s'", snapshot.getAbsolutePath()));
                     }
-                    storeMissingTree(targetPath, tarOutput);
+                    writeInOrder(() -> storeMissingTree(targetPath, tarOutput));
                 }
             });
             packedEntryCount++;
@@ -394,6 +545,20 @@ public long getPackedEntryCount() {
             return packedEntryCount;
         }
 
+        private void writeInOrder(Runnable writeEntry) {
+            pendingEntries.addLast(writeEntry);
+            writePendingEntries(fileExecutor == null ? 0 : MAX_PENDING_FILES);
+        }
+
+        /**
+         * Writes the oldest pending entries to the archive until at most {@code maxPendingEntries} are left.
+         */
+        public void writePendingEntries(int maxPendingEntries) {
+            while (pendingEntries.size() > maxPendingEntries) {
+                pendingEntries.removeFirst().run();
+            }
+        }
+
         private void assertCorrectType(boolean root, FileSystemLocationSnapshot snapshot) {
             if (root) {
                 switch (type) {
@@ -437,6 +602,31 @@ private void storeDirectoryEntry(String path, int mode, TarArchiveOutputStream t
             }
         }
 
+        private byte[] readContent(File file) {
+            try {
+                return Files.readAllBytes(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void storeFileEntry(CompletableFuture<byte[]> content, String path, int mode, TarArchiveOutputStream tarOutput) {
+            byte[] bytes;
+            try {
+                bytes = content.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+            }
+            try {
+                createTarEntry(path, bytes.length, UnixPermissions.FILE_FLAG | mode, tarOutput);
+                tarOutput.write(bytes);
+                tarOutput.closeArchiveEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         private void storeFileEntry(File inputFile, String path, long size, int mode, TarArchiveOutputStream tarOutput) {
             try {
                 createTarEntry(path, size, UnixPermissions.FILE_FLAG | mode, tarOutput);
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.internal.file.TreeType
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.snapshot.FileSystemSnapshot
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.time.Duration
+
+import static org.gradle.internal.file.TreeType.DIRECTORY
+import static org.gradle.internal.file.TreeType.FILE
+
+@CleanupTestDirectory
+class ContentAddressedBuildCacheEntryPackerTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def originMetadata = new OriginMetadata("build", HashCode.fromString("0123456789abcdef0123456789abcdef"), Duration.ofMillis(10))
+    def writeOrigin = { OutputStream output -> output.write("origin".bytes) } as OriginWriter
+    def readOrigin = { InputStream input ->
+        assert input.text == "origin"
+        originMetadata
+    } as OriginReader
+
+    def fileStore = new InMemoryContentAddressedFileStore()
+    def filePermissionAccess = new FilePermissionAccess() {
+        @Delegate
+        FileSystem fs = TestFiles.fileSystem()
+    }
+    def packer = new ContentAddressedBuildCacheEntryPacker(fileStore, new DefaultTarPackerFileSystemSupport(TestFiles.deleter()), filePermissionAccess, Hashing.defaultFunction(), new StringInterner())
+    def fileSystemAccess = TestFiles.fileSystemAccess()
+
+    def "can pack and unpack directory"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        sourceOutputDir.file("subdir/data.txt") << "output"
+        sourceOutputDir.file("empty").createDir()
+        def targetOutputDir = temporaryFolder.file("target").createDir()
+        targetOutputDir.file("stale.txt") << "stale"
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def packResult = pack(output, "dir", DIRECTORY, sourceOutputDir)
+
+        then:
+        packResult.entries == 5
+
+        when:
+        def result = unpack(output, "dir", DIRECTORY, targetOutputDir)
+
+        then:
+        result.entries == 5
+        result.originMetadata == originMetadata
+        targetOutputDir.file("subdir/data.txt").text == "output"
+        targetOutputDir.file("empty").directory
+        !targetOutputDir.file("stale.txt").exists()
+        result.snapshots["dir"].hash == fileSystemAccess.read(sourceOutputDir.absolutePath).hash
+    }
+
+    def "can pack and unpack single file"() {
+        def sourceOutputFile = temporaryFolder.file("source.txt") << "output"
+        def targetOutputFile = temporaryFolder.file("target/target.txt")
+        def output = new ByteArrayOutputStream()
+
+        when:
+        pack(output, "file", FILE, sourceOutputFile)
+        def result = unpack(output, "file", FILE, targetOutputFile)
+
+        then:
+        targetOutputFile.text == "output"
+        result.snapshots["file"].hash == fileSystemAccess.read(sourceOutputFile.absolutePath).hash
+    }
+
+    def "can pack and unpack missing #type"() {
+        def targetOutput = temporaryFolder.file("target")
+        targetOutput.createFile()
+        def output = new ByteArrayOutputStream()
+
+        when:
+        pack(output, "missing", type, temporaryFolder.file("source"))
+        def result = unpack(output, "missing", type, targetOutput)
+
+        then:
+        !targetOutput.exists()
+        result.snapshots.isEmpty()
+
+        where:
+        type << [FILE, DIRECTORY]
+    }
+
+    def "stores identical contents only once"() {
+        def firstOutputDir = temporaryFolder.file("first").createDir()
+        firstOutputDir.file("a.txt") << "shared"
+        firstOutputDir.file("b.txt") << "shared"
+        def secondOutputDir = temporaryFolder.file("second").createDir()
+        secondOutputDir.file("c.txt") << "shared"
+        secondOutputDir.file("d.txt") << "unique"
+
+        when:
+        pack(new ByteArrayOutputStream(), "dir", DIRECTORY, firstOutputDir)
+        pack(new ByteArrayOutputStream(), "dir", DIRECTORY, secondOutputDir)
+
+        then:
+        fileStore.contents.size() == 2
+    }
+
+    def "does not touch outputs when contents are missing"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        sourceOutputDir.file("data.txt") << "output"
+        def targetOutputDir = temporaryFolder.file("target").createDir()
+        def existingFile = targetOutputDir.file("existing.txt") << "existing"
+        def output = new ByteArrayOutputStream()
+        pack(output, "dir", DIRECTORY, sourceOutputDir)
+        fileStore.contents.clear()
+
+        when:
+        unpack(output, "dir", DIRECTORY, targetOutputDir)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message.contains("is missing")
+        existingFile.text == "existing"
+    }
+
+    private BuildCacheEntryPacker.PackResult pack(ByteArrayOutputStream output, String treeName, TreeType type, File root) {
+        Map<String, FileSystemSnapshot> snapshots = [(treeName): fileSystemAccess.read(root.absolutePath)]
+        packer.pack(entity(treeName, type, root), snapshots, output, writeOrigin)
+    }
+
+    private BuildCacheEntryPacker.UnpackResult unpack(ByteArrayOutputStream output, String treeName, TreeType type, File root) {
+        packer.unpack(entity(treeName, type, root), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+    }
+
+    private CacheableEntity entity(String treeName, TreeType type, File root) {
+        Stub(CacheableEntity) {
+            visitOutputTrees(_ as CacheableEntity.CacheableTreeVisitor) >> { CacheableEntity.CacheableTreeVisitor visitor ->
+                visitor.visitOutputTree(treeName, type, root)
+            }
+        }
+    }
+
+    private static class InMemoryContentAddressedFileStore implements ContentAddressedFileStore {
+        final Map<HashCode, byte[]> contents = [:]
+
+        @Override
+        boolean contains(HashCode contentHash) {
+            contents.containsKey(contentHash)
+        }
+
+        @Override
+        void store(HashCode contentHash, File source) {
+            contents.putIfAbsent(contentHash, source.bytes)
+        }
+
+        @Override
+        void restore(HashCode contentHash, File target) {
+            target.bytes = contents[contentHash]
+        }
+    }
+}
@@ -17,13 +17,19 @@
 package org.gradle.caching.internal.packaging.impl
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.file.BufferProvider
 import org.gradle.internal.file.Deleter
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.test.precondition.Requires
 import org.gradle.test.preconditions.UnitTestPreconditions
 
+import java.util.concurrent.Executors
+import java.util.zip.GZIPInputStream
+
 import static org.gradle.internal.file.TreeType.DIRECTORY
 import static org.gradle.internal.file.TreeType.FILE
 
@@ -273,4 +279,57 @@ class TarBuildCacheEntryPackerTest extends AbstractTarBuildCacheEntryPackerSpec
         iae.message == "'tree-destinationDir/../evil.txt' is not a safe archive entry or path name."
         !temporaryFolder.file("evil.txt").exists()
     }
+
+    def "packs the same archive when reading and compressing files concurrently"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        (1..50).each { index ->
+            sourceOutputDir.file("dir${index % 5}/file${index}.txt") << ("content ${index} " * index)
+        }
+        def executor = Executors.newFixedThreadPool(4)
+        def concurrentTarPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, Hashing.defaultFunction(), stringInterner, Stub(BufferProvider) {
+            getBuffer() >> new byte[4096]
+        }, executor)
+        def concurrentPacker = new GZipBuildCacheEntryPacker(concurrentTarPacker, executor)
+        def serialPacker = new GZipBuildCacheEntryPacker(packer)
+        def snapshots = [test: fileSystemAccess.read(sourceOutputDir.absolutePath)]
+        def entity = entity(prop(DIRECTORY, sourceOutputDir))
+
+        when:
+        def serialOutput = new ByteArrayOutputStream()
+        serialPacker.pack(entity, snapshots, serialOutput, writeOrigin)
+        def concurrentOutput = new ByteArrayOutputStream()
+        concurrentPacker.pack(entity, snapshots, concurrentOutput, writeOrigin)
+        def secondConcurrentOutput = new ByteArrayOutputStream()
+        concurrentPacker.pack(entity, snapshots, secondConcurrentOutput, writeOrigin)
+
+        then:
+        concurrentOutput.toByteArray() == secondConcurrentOutput.toByteArray()
+        tarEntries(concurrentOutput)*.subMap("name", "mode", "content") == tarEntries(serialOutput)*.subMap("name", "mode", "content")
+        tarEntries(concurrentOutput)*.modTime.every { it == 0 }
+        // Archives packed serially keep the format used before concurrent packing was introduced
+        tarEntries(serialOutput)*.modTime.every { it > 0 }
+
+        when:
+        def targetOutputDir = temporaryFolder.file("target")
+        def result = concurrentPacker.unpack(entity(prop(DIRECTORY, targetOutputDir)), new ByteArrayInputStream(concurrentOutput.toByteArray()), readOrigin)
+
+        then:
+        result.entries == 57
+        result.snapshots["test"].hash == snapshots["test"].hash
+        (1..50).every { index -> targetOutputDir.file("dir${index % 5}/file${index}.txt").text == "content ${index} " * index }
+
+        cleanup:
+        executor?.shutdown()
+    }
+
+    private static List<Map<String, Object>> tarEntries(ByteArrayOutputStream output) {
+        def entries = []
+        new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))).withCloseable { tarInput ->
+            TarArchiveEntry entry
+            while ((entry = tarInput.nextTarEntry) != null) {
+                entries << [name: entry.name, mode: entry.mode, modTime: entry.modTime.time, content: tarInput.bytes]
+            }
+        }
+        entries
+    }
 }
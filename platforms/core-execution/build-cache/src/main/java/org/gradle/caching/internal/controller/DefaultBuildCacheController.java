@@ -68,6 +68,7 @@
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultBuildCacheController implements BuildCacheController {
@@ -80,6 +81,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     private final BuildCacheTempFileStore tmp;
     private final PackOperationExecutor packExecutor;
+    private final PackOperationExecutor localPackExecutor;
+    @Nullable
+    private final RemoteBuildCacheUploader remoteUploader;
 
     private boolean closed;
 
@@ -93,6 +97,28 @@ public DefaultBuildCacheController(
         BuildCacheEntryPacker packer,
         OriginMetadataFactory originMetadataFactory,
         Interner<String> stringInterner
+    ) {
+        this(config, buildOperationRunner, buildOperationProgressEventEmitter, temporaryFileFactory, logStackTraces, disableRemoteOnError, packer, packer, originMetadataFactory, stringInterner, null);
+    }
+
+    /**
+     * Creates a controller that packs entries for the local cache with {@code localPacker}, and entries for the remote cache with {@code packer}.
+     *
+     * When {@code remoteStoreExecutor} is given, entries are stored in the remote cache in the background using that executor,
+     * and {@link #close()} waits for pending uploads.
+     */
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        TemporaryFileFactory temporaryFileFactory,
+        boolean logStackTraces,
+        boolean disableRemoteOnError,
+        BuildCacheEntryPacker packer,
+        BuildCacheEntryPacker localPacker,
+        OriginMetadataFactory originMetadataFactory,
+        Interner<String> stringInterner,
+        @Nullable Executor remoteStoreExecutor
     ) {
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush(), buildOperationRunner);
         this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
@@ -103,6 +129,12 @@ public DefaultBuildCacheController(
             originMetadataFactory,
             stringInterner
         );
+        this.localPackExecutor = localPacker == packer
+            ? packExecutor
+            : new PackOperationExecutor(buildOperationRunner, localPacker, originMetadataFactory, stringInterner);
+        this.remoteUploader = remoteStoreExecutor != null && remote.canStore()
+            ? new RemoteBuildCacheUploader(remote, remoteStoreExecutor, temporaryFileFactory, buildOperationProgressEventEmitter)
+            : null;
     }
 
     @Override
@@ -121,7 +153,11 @@ public Optional<BuildCacheLoadResult> load(BuildCacheKey key, CacheableEntity en
 
     private Optional<BuildCacheLoadResult> loadLocal(BuildCacheKey key, CacheableEntity entity) {
         try {
-            return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file));
+            if (localPackExecutor == packExecutor) {
+                return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file));
+            }
+            // Entries that were also stored in or loaded from the remote cache are kept in the packed format
+            return local.maybeLoad(key, file -> localPackExecutor.unpack(key, entity, file), file -> packExecutor.unpack(key, entity, file));
         } catch (Exception e) {
             throw new BuildCacheOperationException("Could not load from local cache: " + e.getMessage(), e);
         }
@@ -140,7 +176,7 @@ private Optional<BuildCacheLoadResult> loadRemoteAndStoreResultLocally(BuildCach
                 throw new BuildCacheOperationException("Could not load from remote cache: " + e.getMessage(), e);
             }
             if (remoteResult.isPresent()) {
-                local.maybeStore(key, file);
+                storeLocal(key, file);
                 result.set(remoteResult);
             }
         });
@@ -153,12 +189,42 @@ public void store(BuildCacheKey key, CacheableEntity entity, Map<String, FileSys
             return;
         }
         tmp.withTempFile(((BuildCacheKeyInternal) key).getHashCodeInternal(), file -> {
-            packExecutor.pack(file, key, entity, snapshots, executionTime);
-            remote.maybeStore(key, file);
-            local.maybeStore(key, file);
+            if (remote.canStore() || localPackExecutor == packExecutor) {
+                // Pack the entry once, and use the same file for both caches
+                packExecutor.pack(file, key, entity, snapshots, executionTime);
+                if (remoteUploader != null) {
+                    // The local cache takes over the packed file, so copy it for the upload first,
+                    // and only wait for room in the upload queue once the entry is stored locally
+                    File upload = remote.canStore() ? remoteUploader.copyForUpload(key, file) : null;
+                    try {
+                        storeLocal(key, file);
+                    } finally {
+                        if (upload != null) {
+                            remoteUploader.submit(key, upload);
+                        }
+                    }
+                } else {
+                    remote.maybeStore(key, file);
+                    storeLocal(key, file);
+                }
+            } else {
+                localPackExecutor.pack(file, key, entity, snapshots, executionTime);
+                local.maybeStore(key, file);
+            }
         });
     }
 
+    /**
+     * Stores an entry packed by {@link #packExecutor} in the local cache.
+     */
+    private void storeLocal(BuildCacheKey key, File file) {
+        if (localPackExecutor == packExecutor) {
+            local.maybeStore(key, file);
+        } else {
+            local.maybeStorePacked(key, file);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (!closed) {
@@ -166,6 +232,10 @@ public void close() throws IOException {
             Closer closer = Closer.create();
             closer.register(local);
             closer.register(remote);
+            // Closed first, as pending uploads need the remote cache
+            if (remoteUploader != null) {
+                closer.register(remoteUploader);
+            }
             closer.close();
         }
     }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.BuildCacheKeyInternal;
+import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle;
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreQueuedProgressDetails;
+import org.gradle.caching.local.internal.TemporaryFileFactory;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Stores entries in the remote build cache in the background, so that work does not have to wait for uploads to finish.
+ *
+ * Each entry is first copied with {@link #copyForUpload(BuildCacheKey, File)}, so the caller can hand the original to the local cache,
+ * and the copy is then queued with {@link #submit(BuildCacheKey, File)}, uploaded and deleted by the executor.
+ * Entries for keys that have already been submitted are skipped.
+ * When too many entries or bytes are waiting to be uploaded, {@link #submit(BuildCacheKey, File)} blocks until uploads catch up.
+ * Each queued entry is reported with a {@link BuildCacheRemoteStoreQueuedProgressDetails} progress event, which carries the size of the queue.
+ * Closing the uploader waits for all pending uploads.
+ *
+ * Uploads do not run as children of the build operation that submitted them, as that operation has usually completed by the time the upload starts.
+ */
+class RemoteBuildCacheUploader implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteBuildCacheUploader.class);
+
+    static final int MAX_PENDING_ENTRIES = 64;
+    static final long MAX_PENDING_BYTES = 256L * 1024 * 1024;
+
+    private final RemoteBuildCacheServiceHandle remote;
+    private final Executor executor;
+    private final TemporaryFileFactory temporaryFileFactory;
+    private final BuildOperationProgressEventEmitter progressEventEmitter;
+    private final int maxPendingEntries;
+    private final long maxPendingBytes;
+
+    private final Object lock = new Object();
+    private final Set<HashCode> submittedKeys = new HashSet<>();
+    private int pendingEntries;
+    private long pendingBytes;
+    private int peakPendingEntries;
+    private long peakPendingBytes;
+    private int uploadedEntries;
+    private int skippedEntries;
+
+    RemoteBuildCacheUploader(RemoteBuildCacheServiceHandle remote, Executor executor, TemporaryFileFactory temporaryFileFactory, BuildOperationProgressEventEmitter progressEventEmitter) {
+        this(remote, executor, temporaryFileFactory, progressEventEmitter, MAX_PENDING_ENTRIES, MAX_PENDING_BYTES);
+    }
+
+    RemoteBuildCacheUploader(RemoteBuildCacheServiceHandle remote, Executor executor, TemporaryFileFactory temporaryFileFactory, BuildOperationProgressEventEmitter progressEventEmitter, int maxPendingEntries, long maxPendingBytes) {
+        this.remote = remote;
+        this.executor = executor;
+        this.temporaryFileFactory = temporaryFileFactory;
+        this.progressEventEmitter = progressEventEmitter;
+        this.maxPendingEntries = maxPendingEntries;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Copies the given entry, so that the copy can be queued with {@link #submit(BuildCacheKey, File)} once the caller has finished with the entry.
+     *
+     * @return the copy, or {@code null} when the key has already been submitted or the entry could not be copied.
+     */
+    @Nullable
+    File copyForUpload(BuildCacheKey key, File file) {
+        synchronized (lock) {
+            if (!submittedKeys.add(((BuildCacheKeyInternal) key).getHashCodeInternal())) {
+                skippedEntries++;
+                return null;
+            }
+        }
+        File upload = null;
+        try {
+            upload = temporaryFileFactory.createTemporaryFile("build-cache-upload", ".bin");
+            Files.copy(file.toPath(), upload.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return upload;
+        } catch (IOException e) {
+            LOGGER.warn("Could not queue entry {} for upload to remote build cache: {}", key.getHashCode(), e.getMessage());
+            if (upload != null) {
+                deleteQuietly(upload);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Queues a copy created by {@link #copyForUpload(BuildCacheKey, File)} for upload, and deletes it once it has been uploaded.
+     * Blocks while too many entries or bytes are pending.
+     */
+    void submit(BuildCacheKey key, File upload) {
+        long size = upload.length();
+        int queuedEntries;
+        long queuedBytes;
+        synchronized (lock) {
+            try {
+                // Always accept an entry when nothing is pending, even if it is larger than the limit
+                while (pendingEntries > 0 && (pendingEntries >= maxPendingEntries || pendingBytes + size > maxPendingBytes)) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                submittedKeys.remove(((BuildCacheKeyInternal) key).getHashCodeInternal());
+                deleteQuietly(upload);
+                return;
+            }
+            pendingEntries++;
+            pendingBytes += size;
+            peakPendingEntries = Math.max(peakPendingEntries, pendingEntries);
+            peakPendingBytes = Math.max(peakPendingBytes, pendingBytes);
+            queuedEntries = pendingEntries;
+            queuedBytes = pendingBytes;
+        }
+
+        boolean queued = false;
+        try {
+            executor.execute(() -> upload(key, upload, size));
+            queued = true;
+            progressEventEmitter.emitNowIfCurrent(new QueuedProgressDetails(key.getHashCode(), queuedEntries, queuedBytes));
+        } finally {
+            if (!queued) {
+                deleteQuietly(upload);
+                completed(size, false);
+            }
+        }
+    }
+
+    private void upload(BuildCacheKey key, File upload, long size) {
+        boolean stored = false;
+        try {
+            stored = CurrentBuildOperationRef.instance().with(null, () -> remote.maybeStore(key, upload));
+        } finally {
+            deleteQuietly(upload);
+            completed(size, stored);
+        }
+    }
+
+    private void completed(long size, boolean stored) {
+        synchronized (lock) {
+            pendingEntries--;
+            pendingBytes -= size;
+            if (stored) {
+                uploadedEntries++;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    int getPendingEntries() {
+        synchronized (lock) {
+            return pendingEntries;
+        }
+    }
+
+    long getPendingBytes() {
+        synchronized (lock) {
+            return pendingBytes;
+        }
+    }
+
+    /**
+     * Waits for all pending uploads to finish.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        synchronized (lock) {
+            if (pendingEntries > 0) {
+                LOGGER.info("Waiting for {} pending uploads to remote build cache ({} bytes).", pendingEntries, pendingBytes);
+            }
+            while (pendingEntries > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (!submittedKeys.isEmpty()) {
+                LOGGER.info("Uploaded {} entries to remote build cache in the background, skipped {} duplicate entries. Peak queue depth: {} entries, {} bytes.",
+                    uploadedEntries, skippedEntries, peakPendingEntries, peakPendingBytes);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class QueuedProgressDetails implements BuildCacheRemoteStoreQueuedProgressDetails {
+        private final String cacheKey;
+        private final int pendingEntries;
+        private final long pendingBytes;
+
+        QueuedProgressDetails(String cacheKey, int pendingEntries, long pendingBytes) {
+            this.cacheKey = cacheKey;
+            this.pendingEntries = pendingEntries;
+            this.pendingBytes = pendingBytes;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public int getPendingEntries() {
+            return pendingEntries;
+        }
+
+        @Override
+        public long getPendingBytes() {
+            return pendingBytes;
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete {}", file, e);
+        }
+    }
+}
@@ -24,6 +24,7 @@
 import java.io.IOException;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class BaseLocalBuildCacheServiceHandle implements LocalBuildCacheServiceHandle {
@@ -44,8 +45,22 @@ public LocalBuildCacheService getService() {
 
     @Override
     public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction) {
+        return loadInner(key, unpackFunction, null);
+    }
+
+    @Override
+    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<File, BuildCacheLoadResult> packedUnpackFunction) {
+        return loadInner(key, unpackFunction, packedUnpackFunction);
+    }
+
+    protected Optional<BuildCacheLoadResult> loadInner(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, @Nullable Function<File, BuildCacheLoadResult> packedUnpackFunction) {
         AtomicReference<Optional<BuildCacheLoadResult>> result = new AtomicReference<>(Optional.empty());
-        service.loadLocally(key, file -> result.set(Optional.ofNullable(unpackFunction.apply(file))));
+        Consumer<File> reader = file -> result.set(Optional.ofNullable(unpackFunction.apply(file)));
+        if (packedUnpackFunction == null) {
+            service.loadLocally(key, reader);
+        } else {
+            service.loadLocally(key, reader, file -> result.set(Optional.ofNullable(packedUnpackFunction.apply(file))));
+        }
         return result.get();
     }
 
@@ -57,14 +72,27 @@ public boolean canStore() {
     @Override
     public boolean maybeStore(BuildCacheKey key, File file) {
         if (canStore()) {
-            storeInner(key, file);
+            storeInner(key, file, false);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean maybeStorePacked(BuildCacheKey key, File file) {
+        if (canStore()) {
+            storeInner(key, file, true);
             return true;
         }
         return false;
     }
 
-    protected void storeInner(BuildCacheKey key, File file) {
-        service.storeLocally(key, file);
+    protected void storeInner(BuildCacheKey key, File file, boolean packed) {
+        if (packed) {
+            service.storePackedLocally(key, file);
+        } else {
+            service.storeLocally(key, file);
+        }
     }
 
     @Override
@@ -46,4 +46,20 @@ public interface LocalBuildCacheServiceHandle extends Closeable {
      */
     boolean maybeStore(BuildCacheKey key, File file);
 
+    /**
+     * Loads an entry in whichever format it is stored, for services that keep entries in a different format than the one used by remote caches.
+     *
+     * Entries packed in the format used by remote caches are unpacked with {@code packedUnpackFunction}.
+     *
+     * @see LocalBuildCacheService#loadLocally(BuildCacheKey, java.util.function.Consumer, java.util.function.Consumer)
+     */
+    Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<File, BuildCacheLoadResult> packedUnpackFunction);
+
+    /**
+     * Stores the file, packed in the format used by remote caches, to the local cache.
+     *
+     * @see LocalBuildCacheService#storePackedLocally(BuildCacheKey, File)
+     */
+    boolean maybeStorePacked(BuildCacheKey key, File file);
+
 }
@@ -52,6 +52,16 @@ public boolean maybeStore(BuildCacheKey key, File file) {
         return false;
     }
 
+    @Override
+    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<File, BuildCacheLoadResult> packedUnpackFunction) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean maybeStorePacked(BuildCacheKey key, File file) {
+        return false;
+    }
+
     @Override
     public void close() {
 
@@ -26,6 +26,7 @@
 import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.RunnableBuildOperation;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -47,15 +48,12 @@ public OpFiringLocalBuildCacheServiceHandle(LocalBuildCacheService service, bool
     }
 
     @Override
-    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction) {
+    protected Optional<BuildCacheLoadResult> loadInner(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, @Nullable Function<File, BuildCacheLoadResult> packedUnpackFunction) {
         return buildOperationRunner.call(new CallableBuildOperation<Optional<BuildCacheLoadResult>>() {
             @Override
             public Optional<BuildCacheLoadResult> call(BuildOperationContext context) {
                 AtomicReference<Long> archiveSize = new AtomicReference<>();
-                Optional<BuildCacheLoadResult> result = OpFiringLocalBuildCacheServiceHandle.super.maybeLoad(key, file -> {
-                    archiveSize.set(file.length());
-                    return unpackFunction.apply(file);
-                });
+                Optional<BuildCacheLoadResult> result = OpFiringLocalBuildCacheServiceHandle.super.loadInner(key, recordingSize(unpackFunction, archiveSize), packedUnpackFunction == null ? null : recordingSize(packedUnpackFunction, archiveSize));
                 context.setResult(new LocalLoadResult(result, archiveSize));
                 return result;
             }
@@ -68,12 +66,19 @@ public BuildOperationDescriptor.Builder description() {
         });
     }
 
+    private static Function<File, BuildCacheLoadResult> recordingSize(Function<File, BuildCacheLoadResult> unpackFunction, AtomicReference<Long> archiveSize) {
+        return file -> {
+            archiveSize.set(file.length());
+            return unpackFunction.apply(file);
+        };
+    }
+
     @Override
-    protected void storeInner(BuildCacheKey key, File file) {
+    protected void storeInner(BuildCacheKey key, File file, boolean packed) {
         buildOperationRunner.run(new RunnableBuildOperation() {
             @Override
             public void run(BuildOperationContext context) throws Exception {
-                OpFiringLocalBuildCacheServiceHandle.super.storeInner(key, file);
+                OpFiringLocalBuildCacheServiceHandle.super.storeInner(key, file, packed);
                 context.setResult(LOCAL_STORE_RESULT);
             }
 
@@ -17,9 +17,11 @@
 package org.gradle.caching.local.internal;
 
 import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.packaging.impl.ContentAddressedFileStore;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
@@ -38,4 +40,33 @@ public interface LocalBuildCacheService extends BuildCacheTempFileStore, Closeab
      * Store the given file in the local file store as a cache artifact.
      */
     void storeLocally(BuildCacheKey key, File file);
+
+    /**
+     * The store for file contents when this service keeps manifests referencing deduplicated contents
+     * instead of packed cache artifacts.
+     */
+    default Optional<ContentAddressedFileStore> getContentAddressedFileStore() {
+        return Optional.empty();
+    }
+
+    /**
+     * Loads a cache artifact from a local file store in whichever format it is stored, looking up both formats at once.
+     *
+     * Executes {@code reader} for an artifact stored via {@link #storeLocally(BuildCacheKey, File)},
+     * or {@code packedReader} for an artifact packed in the format used by remote caches, when this service keeps manifests instead.
+     *
+     * @see #getContentAddressedFileStore()
+     */
+    default void loadLocally(BuildCacheKey key, Consumer<? super File> reader, Consumer<? super File> packedReader) {
+        loadLocally(key, reader);
+    }
+
+    /**
+     * Store the given file, packed in the format used by remote caches, in the local file store as a cache artifact.
+     *
+     * @see #getContentAddressedFileStore()
+     */
+    default void storePackedLocally(BuildCacheKey key, File file) {
+        storeLocally(key, file);
+    }
 }
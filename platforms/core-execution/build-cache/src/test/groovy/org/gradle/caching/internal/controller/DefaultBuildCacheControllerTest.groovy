@@ -39,6 +39,7 @@ import spock.lang.Specification
 
 import java.nio.file.Files
 import java.time.Duration
+import java.util.concurrent.Executor
 import java.util.function.Consumer
 
 class DefaultBuildCacheControllerTest extends Specification {
@@ -61,6 +62,7 @@ class DefaultBuildCacheControllerTest extends Specification {
     def remote = Mock(BuildCacheService)
     def remotePush = true
     BuildCacheEntryPacker packer = Stub(BuildCacheEntryPacker)
+    BuildCacheEntryPacker localPacker = packer
     OriginMetadataFactory originMetadataFactory = Stub(OriginMetadataFactory)
     Interner<String> stringInterner = Stub(Interner)
 
@@ -72,7 +74,7 @@ class DefaultBuildCacheControllerTest extends Specification {
 
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
-    BuildCacheController getController(boolean disableRemoteOnError = true) {
+    BuildCacheController getController(boolean disableRemoteOnError = true, Executor remoteStoreExecutor = null) {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
                 Path.ROOT.path,
@@ -87,8 +89,10 @@ class DefaultBuildCacheControllerTest extends Specification {
             false,
             disableRemoteOnError,
             packer,
+            localPacker,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            remoteStoreExecutor
         )
     }
 
@@ -276,4 +280,116 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.close()
         1 * remote.close()
     }
+
+    def "stores to remote in the background when upload executor is given"() {
+        def uploads = []
+        def controller = getController(true, { uploads << it } as Executor)
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * local.storeLocally(key, _)
+        0 * remote.store(key, _)
+        uploads.size() == 1
+
+        when:
+        uploads*.run()
+
+        then:
+        1 * remote.store(key, _)
+    }
+
+    def "stores same entry to remote only once in the background"() {
+        def uploads = []
+        def controller = getController(true, { uploads << it } as Executor)
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        uploads*.run()
+
+        then:
+        2 * local.storeLocally(key, _)
+        1 * remote.store(key, _)
+    }
+
+    def "stores locally before queueing the entry for upload"() {
+        def storedLocally = false
+        def queuedAfterLocalStore = false
+        def controller = getController(true, { queuedAfterLocalStore = storedLocally } as Executor)
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * local.storeLocally(key, _) >> { storedLocally = true }
+        queuedAfterLocalStore
+    }
+
+    def "packs once and stores the packed entry locally when the local cache uses another format"() {
+        given:
+        localPacker = Mock(BuildCacheEntryPacker)
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        0 * localPacker.pack(_, _, _, _)
+        1 * remote.store(key, _)
+        1 * local.storePackedLocally(key, _)
+        0 * local.storeLocally(key, _)
+    }
+
+    def "packs in the local format when only storing to local"() {
+        given:
+        localPacker = Mock(BuildCacheEntryPacker)
+        remotePush = false
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * localPacker.pack(_, _, _, _) >> new BuildCacheEntryPacker.PackResult(0)
+        1 * local.storeLocally(key, _)
+        0 * local.storePackedLocally(key, _)
+        0 * remote.store(key, _)
+    }
+
+    def "remote load stores the packed entry locally when the local cache uses another format"() {
+        given:
+        localPacker = Mock(BuildCacheEntryPacker)
+        1 * local.loadLocally(key, _, _) // miss
+        0 * local.loadLocally(key, _)
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+
+        when:
+        controller.load(key, cacheableEntity)
+
+        then:
+        0 * localPacker.pack(_, _, _, _)
+        1 * local.storePackedLocally(key, _)
+        0 * local.storeLocally(key, _)
+    }
+
+    def "loads packed entry from local when the local cache uses another format"() {
+        given:
+        localPacker = Mock(BuildCacheEntryPacker)
+        0 * local.loadLocally(key, _)
+        1 * local.loadLocally(key, _, _) >> { BuildCacheKey key, Consumer<File> action, Consumer<File> packedAction ->
+            def file = tmpDir.file("file")
+            file.text = "alma"
+            packedAction.accept(file)
+        }
+
+        when:
+        controller.load(key, cacheableEntity)
+
+        then:
+        0 * localPacker.unpack(_, _, _)
+        0 * remote.load(key, _)
+    }
 }
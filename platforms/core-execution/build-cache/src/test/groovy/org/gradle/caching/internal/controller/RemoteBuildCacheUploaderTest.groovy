@@ -0,0 +1,209 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller
+
+import org.gradle.caching.internal.TestBuildCacheKey
+import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreQueuedProgressDetails
+import org.gradle.caching.local.internal.TemporaryFileFactory
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+
+class RemoteBuildCacheUploaderTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def remote = Mock(RemoteBuildCacheServiceHandle)
+    def uploads = new CopyOnWriteArrayList<Runnable>()
+    def executor = { uploads << it } as Executor
+    def progressEventEmitter = Mock(BuildOperationProgressEventEmitter)
+    def temporaryFileFactory = { prefix, suffix -> Files.createTempFile(tmpDir.testDirectory.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory
+
+    def "uploads a copy of the entry and deletes it afterwards"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter)
+        def key = new TestBuildCacheKey(0x1234)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+        File uploaded = null
+
+        when:
+        queue(uploader, key, entry)
+        entry.delete()
+
+        then:
+        uploader.pendingEntries == 1
+        uploader.pendingBytes == 7
+
+        when:
+        uploads*.run()
+
+        then:
+        1 * remote.maybeStore(key, _) >> { k, File file ->
+            assert file.text == "content"
+            uploaded = file
+            true
+        }
+        !uploaded.exists()
+        uploader.pendingEntries == 0
+        uploader.pendingBytes == 0
+    }
+
+    def "copies the entry before it is queued"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter)
+        def key = new TestBuildCacheKey(0x1234)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+
+        when:
+        def upload = uploader.copyForUpload(key, entry)
+        entry.delete()
+
+        then:
+        upload.text == "content"
+        uploads.empty
+        uploader.pendingEntries == 0
+
+        when:
+        uploader.submit(key, upload)
+        uploads*.run()
+
+        then:
+        1 * remote.maybeStore(key, upload) >> true
+        !upload.exists()
+    }
+
+    def "blocks submission while too many entries are pending"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter, 1, Long.MAX_VALUE)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+
+        when:
+        queue(uploader, new TestBuildCacheKey(0x1), entry)
+        def second = Thread.start {
+            queue(uploader, new TestBuildCacheKey(0x2), entry)
+        }
+        waitUntilWaiting(second)
+
+        then:
+        uploads.size() == 1
+
+        when:
+        uploads[0].run()
+        second.join()
+
+        then:
+        uploads.size() == 2
+        uploader.pendingEntries == 1
+    }
+
+    def "blocks submission while too many bytes are pending"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter, 10, 10)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+
+        when:
+        queue(uploader, new TestBuildCacheKey(0x1), entry)
+        def second = Thread.start {
+            queue(uploader, new TestBuildCacheKey(0x2), entry)
+        }
+        waitUntilWaiting(second)
+
+        then:
+        uploads.size() == 1
+        uploader.pendingBytes == 7
+
+        when:
+        uploads[0].run()
+        second.join()
+
+        then:
+        uploads.size() == 2
+    }
+
+    def "close waits for pending uploads"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+        queue(uploader, new TestBuildCacheKey(0x1), entry)
+
+        when:
+        def closing = Thread.start {
+            uploader.close()
+        }
+        waitUntilWaiting(closing)
+
+        then:
+        closing.alive
+
+        when:
+        uploads*.run()
+        closing.join()
+
+        then:
+        1 * remote.maybeStore(_, _) >> true
+        uploader.pendingEntries == 0
+    }
+
+    def "reports the queue size for each queued entry"() {
+        def uploader = new RemoteBuildCacheUploader(remote, executor, temporaryFileFactory, progressEventEmitter)
+        def key1 = new TestBuildCacheKey(0x1)
+        def key2 = new TestBuildCacheKey(0x2)
+        def entry = tmpDir.file("entry")
+        entry.text = "content"
+
+        when:
+        queue(uploader, key1, entry)
+
+        then:
+        1 * progressEventEmitter.emitNowIfCurrent({ BuildCacheRemoteStoreQueuedProgressDetails details ->
+            details.cacheKey == key1.getHashCode() && details.pendingEntries == 1 && details.pendingBytes == 7
+        })
+
+        when:
+        queue(uploader, key2, entry)
+
+        then:
+        1 * progressEventEmitter.emitNowIfCurrent({ BuildCacheRemoteStoreQueuedProgressDetails details ->
+            details.cacheKey == key2.getHashCode() && details.pendingEntries == 2 && details.pendingBytes == 14
+        })
+
+        when:
+        def duplicate = uploader.copyForUpload(key1, entry)
+
+        then:
+        duplicate == null
+        0 * progressEventEmitter._
+    }
+
+    private static void queue(RemoteBuildCacheUploader uploader, TestBuildCacheKey key, File entry) {
+        uploader.submit(key, uploader.copyForUpload(key, entry))
+    }
+
+    private static void waitUntilWaiting(Thread thread) {
+        long deadline = System.currentTimeMillis() + 10_000
+        while (thread.state != Thread.State.WAITING) {
+            assert System.currentTimeMillis() < deadline
+            Thread.sleep(10)
+        }
+    }
+}
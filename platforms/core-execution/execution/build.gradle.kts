@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = "Execution engine that takes a unit of work and makes it happen"
@@ -36,6 +37,9 @@ dependencies {
     implementation(libs.commonsLang)
     implementation(libs.commonsIo)
 
+    jmhImplementation(platform(projects.distributionsDependencies))
+    jmhImplementation(libs.commonsIo)
+
     testImplementation(projects.native)
     testImplementation(projects.logging)
     testImplementation(projects.processServices)
@@ -41,6 +41,7 @@ import org.gradle.internal.fingerprint.impl.AbsolutePathFileCollectionFingerprin
 import org.gradle.internal.fingerprint.impl.DefaultFileCollectionSnapshotter
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.id.UniqueId
 import org.gradle.internal.operations.TestBuildOperationRunner
@@ -105,7 +106,7 @@ class IncrementalExecutionIntegrationTest extends Specification implements Valid
 
     def unitOfWork = builder.build()
 
-    def changeDetector = new DefaultExecutionStateChangeDetector()
+    def changeDetector = new DefaultExecutionStateChangeDetector(Hashing.defaultFunction())
     def overlappingOutputDetector = new DefaultOverlappingOutputDetector()
     def deleter = TestFiles.deleter()
 
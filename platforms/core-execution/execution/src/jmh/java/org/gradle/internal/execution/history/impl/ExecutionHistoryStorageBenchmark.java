@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares the B-tree used by the default execution history store with the memory-mapped log
+ * for loading and storing serialized execution states.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ExecutionHistoryStorageBenchmark {
+
+    @Param({"100000"})
+    int entries;
+
+    @Param({"2048"})
+    int valueSize;
+
+    File tempDir;
+    String[] keys;
+    byte[] value;
+    Random random;
+
+    BTreePersistentIndexedCache<String, byte[]> btree;
+    MemoryMappedLog log;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        tempDir = Files.createTempDirectory("execution-history-benchmark").toFile();
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = ":project" + (i % 3000) + ":task" + i;
+        }
+        value = new byte[valueSize];
+        random = new Random(1234);
+        random.nextBytes(value);
+
+        btree = new BTreePersistentIndexedCache<>(new File(tempDir, "executionHistory.bin"), BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        log = new MemoryMappedLog(new File(tempDir, "executionHistory.log"));
+        for (String key : keys) {
+            btree.put(key, value);
+            log.put(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        btree.close();
+        log.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void loadBTree(Blackhole blackhole) {
+        blackhole.consume(btree.get(randomKey()));
+    }
+
+    @Benchmark
+    public void loadMemoryMappedLog(Blackhole blackhole) {
+        blackhole.consume(log.get(randomKey()));
+    }
+
+    @Benchmark
+    public void storeBTree() {
+        btree.put(randomKey(), value);
+    }
+
+    @Benchmark
+    public void storeMemoryMappedLog() {
+        log.put(randomKey(), value);
+        if (log.shouldCompact()) {
+            log.compact();
+        }
+    }
+
+    private String randomKey() {
+        return keys[random.nextInt(keys.length)];
+    }
+}
@@ -22,6 +22,7 @@
 import org.gradle.internal.Cast;
 import org.gradle.internal.execution.history.BeforeExecutionState;
 import org.gradle.internal.execution.history.PreviousExecutionState;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 import org.gradle.internal.snapshot.impl.ClassImplementationSnapshot;
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
@@ -29,6 +30,12 @@
 import static org.gradle.internal.execution.history.impl.OutputSnapshotUtil.findOutputsStillPresentSincePreviousExecution;
 
 public class DefaultExecutionStateChangeDetector implements ExecutionStateChangeDetector {
+    private final HashFunction directoryHashFunction;
+
+    public DefaultExecutionStateChangeDetector(HashFunction directoryHashFunction) {
+        this.directoryHashFunction = directoryHashFunction;
+    }
+
     @Override
     public ExecutionStateChanges detectChanges(
         Describable executable,
@@ -81,7 +88,7 @@ public ExecutionStateChanges detectChanges(
             "Output",
             executable);
         ImmutableSortedMap<String, FileSystemSnapshot> remainingPreviouslyProducedOutputs = thisExecution.getDetectedOverlappingOutputs().isPresent()
-            ? findOutputsStillPresentSincePreviousExecution(lastExecution.getOutputFilesProducedByWork(), thisExecution.getOutputFileLocationSnapshots())
+            ? findOutputsStillPresentSincePreviousExecution(lastExecution.getOutputFilesProducedByWork(), thisExecution.getOutputFileLocationSnapshots(), directoryHashFunction)
             : thisExecution.getOutputFileLocationSnapshots();
         OutputFileChanges outputFileChanges = new OutputFileChanges(
             lastExecution.getOutputFilesProducedByWork(),
@@ -47,13 +47,7 @@ public DefaultExecutionHistoryStore(
         Interner<String> stringInterner,
         ClassLoaderHierarchyHasher classLoaderHasher
     ) {
-        DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
-            new FileCollectionFingerprintSerializer(stringInterner),
-            new FileSystemSnapshotSerializer(stringInterner),
-            classLoaderHasher,
-            new HashCodeSerializer()
-        );
-
+        DefaultPreviousExecutionStateSerializer serializer = createSerializer(stringInterner, classLoaderHasher);
         CacheDecorator inMemoryCacheDecorator = inMemoryCacheDecoratorFactory.decorator(10000, false);
         this.store = cache.get().createIndexedCache(
             IndexedCacheParameters.of("executionHistory", String.class, serializer)
@@ -68,7 +62,25 @@ public Optional<PreviousExecutionState> load(String key) {
 
     @Override
     public void store(String key, AfterExecutionState executionState) {
-        store.put(key, new DefaultPreviousExecutionState(
+        store.put(key, toPreviousExecutionState(executionState));
+    }
+
+    @Override
+    public void remove(String key) {
+        store.remove(key);
+    }
+
+    static DefaultPreviousExecutionStateSerializer createSerializer(Interner<String> stringInterner, ClassLoaderHierarchyHasher classLoaderHasher) {
+        return new DefaultPreviousExecutionStateSerializer(
+            new FileCollectionFingerprintSerializer(stringInterner),
+            new FileSystemSnapshotSerializer(stringInterner),
+            classLoaderHasher,
+            new HashCodeSerializer()
+        );
+    }
+
+    static PreviousExecutionState toPreviousExecutionState(AfterExecutionState executionState) {
+        return new DefaultPreviousExecutionState(
             executionState.getOriginMetadata(),
             executionState.getCacheKey(),
             executionState.getImplementation(),
@@ -77,12 +89,7 @@ public void store(String key, AfterExecutionState executionState) {
             prepareForSerialization(executionState.getInputFileProperties()),
             executionState.getOutputFilesProducedByWork(),
             executionState.isSuccessful()
-        ));
-    }
-
-    @Override
-    public void remove(String key) {
-        store.remove(key);
+        );
     }
 
     private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
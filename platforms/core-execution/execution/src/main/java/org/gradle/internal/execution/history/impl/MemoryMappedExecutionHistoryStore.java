@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.Interner;
+import org.gradle.cache.PersistentCache;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.execution.history.AfterExecutionState;
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+import org.gradle.internal.execution.history.PreviousExecutionState;
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * An {@link ExecutionHistoryStore} backed by a {@link MemoryMappedLog} instead of a B-tree.
+ *
+ * <p>Stores are appended to the log, and the log is compacted in the background once enough of it is garbage.
+ * Access to the log is guarded by the file lock of the execution history cache, just like the B-tree backed store.</p>
+ */
+public class MemoryMappedExecutionHistoryStore implements ExecutionHistoryStore, Closeable {
+
+    private final PersistentCache cache;
+    private final MemoryMappedLog log;
+    private final Serializer<PreviousExecutionState> serializer;
+    private final ManagedExecutor compactionExecutor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    public MemoryMappedExecutionHistoryStore(
+        Supplier<PersistentCache> cache,
+        ExecutorFactory executorFactory,
+        Interner<String> stringInterner,
+        ClassLoaderHierarchyHasher classLoaderHasher
+    ) {
+        this.cache = cache.get();
+        this.serializer = DefaultExecutionHistoryStore.createSerializer(stringInterner, classLoaderHasher);
+        this.log = this.cache.withFileLock(() -> new MemoryMappedLog(new File(this.cache.getBaseDir(), "executionHistory.log")));
+        this.compactionExecutor = executorFactory.create("Execution history compaction", 1);
+    }
+
+    @Override
+    public Optional<PreviousExecutionState> load(String key) {
+        byte[] bytes = cache.withFileLock(() -> {
+            log.refresh();
+            return log.get(key);
+        });
+        return Optional.ofNullable(bytes).map(this::deserialize);
+    }
+
+    @Override
+    public void store(String key, AfterExecutionState executionState) {
+        byte[] bytes = serialize(DefaultExecutionHistoryStore.toPreviousExecutionState(executionState));
+        cache.withFileLock(() -> {
+            log.refresh();
+            log.put(key, bytes);
+        });
+        maybeScheduleCompaction();
+    }
+
+    @Override
+    public void remove(String key) {
+        cache.withFileLock(() -> {
+            log.refresh();
+            log.remove(key);
+        });
+        maybeScheduleCompaction();
+    }
+
+    private void maybeScheduleCompaction() {
+        if (log.shouldCompact() && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(() -> {
+                try {
+                    cache.withFileLock(() -> {
+                        log.refresh();
+                        if (log.shouldCompact()) {
+                            log.compact();
+                        }
+                    });
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private byte[] serialize(PreviousExecutionState state) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream)) {
+            serializer.write(encoder, state);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private PreviousExecutionState deserialize(byte[] bytes) {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(bytes))) {
+            return serializer.read(decoder);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        compactionExecutor.stop();
+        cache.withFileLock(log::close);
+    }
+}
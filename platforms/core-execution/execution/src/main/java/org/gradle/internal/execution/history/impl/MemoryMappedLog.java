@@ -0,0 +1,378 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only key-value log stored in a memory-mapped file, with an in-memory index from keys to record offsets.
+ *
+ * <p>The file starts with a fixed size header followed by a sequence of records.
+ * Each record consists of a CRC32 checksum of the rest of the record, the length of the key, the length of the value,
+ * the UTF-8 encoded key and the value bytes.
+ * Removals are recorded as tombstones with a negative value length.
+ * Only records before the committed end stored in the header are considered valid.
+ * When the log is opened again, the records are read up to the first one that does not match its checksum,
+ * so records that were only partially written to disk before a crash are ignored together with everything after them.</p>
+ *
+ * <p>Writing a new value for a key leaves the old record behind as garbage.
+ * Calling {@link #compact()} rewrites the live records into a fresh file and replaces the current one.
+ * Other processes that have the old file mapped notice that it was superseded on their next {@link #refresh()}.</p>
+ *
+ * <p>This class does not coordinate access between processes, callers need to hold an appropriate file lock.</p>
+ */
+public class MemoryMappedLog implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMappedLog.class);
+
+    private static final int MAGIC = 0x474C4F47;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_VERSION_OFFSET = 4;
+    private static final int STATE_OFFSET = 8;
+    private static final int COMMITTED_END_OFFSET = 16;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int STATE_ACTIVE = 0;
+    private static final int STATE_SUPERSEDED = 1;
+
+    private static final int RECORD_CHECKSUM_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = RECORD_CHECKSUM_SIZE + 8;
+    private static final int TOMBSTONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+    private static final int COMPACTION_THRESHOLD = 16 * 1024 * 1024;
+
+    @Nullable
+    private static final Unmapper UNMAPPER = Unmapper.load();
+
+    private final File file;
+    private final Map<String, Integer> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long liveBytes;
+
+    public MemoryMappedLog(File file) {
+        this.file = file;
+        open();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Nullable
+    public synchronized byte[] get(String key) {
+        Integer offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        int keyLength = keyLength(offset);
+        int valueLength = valueLength(offset);
+        byte[] value = new byte[valueLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + RECORD_HEADER_SIZE + keyLength);
+        view.get(value);
+        return value;
+    }
+
+    public synchronized void put(String key, byte[] value) {
+        append(key, value, value.length);
+    }
+
+    public synchronized void remove(String key) {
+        if (index.containsKey(key)) {
+            append(key, new byte[0], TOMBSTONE);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Whether enough of the file is taken up by overwritten or removed records to make {@link #compact()} worthwhile.
+     */
+    public synchronized boolean shouldCompact() {
+        long usedBytes = end - HEADER_SIZE;
+        return usedBytes > COMPACTION_THRESHOLD && usedBytes - liveBytes > liveBytes;
+    }
+
+    /**
+     * Picks up records appended by other processes since the last access, and reopens the file when it was replaced by a compaction.
+     */
+    public synchronized void refresh() {
+        if (buffer.getInt(STATE_OFFSET) == STATE_SUPERSEDED) {
+            reopen();
+            return;
+        }
+        int committedEnd = (int) buffer.getLong(COMMITTED_END_OFFSET);
+        if (committedEnd > end) {
+            ensureMapped(committedEnd);
+            scan(end, committedEnd);
+        }
+    }
+
+    /**
+     * Rewrites the live records into a new file which then replaces the current one.
+     */
+    public synchronized void compact() {
+        File compactedFile = new File(file.getParentFile(), file.getName() + ".compact");
+        try {
+            Files.deleteIfExists(compactedFile.toPath());
+            try (MemoryMappedLog compacted = new MemoryMappedLog(compactedFile)) {
+                for (String key : index.keySet()) {
+                    byte[] value = get(key);
+                    compacted.put(key, value);
+                }
+                compacted.force();
+            }
+            Files.move(compactedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Replacing a file that is still mapped fails on some platforms; keep using the uncompacted file in that case
+            LOGGER.debug("Could not compact {}.", file, e);
+            try {
+                Files.deleteIfExists(compactedFile.toPath());
+            } catch (IOException ignored) {
+                // Ignore
+            }
+            return;
+        }
+        buffer.putInt(STATE_OFFSET, STATE_SUPERSEDED);
+        reopen();
+    }
+
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (buffer == null) {
+            return;
+        }
+        buffer.force();
+        closeChannel();
+    }
+
+    private void append(String key, byte[] value, int valueLength) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long recordEnd = (long) end + RECORD_HEADER_SIZE + keyBytes.length + value.length;
+        if (recordEnd > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cannot append to " + file + " as it would exceed the maximum size.");
+        }
+        ensureMapped((int) recordEnd);
+
+        int offset = end;
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + RECORD_CHECKSUM_SIZE);
+        view.putInt(keyBytes.length);
+        view.putInt(valueLength);
+        view.put(keyBytes);
+        view.put(value);
+        buffer.putInt(offset, checksum(offset, (int) recordEnd));
+        end = (int) recordEnd;
+        buffer.putLong(COMMITTED_END_OFFSET, end);
+        index(key, offset, valueLength);
+    }
+
+    private void index(String key, int offset, int valueLength) {
+        Integer previous = valueLength == TOMBSTONE
+            ? index.remove(key)
+            : index.put(key, offset);
+        if (previous != null) {
+            liveBytes -= recordSize(previous);
+        }
+        if (valueLength != TOMBSTONE) {
+            liveBytes += recordSize(offset);
+        }
+    }
+
+    private int recordSize(int offset) {
+        return RECORD_HEADER_SIZE + keyLength(offset) + Math.max(0, valueLength(offset));
+    }
+
+    private int keyLength(int offset) {
+        return buffer.getInt(offset + RECORD_CHECKSUM_SIZE);
+    }
+
+    private int valueLength(int offset) {
+        return buffer.getInt(offset + RECORD_CHECKSUM_SIZE + 4);
+    }
+
+    private int checksum(int offset, int recordEnd) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(recordEnd);
+        view.position(offset + RECORD_CHECKSUM_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private void scan(int from, int to) {
+        int offset = from;
+        while (offset + RECORD_HEADER_SIZE <= to) {
+            int keyLength = keyLength(offset);
+            int valueLength = valueLength(offset);
+            long recordEnd = (long) offset + RECORD_HEADER_SIZE + keyLength + Math.max(0, valueLength);
+            if (keyLength < 0 || valueLength < TOMBSTONE || recordEnd > to || buffer.getInt(offset) != checksum(offset, (int) recordEnd)) {
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + RECORD_HEADER_SIZE);
+            view.get(keyBytes);
+            index(new String(keyBytes, StandardCharsets.UTF_8), offset, valueLength);
+            offset = (int) recordEnd;
+        }
+        if (offset != to) {
+            LOGGER.debug("Ignoring malformed records at the end of {}.", file);
+            buffer.putLong(COMMITTED_END_OFFSET, offset);
+        }
+        end = offset;
+    }
+
+    private void ensureMapped(int requiredSize) {
+        if (buffer != null && requiredSize <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer == null ? INITIAL_CAPACITY : buffer.capacity();
+        while (capacity < requiredSize) {
+            capacity *= 2;
+        }
+        MappedByteBuffer previous = buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map " + file, e);
+        }
+        if (previous != null) {
+            unmap(previous);
+        }
+    }
+
+    private void open() {
+        index.clear();
+        liveBytes = 0;
+        buffer = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existingSize = channel.size();
+            ensureMapped((int) Math.min(existingSize, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + file, e);
+        }
+        if (buffer.getInt(MAGIC_OFFSET) == MAGIC
+            && buffer.getInt(FORMAT_VERSION_OFFSET) == FORMAT_VERSION
+            && buffer.getInt(STATE_OFFSET) == STATE_ACTIVE) {
+            long committedEnd = buffer.getLong(COMMITTED_END_OFFSET);
+            if (committedEnd >= HEADER_SIZE && committedEnd <= buffer.capacity()) {
+                scan(HEADER_SIZE, (int) committedEnd);
+                return;
+            }
+        }
+        // Either a new file or one we cannot read, start from scratch
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putInt(STATE_OFFSET, STATE_ACTIVE);
+        buffer.putLong(COMMITTED_END_OFFSET, HEADER_SIZE);
+        end = HEADER_SIZE;
+    }
+
+    private void reopen() {
+        closeChannel();
+        open();
+    }
+
+    private void closeChannel() {
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        if (mapped != null) {
+            unmap(mapped);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close " + file, e);
+        }
+    }
+
+    /**
+     * Releases the mapping right away, rather than when the buffer is garbage collected.
+     * Otherwise every remapping while the log grows and every reopening after a compaction keeps another mapping of the file alive.
+     * The buffer must not be accessed afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER != null) {
+            UNMAPPER.unmap(buffer);
+        }
+    }
+
+    /**
+     * Unmaps buffers via {@code sun.misc.Unsafe.invokeCleaner()}, which was added in Java 9. It is looked up reflectively, as this code is compiled for Java 8.
+     * On Java 8, mappings are released when the buffers are garbage collected.
+     */
+    private static class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        @Nullable
+        static Unmapper load() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        void unmap(MappedByteBuffer buffer) {
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (Exception e) {
+                LOGGER.debug("Could not unmap buffer, it is released when it is garbage collected.", e);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Maps;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.snapshot.CompositeFileSystemSnapshot;
 import org.gradle.internal.snapshot.DirectorySnapshot;
 import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
@@ -61,7 +62,8 @@ public class OutputSnapshotUtil {
      */
     public static ImmutableSortedMap<String, FileSystemSnapshot> findOutputsStillPresentSincePreviousExecution(
         ImmutableSortedMap<String, FileSystemSnapshot> previousSnapshots,
-        ImmutableSortedMap<String, FileSystemSnapshot> unfilteredBeforeExecutionSnapshots
+        ImmutableSortedMap<String, FileSystemSnapshot> unfilteredBeforeExecutionSnapshots,
+        HashFunction directoryHashFunction
     ) {
         return ImmutableSortedMap.copyOfSorted(
             Maps.transformEntries(unfilteredBeforeExecutionSnapshots, (key, unfilteredBeforeExecution) -> {
@@ -71,16 +73,16 @@ public static ImmutableSortedMap<String, FileSystemSnapshot> findOutputsStillPre
                         return FileSystemSnapshot.EMPTY;
                     }
                     //noinspection ConstantConditions
-                    return findOutputPropertyStillPresentSincePreviousExecution(previous, unfilteredBeforeExecution);
+                    return findOutputPropertyStillPresentSincePreviousExecution(previous, unfilteredBeforeExecution, directoryHashFunction);
                 }
             )
         );
     }
 
     @VisibleForTesting
-    static FileSystemSnapshot findOutputPropertyStillPresentSincePreviousExecution(FileSystemSnapshot previous, FileSystemSnapshot current) {
+    static FileSystemSnapshot findOutputPropertyStillPresentSincePreviousExecution(FileSystemSnapshot previous, FileSystemSnapshot current, HashFunction directoryHashFunction) {
         Map<String, FileSystemLocationSnapshot> previousIndex = indexByAbsolutePath(previous);
-        return filterSnapshot(current, (currentSnapshot, isRoot) ->
+        return filterSnapshot(current, directoryHashFunction, (currentSnapshot, isRoot) ->
             // Include only outputs that we already considered outputs after the previous execution
             previousIndex.containsKey(currentSnapshot.getAbsolutePath())
         );
@@ -103,7 +105,8 @@ static FileSystemSnapshot findOutputPropertyStillPresentSincePreviousExecution(F
     public static ImmutableSortedMap<String, FileSystemSnapshot> filterOutputsAfterExecution(
         ImmutableSortedMap<String, FileSystemSnapshot> previousSnapshots,
         ImmutableSortedMap<String, FileSystemSnapshot> unfilteredBeforeExecutionSnapshots,
-        ImmutableSortedMap<String, FileSystemSnapshot> unfilteredAfterExecutionSnapshots
+        ImmutableSortedMap<String, FileSystemSnapshot> unfilteredAfterExecutionSnapshots,
+        HashFunction directoryHashFunction
     ) {
         return copyOfSorted(transformEntries(
             unfilteredAfterExecutionSnapshots,
@@ -113,13 +116,13 @@ public static ImmutableSortedMap<String, FileSystemSnapshot> filterOutputsAfterE
 
                 FileSystemSnapshot previous = previousSnapshots.get(propertyName);
                 FileSystemSnapshot unfilteredBeforeExecution = unfilteredBeforeExecutionSnapshots.get(propertyName);
-                return filterOutputAfterExecution(previous, unfilteredBeforeExecution, unfilteredAfterExecution);
+                return filterOutputAfterExecution(previous, unfilteredBeforeExecution, unfilteredAfterExecution, directoryHashFunction);
             }
         ));
     }
 
     @VisibleForTesting
-    static FileSystemSnapshot filterOutputAfterExecution(@Nullable FileSystemSnapshot previous, FileSystemSnapshot unfilteredBeforeExecution, FileSystemSnapshot unfilteredAfterExecution) {
+    static FileSystemSnapshot filterOutputAfterExecution(@Nullable FileSystemSnapshot previous, FileSystemSnapshot unfilteredBeforeExecution, FileSystemSnapshot unfilteredAfterExecution, HashFunction directoryHashFunction) {
         Map<String, FileSystemLocationSnapshot> beforeExecutionIndex = indexByAbsolutePath(unfilteredBeforeExecution);
         if (beforeExecutionIndex.isEmpty()) {
             return unfilteredAfterExecution;
@@ -129,7 +132,7 @@ static FileSystemSnapshot filterOutputAfterExecution(@Nullable FileSystemSnapsho
             ? indexByAbsolutePath(previous)
             : ImmutableMap.of();
 
-        return filterSnapshot(unfilteredAfterExecution, (afterExecutionSnapshot, isRoot) ->
+        return filterSnapshot(unfilteredAfterExecution, directoryHashFunction, (afterExecutionSnapshot, isRoot) ->
             isOutputEntry(previousIndex.keySet(), beforeExecutionIndex, afterExecutionSnapshot, isRoot)
         );
     }
@@ -152,8 +155,8 @@ private static boolean isOutputEntry(Set<String> previousLocations, Map<String,
         return previousLocations.contains(afterExecutionSnapshot.getAbsolutePath());
     }
 
-    private static FileSystemSnapshot filterSnapshot(FileSystemSnapshot root, BiPredicate<FileSystemLocationSnapshot, Boolean> predicate) {
-        SnapshotFilteringVisitor visitor = new SnapshotFilteringVisitor(predicate);
+    private static FileSystemSnapshot filterSnapshot(FileSystemSnapshot root, HashFunction directoryHashFunction, BiPredicate<FileSystemLocationSnapshot, Boolean> predicate) {
+        SnapshotFilteringVisitor visitor = new SnapshotFilteringVisitor(directoryHashFunction, predicate);
         root.accept(visitor);
 
         // Are all file snapshots after execution accounted for as new entries?
@@ -165,6 +168,7 @@ private static FileSystemSnapshot filterSnapshot(FileSystemSnapshot root, BiPred
     }
 
     private static class SnapshotFilteringVisitor extends RootTrackingFileSystemSnapshotHierarchyVisitor {
+        private final HashFunction directoryHashFunction;
         private final BiPredicate<FileSystemLocationSnapshot, Boolean> predicate;
         private final ImmutableList.Builder<FileSystemSnapshot> newRootsBuilder = ImmutableList.builder();
 
@@ -173,7 +177,8 @@ private static class SnapshotFilteringVisitor extends RootTrackingFileSystemSnap
         private boolean currentRootFiltered;
         private DirectorySnapshot currentRoot;
 
-        public SnapshotFilteringVisitor(BiPredicate<FileSystemLocationSnapshot, Boolean> predicate) {
+        public SnapshotFilteringVisitor(HashFunction directoryHashFunction, BiPredicate<FileSystemLocationSnapshot, Boolean> predicate) {
+            this.directoryHashFunction = directoryHashFunction;
             this.predicate = predicate;
         }
 
@@ -192,7 +197,7 @@ public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot, boole
                 @Override
                 public void visitDirectory(DirectorySnapshot directorySnapshot) {
                     if (directorySnapshotBuilder == null) {
-                        directorySnapshotBuilder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+                        directorySnapshotBuilder = MerkleDirectorySnapshotBuilder.noSortingRequired(directoryHashFunction);
                         currentRoot = directorySnapshot;
                         currentRootFiltered = false;
                     }
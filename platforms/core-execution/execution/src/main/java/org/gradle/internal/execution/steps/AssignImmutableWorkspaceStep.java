@@ -34,10 +34,12 @@
 import org.gradle.internal.execution.workspace.ImmutableWorkspaceProvider.ImmutableWorkspace;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.snapshot.DirectorySnapshot;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 import org.gradle.internal.snapshot.FileSystemSnapshotHierarchyVisitor;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
 import org.gradle.internal.snapshot.SnapshotVisitResult;
 import org.gradle.internal.vfs.FileSystemAccess;
 import org.slf4j.Logger;
@@ -95,6 +97,7 @@
 
     private final ImmutableWorkspaceMetadataStore workspaceMetadataStore;
     private final OutputSnapshotter outputSnapshotter;
+    private final HashFunction directoryHashFunction;
     private final Step<? super PreviousExecutionContext, ? extends CachingResult> delegate;
 
     public AssignImmutableWorkspaceStep(
@@ -102,12 +105,14 @@ public AssignImmutableWorkspaceStep(
         FileSystemAccess fileSystemAccess,
         ImmutableWorkspaceMetadataStore workspaceMetadataStore,
         OutputSnapshotter outputSnapshotter,
+        HashFunction directoryHashFunction,
         Step<? super PreviousExecutionContext, ? extends CachingResult> delegate
     ) {
         this.deleter = deleter;
         this.fileSystemAccess = fileSystemAccess;
         this.workspaceMetadataStore = workspaceMetadataStore;
         this.outputSnapshotter = outputSnapshotter;
+        this.directoryHashFunction = directoryHashFunction;
         this.delegate = delegate;
     }
 
@@ -226,11 +231,12 @@ private WorkspaceResult executeInTemporaryWorkspace(UnitOfWork work, C context,
         });
     }
 
-    private static ImmutableListMultimap<String, HashCode> calculateOutputHashes(ImmutableSortedMap<String, FileSystemSnapshot> outputSnapshots) {
+    private ImmutableListMultimap<String, HashCode> calculateOutputHashes(ImmutableSortedMap<String, FileSystemSnapshot> outputSnapshots) {
         return outputSnapshots.entrySet().stream()
             .flatMap(entry ->
                 entry.getValue().roots()
-                    .map(locationSnapshot -> immutableEntry(entry.getKey(), locationSnapshot.getHash())))
+                    // Immutable workspaces are shared between builds which might use different local hash functions
+                    .map(locationSnapshot -> immutableEntry(entry.getKey(), MerkleDirectorySnapshotBuilder.hashWithDefaultFunction(locationSnapshot, directoryHashFunction))))
             .collect(toImmutableListMultimap(
                 Map.Entry::getKey,
                 Map.Entry::getValue
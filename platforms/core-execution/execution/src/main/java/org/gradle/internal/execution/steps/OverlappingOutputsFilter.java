@@ -19,11 +19,18 @@
 import com.google.common.collect.ImmutableSortedMap;
 import org.gradle.internal.execution.history.BeforeExecutionState;
 import org.gradle.internal.execution.history.PreviousExecutionState;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 
 import static org.gradle.internal.execution.history.impl.OutputSnapshotUtil.filterOutputsAfterExecution;
 
 public class OverlappingOutputsFilter implements AfterExecutionOutputFilter<BeforeExecutionContext> {
+    private final HashFunction directoryHashFunction;
+
+    public OverlappingOutputsFilter(HashFunction directoryHashFunction) {
+        this.directoryHashFunction = directoryHashFunction;
+    }
+
     @Override
     public ImmutableSortedMap<String, FileSystemSnapshot> filterOutputs(BeforeExecutionContext context, BeforeExecutionState beforeExecutionState, ImmutableSortedMap<String, FileSystemSnapshot> unfilteredOutputSnapshotsAfterExecution) {
         if (beforeExecutionState.getDetectedOverlappingOutputs().isPresent()) {
@@ -35,7 +42,7 @@ public ImmutableSortedMap<String, FileSystemSnapshot> filterOutputs(BeforeExecut
                 .map(BeforeExecutionState::getOutputFileLocationSnapshots)
                 .orElse(ImmutableSortedMap.of());
 
-            return filterOutputsAfterExecution(previousExecutionOutputSnapshots, unfilteredOutputSnapshotsBeforeExecution, unfilteredOutputSnapshotsAfterExecution);
+            return filterOutputsAfterExecution(previousExecutionOutputSnapshots, unfilteredOutputSnapshotsBeforeExecution, unfilteredOutputSnapshotsAfterExecution, directoryHashFunction);
         } else {
             return unfilteredOutputSnapshotsAfterExecution;
         }
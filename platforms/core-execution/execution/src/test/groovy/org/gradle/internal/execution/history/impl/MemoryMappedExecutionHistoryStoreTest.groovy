@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import com.google.common.collect.Interners
+import org.gradle.cache.PersistentCache
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.internal.execution.history.AfterExecutionState
+import org.gradle.internal.execution.history.PreviousExecutionState
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot
+import org.gradle.internal.snapshot.impl.StringValueSnapshot
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+import java.time.Duration
+import java.util.concurrent.locks.ReentrantLock
+import java.util.function.Supplier
+
+@CleanupTestDirectory
+class MemoryMappedExecutionHistoryStoreTest extends ConcurrentSpec {
+    private static final int COMMITTED_END_OFFSET = 16
+
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def cacheDir = temporaryFolder.createDir("executionHistory")
+    def logFile = new File(cacheDir, "executionHistory.log")
+    def fileLock = new ReentrantLock()
+    def stores = []
+
+    def cleanup() {
+        stores*.close()
+    }
+
+    def "can store, load and remove execution state"() {
+        def store = newStore()
+
+        when:
+        store.store("a", executionState("first"))
+        store.store("b", executionState("second"))
+        store.store("a", executionState("third"))
+        store.remove("b")
+
+        then:
+        hasValue(store.load("a").get(), "third")
+        !store.load("b").present
+        !store.load("c").present
+    }
+
+    def "execution state survives reopening the store"() {
+        def store = newStore()
+        store.store("a", executionState("first"))
+        store.store("b", executionState("second"))
+        store.remove("a")
+        close(store)
+
+        when:
+        store = newStore()
+
+        then:
+        !store.load("a").present
+        hasValue(store.load("b").get(), "second")
+    }
+
+    def "ignores a partially written entry"() {
+        def store = newStore()
+        store.store("a", executionState("first"))
+        close(store)
+
+        and:
+        simulatePartialWrite()
+
+        when:
+        store = newStore()
+
+        then:
+        hasValue(store.load("a").get(), "first")
+
+        when:
+        store.store("b", executionState("second"))
+        close(store)
+        store = newStore()
+
+        then:
+        hasValue(store.load("a").get(), "first")
+        hasValue(store.load("b").get(), "second")
+    }
+
+    def "starts from scratch when the log is corrupt"() {
+        def store = newStore()
+        store.store("a", executionState("first"))
+        close(store)
+
+        and:
+        new RandomAccessFile(logFile, "rw").withCloseable { file ->
+            file.writeInt(0)
+        }
+
+        when:
+        store = newStore()
+
+        then:
+        !store.load("a").present
+
+        when:
+        store.store("b", executionState("second"))
+
+        then:
+        hasValue(store.load("b").get(), "second")
+    }
+
+    def "reader sees complete entries while another store writes"() {
+        def writer = newStore()
+        def reader = newStore()
+        // Large enough for the log to outgrow its initial mapping while the reader is using it
+        def padding = "x" * 16 * 1024
+        def count = 200
+        def states = (0..<count).collect { executionState("value$it$padding") }
+
+        when:
+        async {
+            start {
+                states.eachWithIndex { state, i ->
+                    writer.store("key$i", state)
+                }
+            }
+            start {
+                int seen = 0
+                while (seen < count) {
+                    def loaded = reader.load("key$seen")
+                    if (loaded.present) {
+                        assert hasValue(loaded.get(), "value$seen$padding")
+                        seen++
+                    }
+                }
+            }
+        }
+
+        then:
+        (0..<count).every { hasValue(reader.load("key$it").get(), "value$it$padding") }
+    }
+
+    private MemoryMappedExecutionHistoryStore newStore() {
+        def cache = Stub(PersistentCache) {
+            getBaseDir() >> cacheDir
+            withFileLock(_ as Supplier) >> { Supplier action -> withLock { action.get() } }
+            withFileLock(_ as Runnable) >> { Runnable action -> withLock { action.run() } }
+        }
+        def store = new MemoryMappedExecutionHistoryStore({ cache }, executorFactory, Interners.newStrongInterner(), Stub(ClassLoaderHierarchyHasher))
+        stores << store
+        return store
+    }
+
+    private void close(MemoryMappedExecutionHistoryStore store) {
+        stores.remove(store)
+        store.close()
+    }
+
+    private <T> T withLock(Closure<T> action) {
+        fileLock.lock()
+        try {
+            return action()
+        } finally {
+            fileLock.unlock()
+        }
+    }
+
+    /**
+     * Writes the header of a record that claims more bytes than were written, and moves the committed end past it, as if the process died while appending.
+     */
+    private void simulatePartialWrite() {
+        new RandomAccessFile(logFile, "rw").withCloseable { file ->
+            file.seek(COMMITTED_END_OFFSET)
+            long committedEnd = file.readLong()
+            file.seek(committedEnd)
+            file.writeInt(1024)
+            file.writeInt(1024)
+            file.write("partial".bytes)
+            file.seek(COMMITTED_END_OFFSET)
+            file.writeLong(committedEnd + 15)
+        }
+    }
+
+    private AfterExecutionState executionState(String value) {
+        Stub(AfterExecutionState) {
+            getOriginMetadata() >> new OriginMetadata("build-invocation", TestHashCodes.hashCodeFrom(1234), Duration.ofMillis(10))
+            getCacheKey() >> TestHashCodes.hashCodeFrom(value.hashCode())
+            getImplementation() >> ImplementationSnapshot.of("org.gradle.Work", TestHashCodes.hashCodeFrom(5678))
+            getAdditionalImplementations() >> ImmutableList.of()
+            getInputProperties() >> ImmutableSortedMap.of("value", new StringValueSnapshot(value))
+            getInputFileProperties() >> ImmutableSortedMap.of()
+            getOutputFilesProducedByWork() >> ImmutableSortedMap.of()
+            isSuccessful() >> true
+        }
+    }
+
+    private static boolean hasValue(PreviousExecutionState state, String value) {
+        state.cacheKey == TestHashCodes.hashCodeFrom(value.hashCode()) &&
+            state.inputProperties == ImmutableSortedMap.of("value", new StringValueSnapshot(value)) &&
+            state.successful
+    }
+}
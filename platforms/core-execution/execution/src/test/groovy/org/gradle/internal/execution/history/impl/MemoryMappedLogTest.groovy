@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory
+class MemoryMappedLogTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def file = temporaryFolder.file("history.log")
+    def log = new MemoryMappedLog(file)
+
+    def cleanup() {
+        log.close()
+    }
+
+    def "can store, overwrite and remove values"() {
+        when:
+        log.put("a", [1, 2, 3] as byte[])
+        log.put("b", [4] as byte[])
+        log.put("a", [5, 6] as byte[])
+        log.remove("b")
+
+        then:
+        log.get("a") == [5, 6] as byte[]
+        log.get("b") == null
+        log.get("c") == null
+        log.size() == 1
+    }
+
+    def "values survive reopening"() {
+        given:
+        log.put("a", [1, 2, 3] as byte[])
+        log.put("b", [4] as byte[])
+        log.remove("a")
+        log.close()
+
+        when:
+        log = new MemoryMappedLog(file)
+
+        then:
+        log.get("a") == null
+        log.get("b") == [4] as byte[]
+    }
+
+    def "grows beyond the initial mapping"() {
+        def value = new byte[64 * 1024]
+        new Random(1).nextBytes(value)
+
+        when:
+        100.times { log.put("key$it", value) }
+
+        then:
+        100.times { assert log.get("key$it") == value }
+    }
+
+    def "sees values appended by another instance after refresh"() {
+        def other = new MemoryMappedLog(file)
+
+        when:
+        other.put("a", [1] as byte[])
+        log.refresh()
+
+        then:
+        log.get("a") == [1] as byte[]
+
+        cleanup:
+        other.close()
+    }
+
+    def "compaction keeps live values and is noticed by other instances"() {
+        def other = new MemoryMappedLog(file)
+        log.put("a", [1] as byte[])
+        log.put("a", [2] as byte[])
+        log.put("b", [3] as byte[])
+        log.remove("b")
+
+        when:
+        log.compact()
+        log.put("c", [4] as byte[])
+        other.refresh()
+
+        then:
+        log.get("a") == [2] as byte[]
+        other.get("a") == [2] as byte[]
+        other.get("b") == null
+        other.get("c") == [4] as byte[]
+
+        cleanup:
+        other.close()
+    }
+
+    def "ignores a record that does not match its checksum and everything after it"() {
+        given:
+        log.put("a", [1, 2, 3] as byte[])
+        log.put("b", [4, 5, 6] as byte[])
+        log.put("c", [7] as byte[])
+        log.close()
+
+        and:
+        def bytes = file.bytes
+        // The second value starts after the file header, the first record and the header and key of the second record
+        int secondValue = 32 + (12 + 1 + 3) + (12 + 1)
+        bytes[secondValue] = 42
+        file.bytes = bytes
+
+        when:
+        log = new MemoryMappedLog(file)
+
+        then:
+        log.get("a") == [1, 2, 3] as byte[]
+        log.get("b") == null
+        log.get("c") == null
+        log.size() == 1
+
+        when:
+        log.put("d", [8] as byte[])
+        log.close()
+        log = new MemoryMappedLog(file)
+
+        then:
+        log.get("a") == [1, 2, 3] as byte[]
+        log.get("d") == [8] as byte[]
+        log.size() == 2
+    }
+
+    def "can be closed more than once"() {
+        when:
+        log.close()
+        log.close()
+
+        then:
+        noExceptionThrown()
+    }
+}
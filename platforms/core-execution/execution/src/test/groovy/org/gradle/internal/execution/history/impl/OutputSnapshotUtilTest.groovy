@@ -17,6 +17,7 @@
 package org.gradle.internal.execution.history.impl
 
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.snapshot.FileSystemSnapshot
 import org.gradle.internal.snapshot.SnapshotVisitorUtil
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -41,7 +42,7 @@ class OutputSnapshotUtilTest extends Specification {
         outputDir.file()
 
         when:
-        def filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution)
+        def filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution, Hashing.defaultFunction())
         then:
         collectFiles(filteredOutputs) == [outputDir]
 
@@ -49,7 +50,7 @@ class OutputSnapshotUtilTest extends Specification {
         def outputDirFile = outputDir.file("in-output-dir").createFile()
         virtualFileSystem.invalidateAll()
         def afterExecution = snapshotOutput(outputDir)
-        filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)
+        filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())
         then:
         collectFiles(filteredOutputs) == [outputDir, outputDirFile]
     }
@@ -60,14 +61,14 @@ class OutputSnapshotUtilTest extends Specification {
         def beforeExecution = snapshotOutput(outputDir)
 
         when:
-        def filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution)
+        def filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution, Hashing.defaultFunction())
         then:
         collectFiles(filteredOutputs) == [outputDir]
 
         when:
         def outputOfCurrent = outputDir.file("outputOfCurrent").createFile()
         def afterExecution = snapshotOutput(outputDir)
-        filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)
+        filteredOutputs = filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())
         then:
         collectFiles(filteredOutputs) == [outputDir, outputOfCurrent]
     }
@@ -80,7 +81,7 @@ class OutputSnapshotUtilTest extends Specification {
         def beforeExecution = snapshotOutput(outputDir)
 
         when:
-        def filteredOutputs = filterOutputAfterExecution(previousExecution, beforeExecution, beforeExecution)
+        def filteredOutputs = filterOutputAfterExecution(previousExecution, beforeExecution, beforeExecution, Hashing.defaultFunction())
         then:
         collectFiles(filteredOutputs) == [outputDir, outputDirFile]
     }
@@ -89,7 +90,7 @@ class OutputSnapshotUtilTest extends Specification {
         def missingFile = temporaryFolder.file("missing")
         def beforeExecution = snapshotOutput(missingFile)
         expect:
-        filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution) == beforeExecution
+        filterOutputAfterExecution(EMPTY, beforeExecution, beforeExecution, Hashing.defaultFunction()) == beforeExecution
     }
 
     def "added empty dir is captured"() {
@@ -97,8 +98,8 @@ class OutputSnapshotUtilTest extends Specification {
         def afterExecution = snapshotOutput(emptyDir)
         def beforeExecution = EMPTY
         expect:
-        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)) == [emptyDir]
-        collectFiles(filterOutputAfterExecution(EMPTY, afterExecution, afterExecution)) == [emptyDir]
+        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())) == [emptyDir]
+        collectFiles(filterOutputAfterExecution(EMPTY, afterExecution, afterExecution, Hashing.defaultFunction())) == [emptyDir]
     }
 
     def "updated files in output directory are part of the output"() {
@@ -108,7 +109,7 @@ class OutputSnapshotUtilTest extends Specification {
         existingFile << "modified"
         def afterExecution = snapshotOutput(outputDir)
         expect:
-        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)) == [outputDir, existingFile]
+        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())) == [outputDir, existingFile]
     }
 
     def "updated files are part of the output"() {
@@ -117,7 +118,7 @@ class OutputSnapshotUtilTest extends Specification {
         existingFile << "modified"
         def afterExecution = snapshotOutput(existingFile)
         expect:
-        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)) == [existingFile]
+        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())) == [existingFile]
     }
 
     def "removed files are not considered outputs"() {
@@ -129,8 +130,8 @@ class OutputSnapshotUtilTest extends Specification {
         def afterExecution = snapshotOutput(outputDir)
 
         expect:
-        collectFiles(filterOutputAfterExecution(previousExecution, beforeExecution, afterExecution)) == [outputDir]
-        collectFiles(filterOutputAfterExecution(EMPTY, previousExecution, afterExecution)) == [outputDir]
+        collectFiles(filterOutputAfterExecution(previousExecution, beforeExecution, afterExecution, Hashing.defaultFunction())) == [outputDir]
+        collectFiles(filterOutputAfterExecution(EMPTY, previousExecution, afterExecution, Hashing.defaultFunction())) == [outputDir]
     }
 
     def "overlapping directories are not included"() {
@@ -141,7 +142,7 @@ class OutputSnapshotUtilTest extends Specification {
         def afterExecution = snapshotOutput(outputDir)
 
         expect:
-        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution)) == [outputDir, outputDirFile]
+        collectFiles(filterOutputAfterExecution(EMPTY, beforeExecution, afterExecution, Hashing.defaultFunction())) == [outputDir, outputDirFile]
     }
 
     def "overlapping files are not part of the before execution snapshot"() {
@@ -152,7 +153,7 @@ class OutputSnapshotUtilTest extends Specification {
         def beforeExecution = snapshotOutput(outputDir)
 
         expect:
-        collectFiles(findOutputPropertyStillPresentSincePreviousExecution(previousExecution, beforeExecution)) == [outputDir, outputDirFile]
+        collectFiles(findOutputPropertyStillPresentSincePreviousExecution(previousExecution, beforeExecution, Hashing.defaultFunction())) == [outputDir, outputDirFile]
     }
 
     private FileSystemSnapshot snapshotOutput(File output) {
@@ -29,6 +29,7 @@ import org.gradle.internal.execution.history.ImmutableWorkspaceMetadataStore
 import org.gradle.internal.execution.history.impl.DefaultExecutionOutputState
 import org.gradle.internal.execution.impl.DefaultOutputSnapshotter
 import org.gradle.internal.execution.workspace.ImmutableWorkspaceProvider
+import org.gradle.internal.hash.Hashing
 
 import java.time.Duration
 import java.util.concurrent.CountDownLatch
@@ -49,7 +50,7 @@ class AssignImmutableWorkspaceStepConcurrencyTest extends StepSpecBase<IdentityC
     }
     def outputSnapshotter = new DefaultOutputSnapshotter(TestFiles.fileCollectionSnapshotter())
 
-    def step = new AssignImmutableWorkspaceStep(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter, delegate)
+    def step = new AssignImmutableWorkspaceStep(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter, Hashing.defaultFunction(), delegate)
 
     def temporaryWorkspace1 = workspacesRoot.file("temporary-workspace-1")
     def temporaryWorkspace2 = workspacesRoot.file("temporary-workspace-2")
@@ -32,6 +32,7 @@ import org.gradle.internal.execution.workspace.ImmutableWorkspaceProvider.Immuta
 import org.gradle.internal.execution.workspace.ImmutableWorkspaceProvider.ImmutableWorkspace.TemporaryWorkspaceAction
 import org.gradle.internal.file.Deleter
 import org.gradle.internal.file.FileType
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.snapshot.DirectorySnapshot
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot
 import org.gradle.internal.snapshot.MissingFileSnapshot
@@ -71,7 +72,7 @@ class AssignImmutableWorkspaceStepTest extends StepSpec<IdentityContext> impleme
         getWorkspace(workId) >> workspace
     }
 
-    def step = new AssignImmutableWorkspaceStep(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter, delegate)
+    def step = new AssignImmutableWorkspaceStep(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter, Hashing.defaultFunction(), delegate)
     def work = Stub(ImmutableUnitOfWork)
 
     def setup() {
@@ -23,6 +23,7 @@ import org.gradle.internal.execution.history.PreviousExecutionState
 import org.gradle.internal.file.FileMetadata
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot
 import org.gradle.internal.snapshot.FileSystemSnapshot
@@ -33,7 +34,7 @@ import spock.lang.Specification
 import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS
 
 class OverlappingOutputsFilterTest extends Specification {
-    def filter = new OverlappingOutputsFilter()
+    def filter = new OverlappingOutputsFilter(Hashing.defaultFunction())
 
     def "overlapping outputs are captured"() {
         def staleFile = fileSnapshot("stale", TestHashCodes.hashCodeFrom(123))
@@ -83,7 +84,7 @@ class OverlappingOutputsFilterTest extends Specification {
     }
 
     private static FileSystemLocationSnapshot directorySnapshot(RegularFileSnapshot... contents) {
-        def builder = MerkleDirectorySnapshotBuilder.sortingRequired()
+        def builder = MerkleDirectorySnapshotBuilder.sortingRequired(Hashing.defaultFunction())
         builder.enterDirectory(FileMetadata.AccessType.DIRECT, "/absolute", "absolute", INCLUDE_EMPTY_DIRS)
         contents.each {
             builder.visitLeafElement(it)
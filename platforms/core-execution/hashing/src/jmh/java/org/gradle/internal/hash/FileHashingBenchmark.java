@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares hashing files through an input stream with hashing them through a file channel,
+ * for small class files, medium-sized jars and multi-hundred-MB archives.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+
+    @Param({"4096", "1048576", "268435456"})
+    int fileSize;
+
+    File file;
+
+    FileHasher streamHasher;
+    FileHasher fileChannelHasher;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        file = Files.createTempFile("file-hashing-benchmark", ".bin").toFile();
+        Random random = new Random(1234);
+        byte[] chunk = new byte[1024 * 1024];
+        try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+            for (int written = 0; written < fileSize; written += chunk.length) {
+                random.nextBytes(chunk);
+                outputStream.write(chunk, 0, Math.min(chunk.length, fileSize - written));
+            }
+        }
+        streamHasher = new DefaultFileHasher(new DefaultStreamHasher());
+        fileChannelHasher = new DefaultFileHasher(new DefaultStreamHasher(), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        Files.delete(file.toPath());
+    }
+
+    @Benchmark
+    public HashCode hashViaInputStream() {
+        return streamHasher.hash(file);
+    }
+
+    @Benchmark
+    public HashCode hashViaFileChannel() {
+        return fileChannelHasher.hash(file);
+    }
+}
@@ -22,16 +22,33 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 
 public class DefaultFileHasher implements FileHasher {
     private final StreamHasher streamHasher;
+    private final boolean useFileChannels;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        this(streamHasher, false);
+    }
+
+    /**
+     * Creates a file hasher which optionally reads files via a {@link FileChannel} instead of an {@link InputStream}.
+     *
+     * Both ways produce the same hashes.
+     */
+    public DefaultFileHasher(StreamHasher streamHasher, boolean useFileChannels) {
         this.streamHasher = streamHasher;
+        this.useFileChannels = useFileChannels;
     }
 
     @Override
     public HashCode hash(File file) {
+        if (useFileChannels) {
+            return hashViaFileChannel(file);
+        }
         InputStream inputStream;
         try {
             inputStream = new FileInputStream(file);
@@ -51,6 +68,28 @@ public HashCode hash(File file) {
         }
     }
 
+    private HashCode hashViaFileChannel(File file) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'", file), e);
+        }
+        try {
+            return streamHasher.hash(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'", file), e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Ignored
+            }
+        }
+    }
+
     @Override
     public HashCode hash(File file, long length, long lastModified) {
         return hash(file);
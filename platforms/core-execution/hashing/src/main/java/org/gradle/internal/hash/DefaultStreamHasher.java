@@ -20,13 +20,18 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
 
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
 
     @Override
     public HashCode hash(InputStream inputStream) throws IOException {
@@ -38,6 +43,36 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
         return doHash(inputStream, outputStream);
     }
 
+    /**
+     * Hashes the channel by reading it into pooled direct buffers.
+     *
+     * The file is deliberately not memory-mapped: mappings are only released when they are garbage collected,
+     * and a file that is truncated while it is mapped crashes the JVM instead of failing the read.
+     */
+    @Override
+    public HashCode hash(FileChannel channel) throws IOException {
+        PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+        hasher.putHash(SIGNATURE);
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            long position = 0;
+            while (true) {
+                int nread = channel.read(buffer, position);
+                if (nread < 0) {
+                    break;
+                }
+                position += nread;
+                castBuffer(buffer).flip();
+                hasher.putBytes(buffer);
+                castBuffer(buffer).clear();
+            }
+        } finally {
+            castBuffer(buffer).clear();
+            directBuffers.offer(buffer);
+        }
+        return hasher.hash();
+    }
+
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
@@ -69,4 +104,21 @@ private byte[] takeBuffer() {
         }
         return buffer;
     }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Without this cast, when the code compiled by Java 9+ is executed on Java 8, it will throw
+     * java.lang.NoSuchMethodError: Method flip()Ljava/nio/ByteBuffer; does not exist in class java.nio.ByteBuffer
+     */
+    @SuppressWarnings("RedundantCast")
+    private static <T extends Buffer> Buffer castBuffer(T byteBuffer) {
+        return (Buffer) byteBuffer;
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.hash;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+
+/**
+ * The hash function for hashes that are only ever compared to other hashes calculated by the same process,
+ * like the hashes of directories in the virtual file system.
+ *
+ * Hashes that end up in build cache keys must not use this function.
+ * Stores persisting hashes created by this function should be keyed by its {@linkplain HashFunction#getAlgorithm() algorithm},
+ * so hashes created by different functions are never compared.
+ */
+@ServiceScope(Scope.Global.class)
+public final class LocalHashFunction {
+    public static final LocalHashFunction DEFAULT = new LocalHashFunction(Hashing.defaultFunction());
+
+    private static final LocalHashFunction MURMUR3_128 = new LocalHashFunction(Hashing.murmur3_128());
+
+    private final HashFunction function;
+
+    private LocalHashFunction(HashFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * Returns the local function for the given algorithm name, or {@link #DEFAULT} when no name is given.
+     */
+    public static LocalHashFunction forAlgorithm(@Nullable String algorithm) {
+        if (algorithm == null || algorithm.equalsIgnoreCase(DEFAULT.function.getAlgorithm())) {
+            return DEFAULT;
+        }
+        if (algorithm.equalsIgnoreCase(MURMUR3_128.function.getAlgorithm())) {
+            return MURMUR3_128;
+        }
+        throw new IllegalArgumentException(String.format("Unsupported local hash function '%s', supported are %s and %s.", algorithm, DEFAULT.function.getAlgorithm(), MURMUR3_128.function.getAlgorithm()));
+    }
+
+    public HashFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * Whether this is the {@linkplain Hashing#defaultFunction() default function}.
+     */
+    public boolean isDefault() {
+        return function == Hashing.defaultFunction();
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
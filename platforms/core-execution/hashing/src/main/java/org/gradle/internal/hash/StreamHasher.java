@@ -21,6 +21,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 @ServiceScope(Scope.Global.class)
 public interface StreamHasher {
@@ -34,4 +35,11 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the hash of the contents of the given file channel, starting from the beginning of the file.
+     * The hash is the same as for an input stream with the same contents.
+     * The channel will not be closed by the method.
+     */
+    HashCode hash(FileChannel channel) throws IOException;
 }
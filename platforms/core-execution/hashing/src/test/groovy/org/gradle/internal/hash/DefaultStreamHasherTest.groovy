@@ -17,8 +17,17 @@
 package org.gradle.internal.hash
 
 import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
 
 class DefaultStreamHasherTest extends Specification {
+    @TempDir
+    Path tmpDir
+
     def "can hash input"() {
         def input = new ByteArrayInputStream("hello".bytes)
         when:
@@ -36,4 +45,28 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "hashing a file channel produces the same hash as hashing a stream"() {
+        def bytes = new byte[200 * 1024]
+        new Random(1).nextBytes(bytes)
+        def file = tmpDir.resolve("file.bin")
+        Files.write(file, bytes)
+        def hasher = new DefaultStreamHasher()
+
+        when:
+        def hash = FileChannel.open(file, StandardOpenOption.READ).withCloseable { hasher.hash(it) }
+
+        then:
+        hash == hasher.hash(new ByteArrayInputStream(bytes))
+    }
+
+    def "can hash empty file channel"() {
+        def file = Files.createFile(tmpDir.resolve("empty.bin"))
+
+        when:
+        def hash = FileChannel.open(file, StandardOpenOption.READ).withCloseable { new DefaultStreamHasher().hash(it) }
+
+        then:
+        hash == new DefaultStreamHasher().hash(new ByteArrayInputStream(new byte[0]))
+    }
 }
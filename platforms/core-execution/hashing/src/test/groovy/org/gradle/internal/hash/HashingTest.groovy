@@ -18,6 +18,8 @@ package org.gradle.internal.hash
 
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+
 import static java.lang.Thread.currentThread
 import static java.util.concurrent.CompletableFuture.supplyAsync
 import static java.util.concurrent.Executors.newFixedThreadPool
@@ -109,6 +111,29 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 hashes are 128 bits and differ from the default function'() {
+        when:
+        def hash = Hashing.murmur3_128().hashString("hello")
+
+        then:
+        hash.length() == 16
+        Hashing.murmur3_128().hexDigits == 32
+        hash == Hashing.murmur3_128().hashBytes("hello".bytes)
+        hash != Hashing.hashString("hello")
+    }
+
+    def 'murmur3 hasher accepts buffers'() {
+        def bytes = "hello world".bytes
+        def hasher = Hashing.murmur3_128().newPrimitiveHasher()
+
+        when:
+        hasher.putBytes(ByteBuffer.wrap(bytes, 0, 5))
+        hasher.putBytes(bytes, 5, bytes.length - 5)
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
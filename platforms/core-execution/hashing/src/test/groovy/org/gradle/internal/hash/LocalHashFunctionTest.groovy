@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import spock.lang.Specification
+
+class LocalHashFunctionTest extends Specification {
+    def 'local function is selected by algorithm name'() {
+        expect:
+        LocalHashFunction.forAlgorithm(null) == LocalHashFunction.DEFAULT
+        LocalHashFunction.forAlgorithm("MD5") == LocalHashFunction.DEFAULT
+        LocalHashFunction.forAlgorithm("murmur3-128").function == Hashing.murmur3_128()
+    }
+
+    def 'default local function is the default hash function'() {
+        expect:
+        LocalHashFunction.DEFAULT.function == Hashing.defaultFunction()
+        LocalHashFunction.DEFAULT.isDefault()
+        !LocalHashFunction.forAlgorithm("MURMUR3-128").isDefault()
+    }
+
+    def 'unsupported local function is rejected'() {
+        when:
+        LocalHashFunction.forAlgorithm("CRC32")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unsupported local hash function 'CRC32', supported are MD5 and MURMUR3-128."
+    }
+}
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.api-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = """Persistent caches on disk and cross process locking.
@@ -36,6 +37,10 @@ dependencies {
 
     integTestImplementation(projects.messaging)
 
+    jmhImplementation(platform(projects.distributionsDependencies))
+    jmhImplementation(libs.commonsIo)
+    jmhImplementation(libs.guava)
+
     integTestDistributionRuntimeOnly(projects.distributionsCore)
 }
 tasks.isolatedProjectsIntegTest {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.FileLock;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.FileLockReleasedSignal;
+import org.gradle.cache.internal.filelock.DefaultLockOptions;
+import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Stresses the in-memory layer of a persistent indexed cache and its cross-process lock from many threads,
+ * the way the file hash and execution history caches are used by parallel workers.
+ */
+@Fork(1)
+@Threads(32)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class InMemoryCacheConcurrencyBenchmark {
+
+    @Param({"4", "64"})
+    int concurrencyLevel;
+
+    @Param({"10000"})
+    int entries;
+
+    @Param({"0", "10"})
+    int writePercentage;
+
+    File tempDir;
+    String[] keys;
+    LockOnDemandCrossProcessCacheAccess crossProcessCacheAccess;
+    CrossProcessSynchronizingIndexedCache<String, String> cache;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        tempDir = Files.createTempDirectory("in-memory-cache-benchmark").toFile();
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "/project/build/classes/java/main/Class" + i + ".class";
+        }
+
+        FileLockManager lockManager = new DefaultFileLockManager(new BenchmarkProcessMetaDataProvider(), new NoOpContentionHandler());
+        crossProcessCacheAccess = new LockOnDemandCrossProcessCacheAccess(
+            "benchmark cache",
+            new File(tempDir, "cache.lock"),
+            DefaultLockOptions.mode(FileLockManager.LockMode.Exclusive),
+            lockManager,
+            new ReentrantLock(),
+            CacheInitializationAction.NO_INIT_REQUIRED,
+            fileLock -> {},
+            fileLock -> {}
+        );
+        Cache<Object, Object> inMemoryCache = CacheBuilder.newBuilder()
+            .maximumSize(entries * 2L)
+            .concurrencyLevel(concurrencyLevel)
+            .build();
+        InMemoryDecoratedCache<String, String> inMemory = new InMemoryDecoratedCache<>(new MapBackedAsyncCache(), inMemoryCache, "benchmark", new AtomicReference<>());
+        cache = new CrossProcessSynchronizingIndexedCache<>(inMemory, crossProcessCacheAccess);
+        for (String key : keys) {
+            cache.put(key, key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        crossProcessCacheAccess.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public String getOrPut() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(keys.length)];
+        if (random.nextInt(100) < writePercentage) {
+            cache.put(key, key);
+            return key;
+        }
+        return cache.get(key, Function.identity());
+    }
+
+    private static class MapBackedAsyncCache implements MultiProcessSafeAsyncPersistentIndexedCache<String, String> {
+        private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public String get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public String get(String key, Function<? super String, ? extends String> producer, Runnable completion) {
+            try {
+                return entries.computeIfAbsent(key, producer);
+            } finally {
+                completion.run();
+            }
+        }
+
+        @Override
+        public void putLater(String key, String value, Runnable completion) {
+            try {
+                entries.put(key, value);
+            } finally {
+                completion.run();
+            }
+        }
+
+        @Override
+        public void removeLater(String key, Runnable completion) {
+            try {
+                entries.remove(key);
+            } finally {
+                completion.run();
+            }
+        }
+
+        @Override
+        public void afterLockAcquire(FileLock.State currentCacheState) {
+        }
+
+        @Override
+        public void finishWork() {
+        }
+
+        @Override
+        public void beforeLockRelease(FileLock.State currentCacheState) {
+        }
+    }
+
+    private static class BenchmarkProcessMetaDataProvider implements ProcessMetaDataProvider {
+        @Override
+        public String getProcessIdentifier() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getProcessDisplayName() {
+            return "benchmark";
+        }
+    }
+
+    private static class NoOpContentionHandler implements FileLockContentionHandler {
+        @Override
+        public void start(long lockId, Consumer<FileLockReleasedSignal> whenContended) {
+        }
+
+        @Override
+        public void stop(long lockId) {
+        }
+
+        @Override
+        public int reservePort() {
+            return -1;
+        }
+
+        @Override
+        public boolean maybePingOwner(int port, long lockId, String displayName, long timeElapsed, FileLockReleasedSignal signal) {
+            return false;
+        }
+    }
+}
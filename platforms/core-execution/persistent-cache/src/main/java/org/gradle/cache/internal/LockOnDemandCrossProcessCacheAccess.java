@@ -25,12 +25,21 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+/**
+ * Acquires the file lock when the cache is first used, and retains it until another process asks for it while the cache is not in use.
+ *
+ * Operations that start while the file lock is already held only update an atomic counter and do not need the state lock,
+ * so threads using the cache concurrently do not contend with each other.
+ * The file lock is only ever acquired and released while holding the state lock, and while no operation is running.
+ */
 public class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAccess {
     private static final Logger LOGGER = LoggerFactory.getLogger(LockOnDemandCrossProcessCacheAccess.class);
+    private static final int NOT_HELD = -1;
     private final String cacheDisplayName;
     private final File lockTarget;
     private final LockOptions lockOptions;
@@ -40,10 +49,11 @@ public class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCac
     private final Consumer<FileLock> onClose;
     private final Runnable unlocker;
     private final Consumer<FileLockReleasedSignal> whenContended;
-    private int lockCount;
+    // The number of operations using the file lock, or NOT_HELD when the file lock is not held. Only changes from and to NOT_HELD while holding the state lock.
+    private final AtomicInteger lockCount = new AtomicInteger(NOT_HELD);
     private FileLock fileLock;
     private final CacheInitializationAction initAction;
-    private FileLockReleasedSignal lockReleaseSignal;
+    private volatile FileLockReleasedSignal lockReleaseSignal;
 
     /**
      * Actions are notified when lock is opened or closed. Actions are called while holding state lock, so that no other threads are working with cache while these are running.
@@ -74,8 +84,8 @@ public void open() {
     public void close() {
         stateLock.lock();
         try {
-            if (lockCount != 0) {
-                throw new IllegalStateException(String.format("Cannot close cache access for %s as it is currently in use for %s operations.", cacheDisplayName, lockCount));
+            if (!lockCount.compareAndSet(0, NOT_HELD) && lockCount.get() != NOT_HELD) {
+                throw new IllegalStateException(String.format("Cannot close cache access for %s as it is currently in use for %s operations.", cacheDisplayName, lockCount.get()));
             }
             releaseLockIfHeld();
         } finally {
@@ -94,43 +104,63 @@ public <T> T withFileLock(Supplier<T> factory) {
     }
 
     private void incrementLockCount() {
+        // Fast path: the file lock is already held
+        for (int count = lockCount.get(); count != NOT_HELD; count = lockCount.get()) {
+            if (lockCount.compareAndSet(count, count + 1)) {
+                return;
+            }
+        }
         stateLock.lock();
         try {
-            if (fileLock == null) {
-                if (lockCount != 0) {
-                    throw new IllegalStateException("Mismatched lock count.");
-                }
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Acquiring file lock for {}", cacheDisplayName);
-                }
-                fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName, "", whenContended);
-                try {
-                    if (initAction.requiresInitialization(fileLock)) {
-                        fileLock.writeFile(() -> initAction.initialize(fileLock));
-                    }
-                    onOpen.accept(fileLock);
-                } catch (Exception e) {
-                    fileLock.close();
-                    fileLock = null;
-                    throw UncheckedException.throwAsUncheckedException(e);
+            if (lockCount.get() != NOT_HELD) {
+                // Another thread acquired the file lock in the meantime
+                lockCount.incrementAndGet();
+                return;
+            }
+            if (fileLock != null) {
+                throw new IllegalStateException("Mismatched lock count.");
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Acquiring file lock for {}", cacheDisplayName);
+            }
+            fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName, "", whenContended);
+            try {
+                if (initAction.requiresInitialization(fileLock)) {
+                    fileLock.writeFile(() -> initAction.initialize(fileLock));
                 }
+                onOpen.accept(fileLock);
+            } catch (Exception e) {
+                fileLock.close();
+                fileLock = null;
+                throw UncheckedException.throwAsUncheckedException(e);
             }
-            lockCount++;
+            lockCount.set(1);
         } finally {
             stateLock.unlock();
         }
     }
 
     private void decrementLockCount() {
-        stateLock.lock();
-        try {
-            if (lockCount <= 0 || fileLock == null) {
+        while (true) {
+            int count = lockCount.get();
+            if (count <= 0) {
                 throw new IllegalStateException("Mismatched lock count.");
             }
-            lockCount--;
-            if (lockCount == 0 && lockReleaseSignal != null) {
+            if (lockCount.compareAndSet(count, count - 1)) {
+                if (count == 1 && lockReleaseSignal != null) {
+                    releaseLockIfUnused();
+                } // otherwise, keep lock open
+                return;
+            }
+        }
+    }
+
+    private void releaseLockIfUnused() {
+        stateLock.lock();
+        try {
+            if (lockCount.compareAndSet(0, NOT_HELD)) {
                 releaseLockIfHeld();
-            } // otherwise, keep lock open
+            }
         } finally {
             stateLock.unlock();
         }
@@ -169,7 +199,7 @@ private class ContendedAction implements Consumer<FileLockReleasedSignal> {
         public void accept(FileLockReleasedSignal signal) {
             stateLock.lock();
             try {
-                if (lockCount == 0) {
+                if (lockCount.compareAndSet(0, NOT_HELD) || lockCount.get() == NOT_HELD) {
                     LOGGER.debug("Lock on {} requested by another process - releasing lock.", cacheDisplayName);
                     releaseLockIfHeld();
                     signal.trigger();
@@ -177,6 +207,10 @@ public void accept(FileLockReleasedSignal signal) {
                     // Lock is in use - mark as contended
                     LOGGER.debug("Lock on {} requested by another process - lock is in use and will be released when operation completed.", cacheDisplayName);
                     lockReleaseSignal = signal;
+                    // The last operation may have completed before it could see the signal
+                    if (lockCount.compareAndSet(0, NOT_HELD)) {
+                        releaseLockIfHeld();
+                    }
                 }
             } finally {
                 stateLock.unlock();
@@ -24,6 +24,8 @@ import org.gradle.cache.internal.filelock.DefaultLockOptions
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestFile
 
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
 import java.util.concurrent.locks.ReentrantLock
 import java.util.function.Consumer
 import java.util.function.Supplier
@@ -799,4 +801,48 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * lock.close()
         0 * _
     }
+
+    def "holds lock while any thread uses it when other processes repeatedly request the lock"() {
+        def lock = Mock(FileLock)
+        def acquired = new AtomicInteger()
+        def released = new AtomicInteger()
+        def triggered = new AtomicInteger()
+        def signal = Stub(FileLockReleasedSignal) {
+            trigger() >> { triggered.incrementAndGet() }
+        }
+        def contendedAction = new AtomicReference<Consumer>()
+
+        given:
+        lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Consumer<FileLockReleasedSignal> whenContended -> contendedAction.set(whenContended)
+                acquired.incrementAndGet()
+                return lock
+        }
+        lock.close() >> { released.incrementAndGet() }
+
+        when:
+        async {
+            8.times {
+                start {
+                    1000.times {
+                        cacheAccess.withFileLock {
+                            assert acquired.get() == released.get() + 1
+                        }
+                    }
+                }
+            }
+            start {
+                200.times {
+                    contendedAction.get()?.accept(signal)
+                    Thread.yield()
+                }
+            }
+        }
+        contendedAction.get().accept(signal)
+
+        then:
+        acquired.get() > 0
+        acquired.get() == released.get()
+        triggered.get() > 0
+    }
 }
@@ -18,6 +18,7 @@
 
 import org.gradle.internal.file.FileMetadata.AccessType;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.hash.Hashing;
 
@@ -35,25 +36,50 @@
  * This implementation combines the hashes of the children of a directory into a single hash for the directory.
  * For the hash to be reproducible, the children must be sorted in a consistent order.
  * The implementation uses {@link FileSystemLocationSnapshot#BY_NAME} ordering.
- * If you already provide the children in sorted order, use {@link #noSortingRequired()} to avoid the overhead of sorting again.
+ * If you already provide the children in sorted order, use {@link #noSortingRequired(HashFunction)} to avoid the overhead of sorting again.
+ *
+ * The hashes of directories are only used locally, so they are calculated with the {@linkplain org.gradle.internal.hash.LocalHashFunction local hash function}.
+ * All snapshots that are compared with each other must be built with the same function.
  */
 public class MerkleDirectorySnapshotBuilder implements DirectorySnapshotBuilder {
     private static final HashCode DIR_SIGNATURE = Hashing.signature("DIR");
 
     private final Deque<Directory> directoryStack = new ArrayDeque<>();
     private final boolean sortingRequired;
+    private final HashFunction hashFunction;
     private FileSystemLocationSnapshot result;
 
-    public static DirectorySnapshotBuilder sortingRequired() {
-        return new MerkleDirectorySnapshotBuilder(true);
+    public static DirectorySnapshotBuilder sortingRequired(HashFunction hashFunction) {
+        return new MerkleDirectorySnapshotBuilder(true, hashFunction);
     }
 
-    public static DirectorySnapshotBuilder noSortingRequired() {
-        return new MerkleDirectorySnapshotBuilder(false);
+    public static DirectorySnapshotBuilder noSortingRequired(HashFunction hashFunction) {
+        return new MerkleDirectorySnapshotBuilder(false, hashFunction);
     }
 
-    protected MerkleDirectorySnapshotBuilder(boolean sortingRequired) {
+    protected MerkleDirectorySnapshotBuilder(boolean sortingRequired, HashFunction hashFunction) {
         this.sortingRequired = sortingRequired;
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * Returns the hash of the given snapshot, with the hashes of directories calculated via {@link Hashing#defaultFunction()}.
+     *
+     * Use this for hashes persisted in places that are shared between processes which may use a different local hash function.
+     *
+     * @param hashFunction the function the hashes of the directories in the snapshot were calculated with.
+     */
+    public static HashCode hashWithDefaultFunction(FileSystemLocationSnapshot snapshot, HashFunction hashFunction) {
+        if (hashFunction == Hashing.defaultFunction() || !(snapshot instanceof DirectorySnapshot)) {
+            return snapshot.getHash();
+        }
+        Hasher hasher = Hashing.defaultFunction().newHasher();
+        hasher.putHash(DIR_SIGNATURE);
+        for (FileSystemLocationSnapshot child : ((DirectorySnapshot) snapshot).getChildren()) {
+            hasher.putString(child.getName());
+            hasher.putHash(hashWithDefaultFunction(child, hashFunction));
+        }
+        return hasher.hash();
     }
 
     @Override
@@ -122,7 +148,7 @@ public DirectorySnapshot fold() {
             if (sortingRequired) {
                 children.sort(FileSystemLocationSnapshot.BY_NAME);
             }
-            Hasher hasher = Hashing.newHasher();
+            Hasher hasher = hashFunction.newHasher();
             hasher.putHash(DIR_SIGNATURE);
             for (FileSystemLocationSnapshot child : children) {
                 hasher.putString(child.getName());
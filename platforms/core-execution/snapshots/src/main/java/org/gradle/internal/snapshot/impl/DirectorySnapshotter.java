@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
@@ -27,9 +28,13 @@
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
 import org.gradle.internal.snapshot.FileSystemLeafSnapshot;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
 import org.gradle.internal.snapshot.MissingFileSnapshot;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 import org.gradle.internal.snapshot.RelativePathTracker;
@@ -40,10 +45,13 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -56,7 +64,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -86,15 +99,62 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     };
 
     private final FileHasher hasher;
+    private final HashFunction directoryHashFunction;
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    @Nullable
+    private final ForkJoinPool walkPool;
+    private final boolean skipKnownEntries;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, Hashing.defaultFunction(), stringInterner, defaultExcludes, collector, null, false);
+    }
+
+    /**
+     * Creates a snapshotter which walks the subdirectories of a directory in parallel on the given pool, or on the calling thread when no pool is given.
+     *
+     * The hashes of directories are calculated with the given local hash function.
+     *
+     * The parallel walk produces the same snapshots as the sequential one.
+     * The pool is owned by the caller, which can share it between snapshotters.
+     *
+     * When {@code skipKnownEntries} is set, directories with previously known snapshots are re-snapshotted by listing them,
+     * and the entries with a known snapshot are reused without reading their attributes.
+     *
+     * @see #createParallelWalkPool()
+     */
+    public DirectorySnapshotter(
+        FileHasher hasher,
+        HashFunction directoryHashFunction,
+        Interner<String> stringInterner,
+        Collection<String> defaultExcludes,
+        DirectorySnapshotterStatistics.Collector collector,
+        @Nullable ForkJoinPool walkPool,
+        boolean skipKnownEntries
+    ) {
         this.hasher = hasher;
+        this.directoryHashFunction = directoryHashFunction;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.walkPool = walkPool;
+        this.skipKnownEntries = skipKnownEntries;
+    }
+
+    /**
+     * Creates a pool for walking directories in parallel, with one thread per processor.
+     *
+     * Walking on a dedicated pool keeps the walk from competing with other users of the common {@link ForkJoinPool},
+     * and keeps the common pool from being blocked by the file system.
+     */
+    public static ForkJoinPool createParallelWalkPool() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("File system snapshotter Thread " + threadCount.incrementAndGet());
+            return thread;
+        }, null, false);
     }
 
     /**
@@ -119,10 +179,17 @@ public FileSystemLocationSnapshot snapshot(
         Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
         Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
     ) {
+        // Re-snapshotting a directory after parts of it have been invalidated can skip reading the attributes of the unchanged entries
+        if (walkPool != null || (skipKnownEntries && !previouslyKnownSnapshots.isEmpty())) {
+            FileSystemLocationSnapshot result = snapshotWithDirectoryStreams(absolutePath, predicate, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+            if (result != null) {
+                return result;
+            }
+        }
         try {
             AtomicBoolean hasBeenFiltered = new AtomicBoolean();
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, directoryHashFunction, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             FileSystemLocationSnapshot result = visitor.getResult();
             if (!hasBeenFiltered.get()) {
@@ -134,6 +201,102 @@ public FileSystemLocationSnapshot snapshot(
         }
     }
 
+    /**
+     * Snapshots the root directory by listing each directory via a {@link DirectoryStream}, walking the subdirectories in parallel if enabled.
+     *
+     * @return the snapshot, or {@code null} when the root is not a plain directory, in which case the sequential walk needs to handle it.
+     */
+    @Nullable
+    private FileSystemLocationSnapshot snapshotWithDirectoryStreams(
+        String absolutePath,
+        @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+        Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
+        Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
+    ) {
+        Path rootPath = Paths.get(absolutePath);
+        try {
+            if (!Files.readAttributes(rootPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory()) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        collector.recordVisitHierarchy();
+        collector.recordVisitDirectory();
+
+        String internedAbsolutePath = stringInterner.intern(rootPath.toString());
+        DirectoryStreamWalk walk = new DirectoryStreamWalk(predicate, previouslyKnownSnapshots);
+        FileSystemLocationSnapshot previouslyKnownSnapshot = walk.findPreviouslyKnownDirectory(internedAbsolutePath);
+        if (previouslyKnownSnapshot != null) {
+            unfilteredSnapshotRecorder.accept(previouslyKnownSnapshot);
+            return previouslyKnownSnapshot;
+        }
+
+        Path fileName = rootPath.getFileName();
+        String internedFileName = fileName == null ? "" : stringInterner.intern(fileName.toString());
+        DirectoryResult result = walk.invoke(walk.new SnapshotDirectoryTask(
+            rootPath,
+            internedFileName,
+            internedAbsolutePath,
+            ImmutableList.of(),
+            EMPTY_SYMBOLIC_LINK_MAPPING,
+            ImmutableList.of(rootPath.toString())
+        ));
+        result.unfilteredSnapshots.forEach(unfilteredSnapshotRecorder);
+        if (!result.filtered) {
+            unfilteredSnapshotRecorder.accept(result.snapshot);
+        }
+        return result.snapshot;
+    }
+
+    /**
+     * Finds the previously known snapshot of a directory, which can be reused instead of walking the directory.
+     */
+    @Nullable
+    private static DirectorySnapshot findPreviouslyKnownDirectory(
+        @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+        Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
+        String internedRemappedAbsolutePath
+    ) {
+        // TODO Reuse previous directory snapshot even when filtering is enabled
+        if (predicate != null) {
+            return null;
+        }
+        FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsolutePath);
+        if (previouslyKnownSnapshot == null || previouslyKnownSnapshot instanceof DirectorySnapshot) {
+            return (DirectorySnapshot) previouslyKnownSnapshot;
+        }
+        throw new IllegalStateException("Expected a previously known directory snapshot at " + internedRemappedAbsolutePath + " but got " + previouslyKnownSnapshot);
+    }
+
+    private static FileSystemLeafSnapshot snapshotFile(
+        FileHasher hasher,
+        Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
+        Path absoluteFilePath,
+        String internedRemappedAbsoluteFilePath,
+        String internedName,
+        BasicFileAttributes attrs,
+        AccessType accessType
+    ) {
+        FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsoluteFilePath);
+        if (previouslyKnownSnapshot != null) {
+            if (!(previouslyKnownSnapshot instanceof FileSystemLeafSnapshot)) {
+                throw new IllegalStateException("Expected a previously known leaf snapshot at " + internedRemappedAbsoluteFilePath + ", but found " + previouslyKnownSnapshot);
+            }
+            return (FileSystemLeafSnapshot) previouslyKnownSnapshot;
+        }
+        if (attrs.isSymbolicLink()) {
+            return new MissingFileSnapshot(internedRemappedAbsoluteFilePath, internedName, accessType);
+        } else if (!attrs.isRegularFile()) {
+            throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", internedRemappedAbsoluteFilePath)));
+        }
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        long fileLength = attrs.size();
+        FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
+        HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
+        return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
+    }
+
     private interface SymbolicLinkMapping {
         String remapAbsolutePath(Path path);
 
@@ -259,6 +422,7 @@ private static class PathVisitor extends DirectorySnapshotterStatistics.Collecti
         private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
         private final AtomicBoolean hasBeenFiltered;
         private final FileHasher hasher;
+        private final HashFunction directoryHashFunction;
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
         private final SymbolicLinkMapping symbolicLinkMapping;
@@ -271,6 +435,7 @@ public PathVisitor(
             @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
             AtomicBoolean hasBeenFiltered,
             FileHasher hasher,
+            HashFunction directoryHashFunction,
             Interner<String> stringInterner,
             DefaultExcludes defaultExcludes,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
@@ -279,10 +444,11 @@ public PathVisitor(
             Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
         ) {
             super(statisticsCollector);
-            this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::recordUnfilteredSnapshot);
+            this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(directoryHashFunction, this::recordUnfilteredSnapshot);
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
             this.hasher = hasher;
+            this.directoryHashFunction = directoryHashFunction;
             this.stringInterner = stringInterner;
             this.defaultExcludes = defaultExcludes;
             this.symbolicLinkMapping = symbolicLinkMapping;
@@ -303,16 +469,11 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
             if (shouldVisitDirectory(dir, fileName)) {
                 String internedRemappedAbsolutePath = intern(symbolicLinkMapping.remapAbsolutePath(dir));
 
-                // TODO Reuse previous directory snapshot even when filtering is enabled
-                if (predicate == null) {
-                    FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsolutePath);
-                    if (previouslyKnownSnapshot instanceof DirectorySnapshot) {
-                        builder.visitDirectory((DirectorySnapshot) previouslyKnownSnapshot);
-                        pathTracker.leave();
-                        return FileVisitResult.SKIP_SUBTREE;
-                    } else if (previouslyKnownSnapshot != null) {
-                        throw new IllegalStateException("Expected a previously known directory snapshot at " + internedRemappedAbsolutePath + " but got " + previouslyKnownSnapshot);
-                    }
+                DirectorySnapshot previouslyKnownSnapshot = findPreviouslyKnownDirectory(predicate, previouslyKnownSnapshots, internedRemappedAbsolutePath);
+                if (previouslyKnownSnapshot != null) {
+                    builder.visitDirectory(previouslyKnownSnapshot);
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
                 }
 
                 builder.enterDirectory(AccessType.DIRECT, internedRemappedAbsolutePath, fileName, INCLUDE_EMPTY_DIRS);
@@ -390,6 +551,7 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         predicate,
                         symlinkHasBeenFiltered,
                         hasher,
+                        directoryHashFunction,
                         stringInterner,
                         defaultExcludes,
                         collector,
@@ -437,23 +599,7 @@ private static BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, B
 
         private FileSystemLeafSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs, AccessType accessType) {
             String internedRemappedAbsoluteFilePath = intern(symbolicLinkMapping.remapAbsolutePath(absoluteFilePath));
-            FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsoluteFilePath);
-            if (previouslyKnownSnapshot != null) {
-                if (!(previouslyKnownSnapshot instanceof FileSystemLeafSnapshot)) {
-                    throw new IllegalStateException("Expected a previously known leaf snapshot at " + internedRemappedAbsoluteFilePath + ", but found " + previouslyKnownSnapshot);
-                }
-                return (FileSystemLeafSnapshot) previouslyKnownSnapshot;
-            }
-            if (attrs.isSymbolicLink()) {
-                return new MissingFileSnapshot(internedRemappedAbsoluteFilePath, internedName, accessType);
-            } else if (!attrs.isRegularFile()) {
-                throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", internedRemappedAbsoluteFilePath)));
-            }
-            long lastModified = attrs.lastModifiedTime().toMillis();
-            long fileLength = attrs.size();
-            FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
-            HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
-            return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
+            return DirectorySnapshotter.snapshotFile(hasher, previouslyKnownSnapshots, absoluteFilePath, internedRemappedAbsoluteFilePath, internedName, attrs, accessType);
         }
 
         /**
@@ -521,4 +667,321 @@ public FileSystemLocationSnapshot getResult() {
             return builder.getResult();
         }
     }
+
+    private static class DirectoryResult {
+        private final DirectorySnapshot snapshot;
+        private final boolean filtered;
+        private final List<FileSystemLocationSnapshot> unfilteredSnapshots;
+
+        public DirectoryResult(DirectorySnapshot snapshot, boolean filtered, List<FileSystemLocationSnapshot> unfilteredSnapshots) {
+            this.snapshot = snapshot;
+            this.filtered = filtered;
+            this.unfilteredSnapshots = unfilteredSnapshots;
+        }
+    }
+
+    /**
+     * Walks a directory hierarchy by creating a {@link RecursiveTask} for every subdirectory.
+     *
+     * Each task lists and hashes the direct children of its directory, waits for the tasks of its subdirectories
+     * and folds the results into a {@link DirectorySnapshot} via {@link MerkleDirectorySnapshotBuilder}.
+     * Snapshots for the unfiltered recorder are collected per task and handed to the recorder on the calling thread.
+     *
+     * When the walk is parallel, the tasks of subdirectories are forked on the pool of the snapshotter, otherwise they run on the calling thread.
+     *
+     * When skipping known entries is enabled, entries for which a snapshot is already known are reused by their path, without reading their attributes.
+     * This way, re-snapshotting a directory where only a few paths have been invalidated only needs to
+     * list the directories on the way to the invalidated paths and snapshot what changed.
+     */
+    private class DirectoryStreamWalk {
+        private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
+        private final ImmutableMap<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots;
+
+        public DirectoryStreamWalk(@Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots) {
+            this.predicate = predicate;
+            this.previouslyKnownSnapshots = ImmutableMap.copyOf(previouslyKnownSnapshots);
+        }
+
+        public DirectoryResult invoke(SnapshotDirectoryTask task) {
+            return walkPool != null
+                ? walkPool.invoke(task)
+                : task.invoke();
+        }
+
+        private void start(SnapshotDirectoryTask task) {
+            if (walkPool != null) {
+                task.fork();
+            }
+        }
+
+        private DirectoryResult finish(ForkJoinTask<DirectoryResult> task) {
+            return walkPool != null
+                ? task.join()
+                : task.invoke();
+        }
+
+        /**
+         * Finds a previously known snapshot for a directory entry which can be reused without looking at the entry in the file system.
+         *
+         * Directories accessed via symlinks are not reused here, since they need to be checked for cycles.
+         */
+        @Nullable
+        private FileSystemLocationSnapshot findReusableSnapshot(String internedRemappedAbsolutePath) {
+            FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsolutePath);
+            if (previouslyKnownSnapshot instanceof FileSystemLeafSnapshot) {
+                return previouslyKnownSnapshot;
+            }
+            if (previouslyKnownSnapshot != null && predicate == null && previouslyKnownSnapshot.getAccessType() == AccessType.DIRECT) {
+                return findPreviouslyKnownDirectory(internedRemappedAbsolutePath);
+            }
+            return null;
+        }
+
+        @Nullable
+        public DirectorySnapshot findPreviouslyKnownDirectory(String internedRemappedAbsolutePath) {
+            return DirectorySnapshotter.findPreviouslyKnownDirectory(predicate, previouslyKnownSnapshots, internedRemappedAbsolutePath);
+        }
+
+        private class SnapshotDirectoryTask extends RecursiveTask<DirectoryResult> {
+            private final Path dir;
+            private final String internedName;
+            private final String internedRemappedAbsolutePath;
+            private final ImmutableList<String> relativePath;
+            private final SymbolicLinkMapping symbolicLinkMapping;
+            private final ImmutableList<String> parentDirectories;
+            private boolean filtered;
+
+            public SnapshotDirectoryTask(
+                Path dir,
+                String internedName,
+                String internedRemappedAbsolutePath,
+                ImmutableList<String> relativePath,
+                SymbolicLinkMapping symbolicLinkMapping,
+                ImmutableList<String> parentDirectories
+            ) {
+                this.dir = dir;
+                this.internedName = internedName;
+                this.internedRemappedAbsolutePath = internedRemappedAbsolutePath;
+                this.relativePath = relativePath;
+                this.symbolicLinkMapping = symbolicLinkMapping;
+                this.parentDirectories = parentDirectories;
+            }
+
+            @Override
+            protected DirectoryResult compute() {
+                List<Path> entries = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    stream.forEach(entries::add);
+                } catch (DirectoryIteratorException e) {
+                    throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), e.getCause());
+                } catch (IOException e) {
+                    // Unlistable directories fail the same way as in the sequential walk
+                    collector.recordVisitFileFailed();
+                    throw new UncheckedIOException(e);
+                }
+
+                List<FileSystemLocationSnapshot> children = new ArrayList<>(entries.size());
+                Set<FileSystemLocationSnapshot> filteredChildren = new HashSet<>();
+                List<PendingDirectory> pendingDirectories = new ArrayList<>();
+                for (Path entry : entries) {
+                    String internedEntryName = stringInterner.intern(entry.getFileName().toString());
+                    ImmutableList<String> entryRelativePath = ImmutableList.<String>builderWithExpectedSize(relativePath.size() + 1)
+                        .addAll(relativePath)
+                        .add(internedEntryName)
+                        .build();
+                    if (skipKnownEntries && !previouslyKnownSnapshots.isEmpty()) {
+                        FileSystemLocationSnapshot reusableSnapshot = findReusableSnapshot(stringInterner.intern(symbolicLinkMapping.remapAbsolutePath(entry)));
+                        if (reusableSnapshot != null) {
+                            boolean isDirectory = reusableSnapshot.getType() == FileType.Directory;
+                            if (isDirectory) {
+                                collector.recordVisitDirectory();
+                            } else {
+                                collector.recordVisitFile();
+                            }
+                            if (shouldVisit(entry, internedEntryName, isDirectory, entryRelativePath)) {
+                                children.add(reusableSnapshot);
+                            }
+                            continue;
+                        }
+                    }
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        collector.recordVisitFileFailed();
+                        if (!(e instanceof FileSystemLoopException) && shouldVisit(entry, internedEntryName, Files.isDirectory(entry), entryRelativePath)) {
+                            throw new UncheckedIOException(e);
+                        }
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        collector.recordVisitDirectory();
+                        if (shouldVisit(entry, internedEntryName, true, entryRelativePath)) {
+                            String internedRemappedEntryPath = stringInterner.intern(symbolicLinkMapping.remapAbsolutePath(entry));
+                            DirectorySnapshot previouslyKnownSnapshot = findPreviouslyKnownDirectory(internedRemappedEntryPath);
+                            if (previouslyKnownSnapshot != null) {
+                                children.add(previouslyKnownSnapshot);
+                            } else {
+                                SnapshotDirectoryTask task = new SnapshotDirectoryTask(
+                                    entry,
+                                    internedEntryName,
+                                    internedRemappedEntryPath,
+                                    entryRelativePath,
+                                    symbolicLinkMapping,
+                                    ImmutableList.<String>builder().addAll(parentDirectories).add(entry.toString()).build()
+                                );
+                                start(task);
+                                pendingDirectories.add(new PendingDirectory(task, null));
+                            }
+                        }
+                    } else {
+                        collector.recordVisitFile();
+                        visitFile(entry, internedEntryName, attrs, entryRelativePath, children, pendingDirectories);
+                    }
+                }
+
+                List<FileSystemLocationSnapshot> unfilteredSnapshots = new ArrayList<>();
+                for (PendingDirectory pendingDirectory : pendingDirectories) {
+                    DirectoryResult childResult = finish(pendingDirectory.task);
+                    unfilteredSnapshots.addAll(childResult.unfilteredSnapshots);
+                    DirectorySnapshot childSnapshot = childResult.snapshot;
+                    if (pendingDirectory.symlinkName != null) {
+                        childSnapshot = new DirectorySnapshot(
+                            childSnapshot.getAbsolutePath(),
+                            pendingDirectory.symlinkName,
+                            AccessType.VIA_SYMLINK,
+                            childSnapshot.getHash(),
+                            childSnapshot.getChildren()
+                        );
+                    }
+                    children.add(childSnapshot);
+                    if (childResult.filtered) {
+                        filteredChildren.add(childSnapshot);
+                        filtered = true;
+                    }
+                }
+
+                DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired(directoryHashFunction);
+                builder.enterDirectory(AccessType.DIRECT, internedRemappedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS);
+                for (FileSystemLocationSnapshot child : children) {
+                    if (child instanceof DirectorySnapshot) {
+                        builder.visitDirectory((DirectorySnapshot) child);
+                    } else {
+                        builder.visitLeafElement((FileSystemLeafSnapshot) child);
+                    }
+                }
+                DirectorySnapshot snapshot = (DirectorySnapshot) builder.leaveDirectory();
+                if (filtered) {
+                    for (FileSystemLocationSnapshot child : snapshot.getChildren()) {
+                        if (!filteredChildren.contains(child)) {
+                            unfilteredSnapshots.add(child);
+                        }
+                    }
+                }
+                return new DirectoryResult(snapshot, filtered, unfilteredSnapshots);
+            }
+
+            private void visitFile(
+                Path file,
+                String internedFileName,
+                BasicFileAttributes attrs,
+                ImmutableList<String> fileRelativePath,
+                List<FileSystemLocationSnapshot> children,
+                List<PendingDirectory> pendingDirectories
+            ) {
+                if (!attrs.isSymbolicLink()) {
+                    visitResolvedFile(file, internedFileName, attrs, AccessType.DIRECT, fileRelativePath, children);
+                    return;
+                }
+                BasicFileAttributes targetAttributes = PathVisitor.readAttributesOfSymlinkTarget(file, attrs);
+                if (!targetAttributes.isDirectory()) {
+                    visitResolvedFile(file, internedFileName, targetAttributes, AccessType.VIA_SYMLINK, fileRelativePath, children);
+                    return;
+                }
+                Path targetDir;
+                try {
+                    targetDir = file.toRealPath();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", file), e);
+                }
+                String targetDirString = targetDir.toString();
+                if (parentDirectories.contains(targetDirString) || !shouldVisit(targetDir, internedFileName, true, fileRelativePath)) {
+                    return;
+                }
+                collector.recordVisitHierarchy();
+                collector.recordVisitDirectory();
+                SymbolicLinkMapping targetMapping = new DefaultSymbolicLinkMapping(symbolicLinkMapping.remapAbsolutePath(file), targetDirString, fileRelativePath);
+                String internedRemappedTargetPath = stringInterner.intern(targetMapping.remapAbsolutePath(targetDir));
+                DirectorySnapshot previouslyKnownSnapshot = findPreviouslyKnownDirectory(internedRemappedTargetPath);
+                if (previouslyKnownSnapshot != null) {
+                    children.add(new DirectorySnapshot(
+                        previouslyKnownSnapshot.getAbsolutePath(),
+                        internedFileName,
+                        AccessType.VIA_SYMLINK,
+                        previouslyKnownSnapshot.getHash(),
+                        previouslyKnownSnapshot.getChildren()
+                    ));
+                    return;
+                }
+                Path targetFileName = targetDir.getFileName();
+                SnapshotDirectoryTask task = new SnapshotDirectoryTask(
+                    targetDir,
+                    targetFileName == null ? "" : stringInterner.intern(targetFileName.toString()),
+                    internedRemappedTargetPath,
+                    fileRelativePath,
+                    targetMapping,
+                    ImmutableList.of(targetDirString)
+                );
+                start(task);
+                pendingDirectories.add(new PendingDirectory(task, internedFileName));
+            }
+
+            private void visitResolvedFile(
+                Path file,
+                String internedFileName,
+                BasicFileAttributes attrs,
+                AccessType accessType,
+                ImmutableList<String> fileRelativePath,
+                List<FileSystemLocationSnapshot> children
+            ) {
+                if (shouldVisit(file, internedFileName, false, fileRelativePath)) {
+                    String internedRemappedAbsoluteFilePath = stringInterner.intern(symbolicLinkMapping.remapAbsolutePath(file));
+                    children.add(snapshotFile(hasher, previouslyKnownSnapshots, file, internedRemappedAbsoluteFilePath, internedFileName, attrs, accessType));
+                }
+            }
+
+            /**
+             * Same as the check in the sequential {@code PathVisitor}, but marks the directory of this task as filtered.
+             */
+            private boolean shouldVisit(Path path, String internedName, boolean isDirectory, ImmutableList<String> pathRelativePath) {
+                if (isDirectory) {
+                    if (defaultExcludes.excludeDir(internedName)) {
+                        return false;
+                    }
+                } else if (defaultExcludes.excludeFile(internedName)) {
+                    return false;
+                }
+
+                if (predicate == null) {
+                    return true;
+                }
+                boolean allowed = predicate.test(path, internedName, isDirectory, pathRelativePath);
+                if (!allowed) {
+                    filtered = true;
+                }
+                return allowed;
+            }
+        }
+    }
+
+    private static class PendingDirectory {
+        private final ForkJoinTask<DirectoryResult> task;
+        @Nullable
+        private final String symlinkName;
+
+        public PendingDirectory(ForkJoinTask<DirectoryResult> task, @Nullable String symlinkName) {
+            this.task = task;
+            this.symlinkName = symlinkName;
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot.impl;
 
 import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.hash.HashFunction;
 import org.gradle.internal.snapshot.DirectorySnapshot;
 import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
 import org.gradle.internal.snapshot.FileSystemLeafSnapshot;
@@ -44,12 +45,12 @@ public class FilteredTrackingMerkleDirectorySnapshotBuilder implements Directory
     private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder;
     private final DirectorySnapshotBuilder delegate;
 
-    public static FilteredTrackingMerkleDirectorySnapshotBuilder sortingRequired(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
-        return new FilteredTrackingMerkleDirectorySnapshotBuilder(unfilteredSnapshotConsumer);
+    public static FilteredTrackingMerkleDirectorySnapshotBuilder sortingRequired(HashFunction hashFunction, Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
+        return new FilteredTrackingMerkleDirectorySnapshotBuilder(hashFunction, unfilteredSnapshotConsumer);
     }
 
-    private FilteredTrackingMerkleDirectorySnapshotBuilder(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder) {
-        this.delegate = MerkleDirectorySnapshotBuilder.sortingRequired();
+    private FilteredTrackingMerkleDirectorySnapshotBuilder(HashFunction hashFunction, Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder) {
+        this.delegate = MerkleDirectorySnapshotBuilder.sortingRequired(hashFunction);
         this.unfilteredSnapshotRecorder = unfilteredSnapshotRecorder;
         // The root starts out as unfiltered.
         isCurrentLevelUnfiltered.addLast(true);
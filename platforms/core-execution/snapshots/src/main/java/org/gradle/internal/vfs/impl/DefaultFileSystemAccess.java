@@ -26,6 +26,8 @@
 import org.gradle.internal.file.excludes.FileSystemDefaultExcludesListener;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.io.IoRunnable;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.MissingFileSnapshot;
@@ -38,12 +40,15 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -51,7 +56,7 @@
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static org.gradle.internal.snapshot.impl.FileSystemSnapshotFilter.filterSnapshot;
 
-public class DefaultFileSystemAccess implements FileSystemAccess, FileSystemDefaultExcludesListener {
+public class DefaultFileSystemAccess implements FileSystemAccess, FileSystemDefaultExcludesListener, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileSystemAccess.class);
 
     private final VirtualFileSystem virtualFileSystem;
@@ -59,9 +64,14 @@ public class DefaultFileSystemAccess implements FileSystemAccess, FileSystemDefa
     private final Interner<String> stringInterner;
     private final WriteListener writeListener;
     private final DirectorySnapshotterStatistics.Collector statisticsCollector;
+    // Owned by this service and shared by the snapshotters it creates when the default excludes change
+    @Nullable
+    private final ForkJoinPool directoryWalkPool;
+    private final boolean skipKnownEntries;
     private ImmutableList<String> defaultExcludes;
     private DirectorySnapshotter directorySnapshotter;
     private final FileHasher hasher;
+    private final HashFunction directoryHashFunction;
     private final StripedProducerGuard<String> producingSnapshots = new StripedProducerGuard<>();
 
     public DefaultFileSystemAccess(
@@ -72,14 +82,32 @@ public DefaultFileSystemAccess(
         WriteListener writeListener,
         DirectorySnapshotterStatistics.Collector statisticsCollector,
         String... defaultExcludes
+    ) {
+        this(hasher, Hashing.defaultFunction(), stringInterner, stat, virtualFileSystem, writeListener, statisticsCollector, false, false, defaultExcludes);
+    }
+
+    public DefaultFileSystemAccess(
+        FileHasher hasher,
+        HashFunction directoryHashFunction,
+        Interner<String> stringInterner,
+        FileMetadataAccessor stat,
+        VirtualFileSystem virtualFileSystem,
+        WriteListener writeListener,
+        DirectorySnapshotterStatistics.Collector statisticsCollector,
+        boolean parallelDirectoryWalk,
+        boolean skipKnownEntries,
+        String... defaultExcludes
     ) {
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.writeListener = writeListener;
         this.statisticsCollector = statisticsCollector;
+        this.directoryWalkPool = parallelDirectoryWalk ? DirectorySnapshotter.createParallelWalkPool() : null;
+        this.skipKnownEntries = skipKnownEntries;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector);
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, directoryHashFunction, stringInterner, this.defaultExcludes, statisticsCollector, directoryWalkPool, skipKnownEntries);
         this.hasher = hasher;
+        this.directoryHashFunction = directoryHashFunction;
         this.virtualFileSystem = virtualFileSystem;
     }
 
@@ -135,7 +163,7 @@ public Optional<FileSystemLocationSnapshot> read(String location, SnapshottingFi
             return Optional.of(read(location));
         } else {
             return readSnapshotFromLocation(location,
-                storedFilteredSnapshot -> filterSnapshot(filter, storedFilteredSnapshot),
+                storedFilteredSnapshot -> filterSnapshot(filter, storedFilteredSnapshot, directoryHashFunction),
                 () -> snapshot(location, filter));
         }
     }
@@ -168,7 +196,7 @@ private Optional<FileSystemLocationSnapshot> snapshot(String location, Snapshott
             ));
         FileSystemLocationSnapshot unfilteredSnapshot = alreadyStoredSnapshots.get(location);
         if (unfilteredSnapshot != null) {
-            return filterSnapshot(filter, unfilteredSnapshot);
+            return filterSnapshot(filter, unfilteredSnapshot, directoryHashFunction);
         } else {
             return snapshotAndReuse(location, filter, alreadyStoredSnapshots);
         }
@@ -201,7 +229,7 @@ private Optional<FileSystemLocationSnapshot> snapshotAndReuse(String location, S
                 default:
                     throw new UnsupportedOperationException();
             }
-            return filterSnapshot(filter, unfilteredSnapshot);
+            return filterSnapshot(filter, unfilteredSnapshot, directoryHashFunction);
         });
     }
 
@@ -238,11 +266,18 @@ public void onDefaultExcludesChanged(List<String> excludes) {
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from {} to {}", defaultExcludes, newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector);
+            directorySnapshotter = new DirectorySnapshotter(hasher, directoryHashFunction, stringInterner, newDefaultExcludes, statisticsCollector, directoryWalkPool, skipKnownEntries);
             virtualFileSystem.invalidateAll();
         }
     }
 
+    @Override
+    public void close() {
+        if (directoryWalkPool != null) {
+            directoryWalkPool.shutdown();
+        }
+    }
+
     private static class StripedProducerGuard<T> {
         private final Striped<Lock> locks = Striped.lock(Runtime.getRuntime().availableProcessors() * 4);
 
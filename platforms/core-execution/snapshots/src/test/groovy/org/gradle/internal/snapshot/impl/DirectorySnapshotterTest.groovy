@@ -246,6 +246,47 @@ class DirectorySnapshotterTest extends Specification {
         ] as Set
     }
 
+    def "re-snapshotting after an invalidation only snapshots the changed paths"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def siblingFile = rootDir.file("sibling.txt")
+        siblingFile.text = "sibling"
+        def siblingDir = rootDir.file("siblingDir").createDir()
+        siblingDir.file("file.txt").text = "file"
+        def parentDir = rootDir.file("parent").createDir()
+        def unchangedFile = parentDir.file("unchanged.txt")
+        unchangedFile.text = "unchanged"
+        def changedFile = parentDir.file("changed.txt")
+        changedFile.text = "before"
+        // root
+        //   - sibling.txt <-- siblingFile
+        //   - siblingDir <-- siblingDir
+        //     - file.txt
+        //   - parent <-- parentDir
+        //     - unchanged.txt <-- unchangedFile
+        //     - changed.txt <-- changedFile
+        def originalSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+        def original = SnapshotUtil.indexByAbsolutePath(originalSnapshot)
+        // What is left in the virtual file system after invalidating the changed file
+        Map<String, FileSystemLocationSnapshot> knownSnapshots = [siblingFile, siblingDir, unchangedFile].collectEntries { [it.absolutePath, original[it.absolutePath]] }
+
+        changedFile.text = "after"
+        def addedFile = parentDir.file("added.txt")
+        addedFile.text = "added"
+
+        when:
+        def snapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, knownSnapshots, unfilteredSubSnapshotsCollector)
+        def visited = SnapshotUtil.indexByAbsolutePath(snapshot)
+
+        then:
+        visited[siblingFile.absolutePath].is(knownSnapshots[siblingFile.absolutePath])
+        visited[siblingDir.absolutePath].is(knownSnapshots[siblingDir.absolutePath])
+        visited[unchangedFile.absolutePath].is(knownSnapshots[unchangedFile.absolutePath])
+        visited[changedFile.absolutePath].hash != original[changedFile.absolutePath].hash
+        visited[addedFile.absolutePath] instanceof RegularFileSnapshot
+        snapshot.hash == directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector).hash
+    }
+
     @Requires(UnitTestPreconditions.Symlinks)
     def "symlinked directories in tree are marked as accessed via symlink"() {
         def rootDir = tmpDir.createDir("root")
@@ -21,6 +21,7 @@ import org.gradle.api.tasks.util.PatternSet
 import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.fingerprint.impl.PatternSetSnapshottingFilter
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.internal.snapshot.DirectorySnapshot
@@ -92,7 +93,7 @@ class FileSystemSnapshotFilterTest extends Specification {
         def unfiltered = fileSystemAccess.read(root.getAbsolutePath(), snapshottingFilter(new PatternSet())).get()
 
         when:
-        def filtered = FileSystemSnapshotFilter.filterSnapshot(snapshottingFilter(include("**/*File*")), unfiltered)
+        def filtered = FileSystemSnapshotFilter.filterSnapshot(snapshottingFilter(include("**/*File*")), unfiltered, Hashing.defaultFunction())
 
         then:
         filtered.get().is(unfiltered)
@@ -100,7 +101,7 @@ class FileSystemSnapshotFilterTest extends Specification {
 
     private Set<File> filteredPaths(FileSystemLocationSnapshot unfiltered, PatternSet patterns) {
         def result = [] as Set
-        FileSystemSnapshotFilter.filterSnapshot(snapshottingFilter(patterns), unfiltered)
+        FileSystemSnapshotFilter.filterSnapshot(snapshottingFilter(patterns), unfiltered, Hashing.defaultFunction())
             .ifPresent { FileSystemLocationSnapshot filtered ->
                 filtered.accept(new FileSystemSnapshotHierarchyVisitor() {
                     SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot) {
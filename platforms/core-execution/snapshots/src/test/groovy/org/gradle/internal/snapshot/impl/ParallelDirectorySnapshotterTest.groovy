@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.snapshot.SnapshottingFilter
+
+/**
+ * Runs all the {@link DirectorySnapshotterTest} scenarios with the parallel directory walk.
+ */
+class ParallelDirectorySnapshotterTest extends DirectorySnapshotterTest {
+    def walkPool = DirectorySnapshotter.createParallelWalkPool()
+
+    def setup() {
+        directorySnapshotter = new DirectorySnapshotter(fileHasher, Hashing.defaultFunction(), new StringInterner(), [], statisticsCollector, walkPool, false)
+    }
+
+    def cleanup() {
+        walkPool.shutdown()
+    }
+
+    def "parallel and sequential walks produce the same snapshot"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        20.times { dirIndex ->
+            10.times { fileIndex ->
+                rootDir.file("dir$dirIndex/sub${dirIndex % 3}/file${fileIndex}.txt").text = "content $dirIndex $fileIndex"
+            }
+        }
+        def sequentialSnapshotter = new DirectorySnapshotter(fileHasher, Hashing.defaultFunction(), new StringInterner(), [], statisticsCollector, null, false)
+
+        when:
+        def parallelSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+        def sequentialSnapshot = sequentialSnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        unfilteredSubsnapshots == [parallelSnapshot]
+    }
+
+    def "walks directories on the pool of the snapshotter"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def walkingThreads = Collections.synchronizedSet(new HashSet<String>())
+        10.times { dirIndex ->
+            rootDir.file("dir$dirIndex/file.txt").text = "content $dirIndex"
+        }
+
+        when:
+        directorySnapshotter.snapshot(rootDir.absolutePath, { path, name, isDirectory, relativePath ->
+            walkingThreads << Thread.currentThread().name
+            true
+        } as SnapshottingFilter.DirectoryWalkerPredicate, [:], {})
+
+        then:
+        !walkingThreads.empty
+        walkingThreads.every { it.startsWith("File system snapshotter Thread") }
+    }
+}
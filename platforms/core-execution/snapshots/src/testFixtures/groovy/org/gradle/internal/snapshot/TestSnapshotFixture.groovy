@@ -18,6 +18,7 @@ package org.gradle.internal.snapshot
 
 import org.apache.commons.io.FilenameUtils
 import org.gradle.internal.file.FileMetadata
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy
 
@@ -32,7 +33,7 @@ trait TestSnapshotFixture {
     private final Random pseudoRandom = new Random(1234)
 
     FileSystemLocationSnapshot directory(String absolutePath, FileMetadata.AccessType accessType = DIRECT, Long hashCode = null, List<FileSystemLocationSnapshot> children) {
-        def builder = MerkleDirectorySnapshotBuilder.sortingRequired()
+        def builder = MerkleDirectorySnapshotBuilder.sortingRequired(Hashing.defaultFunction())
         builder.enterDirectory(
             accessType,
             FilenameUtils.separatorsToSystem(absolutePath),
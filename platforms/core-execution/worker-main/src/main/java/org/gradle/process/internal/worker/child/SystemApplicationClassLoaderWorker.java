@@ -30,6 +30,7 @@
 import org.gradle.internal.nativeintegration.services.NativeServices.NativeServicesMode;
 import org.gradle.internal.remote.MessagingClient;
 import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.gradle.internal.remote.services.MessagingServices;
 import org.gradle.internal.serialize.InputStreamBackedDecoder;
 import org.gradle.internal.service.CloseableServiceRegistry;
@@ -97,7 +98,7 @@ public Void call() throws Exception {
         // Configure services
         File gradleUserHomeDir = new File(config.getGradleUserHomeDirPath());
         NativeServices.initializeOnWorker(gradleUserHomeDir, nativeServicesMode);
-        ServiceRegistry basicWorkerServices = createBasicWorkerServices(NativeServices.getInstance(), loggingServiceRegistry);
+        ServiceRegistry basicWorkerServices = createBasicWorkerServices(NativeServices.getInstance(), loggingServiceRegistry, config.shouldNegotiateSharedMemoryTransport());
         ServiceRegistry workerServices = WorkerServices.create(basicWorkerServices, gradleUserHomeDir);
         WorkerLogEventListener workerLogEventListener = workerServices.get(WorkerLogEventListener.class);
 
@@ -184,7 +185,7 @@ LoggingManagerInternal createLoggingManager(ServiceRegistry loggingServiceRegist
         return loggingManagerInternal;
     }
 
-    private static ServiceRegistry createBasicWorkerServices(ServiceRegistry nativeServices, ServiceRegistry loggingServiceRegistry) {
+    private static ServiceRegistry createBasicWorkerServices(ServiceRegistry nativeServices, ServiceRegistry loggingServiceRegistry, boolean sharedMemoryTransport) {
         return ServiceRegistryBuilder.builder()
             .displayName("basic worker services")
             .parent(nativeServices)
@@ -195,7 +196,8 @@ void configure(ServiceRegistration registration) {
                     registration.add(ExecutorFactory.class, new DefaultExecutorFactory());
                 }
             })
-            .provider(new MessagingServices())
+            // Negotiate the transport exactly when the server does
+            .provider(new MessagingServices(sharedMemoryTransport ? new SharedMemoryTransport(true, SharedMemoryTransport.DEFAULT_BUFFER_SIZE) : null))
             .build();
     }
 
@@ -30,6 +30,7 @@
 public class WorkerConfig {
     private final LogLevel logLevel;
     private final boolean publishJvmMemoryInfo;
+    private final boolean sharedMemoryTransport;
     private final String gradleUserHomeDirPath;
     private final MultiChoiceAddress serverAddress;
     private final long workerId;
@@ -40,6 +41,7 @@ public class WorkerConfig {
     public WorkerConfig(
         LogLevel logLevel,
         boolean publishJvmMemoryInfo,
+        boolean sharedMemoryTransport,
         String gradleUserHomeDirPath,
         MultiChoiceAddress serverAddress,
         long workerId,
@@ -49,6 +51,7 @@ public WorkerConfig(
     ) {
         this.logLevel = logLevel;
         this.publishJvmMemoryInfo = publishJvmMemoryInfo;
+        this.sharedMemoryTransport = sharedMemoryTransport;
         this.gradleUserHomeDirPath = gradleUserHomeDirPath;
         this.serverAddress = serverAddress;
         this.workerId = workerId;
@@ -70,6 +73,13 @@ public boolean shouldPublishJvmMemoryInfo() {
         return publishJvmMemoryInfo;
     }
 
+    /**
+     * @return True if the connection to the server should negotiate the shared memory transport. False otherwise.
+     */
+    public boolean shouldNegotiateSharedMemoryTransport() {
+        return sharedMemoryTransport;
+    }
+
     /**
      * @return The absolute path to the Gradle user home directory.
      */
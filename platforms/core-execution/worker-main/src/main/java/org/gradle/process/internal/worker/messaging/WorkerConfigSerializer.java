@@ -49,6 +49,7 @@ public class WorkerConfigSerializer implements Serializer<WorkerConfig> {
     public WorkerConfig read(Decoder decoder) throws IOException {
         LogLevel logLevel = LogLevel.values()[decoder.readSmallInt()];
         boolean shouldPublishJvmMemoryInfo = decoder.readBoolean();
+        boolean sharedMemoryTransport = decoder.readBoolean();
         NativeServicesMode nativeServicesMode = NativeServicesMode.values()[decoder.readSmallInt()];
         String gradleUserHomeDirPath = decoder.readString();
         MultiChoiceAddress serverAddress = new MultiChoiceAddressSerializer().read(decoder);
@@ -59,6 +60,7 @@ public WorkerConfig read(Decoder decoder) throws IOException {
         return new WorkerConfig(
             logLevel,
             shouldPublishJvmMemoryInfo,
+            sharedMemoryTransport,
             gradleUserHomeDirPath,
             serverAddress,
             workerId,
@@ -72,6 +74,7 @@ public WorkerConfig read(Decoder decoder) throws IOException {
     public void write(Encoder encoder, WorkerConfig config) throws IOException {
         encoder.writeSmallInt(config.getLogLevel().ordinal());
         encoder.writeBoolean(config.shouldPublishJvmMemoryInfo());
+        encoder.writeBoolean(config.shouldNegotiateSharedMemoryTransport());
         encoder.writeSmallInt(config.getNativeServicesMode().ordinal());
         encoder.writeString(config.getGradleUserHomeDirPath());
         new MultiChoiceAddressSerializer().write(encoder, config.getServerAddress());
@@ -34,6 +34,7 @@ class WorkerConfigSerializerTest extends Specification {
         WorkerConfig original = new WorkerConfig(
             LogLevel.ERROR,
             true,
+            true,
             "/path/to/user/home",
             new MultiChoiceAddress(new UUID(123, 456), 789, [InetAddress.getByName("example.com")]),
             987,
@@ -54,6 +55,7 @@ class WorkerConfigSerializerTest extends Specification {
         then:
         processed.logLevel == original.logLevel
         processed.shouldPublishJvmMemoryInfo() == original.shouldPublishJvmMemoryInfo()
+        processed.shouldNegotiateSharedMemoryTransport() == original.shouldNegotiateSharedMemoryTransport()
         processed.gradleUserHomeDirPath == original.gradleUserHomeDirPath
         processed.serverAddress == original.serverAddress
         processed.workerId == original.workerId
@@ -17,6 +17,7 @@
 package org.gradle.workers;
 
 import org.gradle.api.Action;
+import org.gradle.api.Incubating;
 
 /**
  * Represents a queue of work items with a uniform set of worker requirements.
@@ -37,6 +38,28 @@ public interface WorkQueue {
      */
     <T extends WorkParameters> void submit(Class<? extends WorkAction<T>> workActionClass, Action<? super T> parameterAction);
 
+    /**
+     * Submits several pieces of work that use the same work action, to be executed asynchronously.
+     *
+     * The work items are grouped into batches, and each batch is sent to a worker as a single request. This means that the cost of
+     * handing work to a worker, such as starting an isolated classloader or communicating with a worker daemon, is paid once per batch
+     * rather than once per work item. This is useful when submitting a large number of small work items.
+     *
+     * The work items in a batch run one after the other. Failures are still reported for each work item, and a failure of one work item does not
+     * prevent the other work items in its batch from running. Any errors will be thrown from {@link #await()} or from the surrounding task action
+     * if {@link #await()} is not used, in the same way as for {@link #submit(Class, Action)}.
+     *
+     * @param workActionClass The work action to run for each work item.
+     * @param parameterActions The actions used to configure the parameters of each work item. One work item is submitted for each action.
+     * @since 8.12
+     */
+    @Incubating
+    default <T extends WorkParameters> void submitAll(Class<? extends WorkAction<T>> workActionClass, Iterable<? extends Action<? super T>> parameterActions) {
+        for (Action<? super T> parameterAction : parameterActions) {
+            submit(workActionClass, parameterAction);
+        }
+    }
+
     /**
      * Blocks until all work associated with this queue is complete.  Note that when using this method inside
      * a task action, it will block completion of the task action until the submitted work is complete.  This means that other
@@ -22,6 +22,9 @@
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class AbstractWorker implements BuildOperationAwareWorker {
 
     public static final Result RESULT = new Result();
@@ -37,6 +40,22 @@ public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec)
         return execute(spec, buildOperationRunner.getCurrentOperation());
     }
 
+    /**
+     * Executes each work item separately. Workers that can share setup between the work items of a batch override this.
+     */
+    @Override
+    public List<DefaultWorkResult> executeAll(List<IsolatedParametersActionExecutionSpec<?>> specs, BuildOperationRef parentBuildOperation) {
+        List<DefaultWorkResult> results = new ArrayList<>(specs.size());
+        for (IsolatedParametersActionExecutionSpec<?> spec : specs) {
+            try {
+                results.add(execute(spec, parentBuildOperation));
+            } catch (Throwable t) {
+                results.add(new DefaultWorkResult(true, t));
+            }
+        }
+        return results;
+    }
+
     DefaultWorkResult executeWrappedInBuildOperation(final IsolatedParametersActionExecutionSpec<?> spec, final BuildOperationRef parentBuildOperation, final Work work) {
         return buildOperationRunner.call(new CallableBuildOperation<DefaultWorkResult>() {
             @Override
@@ -56,10 +75,45 @@ public BuildOperationDescriptor.Builder description() {
         });
     }
 
+    /**
+     * Executes a batch of work items as a single unit of work, such as a single request to a worker daemon, in a single build operation.
+     * The work items are not reported in operations of their own, as the time each of them takes is not known outside of the worker.
+     * The operation fails with the first failure of a work item, while the results of all work items are returned.
+     */
+    List<DefaultWorkResult> executeBatchWrappedInBuildOperation(final List<IsolatedParametersActionExecutionSpec<?>> specs, final BuildOperationRef parentBuildOperation, final BatchWork work) {
+        IsolatedParametersActionExecutionSpec<?> first = specs.get(0);
+        String displayName = first.getDisplayName() + " (batch of " + specs.size() + " work items)";
+        return buildOperationRunner.call(new CallableBuildOperation<List<DefaultWorkResult>>() {
+            @Override
+            public List<DefaultWorkResult> call(BuildOperationContext context) {
+                List<DefaultWorkResult> results = work.execute(specs);
+                context.setResult(RESULT);
+                for (DefaultWorkResult result : results) {
+                    if (!result.isSuccess()) {
+                        context.failed(result.getException());
+                        break;
+                    }
+                }
+                return results;
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName(displayName)
+                    .parent(parentBuildOperation)
+                    .details(new Details(first.getActionImplementationClassName(), displayName));
+            }
+        });
+    }
+
     interface Work {
         DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec);
     }
 
+    interface BatchWork {
+        List<DefaultWorkResult> execute(List<IsolatedParametersActionExecutionSpec<?>> specs);
+    }
+
     static class Details implements ExecuteWorkItemBuildOperationType.Details {
 
         private final String className;
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of executing a batch of work items, which holds the result of each work item in the batch.
+ */
+public class BatchWorkResult extends DefaultWorkResult {
+    private final ArrayList<DefaultWorkResult> itemResults;
+
+    public BatchWorkResult(List<DefaultWorkResult> itemResults) {
+        super(didAnyWork(itemResults), null);
+        this.itemResults = new ArrayList<>(itemResults);
+    }
+
+    public List<DefaultWorkResult> getItemResults() {
+        return itemResults;
+    }
+
+    /**
+     * Returns the result of each of the given number of work items. When the given result is not the result of a batch, for example because the
+     * batch failed before any of its work items could run, that result is used for every work item.
+     */
+    public static List<DefaultWorkResult> itemResults(DefaultWorkResult result, int itemCount) {
+        if (result instanceof BatchWorkResult) {
+            List<DefaultWorkResult> itemResults = ((BatchWorkResult) result).getItemResults();
+            if (itemResults.size() != itemCount) {
+                throw new IllegalStateException("Expected " + itemCount + " work item results but received " + itemResults.size() + ".");
+            }
+            return itemResults;
+        }
+        return Collections.nCopies(itemCount, result);
+    }
+
+    private static boolean didAnyWork(List<DefaultWorkResult> itemResults) {
+        for (DefaultWorkResult itemResult : itemResults) {
+            if (itemResult.getDidWork()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of work items that use the same work action and are sent to a worker as a single request.
+ * The work items share everything except their parameters.
+ */
+public class BatchedTransportableActionExecutionSpec extends TransportableActionExecutionSpec {
+    private final List<byte[]> serializedParametersOfItems;
+
+    public BatchedTransportableActionExecutionSpec(String implementationClassName, List<byte[]> serializedParametersOfItems, ClassLoaderStructure classLoaderStructure, File baseDir, File projectCacheDir, boolean usesInternalServices) {
+        super(implementationClassName, serializedParametersOfItems.get(0), classLoaderStructure, baseDir, projectCacheDir, usesInternalServices);
+        this.serializedParametersOfItems = serializedParametersOfItems;
+    }
+
+    /**
+     * Combines the given work items, which must all use the same work action, class loader structure and directories, into a single request.
+     */
+    public static TransportableActionExecutionSpec of(List<TransportableActionExecutionSpec> items) {
+        TransportableActionExecutionSpec first = items.get(0);
+        if (items.size() == 1) {
+            return first;
+        }
+        List<byte[]> serializedParameters = new ArrayList<>(items.size());
+        for (TransportableActionExecutionSpec item : items) {
+            serializedParameters.add(item.getSerializedParameters());
+        }
+        return new BatchedTransportableActionExecutionSpec(first.getImplementationClassName(), serializedParameters, first.getClassLoaderStructure(), first.getBaseDir(), first.getProjectCacheDir(), first.isInternalServicesRequired());
+    }
+
+    public List<byte[]> getSerializedParametersOfItems() {
+        return serializedParametersOfItems;
+    }
+
+    public List<TransportableActionExecutionSpec> getItems() {
+        List<TransportableActionExecutionSpec> items = new ArrayList<>(serializedParametersOfItems.size());
+        for (byte[] serializedParameters : serializedParametersOfItems) {
+            items.add(new TransportableActionExecutionSpec(getImplementationClassName(), serializedParameters, getClassLoaderStructure(), getBaseDir(), getProjectCacheDir(), isInternalServicesRequired()));
+        }
+        return items;
+    }
+}
@@ -18,8 +18,15 @@
 
 import org.gradle.internal.operations.BuildOperationRef;
 
+import java.util.List;
+
 public interface BuildOperationAwareWorker {
     DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec);
 
     DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec, final BuildOperationRef parentBuildOperation);
+
+    /**
+     * Executes a batch of work items that use the same work action, one after the other, and returns the result of each work item.
+     */
+    List<DefaultWorkResult> executeAll(List<IsolatedParametersActionExecutionSpec<?>> specs, BuildOperationRef parentBuildOperation);
 }
@@ -35,6 +35,7 @@
 import org.gradle.internal.work.AsyncWorkTracker;
 import org.gradle.internal.work.ConditionalExecutionQueue;
 import org.gradle.internal.work.DefaultConditionalExecutionQueue;
+import org.gradle.internal.work.WorkerLimits;
 import org.gradle.internal.work.WorkerThreadRegistry;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.internal.JavaForkOptionsFactory;
@@ -52,6 +53,7 @@
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -74,6 +76,7 @@ public class DefaultWorkerExecutor implements WorkerExecutor {
     private final CachedClasspathTransformer classpathTransformer;
     private final File baseDir;
     private final ProjectCacheDir projectCacheDir;
+    private final WorkerLimits workerLimits;
 
     public DefaultWorkerExecutor(
         WorkerFactory daemonWorkerFactory, WorkerFactory isolatedClassloaderWorkerFactory, WorkerFactory noIsolationWorkerFactory,
@@ -82,7 +85,8 @@ public DefaultWorkerExecutor(
         ClassLoaderStructureProvider classLoaderStructureProvider, ActionExecutionSpecFactory actionExecutionSpecFactory, Instantiator instantiator,
         CachedClasspathTransformer classpathTransformer,
         File baseDir,
-        ProjectCacheDir projectCacheDir
+        ProjectCacheDir projectCacheDir,
+        WorkerLimits workerLimits
     ) {
         this.daemonWorkerFactory = daemonWorkerFactory;
         this.isolatedClassloaderWorkerFactory = isolatedClassloaderWorkerFactory;
@@ -99,6 +103,7 @@ public DefaultWorkerExecutor(
         this.classpathTransformer = classpathTransformer;
         this.baseDir = baseDir;
         this.projectCacheDir = projectCacheDir;
+        this.workerLimits = workerLimits;
     }
 
     @Override
@@ -181,6 +186,67 @@ private AsyncWorkCompletion submitWork(IsolatedParametersActionExecutionSpec<?>
         return execution;
     }
 
+    private <T extends WorkParameters> List<AsyncWorkCompletion> submitWorkBatch(Class<? extends WorkAction<T>> workActionClass, Iterable<? extends Action<? super T>> parameterActions, WorkerSpec workerSpec, WorkerFactory workerFactory) {
+        checkIsManagedThread();
+        Class<T> parameterType = isolationScheme.parameterTypeFor(workActionClass);
+        String description = workActionClass.getName();
+        WorkerRequirement workerRequirement = null;
+        List<IsolatedParametersActionExecutionSpec<?>> specs = new ArrayList<>();
+        for (Action<? super T> parameterAction : parameterActions) {
+            T parameters = (parameterType == null) ? null : instantiator.newInstance(parameterType);
+            if (parameters != null) {
+                parameterAction.execute(parameters);
+            }
+            if (workerRequirement == null) {
+                // Every work item uses the same action and parameters types, so they all have the same requirement
+                workerRequirement = getWorkerRequirement(workActionClass, workerSpec, parameters);
+            }
+            try {
+                // Isolate parameters in this thread prior to starting work in a separate thread
+                specs.add(actionExecutionSpecFactory.newIsolatedSpec(description, workActionClass, parameters, workerRequirement, false));
+            } catch (Throwable t) {
+                throw new WorkExecutionException(description, t);
+            }
+        }
+
+        // Split the work items evenly into one batch per worker
+        List<AsyncWorkCompletion> completions = new ArrayList<>(specs.size());
+        int batchCount = Math.min(specs.size(), workerLimits.getMaxWorkerCount());
+        int start = 0;
+        for (int batch = 0; batch < batchCount; batch++) {
+            int end = start + (specs.size() - start) / (batchCount - batch);
+            completions.addAll(submitWorkBatch(specs.subList(start, end), workerFactory, workerRequirement));
+            start = end;
+        }
+        return completions;
+    }
+
+    private List<AsyncWorkCompletion> submitWorkBatch(List<IsolatedParametersActionExecutionSpec<?>> specs, WorkerFactory workerFactory, WorkerRequirement workerRequirement) {
+        if (specs.size() == 1) {
+            return Collections.singletonList(submitWork(specs.get(0), workerFactory, workerRequirement));
+        }
+        final BuildOperationRef currentBuildOperation = buildOperationRunner.getCurrentOperation();
+        // The batch takes a single worker lease, and runs its work items one after the other
+        WorkItemExecution execution = new WorkItemExecution(specs.get(0).getDisplayName(), () -> {
+            List<DefaultWorkResult> results;
+            try {
+                BuildOperationAwareWorker worker = workerFactory.getWorker(workerRequirement);
+                results = worker.executeAll(specs, currentBuildOperation);
+            } catch (Throwable t) {
+                results = Collections.nCopies(specs.size(), new DefaultWorkResult(true, t));
+            }
+            return new BatchWorkResult(results);
+        });
+        executionQueue.submit(execution);
+        List<AsyncWorkCompletion> completions = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            BatchedWorkItemCompletion completion = new BatchedWorkItemCompletion(specs.get(i).getDisplayName(), execution, i);
+            asyncWorkTracker.registerWork(currentBuildOperation, completion);
+            completions.add(completion);
+        }
+        return completions;
+    }
+
     private void checkIsManagedThread() {
         if (!workerThreadRegistry.isWorkerThread()) {
             throw new IllegalStateException("An attempt was made to submit work from a thread not managed by Gradle.  Work may only be submitted from a Gradle-managed thread.");
@@ -289,6 +355,40 @@ public void waitForCompletion() {
         }
     }
 
+    /**
+     * The completion of a single work item that is executed as part of a batch.
+     */
+    private static class BatchedWorkItemCompletion implements AsyncWorkCompletion {
+        private final String description;
+        private final WorkItemExecution batch;
+        private final int index;
+
+        BatchedWorkItemCompletion(String description, WorkItemExecution batch, int index) {
+            this.description = description;
+            this.batch = batch;
+            this.index = index;
+        }
+
+        @Override
+        public void waitForCompletion() {
+            DefaultWorkResult batchResult = batch.await();
+            DefaultWorkResult result = ((BatchWorkResult) batchResult).getItemResults().get(index);
+            if (!result.isSuccess()) {
+                throw new WorkExecutionException(description, result.getException());
+            }
+        }
+
+        @Override
+        public boolean isComplete() {
+            return batch.isComplete();
+        }
+
+        @Override
+        public void cancel() {
+            batch.cancel();
+        }
+    }
+
     @NotThreadSafe
     static class DefaultWorkQueue implements WorkQueue {
         private final DefaultWorkerExecutor workerExecutor;
@@ -307,6 +407,11 @@ public <T extends WorkParameters> void submit(Class<? extends WorkAction<T>> wor
             workItems.add(workerExecutor.submitWork(workActionClass, parameterAction, spec, workerFactory));
         }
 
+        @Override
+        public <T extends WorkParameters> void submitAll(Class<? extends WorkAction<T>> workActionClass, Iterable<? extends Action<? super T>> parameterActions) {
+            workItems.addAll(workerExecutor.submitWorkBatch(workActionClass, parameterActions, spec, workerFactory));
+        }
+
         @Override
         public void await() throws WorkerExecutionException {
             workerExecutor.await(workItems);
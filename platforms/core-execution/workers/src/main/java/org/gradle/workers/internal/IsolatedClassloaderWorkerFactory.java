@@ -24,6 +24,9 @@
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.process.internal.worker.RequestHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class IsolatedClassloaderWorkerFactory implements WorkerFactory {
     private final BuildOperationRunner buildOperationRunner;
     private final ServiceRegistry internalServices;
@@ -46,17 +49,36 @@ public BuildOperationAwareWorker getWorker(WorkerRequirement workerRequirement)
         return new AbstractWorker(buildOperationRunner) {
             @Override
             public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec, BuildOperationRef parentBuildOperation) {
-                return executeWrappedInBuildOperation(spec, parentBuildOperation, workSpec -> {
-                    // Serialize the incoming class and parameters
-                    TransportableActionExecutionSpec transportableSpec = actionExecutionSpecFactory.newTransportableSpec(spec);
-
-                    ClassLoader workerInfrastructureClassloader = classLoaderRegistry.getPluginsClassLoader();
-                    ClassLoaderStructure classLoaderStructure = ((IsolatedClassLoaderWorkerRequirement) workerRequirement).getClassLoaderStructure();
-                    ClassLoader workerClassLoader = IsolatedClassloaderWorker.createIsolatedWorkerClassloader(classLoaderStructure, workerInfrastructureClassloader, legacyTypesSupport);
-                    RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> worker = new IsolatedClassloaderWorker(workerClassLoader, internalServices, actionExecutionSpecFactory, instantiatorFactory);
-                    return worker.run(transportableSpec);
-                });
+                return executeWrappedInBuildOperation(spec, parentBuildOperation, workSpec -> runInWorker(workSpec, createWorker(workerRequirement)));
+            }
+
+            @Override
+            public List<DefaultWorkResult> executeAll(List<IsolatedParametersActionExecutionSpec<?>> specs, BuildOperationRef parentBuildOperation) {
+                // Create the isolated classloader once and use it for every work item in the batch
+                RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> worker = createWorker(workerRequirement);
+                List<DefaultWorkResult> results = new ArrayList<>(specs.size());
+                for (IsolatedParametersActionExecutionSpec<?> spec : specs) {
+                    try {
+                        results.add(executeWrappedInBuildOperation(spec, parentBuildOperation, workSpec -> runInWorker(workSpec, worker)));
+                    } catch (Throwable t) {
+                        results.add(new DefaultWorkResult(true, t));
+                    }
+                }
+                return results;
             }
         };
     }
+
+    private DefaultWorkResult runInWorker(IsolatedParametersActionExecutionSpec<?> spec, RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> worker) {
+        // Serialize the incoming class and parameters
+        TransportableActionExecutionSpec transportableSpec = actionExecutionSpecFactory.newTransportableSpec(spec);
+        return worker.run(transportableSpec);
+    }
+
+    private RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> createWorker(WorkerRequirement workerRequirement) {
+        ClassLoader workerInfrastructureClassloader = classLoaderRegistry.getPluginsClassLoader();
+        ClassLoaderStructure classLoaderStructure = ((IsolatedClassLoaderWorkerRequirement) workerRequirement).getClassLoaderStructure();
+        ClassLoader workerClassLoader = IsolatedClassloaderWorker.createIsolatedWorkerClassloader(classLoaderStructure, workerInfrastructureClassloader, legacyTypesSupport);
+        return new IsolatedClassloaderWorker(workerClassLoader, internalServices, actionExecutionSpecFactory, instantiatorFactory);
+    }
 }
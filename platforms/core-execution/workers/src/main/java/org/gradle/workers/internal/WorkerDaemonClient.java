@@ -24,6 +24,9 @@
 import org.gradle.process.internal.worker.MultiRequestClient;
 import org.gradle.process.internal.worker.WorkerProcess;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 class WorkerDaemonClient implements Stoppable, Describable {
@@ -34,6 +37,8 @@ class WorkerDaemonClient implements Stoppable, Describable {
     private final LogLevel logLevel;
     private final ActionExecutionSpecFactory actionExecutionSpecFactory;
     private int uses;
+    @Nullable
+    private String lastActionImplementationClassName;
     private boolean cannotBeExpired = Boolean.getBoolean(DISABLE_EXPIRATION_PROPERTY_KEY);
 
     public WorkerDaemonClient(DaemonForkOptions forkOptions, MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerClient, WorkerProcess workerProcess, LogLevel logLevel, ActionExecutionSpecFactory actionExecutionSpecFactory) {
@@ -46,9 +51,24 @@ public WorkerDaemonClient(DaemonForkOptions forkOptions, MultiRequestClient<Tran
 
     public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec) {
         uses++;
+        lastActionImplementationClassName = spec.getActionImplementationClassName();
         return workerClient.run(actionExecutionSpecFactory.newTransportableSpec(spec));
     }
 
+    /**
+     * Executes the given work items in the worker daemon using a single request.
+     */
+    public List<DefaultWorkResult> executeAll(List<IsolatedParametersActionExecutionSpec<?>> specs) {
+        uses += specs.size();
+        lastActionImplementationClassName = specs.get(specs.size() - 1).getActionImplementationClassName();
+        List<TransportableActionExecutionSpec> transportableSpecs = new ArrayList<>(specs.size());
+        for (IsolatedParametersActionExecutionSpec<?> spec : specs) {
+            transportableSpecs.add(actionExecutionSpecFactory.newTransportableSpec(spec));
+        }
+        DefaultWorkResult result = workerClient.run(BatchedTransportableActionExecutionSpec.of(transportableSpecs));
+        return BatchWorkResult.itemResults(result, specs.size());
+    }
+
     public boolean isCompatibleWith(DaemonForkOptions required) {
         return forkOptions.isCompatibleWith(required);
     }
@@ -74,6 +94,15 @@ public int getUses() {
         return uses;
     }
 
+    /**
+     * Returns the implementation class name of the work action this daemon ran most recently, or null if it has not run any work yet.
+     * The code for this action is likely to be loaded and compiled by the JIT in the daemon.
+     */
+    @Nullable
+    public String getLastActionImplementationClassName() {
+        return lastActionImplementationClassName;
+    }
+
     public KeepAliveMode getKeepAliveMode() {
         return forkOptions.getKeepAliveMode();
     }
@@ -33,14 +33,22 @@
 import org.gradle.process.internal.health.memory.OsMemoryInfo;
 import org.gradle.util.internal.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static java.util.Comparator.comparingInt;
 
 public class WorkerDaemonClientsManager implements Stoppable {
+    /**
+     * The number of idle worker daemons per set of compatible fork options that are only stopped to release memory once all other idle daemons have been stopped.
+     * The most frequently used daemons are kept, as their JIT has warmed up the most.
+     */
+    public static final String WARM_DAEMONS_PER_FORK_OPTIONS_PROPERTY_KEY = "org.gradle.workers.internal.warm-daemons-per-fork-options";
 
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonClientsManager.class);
 
@@ -56,8 +64,15 @@ public class WorkerDaemonClientsManager implements Stoppable {
     private final OutputEventListener logLevelChangeEventListener;
     private final WorkerDaemonExpiration workerDaemonExpiration;
     private final MemoryManager memoryManager;
+    private final int warmDaemonsPerForkOptions = Integer.getInteger(WARM_DAEMONS_PER_FORK_OPTIONS_PROPERTY_KEY, 1);
     private volatile LogLevel currentLogLevel;
 
+    // Protected by lock
+    private int affinityHits;
+    private int affinityMisses;
+    private int daemonsStarted;
+    private long daemonStartupNanos;
+
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo) {
         this.workerDaemonStarter = workerDaemonStarter;
         this.listenerManager = listenerManager;
@@ -75,34 +90,67 @@ public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, Liste
 
     // TODO - should supply and check for the same parameters as passed to reserveNewClient()
     public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+        return reserveIdleClient(forkOptions, (String) null);
+    }
+
+    /**
+     * Reserves an idle client compatible with the given fork options, preferring the client that most recently ran the given work action.
+     * That client has already loaded the action's classes and warmed up its JIT for them.
+     */
+    public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, @Nullable String actionImplementationClassName) {
+        return reserveIdleClient(forkOptions, actionImplementationClassName, idleClients);
     }
 
     WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
+        return reserveIdleClient(forkOptions, null, clients);
+    }
+
+    WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, @Nullable String actionImplementationClassName, List<WorkerDaemonClient> clients) {
         synchronized (lock) {
+            WorkerDaemonClient selected = null;
             Iterator<WorkerDaemonClient> it = clients.iterator();
             while (it.hasNext()) {
                 WorkerDaemonClient candidate = it.next();
                 if (candidate.isFailed()) {
                     emitUnexpectedWorkerFailureWarning(candidate);
                     it.remove();
-                } else {
-                    if (candidate.isCompatibleWith(forkOptions)) {
+                } else if (candidate.isCompatibleWith(forkOptions)) {
+                    if (candidate.getLogLevel() != currentLogLevel) {
+                        // TODO: Send a message to workers to change their log level rather than stopping
+                        LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
                         it.remove();
-                        if (candidate.getLogLevel() != currentLogLevel) {
-                            // TODO: Send a message to workers to change their log level rather than stopping
-                            LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
-                            candidate.stop();
-                        } else {
-                            return candidate;
-                        }
+                        candidate.stop();
+                    } else if (selected == null || isPreferred(candidate, selected, actionImplementationClassName)) {
+                        selected = candidate;
                     }
                 }
             }
-            return null;
+            if (selected != null) {
+                clients.remove(selected);
+                if (actionImplementationClassName != null) {
+                    if (actionImplementationClassName.equals(selected.getLastActionImplementationClassName())) {
+                        affinityHits++;
+                    } else {
+                        affinityMisses++;
+                    }
+                }
+            }
+            return selected;
         }
     }
 
+    /**
+     * Prefers the client that last ran the requested action, and then the client that has been used the most.
+     */
+    private static boolean isPreferred(WorkerDaemonClient candidate, WorkerDaemonClient selected, @Nullable String actionImplementationClassName) {
+        boolean candidateRanAction = actionImplementationClassName != null && actionImplementationClassName.equals(candidate.getLastActionImplementationClassName());
+        boolean selectedRanAction = actionImplementationClassName != null && actionImplementationClassName.equals(selected.getLastActionImplementationClassName());
+        if (candidateRanAction != selectedRanAction) {
+            return candidateRanAction;
+        }
+        return candidate.getUses() > selected.getUses();
+    }
+
     private static void emitUnexpectedWorkerFailureWarning(WorkerDaemonClient candidate) {
         if (candidate.getExitCode().isPresent()) {
             int exitCode = candidate.getExitCode().get();
@@ -116,9 +164,13 @@ private static void emitUnexpectedWorkerFailureWarning(WorkerDaemonClient candid
 
     public WorkerDaemonClient reserveNewClient(DaemonForkOptions forkOptions) {
         //allow the daemon to be started concurrently
+        long startTime = System.nanoTime();
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(forkOptions);
+        long startupNanos = System.nanoTime() - startTime;
         synchronized (lock) {
             allClients.add(client);
+            daemonsStarted++;
+            daemonStartupNanos += startupNanos;
         }
         return client;
     }
@@ -150,6 +202,15 @@ private long getTotalPhysicalMemory() {
         }
     }
 
+    /**
+     * Returns a snapshot of the statistics collected since the start of the current build session.
+     */
+    public Statistics getStatistics() {
+        synchronized (lock) {
+            return new Statistics(affinityHits, affinityMisses, daemonsStarted, TimeUnit.NANOSECONDS.toMillis(daemonStartupNanos));
+        }
+    }
+
     /**
      * Select idle daemon clients to stop.
      *
@@ -158,14 +219,48 @@ private long getTotalPhysicalMemory() {
     @VisibleForTesting
     void selectIdleClientsToStop(Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>> selectionFunction) {
         synchronized (lock) {
-            List<WorkerDaemonClient> sortedClients = CollectionUtils.sort(idleClients, comparingInt(WorkerDaemonClient::getUses));
-            List<WorkerDaemonClient> clientsToStop = selectionFunction.transform(new ArrayList<>(sortedClients));
+            List<WorkerDaemonClient> clientsToStop = selectionFunction.transform(sortByStopPreference(idleClients));
             if (!clientsToStop.isEmpty()) {
                 stopWorkers(clientsToStop);
             }
         }
     }
 
+    /**
+     * Sorts the given clients so that the least frequently used clients come first, followed by the warm clients that should be kept for each set of compatible fork options.
+     */
+    private List<WorkerDaemonClient> sortByStopPreference(List<WorkerDaemonClient> clients) {
+        // Visit the most recently released clients first, so that they are the ones kept when use counts are equal
+        List<WorkerDaemonClient> mostUsedFirst = new ArrayList<>(clients);
+        Collections.reverse(mostUsedFirst);
+        mostUsedFirst.sort(comparingInt(WorkerDaemonClient::getUses).reversed());
+
+        List<WorkerDaemonClient> warmClients = new ArrayList<>();
+        List<List<WorkerDaemonClient>> warmClientsByForkOptions = new ArrayList<>();
+        for (WorkerDaemonClient client : mostUsedFirst) {
+            List<WorkerDaemonClient> compatibleWarmClients = null;
+            for (List<WorkerDaemonClient> candidate : warmClientsByForkOptions) {
+                if (client.isCompatibleWith(candidate.get(0).getForkOptions())) {
+                    compatibleWarmClients = candidate;
+                    break;
+                }
+            }
+            if (compatibleWarmClients == null) {
+                compatibleWarmClients = new ArrayList<>();
+                warmClientsByForkOptions.add(compatibleWarmClients);
+            }
+            if (compatibleWarmClients.size() < warmDaemonsPerForkOptions) {
+                compatibleWarmClients.add(client);
+                warmClients.add(client);
+            }
+        }
+
+        List<WorkerDaemonClient> sortedClients = new ArrayList<>();
+        sortedClients.addAll(CollectionUtils.sort(CollectionUtils.filter(clients, client -> !warmClients.contains(client)), comparingInt(WorkerDaemonClient::getUses)));
+        sortedClients.addAll(CollectionUtils.sort(CollectionUtils.filter(clients, warmClients::contains), comparingInt(WorkerDaemonClient::getUses)));
+        return sortedClients;
+    }
+
     private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
         stopWorkers(clientsToStop, STOP_CLIENT);
     }
@@ -229,10 +324,67 @@ public void beforeComplete() {
             synchronized (lock) {
                 List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(allClients, client -> client.getKeepAliveMode() == KeepAliveMode.SESSION);
                 stopWorkers(sessionScopedClients);
+                if (affinityHits + affinityMisses + daemonsStarted > 0) {
+                    LOGGER.info("Worker daemon pool: {}", getStatistics());
+                }
+                affinityHits = 0;
+                affinityMisses = 0;
+                daemonsStarted = 0;
+                daemonStartupNanos = 0;
             }
         }
     }
 
+    /**
+     * Statistics about how work was routed to worker daemons.
+     */
+    public static class Statistics {
+        private final int affinityHits;
+        private final int affinityMisses;
+        private final int daemonsStarted;
+        private final long daemonStartupMillis;
+
+        Statistics(int affinityHits, int affinityMisses, int daemonsStarted, long daemonStartupMillis) {
+            this.affinityHits = affinityHits;
+            this.affinityMisses = affinityMisses;
+            this.daemonsStarted = daemonsStarted;
+            this.daemonStartupMillis = daemonStartupMillis;
+        }
+
+        /**
+         * The number of times work was given to an idle daemon that had most recently run the same work action.
+         */
+        public int getAffinityHits() {
+            return affinityHits;
+        }
+
+        /**
+         * The number of times work was given to an idle daemon that had most recently run some other work action, or no work at all.
+         */
+        public int getAffinityMisses() {
+            return affinityMisses;
+        }
+
+        /**
+         * The number of daemons started because no compatible idle daemon was available. Each of these pays the JVM startup and JIT warm-up cost.
+         */
+        public int getDaemonsStarted() {
+            return daemonsStarted;
+        }
+
+        /**
+         * The total time spent waiting for new daemons to start.
+         */
+        public long getDaemonStartupMillis() {
+            return daemonStartupMillis;
+        }
+
+        @Override
+        public String toString() {
+            return affinityHits + " affinity hit(s), " + affinityMisses + " affinity miss(es), " + daemonsStarted + " daemon(s) started in " + daemonStartupMillis + "ms";
+        }
+    }
+
     private static final Consumer<WorkerDaemonClient> STOP_CLIENT = WorkerDaemonClient::stop;
     private static final Consumer<WorkerDaemonClient> KILL_CLIENT = WorkerDaemonClient::kill;
 }
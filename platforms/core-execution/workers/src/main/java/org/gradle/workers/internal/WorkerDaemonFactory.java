@@ -21,6 +21,7 @@
 import org.gradle.internal.operations.CurrentBuildOperationRef;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
 
 /**
  * Controls the lifecycle of the worker daemon and provides access to it.
@@ -50,7 +51,7 @@ public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec,
                 workerDaemonClientCancellationHandler.start();
                 
                 // wrap in build operation for logging startup failures
-                final WorkerDaemonClient client = CurrentBuildOperationRef.instance().with(parentBuildOperation, this::reserveClient);
+                final WorkerDaemonClient client = CurrentBuildOperationRef.instance().with(parentBuildOperation, () -> reserveClient(spec));
                 try {
                     return executeWrappedInBuildOperation(spec, parentBuildOperation, client::execute);
                 } finally {
@@ -58,9 +59,23 @@ public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec,
                 }
             }
 
-            private WorkerDaemonClient reserveClient() {
+            @Override
+            public List<DefaultWorkResult> executeAll(List<IsolatedParametersActionExecutionSpec<?>> specs, BuildOperationRef parentBuildOperation) {
+                workerDaemonClientCancellationHandler.start();
+
+                // Send the whole batch to a single worker daemon in one request
+                final WorkerDaemonClient client = CurrentBuildOperationRef.instance().with(parentBuildOperation, () -> reserveClient(specs.get(0)));
+                try {
+                    return executeBatchWrappedInBuildOperation(specs, parentBuildOperation, client::executeAll);
+                } finally {
+                    clientsManager.release(client);
+                }
+            }
+
+            private WorkerDaemonClient reserveClient(IsolatedParametersActionExecutionSpec<?> spec) {
                 DaemonForkOptions forkOptions = ((ForkedWorkerRequirement) workerRequirement).getForkOptions();
-                WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions);
+                // Prefer a daemon that has already run this action, as it has already loaded and JIT compiled its code
+                WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions, spec.getActionImplementationClassName());
                 if (client == null) {
                     client = clientsManager.reserveNewClient(forkOptions);
                 }
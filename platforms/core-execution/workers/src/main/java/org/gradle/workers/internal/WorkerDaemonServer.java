@@ -74,6 +74,8 @@
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class WorkerDaemonServer implements RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> {
     private final ServiceRegistry internalServices;
@@ -106,6 +108,9 @@ public DefaultWorkResult run(TransportableActionExecutionSpec spec) {
         try {
             try (CloseableServiceRegistry internalServices = WorkerProjectServices.create(this.internalServices, spec.getBaseDir(), spec.getProjectCacheDir())) {
                 RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> worker = getIsolatedClassloaderWorker(spec.getClassLoaderStructure(), internalServices);
+                if (spec instanceof BatchedTransportableActionExecutionSpec) {
+                    return runBatch((BatchedTransportableActionExecutionSpec) spec, worker);
+                }
                 return worker.run(spec);
             }
         } catch (Throwable t) {
@@ -113,6 +118,18 @@ public DefaultWorkResult run(TransportableActionExecutionSpec spec) {
         }
     }
 
+    private static DefaultWorkResult runBatch(BatchedTransportableActionExecutionSpec batch, RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> worker) {
+        List<DefaultWorkResult> results = new ArrayList<>();
+        for (TransportableActionExecutionSpec item : batch.getItems()) {
+            try {
+                results.add(worker.run(item));
+            } catch (Throwable t) {
+                results.add(new DefaultWorkResult(true, t));
+            }
+        }
+        return new BatchWorkResult(results);
+    }
+
     private RequestHandler<TransportableActionExecutionSpec, DefaultWorkResult> getIsolatedClassloaderWorker(ClassLoaderStructure classLoaderStructure, ServiceRegistry workServices) {
         if (classLoaderStructure instanceof FlatClassLoaderStructure) {
             return new FlatClassLoaderWorker(this.getClass().getClassLoader(), workServices, actionExecutionSpecFactory, instantiatorFactory);
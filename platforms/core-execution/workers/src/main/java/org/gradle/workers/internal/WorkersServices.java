@@ -134,7 +134,8 @@ WorkerExecutor createWorkerExecutor(InstantiatorFactory instantiatorFactory,
                                             ActionExecutionSpecFactory actionExecutionSpecFactory,
                                             CachedClasspathTransformer classpathTransformer,
                                             ProjectLayout projectLayout,
-                                            ProjectCacheDir projectCacheDir
+                                            ProjectCacheDir projectCacheDir,
+                                            WorkerLimits workerLimits
                                             ) {
             NoIsolationWorkerFactory noIsolationWorkerFactory = new NoIsolationWorkerFactory(buildOperationRunner, instantiatorFactory, actionExecutionSpecFactory, projectServices);
 
@@ -154,7 +155,8 @@ WorkerExecutor createWorkerExecutor(InstantiatorFactory instantiatorFactory,
                 instantiatorFactory.decorateLenient(projectServices),
                 classpathTransformer,
                 projectLayout.getProjectDirectory().getAsFile(),
-                projectCacheDir);
+                projectCacheDir,
+                workerLimits);
             noIsolationWorkerFactory.setWorkerExecutor(workerExecutor);
             return workerExecutor;
         }
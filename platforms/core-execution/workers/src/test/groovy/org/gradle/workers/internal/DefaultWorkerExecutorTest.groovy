@@ -27,6 +27,7 @@ import org.gradle.internal.reflect.Instantiator
 import org.gradle.internal.work.AsyncWorkTracker
 import org.gradle.internal.work.ConditionalExecution
 import org.gradle.internal.work.ConditionalExecutionQueue
+import org.gradle.internal.work.DefaultWorkerLimits
 import org.gradle.internal.work.WorkerThreadRegistry
 import org.gradle.process.internal.worker.child.WorkerDirectoryProvider
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -78,7 +79,7 @@ class DefaultWorkerExecutorTest extends Specification {
         _ * instantiator.newInstance(DefaultWorkerExecutor.DefaultWorkQueue, _, _, _) >> { args -> new DefaultWorkerExecutor.DefaultWorkQueue(args[1][0], args[1][1], args[1][2]) }
         _ * classpathTransformer.copyingTransform(_) >> { args -> args[0] }
         _ * projectCacheDir.getDir() >> temporaryFolder.testDirectory
-        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, workerThreadRegistry, buildOperationRunner, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, classpathTransformer, temporaryFolder.testDirectory, projectCacheDir)
+        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, workerThreadRegistry, buildOperationRunner, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, classpathTransformer, temporaryFolder.testDirectory, projectCacheDir, new DefaultWorkerLimits(4))
         _ * actionExecutionSpecFactory.newIsolatedSpec(_, _, _, _, _) >> Mock(IsolatedParametersActionExecutionSpec)
     }
 
@@ -180,6 +181,59 @@ class DefaultWorkerExecutorTest extends Specification {
         }
     }
 
+    def "executor splits a batch of work items evenly across workers"() {
+        def tasks = []
+
+        when:
+        workerExecutor.noIsolation().submitAll(TestExecutable.class, (1..8).collect { Actions.doNothing() })
+
+        then:
+        1 * workerThreadRegistry.workerThread >> true
+        4 * executionQueue.submit(_) >> { args -> tasks << args[0] }
+        8 * asyncWorkTracker.registerWork(_, _)
+
+        when:
+        tasks.each { it.getExecution().run() }
+
+        then:
+        4 * noIsolationWorkerFactory.getWorker(_) >> worker
+        4 * worker.executeAll({ it.size() == 2 }, _) >> { specs, buildOperation ->
+            return specs.collect { new DefaultWorkResult(true, null) }
+        }
+        0 * worker.execute(_, _)
+    }
+
+    def "executor reports the failure of a work item in a batch against that item only"() {
+        def failure = new RuntimeException("broken")
+        def task
+        def completions = []
+
+        when:
+        workerExecutor.noIsolation().submitAll(TestExecutable.class, (1..8).collect { Actions.doNothing() })
+
+        then:
+        1 * workerThreadRegistry.workerThread >> true
+        4 * executionQueue.submit(_) >> { args -> if (task == null) { task = args[0] } }
+        8 * asyncWorkTracker.registerWork(_, _) >> { args -> completions << args[1] }
+
+        when:
+        task.getExecution().run()
+        task.complete()
+        completions[0].waitForCompletion()
+
+        then:
+        1 * noIsolationWorkerFactory.getWorker(_) >> worker
+        1 * worker.executeAll(_, _) >> [new DefaultWorkResult(true, null), new DefaultWorkResult(true, failure)]
+        completions[0].isComplete()
+
+        when:
+        completions[1].waitForCompletion()
+
+        then:
+        def e = thrown(WorkExecutionException)
+        e.cause == failure
+    }
+
     abstract static class TestExecutable implements WorkAction<WorkParameters.None> {
         @Override
         void execute() {
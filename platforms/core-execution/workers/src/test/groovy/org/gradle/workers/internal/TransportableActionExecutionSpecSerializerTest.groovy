@@ -70,6 +70,28 @@ class TransportableActionExecutionSpecSerializerTest extends Specification {
         decodedSpec.internalServicesRequired
     }
 
+    def "can serialize and deserialize a batch of work items"() {
+        def otherBytes = [ (byte) 4, (byte) 5 ] as byte[]
+        def items = [bytes, otherBytes].collect { new TransportableActionExecutionSpec(Runnable.class.name, it, classLoaderStructure(), new File("/foo"), new File("/project-cache"), usesInternalServices) }
+        def spec = BatchedTransportableActionExecutionSpec.of(items)
+
+        when:
+        serializer.write(encoder, spec)
+        encoder.flush()
+
+        and:
+        def decoder = new KryoBackedDecoder(new ByteArrayInputStream(outputStream.toByteArray()))
+        def decodedSpec = serializer.read(decoder)
+
+        then:
+        decodedSpec instanceof BatchedTransportableActionExecutionSpec
+        decodedSpec.serializedParametersOfItems == [bytes, otherBytes]
+        decodedSpec.items.size() == 2
+        decodedSpec.items.every { it.implementationClassName == spec.implementationClassName && it.classLoaderStructure == spec.classLoaderStructure }
+        decodedSpec.baseDir.canonicalPath == spec.baseDir.canonicalPath
+        decodedSpec.internalServicesRequired
+    }
+
     def filteringClassloaderSpec() {
         def classNames = [ 'allowed.Class1', 'allowed.Class2' ]
         def disallowedClassNames = [ 'disallowed.Class1', 'disallowed.Class2' ]
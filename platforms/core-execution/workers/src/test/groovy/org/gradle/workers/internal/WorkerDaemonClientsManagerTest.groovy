@@ -66,6 +66,64 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         input == [noMatch] //match removed from input
     }
 
+    def "prefers idle client that most recently ran the same action"() {
+        def other = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getUses() >> 10
+            getLastActionImplementationClassName() >> "OtherAction"
+        }
+        def affine = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getUses() >> 1
+            getLastActionImplementationClassName() >> "CompileAction"
+        }
+        def input = [other, affine]
+
+        expect:
+        manager.reserveIdleClient(options, "CompileAction", input) == affine
+        input == [other]
+
+        and:
+        with(manager.statistics) {
+            affinityHits == 1
+            affinityMisses == 0
+        }
+    }
+
+    def "prefers most frequently used idle client when no client has run the action"() {
+        def lessUsed = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getUses() >> 1
+            getLastActionImplementationClassName() >> "OtherAction"
+        }
+        def mostUsed = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getUses() >> 7
+            getLastActionImplementationClassName() >> "OtherAction"
+        }
+        def input = [lessUsed, mostUsed]
+
+        expect:
+        manager.reserveIdleClient(options, "CompileAction", input) == mostUsed
+        input == [lessUsed]
+
+        and:
+        with(manager.statistics) {
+            affinityHits == 0
+            affinityMisses == 1
+        }
+    }
+
+    def "counts started clients"() {
+        starter.startDaemon(options) >> Stub(WorkerDaemonClient)
+
+        when:
+        2.times { manager.reserveNewClient(options) }
+
+        then:
+        manager.statistics.daemonsStarted == 2
+    }
+
     def "reserves new client"() {
         def newClient = Stub(WorkerDaemonClient)
         starter.startDaemon(options) >> newClient
@@ -263,6 +321,45 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         0 * client1.stop()
     }
 
+    def "stops the most used client for each set of compatible fork options last when releasing memory"() {
+        def otherOptions = Stub(DaemonForkOptions)
+        def client1 = Mock(WorkerDaemonClient) {
+            _ * getUses() >> 5
+            _ * getForkOptions() >> options
+            _ * isCompatibleWith(options) >> true
+        }
+        def client2 = Mock(WorkerDaemonClient) {
+            _ * getUses() >> 6
+            _ * getForkOptions() >> options
+            _ * isCompatibleWith(options) >> true
+        }
+        def client3 = Mock(WorkerDaemonClient) {
+            _ * getUses() >> 1
+            _ * getForkOptions() >> otherOptions
+            _ * isCompatibleWith(otherOptions) >> true
+        }
+        starter.startDaemon(_) >>> [client1, client2, client3]
+        List<WorkerDaemonClient> candidates = null
+        def recordCandidates = new Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>>() {
+            @Override
+            List<WorkerDaemonClient> transform(List<WorkerDaemonClient> workerDaemonClients) {
+                candidates = workerDaemonClients
+                return []
+            }
+        }
+
+        when:
+        manager.reserveNewClient(options)
+        manager.reserveNewClient(options)
+        manager.reserveNewClient(otherOptions)
+        [client1, client2, client3].each { manager.release(it) }
+        manager.selectIdleClientsToStop(recordCandidates)
+
+        then:
+        // client2 and client3 are the warmest clients for their fork options, so they are stopped only after other clients
+        candidates == [client1, client3, client2]
+    }
+
     def "does not stop busy clients when releasing memory"() {
         def client1 = Mock(WorkerDaemonClient) { _ * getUses() >> 5 }
         def client2 = Mock(WorkerDaemonClient) { _ * getUses() >> 1 }
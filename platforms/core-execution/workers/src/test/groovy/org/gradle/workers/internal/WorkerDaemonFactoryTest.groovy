@@ -55,7 +55,7 @@ class WorkerDaemonFactoryTest extends Specification {
         factory.getWorker(requirement).execute(spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> null
+        1 * clientsManager.reserveIdleClient(options, _) >> null
 
         then:
         1 * clientsManager.reserveNewClient(options) >> client
@@ -73,7 +73,7 @@ class WorkerDaemonFactoryTest extends Specification {
         factory.getWorker(requirement).execute(spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, _) >> client
 
         then:
         1 * buildOperationRunner.call(_) >> { args -> args[0].call(Stub(BuildOperationContext)) }
@@ -88,7 +88,7 @@ class WorkerDaemonFactoryTest extends Specification {
         factory.getWorker(requirement).execute(spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, _) >> client
 
         then:
         1 * buildOperationRunner.call(_) >> { args -> args[0].call() }
@@ -104,7 +104,7 @@ class WorkerDaemonFactoryTest extends Specification {
         factory.getWorker(requirement).execute(spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, _) >> client
         1 * buildOperationRunner.call(_)
     }
 
@@ -113,11 +113,34 @@ class WorkerDaemonFactoryTest extends Specification {
         factory.getWorker(requirement).execute(spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, _) >> client
         1 * buildOperationRunner.call(_) >> { args -> args[0].call() }
         1 * client.execute(spec) >> { throw new RuntimeException("Boo!") }
 
         then:
         thrown(RuntimeException)
     }
+
+    def "batch is sent to a single client and reported in a single build operation"() {
+        def spec2 = Stub(IsolatedParametersActionExecutionSpec)
+        def failure = new RuntimeException("Boo!")
+        def descriptors = []
+
+        when:
+        def results = factory.getWorker(requirement).executeAll([spec, spec2], buildOperation)
+
+        then:
+        1 * clientsManager.reserveIdleClient(options, _) >> client
+        1 * client.executeAll([spec, spec2]) >> [new DefaultWorkResult(true, null), new DefaultWorkResult(true, failure)]
+        1 * buildOperationRunner.call(_) >> { args ->
+            descriptors << args[0].description().build()
+            args[0].call(Stub(BuildOperationContext))
+        }
+        1 * clientsManager.release(client)
+
+        and:
+        descriptors.size() == 1
+        descriptors[0].details instanceof ExecuteWorkItemBuildOperationType.Details
+        results*.exception == [null, failure]
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.jvm;
+
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the JVM arguments that let a forked Gradle JVM use a class data sharing (CDS) archive of the classes it loads.
+ * <p>
+ * The archive is created by the JVM itself when it exits, if no usable archive exists yet, and is mapped into memory by the JVMs started after it,
+ * which saves loading and verifying the same classes from the distribution jars over and over again. This relies on
+ * {@code -XX:+AutoCreateSharedArchive}, which is available from Java 19.
+ * <p>
+ * Archives are kept per Gradle version under the Gradle user home. An archive is only valid for the JVM, JVM options and classpath it was created with,
+ * so there is one archive per combination of these, including the size and modification time of the JVM and the jars, so that an archive never has
+ * to be rewritten. Class data sharing can be disabled with {@code -D}{@value #ENABLED_PROPERTY}{@code =false}.
+ * <p>
+ * Only one JVM is allowed to create an archive, which it claims with a lock file next to the archive. JVMs started while the archive
+ * does not exist yet run without one, and JVMs started later use the archive without being able to rewrite it. The claim is released by the
+ * first JVM that finds the archive written. A claim that is older than a day without an archive is considered abandoned, for example because
+ * the JVM that made it crashed, and is handed to the next JVM.
+ * <p>
+ * This should only be used for JVMs that run Gradle's own code, such as daemons and worker daemons, and not for JVMs that run user code, such as test workers.
+ */
+public class ClassDataSharing {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.class-data-sharing";
+    private static final int MINIMUM_JAVA_VERSION = 19;
+    private static final long ABANDONED_CLAIM_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final List<String> DISABLE_LOGGING_ARGS = Collections.unmodifiableList(Arrays.asList(
+        // Archive creation warns about every class it cannot archive
+        "-Xlog:cds=off",
+        "-Xlog:cds+dynamic=off"
+    ));
+
+    private final File archiveDir;
+
+    public ClassDataSharing(File gradleUserHomeDir, String gradleVersion) {
+        this.archiveDir = new File(gradleUserHomeDir, "caches/" + gradleVersion + "/cds");
+    }
+
+    /**
+     * Returns the additional JVM arguments for a JVM with the given options and classpath, or an empty list when the JVM cannot use a class data sharing archive.
+     *
+     * @param name the kind of JVM, used to name the archive.
+     */
+    public List<String> jvmArgs(String name, String javaExecutable, int javaMajorVersion, List<String> jvmArgs, Iterable<File> classpath) {
+        if (!isEnabled() || javaMajorVersion < MINIMUM_JAVA_VERSION || configuresClassDataSharing(jvmArgs)) {
+            return Collections.emptyList();
+        }
+
+        Hasher hasher = Hashing.newHasher();
+        putFile(hasher, new File(javaExecutable));
+        hasher.putInt(javaMajorVersion);
+        for (String jvmArg : jvmArgs) {
+            // System properties do not affect the archive
+            if (!jvmArg.startsWith("-D")) {
+                hasher.putString(jvmArg);
+            }
+        }
+        for (File file : classpath) {
+            // The JVM refuses to create an archive when the classpath contains directories
+            if (!file.isFile() || !file.getName().endsWith(".jar")) {
+                return Collections.emptyList();
+            }
+            putFile(hasher, file);
+        }
+
+        if (!archiveDir.isDirectory() && !archiveDir.mkdirs()) {
+            return Collections.emptyList();
+        }
+        File archive = new File(archiveDir, name + "-" + hasher.hash().toCompactString() + ".jsa");
+
+        List<String> args = new ArrayList<String>(DISABLE_LOGGING_ARGS);
+        File claim = new File(archiveDir, archive.getName() + ".lock");
+        if (archive.isFile()) {
+            // The JVM that claimed the archive has written it, so the claim is no longer needed
+            claim.delete();
+        } else if (claimArchiveCreation(claim)) {
+            args.add("-XX:+AutoCreateSharedArchive");
+        } else {
+            // Another JVM is creating the archive
+            return Collections.emptyList();
+        }
+        args.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+        return args;
+    }
+
+    private static void putFile(Hasher hasher, File file) {
+        hasher.putString(file.getAbsolutePath());
+        hasher.putLong(file.length());
+        hasher.putLong(file.lastModified());
+    }
+
+    private static boolean claimArchiveCreation(File claim) {
+        try {
+            if (claim.createNewFile()) {
+                return true;
+            }
+            if (System.currentTimeMillis() - claim.lastModified() < ABANDONED_CLAIM_MILLIS) {
+                return false;
+            }
+            // Only one JVM can move the abandoned claim out of the way
+            File abandoned = new File(claim.getParentFile(), claim.getName() + "-" + UUID.randomUUID());
+            if (!claim.renameTo(abandoned)) {
+                return false;
+            }
+            abandoned.delete();
+            return claim.createNewFile();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isEnabled() {
+        return !"false".equals(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    private static boolean configuresClassDataSharing(List<String> jvmArgs) {
+        for (String jvmArg : jvmArgs) {
+            if (jvmArg.startsWith("-Xshare") || jvmArg.startsWith("-XX:SharedArchiveFile") || jvmArg.startsWith("-XX:ArchiveClassesAtExit") || jvmArg.contains("AutoCreateSharedArchive")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
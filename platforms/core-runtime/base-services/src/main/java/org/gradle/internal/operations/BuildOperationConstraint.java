@@ -28,5 +28,14 @@ public enum BuildOperationConstraint {
     /**
      * Unconstrained execution allowing as many threads as required to a maximum of 10 times the configured workers.
      */
-    UNCONSTRAINED
+    UNCONSTRAINED,
+
+    /**
+     * Unconstrained execution of operations that spend most of their time waiting on IO, such as downloading dependency metadata.
+     * The operations must not start build operation queues of their own.
+     *
+     * <p>Behaves like {@link #UNCONSTRAINED}, unless virtual threads are enabled for build operations. In that case each operation runs on its own virtual thread,
+     * without holding a worker lease and without a limit on the number of operations that run at the same time.</p>
+     */
+    BLOCKING_IO
 }
@@ -25,6 +25,13 @@ public DefaultLease(String displayName, ResourceLockCoordinationService coordina
         this.parent = parent;
     }
 
+    /**
+     * Returns the holder that grants this lease. All leases of a shared resource have the same holder.
+     */
+    public LeaseHolder getLeaseHolder() {
+        return parent;
+    }
+
     @Override
     protected boolean doIsLocked() {
         return ownerThread != null;
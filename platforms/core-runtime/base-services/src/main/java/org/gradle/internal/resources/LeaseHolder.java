@@ -17,7 +17,7 @@
 package org.gradle.internal.resources;
 
 public class LeaseHolder {
-    private final int maxWorkerCount;
+    private int maxWorkerCount;
     private int leasesInUse;
 
     public LeaseHolder(int maxWorkerCount) {
@@ -35,4 +35,11 @@ public boolean grantLease() {
     public void releaseLease() {
         leasesInUse--;
     }
+
+    /**
+     * Changes the number of leases that can be granted at any given time. Leases that are already granted are not revoked.
+     */
+    public void setMaxWorkerCount(int maxWorkerCount) {
+        this.maxWorkerCount = maxWorkerCount;
+    }
 }
@@ -43,8 +43,10 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -61,6 +63,8 @@ public class DefaultWorkerLeaseService implements WorkerLeaseService, ProjectPar
     private final WorkerLeaseLockRegistry workerLeaseLockRegistry;
     private final ProjectLockStatisticsImpl projectLockStatistics = new ProjectLockStatisticsImpl();
     private final AtomicReference<Registries> registries = new AtomicReference<Registries>(new NoRegistries());
+    // Guarded by the state lock of the coordination service
+    private final Map<Object, Integer> workerLeaseLimits = new IdentityHashMap<>();
 
     public DefaultWorkerLeaseService(ResourceLockCoordinationService coordinationService, WorkerLimits workerLimits) {
         this.workerLimits = workerLimits;
@@ -95,6 +99,36 @@ public int getMaxWorkerCount() {
         return workerLimits.getMaxWorkerCount();
     }
 
+    @Override
+    public void setWorkerLeaseLimit(Object owner, int limit) {
+        if (limit < 1 || limit > getMaxWorkerCount()) {
+            throw new IllegalArgumentException("Worker lease limit must be between 1 and " + getMaxWorkerCount() + " but was " + limit + ".");
+        }
+        coordinationService.withStateLock(() -> {
+            workerLeaseLimits.put(owner, limit);
+            applyWorkerLeaseLimits();
+        });
+    }
+
+    @Override
+    public void removeWorkerLeaseLimit(Object owner) {
+        coordinationService.withStateLock(() -> {
+            if (workerLeaseLimits.remove(owner) != null) {
+                applyWorkerLeaseLimits();
+            }
+        });
+    }
+
+    private void applyWorkerLeaseLimits() {
+        int limit = getMaxWorkerCount();
+        for (int ownerLimit : workerLeaseLimits.values()) {
+            limit = Math.min(limit, ownerLimit);
+        }
+        workerLeaseLockRegistry.root.setMaxWorkerCount(limit);
+        // Threads waiting for a worker lease may now be able to get one
+        coordinationService.notifyStateChange();
+    }
+
     @Override
     public WorkerLease getCurrentWorkerLease() {
         List<? extends WorkerLease> operations = workerLeaseLockRegistry.getResourceLocksByCurrentThread();
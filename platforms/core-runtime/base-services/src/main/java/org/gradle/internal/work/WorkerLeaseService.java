@@ -31,6 +31,18 @@ public interface WorkerLeaseService extends WorkerLeaseRegistry, ProjectLeaseReg
      */
     int getMaxWorkerCount();
 
+    /**
+     * Limits the number of worker leases that this service will grant at any given time on behalf of the given owner. The limit must be between 1 and {@link #getMaxWorkerCount()}.
+     * When several owners limit the leases, for example the executors of nested build trees, the lowest of their limits applies.
+     * Leases that are already granted are not revoked, instead no further leases are granted until enough of them have been released.
+     */
+    void setWorkerLeaseLimit(Object owner, int limit);
+
+    /**
+     * Removes the limit that the given owner has set with {@link #setWorkerLeaseLimit(Object, int)}, leaving the limits of other owners in place.
+     */
+    void removeWorkerLeaseLimit(Object owner);
+
     /**
      * Runs a given {@link Factory} while the specified locks are being held, releasing
      * the locks upon completion.  Blocks until the specified locks can be obtained.
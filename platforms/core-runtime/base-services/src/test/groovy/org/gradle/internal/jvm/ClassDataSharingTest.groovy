@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.jvm
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ClassDataSharingTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    @Rule
+    SetSystemProperties sysProp = new SetSystemProperties()
+
+    def userHome = tmpDir.createDir("user-home")
+    def jar = tmpDir.createFile("lib/gradle-daemon-main.jar")
+    def classDataSharing = new ClassDataSharing(userHome, "8.12")
+
+    def "uses an archive in the Gradle user home"() {
+        when:
+        def args = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar])
+
+        then:
+        args.contains("-XX:+AutoCreateSharedArchive")
+        def archive = new File(args.find { it.startsWith("-XX:SharedArchiveFile=") }.substring("-XX:SharedArchiveFile=".length()))
+        archive.parentFile == userHome.file("caches/8.12/cds")
+        archive.parentFile.directory
+        archive.name.startsWith("daemon-")
+    }
+
+    def "uses the same archive when only system properties differ"() {
+        def archive = archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar]))
+        archive.text = "archive"
+
+        expect:
+        archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m", "-Dfoo=bar"], [jar])) == archive
+    }
+
+    def "uses a different archive for a different JVM, JVM options or classpath"() {
+        def archive = archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar]))
+
+        expect:
+        archiveOf(classDataSharing.jvmArgs("daemon", "/other-jdk/bin/java", 21, ["-Xmx512m"], [jar])) != archive
+        archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-XX:+UseSerialGC"], [jar])) != archive
+        archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar, tmpDir.createFile("lib/other.jar")])) != archive
+    }
+
+    def "uses a different archive when a jar changes"() {
+        def archive = archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar]))
+
+        when:
+        jar.text = "changed"
+
+        then:
+        archiveOf(classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, ["-Xmx512m"], [jar])) != archive
+    }
+
+    def "lets only one JVM create an archive"() {
+        when:
+        def first = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar])
+        def second = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar])
+
+        then:
+        first.contains("-XX:+AutoCreateSharedArchive")
+        second.empty
+
+        when:
+        archiveOf(first).text = "archive"
+        def third = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar])
+
+        then:
+        archiveOf(third) == archiveOf(first)
+        !third.contains("-XX:+AutoCreateSharedArchive")
+        archiveOf(first).parentFile.list().toList() == [archiveOf(first).name]
+    }
+
+    def "lets another JVM create an archive when the claim has been abandoned"() {
+        def first = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar])
+        def claim = new File(archiveOf(first).path + ".lock")
+        claim.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)
+
+        when:
+        def second = classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar])
+
+        then:
+        second.contains("-XX:+AutoCreateSharedArchive")
+        archiveOf(second) == archiveOf(first)
+        claim.lastModified() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)
+        archiveOf(first).parentFile.list().toList().sort() == [claim.name]
+    }
+
+    def "does not use an archive when the JVM does not support creating one automatically"() {
+        expect:
+        classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 17, [], [jar]).empty
+    }
+
+    def "does not use an archive when the classpath contains a directory"() {
+        expect:
+        classDataSharing.jvmArgs("worker", "/jdk/bin/java", 21, [], [jar, tmpDir.createDir("classes")]).empty
+    }
+
+    def "does not use an archive when class data sharing is configured explicitly"() {
+        expect:
+        classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [jvmArg], [jar]).empty
+
+        where:
+        jvmArg << ["-Xshare:off", "-XX:SharedArchiveFile=/some/archive.jsa", "-XX:ArchiveClassesAtExit=/some/archive.jsa"]
+    }
+
+    def "does not use an archive when disabled"() {
+        given:
+        System.setProperty(ClassDataSharing.ENABLED_PROPERTY, "false")
+
+        expect:
+        classDataSharing.jvmArgs("daemon", "/jdk/bin/java", 21, [], [jar]).empty
+    }
+
+    private static File archiveOf(List<String> args) {
+        def arg = args.find { it.startsWith("-XX:SharedArchiveFile=") }
+        return arg == null ? null : new File(arg.substring("-XX:SharedArchiveFile=".length()))
+    }
+}
@@ -472,4 +472,83 @@ class DefaultWorkerLeaseServiceWorkerLeaseTest extends AbstractWorkerLeaseServic
         then:
         noExceptionThrown()
     }
+
+    def "worker start blocks when the worker lease limit is reduced until it is increased again"() {
+        def registry = workerLeaseService(2)
+        def owner = new Object()
+        registry.setWorkerLeaseLimit(owner, 1)
+
+        when:
+        async {
+            start {
+                def cl = registry.startWorker()
+                instant.worker1
+                thread.block()
+                instant.limitIncreased
+                registry.removeWorkerLeaseLimit(owner)
+                thread.blockUntil.worker2
+                cl.leaseFinish()
+            }
+            start {
+                thread.blockUntil.worker1
+                def cl = registry.startWorker()
+                instant.worker2
+                cl.leaseFinish()
+            }
+        }
+
+        then:
+        instant.worker2 > instant.limitIncreased
+
+        cleanup:
+        registry?.stop()
+    }
+
+    def "cannot set worker lease limit outside of the maximum worker count"() {
+        def registry = workerLeaseService(2)
+
+        when:
+        registry.setWorkerLeaseLimit(new Object(), limit)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        cleanup:
+        registry?.stop()
+
+        where:
+        limit << [0, 3]
+    }
+
+    def "applies the lowest worker lease limit of all owners"() {
+        def registry = workerLeaseService(3)
+        def outer = new Object()
+        def nested = new Object()
+        registry.setWorkerLeaseLimit(outer, 1)
+        registry.setWorkerLeaseLimit(nested, 2)
+        registry.removeWorkerLeaseLimit(nested)
+
+        when:
+        async {
+            start {
+                def cl = registry.startWorker()
+                instant.worker1
+                thread.block()
+                instant.worker1Finished
+                cl.leaseFinish()
+            }
+            start {
+                thread.blockUntil.worker1
+                def cl = registry.startWorker()
+                instant.worker2
+                cl.leaseFinish()
+            }
+        }
+
+        then:
+        instant.worker2 > instant.worker1Finished
+
+        cleanup:
+        registry?.stop()
+    }
 }
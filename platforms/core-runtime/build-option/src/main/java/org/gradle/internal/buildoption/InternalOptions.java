@@ -21,8 +21,10 @@
 
 /**
  * A service that determines the value for an {@link InternalOption}.
+ *
+ * In the global scope, which is shared by all builds run by a process, the options can only be set using system properties of the process.
  */
-@ServiceScope(Scope.BuildTree.class)
+@ServiceScope({Scope.Global.class, Scope.CrossBuildSession.class, Scope.BuildSession.class, Scope.BuildTree.class})
 public interface InternalOptions {
     /**
      * Lookup the value for an {@link InternalOption}.
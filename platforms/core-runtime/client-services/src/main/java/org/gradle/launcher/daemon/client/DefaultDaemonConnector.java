@@ -44,6 +44,7 @@
 import org.gradle.launcher.daemon.server.api.DaemonState;
 import org.gradle.util.internal.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
@@ -157,7 +158,17 @@ private void handleStopEvents(Collection<DaemonInfo> idleDaemons, Collection<Dae
 
     private DaemonClientConnection connectToIdleDaemon(Collection<DaemonInfo> idleDaemons, ExplainingSpec<DaemonContext> constraint) {
         final List<DaemonInfo> compatibleIdleDaemons = getCompatibleDaemons(idleDaemons, constraint);
-        return findConnection(compatibleIdleDaemons);
+
+        // Prefer daemons that have already run a build over standby daemons, as their caches are warm
+        final Pair<Collection<DaemonInfo>, Collection<DaemonInfo>> standbyUsed = CollectionUtils.partition(compatibleIdleDaemons, DaemonInfo::isStandby);
+        DaemonClientConnection connection = findConnection(new ArrayList<DaemonInfo>(standbyUsed.getRight()));
+        if (connection == null) {
+            connection = findConnection(new ArrayList<DaemonInfo>(standbyUsed.getLeft()));
+            if (connection != null) {
+                LOGGER.info("Connected to standby daemon {}.", connection.getDaemon().getUid());
+            }
+        }
+        return connection;
     }
 
     private DaemonClientConnection connectToCanceledDaemon(Collection<DaemonInfo> busyDaemons, ExplainingSpec<DaemonContext> constraint) {
@@ -27,19 +27,18 @@
 import org.gradle.internal.installation.GradleInstallation;
 import org.gradle.internal.instrumentation.agent.AgentUtils;
 import org.gradle.internal.io.StreamByteBuffer;
+import org.gradle.internal.jvm.ClassDataSharing;
 import org.gradle.internal.jvm.JavaInfo;
 import org.gradle.internal.jvm.JpmsConfiguration;
 import org.gradle.internal.jvm.Jvm;
 import org.gradle.internal.jvm.inspection.JvmInstallationMetadata;
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.os.OperatingSystem;
-import org.gradle.internal.serialize.FlushableEncoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
-import org.gradle.internal.stream.EncodedStream;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.launcher.daemon.DaemonExecHandleBuilder;
 import org.gradle.launcher.daemon.bootstrap.DaemonOutputConsumer;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupConfigurationWriter;
 import org.gradle.launcher.daemon.configuration.DaemonParameters;
 import org.gradle.launcher.daemon.configuration.DaemonPriority;
 import org.gradle.launcher.daemon.context.DaemonRequestContext;
@@ -142,6 +141,8 @@ public DaemonStartupInfo startDaemon(boolean singleUse) {
             daemonArgs.addAll(JpmsConfiguration.GRADLE_DAEMON_JPMS_ARGS);
         }
         daemonArgs.addAll(daemonOpts);
+        ClassDataSharing classDataSharing = new ClassDataSharing(daemonParameters.getGradleUserHomeDir(), GradleVersion.current().getVersion());
+        daemonArgs.addAll(classDataSharing.jvmArgs("daemon", resolvedJava.getAbsolutePath(), majorJavaVersion, new ArrayList<>(daemonOpts), classpath.getAsFiles()));
         daemonArgs.add("-cp");
         daemonArgs.add(CollectionUtils.join(File.pathSeparator, classpath.getAsFiles()));
 
@@ -167,25 +168,20 @@ public DaemonStartupInfo startDaemon(boolean singleUse) {
 
         // Serialize configuration to daemon via the process' stdin
         StreamByteBuffer buffer = new StreamByteBuffer();
-        FlushableEncoder encoder = new KryoBackedEncoder(new EncodedStream.EncodedOutput(buffer.getOutputStream()));
         try {
-            encoder.writeString(daemonParameters.getGradleUserHomeDir().getAbsolutePath());
-            encoder.writeString(daemonDir.getBaseDir().getAbsolutePath());
-            encoder.writeSmallInt(daemonParameters.getIdleTimeout());
-            encoder.writeSmallInt(daemonParameters.getPeriodicCheckInterval());
-            encoder.writeBoolean(singleUse);
-            encoder.writeSmallInt(daemonParameters.getNativeServicesMode().ordinal());
-            encoder.writeString(daemonUid);
-            encoder.writeSmallInt(daemonParameters.getPriority().ordinal());
-            encoder.writeSmallInt(daemonOpts.size());
-            for (String daemonOpt : daemonOpts) {
-                encoder.writeString(daemonOpt);
-            }
-            encoder.writeSmallInt(searchClassPath.size());
-            for (File file : searchClassPath) {
-                encoder.writeString(file.getAbsolutePath());
-            }
-            encoder.flush();
+            DaemonStartupConfigurationWriter.write(
+                buffer.getOutputStream(),
+                daemonParameters.getGradleUserHomeDir(),
+                daemonDir.getBaseDir(),
+                daemonParameters.getIdleTimeout(),
+                daemonParameters.getPeriodicCheckInterval(),
+                singleUse,
+                daemonParameters.getNativeServicesMode(),
+                daemonUid,
+                daemonParameters.getPriority(),
+                daemonOpts,
+                searchClassPath
+            );
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -83,11 +83,11 @@ class DefaultDaemonConnectorTest extends Specification {
         return new DaemonStartupInfo(daemonNum.toString(), Mock(), Mock());
     }
 
-    def startIdleDaemon() {
+    def startIdleDaemon(boolean standby = false) {
         def daemonNum = daemonCounter++
         DaemonContext context = new DefaultDaemonContext(daemonNum.toString(), javaHome, JavaLanguageVersion.current(), Jvm.current().vendor, javaHome, daemonNum, 1000, [], false, NativeServicesMode.ENABLED, DaemonPriority.NORMAL)
         def address = createAddress(daemonNum)
-        registry.store(new DaemonInfo(address, context, "password".bytes, Idle))
+        registry.store(new DaemonInfo(address, context, "password".bytes, Idle).setStandby(standby))
     }
 
     def theConnector
@@ -155,6 +155,27 @@ class DefaultDaemonConnectorTest extends Specification {
         numAllDaemons == 2
     }
 
+    def "connect() prefers a used daemon over a standby daemon"() {
+        given:
+        startIdleDaemon(true)
+        startIdleDaemon()
+        startIdleDaemon(true)
+
+        expect:
+        def connection = connector.connect({ true } as ExplainingSpec)
+        connection && connection.connection.num == 1
+    }
+
+    def "connect() uses a standby daemon when no other daemon is idle"() {
+        given:
+        startBusyDaemon()
+        startIdleDaemon(true)
+
+        expect:
+        def connection = connector.connect({ true } as ExplainingSpec)
+        connection && connection.connection.num == 1
+    }
+
     def "connect() returns null when no daemon matches spec"() {
         given:
         startIdleDaemon()
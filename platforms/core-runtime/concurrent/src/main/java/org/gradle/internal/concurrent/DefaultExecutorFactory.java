@@ -68,6 +68,23 @@ public ManagedExecutor create(String displayName, int fixedSize) {
         return executor;
     }
 
+    @Override
+    public ManagedExecutor createForBlockingWork(String displayName) {
+        TrackedManagedExecutor executor = new TrackedManagedExecutor(createBlockingWorkExecutor(displayName), new ExecutorPolicy.CatchAndRecordFailures());
+        executors.add(executor);
+        return executor;
+    }
+
+    @Override
+    public boolean supportsVirtualThreads() {
+        return VirtualThreads.isSupported();
+    }
+
+    protected ExecutorService createBlockingWorkExecutor(String displayName) {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(displayName, threadFactoryContextClassloader);
+        return executor != null ? executor : createExecutor(displayName);
+    }
+
     @Override
     public ManagedThreadPoolExecutor createThreadPool(String displayName, int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit timeUnit) {
         ThreadPoolExecutor executorService = createThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTime, timeUnit, newThreadFactory(displayName));
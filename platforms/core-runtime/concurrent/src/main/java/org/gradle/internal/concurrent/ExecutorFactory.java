@@ -44,6 +44,26 @@ public interface ExecutorFactory {
      */
     ManagedExecutor create(String displayName, int fixedSize);
 
+    /**
+     * Creates an executor for actions that spend most of their time blocked, for example waiting on network or file IO. It is the caller's responsibility to stop the executor.
+     *
+     * When the current JVM supports virtual threads (Java 21 and later), each action runs on its own virtual thread. Otherwise, the executor behaves the same as an executor
+     * created using {@link #create(String)}. The executor does not limit the number of actions that run concurrently, so the caller is responsible for any such limits.
+     *
+     * The executor will collect failures thrown by actions and rethrow when the executor is stopped.
+     *
+     * @param displayName The display name for this executor. Used for thread names, logging and error message.
+     * @return The executor.
+     */
+    ManagedExecutor createForBlockingWork(String displayName);
+
+    /**
+     * Returns true when executors created using {@link #createForBlockingWork(String)} run each action on its own virtual thread.
+     */
+    default boolean supportsVirtualThreads() {
+        return false;
+    }
+
     /**
      * Creates an executor which can run multiple tasks concurrently. It is the caller's responsibility to stop the executor.
      *
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.concurrent;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates executors that run each action on its own virtual thread, when the current JVM supports this.
+ *
+ * <p>Virtual threads are only available from Java 21, so the relevant APIs are accessed reflectively.</p>
+ */
+class VirtualThreads {
+    @Nullable
+    private static final VirtualThreads INSTANCE = create();
+
+    private final Method ofVirtual;
+    private final Method unstarted;
+    private final Method newThreadPerTaskExecutor;
+
+    private VirtualThreads(Method ofVirtual, Method unstarted, Method newThreadPerTaskExecutor) {
+        this.ofVirtual = ofVirtual;
+        this.unstarted = unstarted;
+        this.newThreadPerTaskExecutor = newThreadPerTaskExecutor;
+    }
+
+    @Nullable
+    private static VirtualThreads create() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // Virtual threads are a preview feature on Java 19 and 20, and using them fails unless preview features are enabled
+            ofVirtual.invoke(null);
+            return new VirtualThreads(ofVirtual, unstarted, newThreadPerTaskExecutor);
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true when the current JVM supports virtual threads.
+     */
+    static boolean isSupported() {
+        return INSTANCE != null;
+    }
+
+    /**
+     * Creates an executor that runs each action on a new virtual thread, or returns null when the current JVM does not support virtual threads.
+     */
+    @Nullable
+    static ExecutorService newThreadPerTaskExecutor(String displayName, @Nullable ClassLoader contextClassloader) {
+        if (INSTANCE == null) {
+            return null;
+        }
+        return INSTANCE.createExecutor(new VirtualThreadFactory(INSTANCE, displayName, contextClassloader));
+    }
+
+    private ExecutorService createExecutor(ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create virtual thread executor.", e);
+        }
+    }
+
+    private Thread newThread(Runnable action) {
+        try {
+            return (Thread) unstarted.invoke(ofVirtual.invoke(null), action);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create virtual thread.", e);
+        }
+    }
+
+    private static class VirtualThreadFactory implements ThreadFactory {
+        private final AtomicLong counter = new AtomicLong();
+        private final VirtualThreads virtualThreads;
+        private final String displayName;
+        @Nullable
+        private final ClassLoader contextClassloader;
+
+        VirtualThreadFactory(VirtualThreads virtualThreads, String displayName, @Nullable ClassLoader contextClassloader) {
+            this.virtualThreads = virtualThreads;
+            this.displayName = displayName;
+            this.contextClassloader = contextClassloader;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = virtualThreads.newThread(r);
+            thread.setName(displayName + " Virtual Thread " + counter.incrementAndGet());
+            thread.setContextClassLoader(contextClassloader);
+            return thread;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package org.gradle.internal.concurrent
 
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.precondition.Requires
+import org.gradle.test.preconditions.UnitTestPreconditions
 
 import java.util.concurrent.Callable
 import java.util.concurrent.CountDownLatch
@@ -436,4 +438,61 @@ class DefaultExecutorFactoryTest extends ConcurrentSpec {
         def ex = thrown(RuntimeException)
         ex.is(failure1)
     }
+
+    def blockingWorkExecutorRunsActionsConcurrently() {
+        given:
+        def action1 = {
+            instant.started1
+            thread.blockUntil.started2
+        }
+        def action2 = {
+            instant.started2
+            thread.blockUntil.started1
+        }
+
+        when:
+        def executor = factory.createForBlockingWork('test')
+        executor.execute(action1)
+        executor.execute(action2)
+        executor.stop()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def stopOfBlockingWorkExecutorRethrowsFirstExecutionException() {
+        given:
+        def failure = new RuntimeException()
+
+        when:
+        def executor = factory.createForBlockingWork('test')
+        executor.execute { throw failure }
+        executor.stop()
+
+        then:
+        def ex = thrown(RuntimeException)
+        ex.is(failure)
+    }
+
+    @Requires(UnitTestPreconditions.Jdk21OrLater)
+    def blockingWorkExecutorUsesVirtualThreadsWhenSupported() {
+        given:
+        def contextClassLoader = new URLClassLoader(new URL[0])
+        def factory = new DefaultExecutorFactory(contextClassLoader)
+        Thread executingThread = null
+
+        when:
+        def executor = factory.createForBlockingWork('test')
+        executor.execute { executingThread = Thread.currentThread() }
+        executor.stop()
+
+        then:
+        VirtualThreads.supported
+        executingThread.virtual
+        executingThread.name == 'test Virtual Thread 1'
+        executingThread.contextClassLoader.is(contextClassLoader)
+
+        cleanup:
+        factory.stop()
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.gradle.launcher.daemon.bootstrap;
+
+import org.gradle.internal.nativeintegration.services.NativeServices.NativeServicesMode;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.stream.EncodedStream;
+import org.gradle.launcher.daemon.configuration.DaemonPriority;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes the configuration of a new daemon process to its stdin.
+ *
+ * Must match the configuration read by {@code DaemonMain}.
+ */
+public class DaemonStartupConfigurationWriter {
+    private DaemonStartupConfigurationWriter() {
+    }
+
+    public static void write(
+        OutputStream target,
+        File gradleUserHomeDir,
+        File daemonBaseDir,
+        int idleTimeoutMs,
+        int periodicCheckIntervalMs,
+        boolean singleUse,
+        NativeServicesMode nativeServicesMode,
+        String daemonUid,
+        DaemonPriority priority,
+        Collection<String> daemonOpts,
+        List<File> searchClassPath
+    ) throws IOException {
+        FlushableEncoder encoder = new KryoBackedEncoder(new EncodedStream.EncodedOutput(target));
+        encoder.writeString(gradleUserHomeDir.getAbsolutePath());
+        encoder.writeString(daemonBaseDir.getAbsolutePath());
+        encoder.writeSmallInt(idleTimeoutMs);
+        encoder.writeSmallInt(periodicCheckIntervalMs);
+        encoder.writeBoolean(singleUse);
+        encoder.writeSmallInt(nativeServicesMode.ordinal());
+        encoder.writeString(daemonUid);
+        encoder.writeSmallInt(priority.ordinal());
+        encoder.writeSmallInt(daemonOpts.size());
+        for (String daemonOpt : daemonOpts) {
+            encoder.writeString(daemonOpt);
+        }
+        encoder.writeSmallInt(searchClassPath.size());
+        for (File file : searchClassPath) {
+            encoder.writeString(file.getAbsolutePath());
+        }
+        encoder.flush();
+    }
+}
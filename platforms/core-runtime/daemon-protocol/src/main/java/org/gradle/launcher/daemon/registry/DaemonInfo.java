@@ -48,6 +48,7 @@ public class DaemonInfo implements Serializable, DaemonConnectDetails {
 
     private DaemonState state;
     private long lastBusy;
+    private boolean standby;
 
     public DaemonInfo(Address address, DaemonContext context, byte[] token, DaemonState state) {
         this(address, context, token, state, Time.clock());
@@ -63,23 +64,34 @@ public DaemonInfo(Address address, DaemonContext context, byte[] token, DaemonSt
         setState(state);
     }
 
-    private DaemonInfo(Address address, DaemonContext context, byte[] token, DaemonState state, long lastBusy) {
+    private DaemonInfo(Address address, DaemonContext context, byte[] token, DaemonState state, long lastBusy, boolean standby) {
         this.address = address;
         this.context = context;
         this.token = token;
         this.state = state;
         this.lastBusy = lastBusy;
+        this.standby = standby;
         this.clock = Time.clock();
     }
 
     public DaemonInfo setState(DaemonState state) {
         if ((this.state == Idle || this.state == null) && state == Busy) {
             lastBusy = clock.getCurrentTime();
+            standby = false;
         }
         this.state = state;
         return this;
     }
 
+    /**
+     * Marks this daemon as a standby, that is, a daemon that was started ahead of time and has not run a build yet.
+     * The daemon stops being a standby as soon as it becomes busy.
+     */
+    public DaemonInfo setStandby(boolean standby) {
+        this.standby = standby;
+        return this;
+    }
+
     @Override
     public String getUid() {
         return context.getUid();
@@ -113,9 +125,13 @@ public Date getLastBusy() {
         return new Date(lastBusy);
     }
 
+    public boolean isStandby() {
+        return standby;
+    }
+
     @Override
     public String toString() {
-        return String.format("DaemonInfo{pid=%s, address=%s, state=%s, lastBusy=%s, context=%s}", context.getPid(), address, state, lastBusy, context);
+        return String.format("DaemonInfo{pid=%s, address=%s, state=%s, lastBusy=%s, standby=%s, context=%s}", context.getPid(), address, state, lastBusy, standby, context);
     }
 
     public static class Serializer implements org.gradle.internal.serialize.Serializer<DaemonInfo> {
@@ -132,8 +148,9 @@ public DaemonInfo read(Decoder decoder) throws Exception {
             byte[] token = decoder.readBinary();
             DaemonState state = DaemonState.values()[decoder.readByte()];
             long lastBusy = decoder.readLong();
+            boolean standby = decoder.readBoolean();
             DaemonContext context = DefaultDaemonContext.SERIALIZER.read(decoder);
-            return new DaemonInfo(address, context, token, state, lastBusy);
+            return new DaemonInfo(address, context, token, state, lastBusy, standby);
         }
 
         @Override
@@ -142,6 +159,7 @@ public void write(Encoder encoder, DaemonInfo info) throws Exception {
             encoder.writeBinary(info.token);
             encoder.writeByte((byte) info.state.ordinal());
             encoder.writeLong(info.lastBusy);
+            encoder.writeBoolean(info.standby);
             DefaultDaemonContext.SERIALIZER.write(encoder, (DefaultDaemonContext) info.context);
         }
 
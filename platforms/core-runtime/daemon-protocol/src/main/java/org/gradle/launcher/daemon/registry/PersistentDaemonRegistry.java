@@ -225,6 +225,7 @@ public void store(final DaemonInfo info) {
         final DaemonContext daemonContext = info.getContext();
         final byte[] token = info.getToken();
         final DaemonState state = info.getState();
+        final boolean standby = info.isStandby();
 
         lock.lock();
         try {
@@ -236,7 +237,7 @@ public DaemonRegistryContent update(DaemonRegistryContent oldValue) {
                         //it means the registry didn't exist yet
                         oldValue = new DaemonRegistryContent();
                     }
-                    DaemonInfo daemonInfo = new DaemonInfo(address, daemonContext, token, state);
+                    DaemonInfo daemonInfo = new DaemonInfo(address, daemonContext, token, state).setStandby(standby);
                     oldValue.removeInfo(((InetEndpoint) address).getPort());
                     oldValue.setStatus(address, daemonInfo);
                     return oldValue;
@@ -74,7 +74,7 @@ protected void doAction(String[] args, ExecutionListener listener) {
             invalidArgs("Following arguments are required: <gradle-version>");
         }
 
-        // Read configuration from stdin
+        // Read configuration from stdin, as written by DaemonStartupConfigurationWriter
         List<String> startupOpts;
         File gradleHomeDir;
         File daemonBaseDir;
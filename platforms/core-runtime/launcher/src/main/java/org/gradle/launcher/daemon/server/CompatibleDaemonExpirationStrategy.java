@@ -45,7 +45,8 @@ public class CompatibleDaemonExpirationStrategy implements DaemonExpirationStrat
     @Override
     public DaemonExpirationResult checkExpiration() {
         Collection<DaemonInfo> compatibleIdleDaemons = CollectionUtils.filter(daemon.getDaemonRegistry().getIdle(),
-            daemonInfo -> compatibilitySpec.isSatisfiedBy(daemonInfo.getContext()));
+            // Standby daemons are started on purpose next to a compatible daemon, so they do not count as duplicates
+            daemonInfo -> !daemonInfo.isStandby() && compatibilitySpec.isSatisfiedBy(daemonInfo.getContext()));
 
         if (compatibleIdleDaemons.size() > 1) {
             return new DaemonExpirationResult(DaemonExpirationStatus.GRACEFUL_EXPIRE, EXPIRATION_REASON);
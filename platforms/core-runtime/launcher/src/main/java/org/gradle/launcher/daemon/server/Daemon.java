@@ -124,7 +124,7 @@ public void start() {
             byte[] token = new byte[16];
             secureRandom.nextBytes(token);
 
-            registryUpdater = new DaemonRegistryUpdater(daemonRegistry, daemonContext, token);
+            registryUpdater = new DaemonRegistryUpdater(daemonRegistry, daemonContext, token, StandbyDaemonStarter.isStandbyProcess());
 
             ShutdownHooks.addShutdownHook(new Runnable() {
                 @Override
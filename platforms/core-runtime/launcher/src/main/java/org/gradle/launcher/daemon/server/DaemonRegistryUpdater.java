@@ -38,12 +38,14 @@ class DaemonRegistryUpdater implements Stoppable {
     private final DaemonRegistry daemonRegistry;
     private final DaemonContext daemonContext;
     private final byte[] token;
+    private final boolean standby;
     private Address connectorAddress;
 
-    public DaemonRegistryUpdater(DaemonRegistry daemonRegistry, DaemonContext daemonContext, byte[] token) {
+    public DaemonRegistryUpdater(DaemonRegistry daemonRegistry, DaemonContext daemonContext, byte[] token, boolean standby) {
         this.daemonRegistry = daemonRegistry;
         this.daemonContext = daemonContext;
         this.token = token;
+        this.standby = standby;
     }
 
     public void onStartActivity() {
@@ -77,7 +79,13 @@ public void onStart(Address connectorAddress) {
         LOGGER.info("{}{}", DaemonMessages.ADVERTISING_DAEMON, connectorAddress);
         LOGGER.debug("Advertised daemon context: {}", daemonContext);
         this.connectorAddress = connectorAddress;
-        daemonRegistry.store(new DaemonInfo(connectorAddress, daemonContext, token, Busy));
+        if (standby) {
+            // Nobody is waiting for a standby daemon, so make it available to the next build straight away
+            LOGGER.info("Advertising the daemon as a standby");
+            daemonRegistry.store(new DaemonInfo(connectorAddress, daemonContext, token, Idle).setStandby(true));
+        } else {
+            daemonRegistry.store(new DaemonInfo(connectorAddress, daemonContext, token, Busy));
+        }
     }
 
     public void onExpire(String reason, DaemonExpirationStatus status) {
@@ -16,6 +16,7 @@
 package org.gradle.launcher.daemon.server;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.userinput.UserInputReader;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -56,6 +57,7 @@
 import org.gradle.launcher.daemon.server.exec.ResetDeprecationLogger;
 import org.gradle.launcher.daemon.server.exec.ReturnResult;
 import org.gradle.launcher.daemon.server.exec.StartBuildOrRespondWithBusy;
+import org.gradle.launcher.daemon.server.exec.StartStandbyDaemon;
 import org.gradle.launcher.daemon.server.exec.WatchForDisconnection;
 import org.gradle.launcher.daemon.server.health.DaemonHealthCheck;
 import org.gradle.launcher.daemon.server.health.DaemonHealthStats;
@@ -124,6 +126,18 @@ protected DaemonScanInfo createDaemonScanInfo(DaemonRunningStats runningStats, L
         return new DefaultDaemonScanInfo(runningStats, configuration.getIdleTimeout(), configuration.isSingleUse(), daemonRegistry, listenerManager);
     }
 
+    @Provides
+    protected StandbyDaemonStarter createStandbyDaemonStarter(
+        DaemonContext daemonContext,
+        DaemonRegistry daemonRegistry,
+        DaemonDir daemonDir,
+        ModuleRegistry moduleRegistry,
+        DaemonRunningStats runningStats,
+        ExecutorFactory executorFactory
+    ) {
+        return new StandbyDaemonStarter(configuration, daemonContext, daemonRegistry, daemonDir, moduleRegistry, runningStats, executorFactory);
+    }
+
     @Provides
     protected MasterExpirationStrategy createMasterExpirationStrategy(Daemon daemon, HealthExpirationStrategy healthExpirationStrategy, ListenerManager listenerManager) {
         return new MasterExpirationStrategy(daemon, configuration, healthExpirationStrategy, listenerManager);
@@ -157,7 +171,8 @@ protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(
         OutputEventListener eventDispatch,
         DaemonLogFile daemonLogFile,
         GradleUserHomeScopeServiceRegistry userHomeServiceRegistry,
-        ListenerManager listenerManager
+        ListenerManager listenerManager,
+        StandbyDaemonStarter standbyDaemonStarter
     ) {
         DaemonDiagnostics daemonDiagnostics = new DaemonDiagnostics(daemonLogFile.getFile(), daemonContext.getPid());
         return ImmutableList.of(
@@ -168,6 +183,7 @@ protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(
             new CleanUpVirtualFileSystemAfterBuild(executorFactory, userHomeServiceRegistry),
             new ReturnResult(),
             new StartBuildOrRespondWithBusy(daemonDiagnostics), // from this point down, the daemon is 'busy'
+            new StartStandbyDaemon(standbyDaemonStarter),
             new EstablishBuildEnvironment(processEnvironment),
             new LogToClient(loggingManager, daemonDiagnostics), // from this point down, logging is sent back to the client
             new LogAndCheckHealth(healthStats, healthCheck, runningStats),
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.jvm.Jvm;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupCommunication;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupConfigurationWriter;
+import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration;
+import org.gradle.launcher.daemon.context.DaemonCompatibilitySpec;
+import org.gradle.launcher.daemon.context.DaemonContext;
+import org.gradle.launcher.daemon.registry.DaemonDir;
+import org.gradle.launcher.daemon.registry.DaemonInfo;
+import org.gradle.launcher.daemon.registry.DaemonRegistry;
+import org.gradle.launcher.daemon.registry.DaemonStopEvent;
+import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus;
+import org.gradle.launcher.daemon.server.stats.DaemonRunningStats;
+import org.gradle.util.GradleVersion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts a standby daemon after a build: a twin of this daemon process, started with the same JVM and configuration, that advertises itself as idle
+ * without running a build. The next build that cannot use this daemon, because it is busy or has expired, can then connect to the standby instead
+ * of waiting for a new daemon to start.
+ * <p>
+ * Standby daemons are opt-in, and are enabled by adding {@code -D}{@value #ENABLED_PROPERTY}{@code =true} to the daemon JVM arguments.
+ * Because the standby inherits these arguments, it starts a standby of its own once it has been used.
+ * At most one compatible standby daemon is kept around.
+ */
+@ServiceScope(Scope.Global.class)
+public class StandbyDaemonStarter implements Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(StandbyDaemonStarter.class);
+
+    public static final String ENABLED_PROPERTY = "org.gradle.daemon.standby";
+    public static final String STANDBY_PROCESS_PROPERTY = "org.gradle.internal.daemon.standby-process";
+    private static final String DAEMON_MAIN_CLASS = "org.gradle.launcher.daemon.bootstrap.GradleDaemon";
+
+    private final DaemonServerConfiguration configuration;
+    private final DaemonContext daemonContext;
+    private final DaemonRegistry daemonRegistry;
+    private final DaemonDir daemonDir;
+    private final ModuleRegistry moduleRegistry;
+    private final DaemonRunningStats runningStats;
+    private final ManagedExecutor executor;
+    private final AtomicBoolean starting = new AtomicBoolean();
+
+    public StandbyDaemonStarter(
+        DaemonServerConfiguration configuration,
+        DaemonContext daemonContext,
+        DaemonRegistry daemonRegistry,
+        DaemonDir daemonDir,
+        ModuleRegistry moduleRegistry,
+        DaemonRunningStats runningStats,
+        ExecutorFactory executorFactory
+    ) {
+        this.configuration = configuration;
+        this.daemonContext = daemonContext;
+        this.daemonRegistry = daemonRegistry;
+        this.daemonDir = daemonDir;
+        this.moduleRegistry = moduleRegistry;
+        this.runningStats = runningStats;
+        this.executor = executorFactory.create("Standby daemon starter");
+    }
+
+    /**
+     * Returns true when this daemon should start standby daemons.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns true when this process was started as a standby daemon.
+     */
+    public static boolean isStandbyProcess() {
+        return Boolean.getBoolean(STANDBY_PROCESS_PROPERTY);
+    }
+
+    /**
+     * Called before a build starts.
+     */
+    public void buildStarted() {
+        if (isStandbyProcess() && runningStats.getBuildCount() == 0) {
+            LOGGER.info("Standby daemon is used by a build {} after it was started.", runningStats.getPrettyUpTime());
+        }
+    }
+
+    /**
+     * Called once a build has completed. Asynchronously starts a standby daemon, unless standby daemons are disabled or a compatible one is already available.
+     */
+    public void buildFinished(File gradleUserHomeDir) {
+        if (!isEnabled() || configuration.isSingleUse()) {
+            return;
+        }
+        if (hasCompatibleStandby()) {
+            LOGGER.debug("A compatible standby daemon is already available.");
+            return;
+        }
+        if (!starting.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                start(gradleUserHomeDir);
+            } catch (Exception e) {
+                LOGGER.info("Could not start a standby daemon.", e);
+            } finally {
+                starting.set(false);
+            }
+        });
+    }
+
+    private boolean hasCompatibleStandby() {
+        DaemonCompatibilitySpec compatibilitySpec = new DaemonCompatibilitySpec(daemonContext.toRequest());
+        for (DaemonInfo daemonInfo : daemonRegistry.getIdle()) {
+            if (daemonInfo.isStandby() && compatibilitySpec.isSatisfiedBy(daemonInfo.getContext())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void start(File gradleUserHomeDir) throws IOException {
+        Timer timer = Time.startTimer();
+        String uid = UUID.randomUUID().toString();
+
+        // Priority is inherited from this process, so there is no need to apply it again
+        List<String> daemonArgs = new ArrayList<>();
+        daemonArgs.add(Jvm.current().getJavaExecutable().getAbsolutePath());
+        daemonArgs.addAll(standbyJvmArguments(ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        daemonArgs.add("-cp");
+        daemonArgs.add(System.getProperty("java.class.path"));
+        daemonArgs.add(DAEMON_MAIN_CLASS);
+        daemonArgs.add(GradleVersion.current().getVersion());
+        LOGGER.debug("Starting standby daemon {} with args: {}", uid, daemonArgs);
+
+        Process process = new ProcessBuilder(daemonArgs)
+            .directory(daemonDir.getVersionedDir())
+            .redirectErrorStream(true)
+            .start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            DaemonStartupConfigurationWriter.write(
+                stdin,
+                gradleUserHomeDir,
+                configuration.getBaseDir(),
+                configuration.getIdleTimeout(),
+                configuration.getPeriodicCheckIntervalMs(),
+                false,
+                configuration.getNativeServicesMode(),
+                uid,
+                configuration.getPriority(),
+                configuration.getJvmOptions(),
+                moduleRegistry.getAdditionalClassPath().getAsFiles()
+            );
+        }
+
+        // The daemon closes its output once it is advertised in the registry
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        }
+        if (new DaemonStartupCommunication().containsGreeting(output.toString())) {
+            LOGGER.info("Started standby daemon {} in {}.", uid, timer.getElapsed());
+        } else {
+            process.destroy();
+            LOGGER.info("Standby daemon {} did not start. Output:\n{}", uid, output);
+        }
+    }
+
+    /**
+     * Returns the JVM arguments of this process to use for a standby daemon. Debug agents are left out, as the standby cannot listen on the same port.
+     */
+    @VisibleForTesting
+    static List<String> standbyJvmArguments(List<String> inputArguments) {
+        List<String> arguments = new ArrayList<>(inputArguments.size() + 1);
+        for (String argument : inputArguments) {
+            if (argument.startsWith("-agentlib:jdwp") || argument.startsWith("-Xrunjdwp") || argument.startsWith("-D" + STANDBY_PROCESS_PROPERTY + "=")) {
+                continue;
+            }
+            arguments.add(argument);
+        }
+        arguments.add("-D" + STANDBY_PROCESS_PROPERTY + "=true");
+        return arguments;
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+        if (isStandbyProcess() && runningStats.getBuildCount() == 0) {
+            LOGGER.info("Standby daemon is stopping without having been used by a build.");
+            try {
+                daemonRegistry.storeStopEvent(new DaemonStopEvent(new Date(), daemonContext.getPid(), DaemonExpirationStatus.GRACEFUL_EXPIRE, "standby daemon was not used"));
+            } catch (DaemonRegistry.EmptyRegistryException e) {
+                LOGGER.debug("Cannot record the standby daemon stop event because the registry is empty.");
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.launcher.daemon.protocol.Build;
+import org.gradle.launcher.daemon.server.StandbyDaemonStarter;
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
+
+/**
+ * Starts a standby daemon once the build has completed, if standby daemons are enabled.
+ *
+ * @see StandbyDaemonStarter
+ */
+public class StartStandbyDaemon extends BuildCommandOnly {
+    private final StandbyDaemonStarter standbyDaemonStarter;
+
+    public StartStandbyDaemon(StandbyDaemonStarter standbyDaemonStarter) {
+        this.standbyDaemonStarter = standbyDaemonStarter;
+    }
+
+    @Override
+    protected void doBuild(DaemonCommandExecution execution, Build build) {
+        standbyDaemonStarter.buildStarted();
+        execution.proceed();
+        standbyDaemonStarter.buildFinished(build.getAction().getStartParameter().getGradleUserHomeDir());
+    }
+}
@@ -61,6 +61,20 @@ class CompatibleDaemonExpirationStrategyTest extends DaemonExpirationStrategyTes
         !wouldExpire(d3)
     }
 
+    def "does not count standby daemons as compatible daemons"() {
+        given:
+        DaemonInfo d1 = registerDaemon(Idle)
+        DaemonInfo d2 = registerDaemon(Idle)
+        d2.setStandby(true)
+
+        when:
+        compatible = [ d1, d2 ]
+
+        then:
+        !wouldExpire(d1)
+        !wouldExpire(d2)
+    }
+
     def "does not expire when there is only one daemon"() {
         given:
         DaemonInfo d1 = registerDaemon(Idle)
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration
+import org.gradle.launcher.daemon.context.DaemonContext
+import org.gradle.launcher.daemon.context.DaemonRequestContext
+import org.gradle.launcher.daemon.registry.DaemonDir
+import org.gradle.launcher.daemon.registry.DaemonInfo
+import org.gradle.launcher.daemon.registry.DaemonRegistry
+import org.gradle.launcher.daemon.server.stats.DaemonRunningStats
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class StandbyDaemonStarterTest extends Specification {
+    @Rule
+    SetSystemProperties props = new SetSystemProperties()
+
+    def configuration = Stub(DaemonServerConfiguration)
+    def daemonContext = Stub(DaemonContext) {
+        toRequest() >> Stub(DaemonRequestContext)
+    }
+    def registry = Mock(DaemonRegistry)
+    def executor = Mock(ManagedExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def starter = new StandbyDaemonStarter(configuration, daemonContext, registry, Stub(DaemonDir), Stub(ModuleRegistry), new DaemonRunningStats(), executorFactory)
+
+    def "does not start a standby daemon when not enabled"() {
+        when:
+        starter.buildFinished(new File("user-home"))
+
+        then:
+        0 * registry._
+        0 * executor._
+    }
+
+    def "does not start a standby daemon from a single use daemon"() {
+        given:
+        System.setProperty(StandbyDaemonStarter.ENABLED_PROPERTY, "true")
+        configuration.isSingleUse() >> true
+
+        when:
+        starter.buildFinished(new File("user-home"))
+
+        then:
+        0 * executor._
+    }
+
+    def "starts a standby daemon when there is no standby daemon"() {
+        given:
+        System.setProperty(StandbyDaemonStarter.ENABLED_PROPERTY, "true")
+
+        when:
+        starter.buildFinished(new File("user-home"))
+
+        then:
+        1 * registry.getIdle() >> [Stub(DaemonInfo) { isStandby() >> false }]
+        1 * executor.execute(_)
+    }
+
+    def "does not start a second standby daemon while one is starting"() {
+        given:
+        System.setProperty(StandbyDaemonStarter.ENABLED_PROPERTY, "true")
+        registry.getIdle() >> []
+
+        when:
+        starter.buildFinished(new File("user-home"))
+        starter.buildFinished(new File("user-home"))
+
+        then:
+        1 * executor.execute(_)
+    }
+
+    def "standby daemon uses the JVM arguments of this daemon without debug agents"() {
+        expect:
+        StandbyDaemonStarter.standbyJvmArguments(["-Xmx512m", "-agentlib:jdwp=transport=dt_socket,server=y,suspend=n,address=5005", "-Dfoo=bar", "-D${StandbyDaemonStarter.STANDBY_PROCESS_PROPERTY}=true".toString()]) ==
+            ["-Xmx512m", "-Dfoo=bar", "-D${StandbyDaemonStarter.STANDBY_PROCESS_PROPERTY}=true".toString()]
+    }
+}
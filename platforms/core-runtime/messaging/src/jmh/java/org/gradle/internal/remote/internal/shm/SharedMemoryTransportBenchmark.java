@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm;
+
+import org.gradle.internal.remote.internal.KryoBackedMessageSerializer;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.remote.internal.inet.SocketConnection;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializers;
+import org.gradle.internal.serialize.StatefulSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the latency and throughput of the socket and shared memory transports between two threads.
+ *
+ * The peer acknowledges every message that asks for it with a one byte message.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SharedMemoryTransportBenchmark {
+    private static final int MESSAGES_PER_BATCH = 100;
+    private static final byte NO_ACK = 0;
+    private static final byte ACK = 1;
+
+    @Param({"socket", "shared-memory"})
+    String transport;
+
+    @Param({"64", "16384"})
+    int payloadSize;
+
+    private final StatefulSerializer<byte[]> serializer = Serializers.stateful(BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+    private ExecutorService executor;
+    private RemoteConnection<byte[]> connection;
+    private RemoteConnection<byte[]> peer;
+    private byte[] payload;
+    private byte[] lastPayload;
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        ServerSocketChannel serverSocket = ServerSocketChannel.open();
+        serverSocket.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SocketChannel connectingSocket = SocketChannel.open(serverSocket.socket().getLocalSocketAddress());
+        SocketChannel acceptedSocket = serverSocket.accept();
+        serverSocket.close();
+        connectingSocket.configureBlocking(false);
+        acceptedSocket.configureBlocking(false);
+
+        Future<RemoteConnection<byte[]>> accepted = executor.submit(new Negotiation(acceptedSocket, true));
+        peer = new Negotiation(connectingSocket, false).call();
+        connection = accepted.get();
+        if (transport.equals("shared-memory") != connection instanceof SharedMemoryConnection) {
+            throw new IllegalStateException("Unexpected connection " + connection);
+        }
+
+        payload = new byte[payloadSize];
+        lastPayload = new byte[payloadSize];
+        lastPayload[0] = ACK;
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                byte[] message;
+                while ((message = peer.receive()) != null) {
+                    if (message[0] == ACK) {
+                        peer.dispatch(new byte[]{ACK});
+                        peer.flush();
+                    }
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        connection.stop();
+        peer.stop();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public byte[] roundTrip() {
+        connection.dispatch(lastPayload);
+        connection.flush();
+        return connection.receive();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_BATCH)
+    public byte[] throughput() {
+        for (int i = 1; i < MESSAGES_PER_BATCH; i++) {
+            connection.dispatch(payload);
+        }
+        connection.dispatch(lastPayload);
+        connection.flush();
+        return connection.receive();
+    }
+
+    private class Negotiation implements Callable<RemoteConnection<byte[]>> {
+        private final SocketChannel socket;
+        private final boolean accepted;
+
+        Negotiation(SocketChannel socket, boolean accepted) {
+            this.socket = socket;
+            this.accepted = accepted;
+        }
+
+        @Override
+        public RemoteConnection<byte[]> call() throws IOException {
+            SharedMemoryTransport sharedMemoryTransport = new SharedMemoryTransport(transport.equals("shared-memory"), SharedMemoryTransport.DEFAULT_BUFFER_SIZE);
+            RemoteConnection<byte[]> connection = accepted
+                ? sharedMemoryTransport.negotiateAsAcceptor(socket, new KryoBackedMessageSerializer(), serializer)
+                : sharedMemoryTransport.negotiateAsConnector(socket, new KryoBackedMessageSerializer(), serializer);
+            return connection != null ? connection : new SocketConnection<byte[]>(socket, new KryoBackedMessageSerializer(), serializer);
+        }
+    }
+}
@@ -16,18 +16,35 @@
 
 package org.gradle.internal.remote.internal.inet;
 
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.remote.internal.ConnectCompletion;
 import org.gradle.internal.remote.internal.KryoBackedMessageSerializer;
 import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.gradle.internal.serialize.StatefulSerializer;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.nio.channels.SocketChannel;
 
 class SocketConnectCompletion implements ConnectCompletion {
     private final SocketChannel socket;
+    @Nullable
+    private final SharedMemoryTransport sharedMemoryTransport;
+    private final boolean accepted;
 
     public SocketConnectCompletion(SocketChannel socket) {
+        this(socket, null, false);
+    }
+
+    /**
+     * @param sharedMemoryTransport the transport to negotiate with the peer, or null to always use the socket.
+     * @param accepted whether this is the accepting side of the connection.
+     */
+    public SocketConnectCompletion(SocketChannel socket, @Nullable SharedMemoryTransport sharedMemoryTransport, boolean accepted) {
         this.socket = socket;
+        this.sharedMemoryTransport = sharedMemoryTransport;
+        this.accepted = accepted;
     }
 
     @Override
@@ -37,6 +54,19 @@ public String toString() {
 
     @Override
     public <T> RemoteConnection<T> create(StatefulSerializer<T> serializer) {
+        if (sharedMemoryTransport != null) {
+            RemoteConnection<T> connection;
+            try {
+                connection = accepted
+                    ? sharedMemoryTransport.negotiateAsAcceptor(socket, new KryoBackedMessageSerializer(), serializer)
+                    : sharedMemoryTransport.negotiateAsConnector(socket, new KryoBackedMessageSerializer(), serializer);
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (connection != null) {
+                return connection;
+            }
+        }
         return new SocketConnection<T>(socket, new KryoBackedMessageSerializer(), serializer);
     }
 }
@@ -26,9 +26,11 @@
 import org.gradle.internal.remote.ConnectionAcceptor;
 import org.gradle.internal.remote.internal.ConnectCompletion;
 import org.gradle.internal.remote.internal.IncomingConnector;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
@@ -43,11 +45,21 @@ public class TcpIncomingConnector implements IncomingConnector {
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
     private final IdGenerator<UUID> idGenerator;
+    @Nullable
+    private final SharedMemoryTransport sharedMemoryTransport;
 
     public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator) {
+        this(executorFactory, addressFactory, idGenerator, null);
+    }
+
+    /**
+     * @param sharedMemoryTransport the transport to negotiate with each peer, which must use the same transport. Null to always use the socket.
+     */
+    public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator, @Nullable SharedMemoryTransport sharedMemoryTransport) {
         this.executorFactory = executorFactory;
         this.addressFactory = addressFactory;
         this.idGenerator = idGenerator;
+        this.sharedMemoryTransport = sharedMemoryTransport;
     }
 
     @Override
@@ -116,7 +128,7 @@ public void run() {
                         LOGGER.debug("Accepted connection from {} to {}.", socket.socket().getRemoteSocketAddress(), socket.socket().getLocalSocketAddress());
                         try {
                             SocketBlockingUtil.configureNonblocking(socket);
-                            action.execute(new SocketConnectCompletion(socket));
+                            action.execute(new SocketConnectCompletion(socket, sharedMemoryTransport, true));
                         } catch (Throwable t) {
                             socket.close();
                             throw t;
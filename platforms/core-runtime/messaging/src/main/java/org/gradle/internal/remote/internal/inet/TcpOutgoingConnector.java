@@ -21,9 +21,11 @@
 import org.gradle.internal.remote.internal.ConnectCompletion;
 import org.gradle.internal.remote.internal.ConnectException;
 import org.gradle.internal.remote.internal.OutgoingConnector;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -37,6 +39,19 @@
 public class TcpOutgoingConnector implements OutgoingConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger(TcpOutgoingConnector.class);
     private static final int CONNECT_TIMEOUT = 10000;
+    @Nullable
+    private final SharedMemoryTransport sharedMemoryTransport;
+
+    public TcpOutgoingConnector() {
+        this(null);
+    }
+
+    /**
+     * @param sharedMemoryTransport the transport to negotiate with the peer, which must use the same transport. Null to always use the socket.
+     */
+    public TcpOutgoingConnector(@Nullable SharedMemoryTransport sharedMemoryTransport) {
+        this.sharedMemoryTransport = sharedMemoryTransport;
+    }
 
     @Override
     public ConnectCompletion connect(Address destinationAddress) throws ConnectException {
@@ -68,7 +83,7 @@ public ConnectCompletion connect(Address destinationAddress) throws ConnectExcep
                     continue;
                 }
                 LOGGER.debug("Connected to address {}.", socketChannel.socket().getRemoteSocketAddress());
-                return new SocketConnectCompletion(socketChannel);
+                return new SocketConnectCompletion(socketChannel, sharedMemoryTransport, false);
             }
             throw new ConnectException(String.format("Could not connect to server %s. Tried addresses: %s.",
                     destinationAddress, candidateAddresses), lastFailure);
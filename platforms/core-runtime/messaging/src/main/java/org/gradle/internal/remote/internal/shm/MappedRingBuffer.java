@@ -0,0 +1,272 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.io.BufferCaster;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A single producer, single consumer ring buffer of bytes, stored in memory that is shared with another process.
+ *
+ * <p>The buffer starts with a header that holds the positions of the writer and the reader, each on its own cache line,
+ * followed by the data. Positions only ever increase, and are mapped to an offset in the data using the capacity, which is a power of 2.</p>
+ *
+ * <p>The accesses to the shared memory are ordered with the memory fences of {@code sun.misc.Unsafe}, which are only available from Java 8 on.
+ * See {@link #isSupported()}.</p>
+ */
+class MappedRingBuffer {
+    static final int HEADER_SIZE = 128;
+
+    // Owned by the writer
+    private static final int WRITE_POSITION = 0;
+    private static final int WRITER_CLOSED = 8;
+    private static final int WRITER_WAITING = 12;
+    // Owned by the reader
+    private static final int READ_POSITION = 64;
+    private static final int READER_CLOSED = 72;
+    private static final int READER_WAITING = 76;
+
+    // A JVM-local volatile access does not order the plain accesses to the shared memory for another process, so use explicit fences
+    @Nullable
+    private static final Fences FENCES = Fences.load();
+
+    private final ByteBuffer header;
+    private final ByteBuffer readView;
+    private final ByteBuffer writeView;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * Creates a ring buffer in the given region, which must be {@link #sizeFor(int)} bytes long.
+     */
+    MappedRingBuffer(ByteBuffer region, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(String.format("Ring buffer capacity must be a power of 2, was %s.", capacity));
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.header = region.duplicate().order(ByteOrder.nativeOrder());
+        ByteBuffer data = slice(region, HEADER_SIZE, capacity);
+        this.readView = data.duplicate();
+        this.writeView = data.duplicate();
+    }
+
+    /**
+     * Returns whether the ring buffer can be shared with another process in the current JVM.
+     */
+    static boolean isSupported() {
+        return FENCES != null;
+    }
+
+    static int sizeFor(int capacity) {
+        return HEADER_SIZE + capacity;
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        BufferCaster.cast(view).position(offset);
+        BufferCaster.cast(view).limit(offset + length);
+        return view.slice();
+    }
+
+    /**
+     * Copies as many bytes as currently fit into the buffer and makes them visible to the reader.
+     *
+     * @return the number of bytes copied, 0 when the buffer is full.
+     */
+    int write(byte[] src, int offset, int length) {
+        long writePosition = header.getLong(WRITE_POSITION);
+        long readPosition = header.getLong(READ_POSITION);
+        loadFence();
+        int count = (int) Math.min(length, capacity - (writePosition - readPosition));
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) (writePosition & mask);
+        int first = Math.min(count, capacity - start);
+        BufferCaster.cast(writeView).position(start);
+        writeView.put(src, offset, first);
+        if (first < count) {
+            BufferCaster.cast(writeView).position(0);
+            writeView.put(src, offset + first, count - first);
+        }
+        storeFence();
+        header.putLong(WRITE_POSITION, writePosition + count);
+        // Publish the position before checking whether the reader is waiting for it
+        fullFence();
+        return count;
+    }
+
+    /**
+     * Copies as many bytes as are currently available from the buffer and releases the space they used to the writer.
+     *
+     * @return the number of bytes copied, 0 when the buffer is empty.
+     */
+    int read(byte[] dest, int offset, int length) {
+        long readPosition = header.getLong(READ_POSITION);
+        long writePosition = header.getLong(WRITE_POSITION);
+        loadFence();
+        int count = (int) Math.min(length, writePosition - readPosition);
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) (readPosition & mask);
+        int first = Math.min(count, capacity - start);
+        BufferCaster.cast(readView).position(start);
+        readView.get(dest, offset, first);
+        if (first < count) {
+            BufferCaster.cast(readView).position(0);
+            readView.get(dest, offset + first, count - first);
+        }
+        // The data must have been copied before the writer may overwrite it
+        fullFence();
+        header.putLong(READ_POSITION, readPosition + count);
+        fullFence();
+        return count;
+    }
+
+    boolean isEmpty() {
+        boolean empty = header.getLong(WRITE_POSITION) == header.getLong(READ_POSITION);
+        loadFence();
+        return empty;
+    }
+
+    boolean isFull() {
+        boolean full = header.getLong(WRITE_POSITION) - header.getLong(READ_POSITION) == capacity;
+        loadFence();
+        return full;
+    }
+
+    /**
+     * Signals to the reader that no more data will be written.
+     */
+    void closeWriter() {
+        storeFence();
+        header.putInt(WRITER_CLOSED, 1);
+        fullFence();
+    }
+
+    boolean isWriterClosed() {
+        boolean closed = header.getInt(WRITER_CLOSED) != 0;
+        loadFence();
+        return closed;
+    }
+
+    /**
+     * Signals to the writer that no more data will be read.
+     */
+    void closeReader() {
+        header.putInt(READER_CLOSED, 1);
+        fullFence();
+    }
+
+    boolean isReaderClosed() {
+        boolean closed = header.getInt(READER_CLOSED) != 0;
+        loadFence();
+        return closed;
+    }
+
+    /**
+     * Marks whether the reader is about to block until it is woken up by the writer.
+     */
+    void setReaderWaiting(boolean waiting) {
+        header.putInt(READER_WAITING, waiting ? 1 : 0);
+        // Publish the flag before checking again whether data is available
+        fullFence();
+    }
+
+    boolean isReaderWaiting() {
+        boolean waiting = header.getInt(READER_WAITING) != 0;
+        loadFence();
+        return waiting;
+    }
+
+    /**
+     * Marks whether the writer is about to block until it is woken up by the reader.
+     */
+    void setWriterWaiting(boolean waiting) {
+        header.putInt(WRITER_WAITING, waiting ? 1 : 0);
+        // Publish the flag before checking again whether space is available
+        fullFence();
+    }
+
+    boolean isWriterWaiting() {
+        boolean waiting = header.getInt(WRITER_WAITING) != 0;
+        loadFence();
+        return waiting;
+    }
+
+    private static void loadFence() {
+        FENCES.invoke(FENCES.loadFence);
+    }
+
+    private static void storeFence() {
+        FENCES.invoke(FENCES.storeFence);
+    }
+
+    private static void fullFence() {
+        FENCES.invoke(FENCES.fullFence);
+    }
+
+    /**
+     * The memory fences of {@code sun.misc.Unsafe}. They are looked up reflectively, as this code is compiled for Java 6.
+     */
+    private static class Fences {
+        private final Object unsafe;
+        // Orders the loads before the fence before the loads and stores after it
+        private final Method loadFence;
+        // Orders the loads and stores before the fence before the stores after it
+        private final Method storeFence;
+        // Orders the loads and stores before the fence before the loads and stores after it
+        private final Method fullFence;
+
+        private Fences(Object unsafe, Method loadFence, Method storeFence, Method fullFence) {
+            this.unsafe = unsafe;
+            this.loadFence = loadFence;
+            this.storeFence = storeFence;
+            this.fullFence = fullFence;
+        }
+
+        @Nullable
+        static Fences load() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                // The fences were added in Java 8
+                return new Fences(field.get(null), unsafeClass.getMethod("loadFence"), unsafeClass.getMethod("storeFence"), unsafeClass.getMethod("fullFence"));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        void invoke(Method fence) {
+            try {
+                fence.invoke(unsafe);
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+}
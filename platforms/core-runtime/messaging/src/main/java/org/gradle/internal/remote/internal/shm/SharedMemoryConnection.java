@@ -0,0 +1,364 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.io.BufferCaster;
+import org.gradle.internal.remote.internal.MessageIOException;
+import org.gradle.internal.remote.internal.MessageSerializer;
+import org.gradle.internal.remote.internal.RecoverableMessageIOException;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.ObjectReader;
+import org.gradle.internal.serialize.ObjectWriter;
+import org.gradle.internal.serialize.StatefulSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A connection that exchanges messages through a pair of ring buffers in shared memory.
+ *
+ * <p>The socket that the connection was negotiated on stays open. It is used to wake up a reader that waits for data or a writer that waits for space,
+ * and to notice when the peer process goes away. Both ends of the connection block on the socket without a timeout, so an idle connection costs no CPU.</p>
+ *
+ * <p>The reading and the writing stream each wait on their own selector for the same socket. Whichever of them consumes a wakeup
+ * passes it on to the other one when that one is waiting too, as the wakeup may have been meant for it.</p>
+ */
+class SharedMemoryConnection<T> implements RemoteConnection<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMemoryConnection.class);
+    private static final int SPIN_COUNT = 100;
+
+    private final SocketChannel socket;
+    private final MappedRingBuffer incoming;
+    private final MappedRingBuffer outgoing;
+    private final Selector readerSelector;
+    private final Selector writerSelector;
+    private final ByteBuffer wakeups = ByteBuffer.allocate(64);
+    private final String displayName;
+    private final RingBufferInputStream instr;
+    private final RingBufferOutputStream outstr;
+    private final ObjectReader<T> objectReader;
+    private final ObjectWriter<T> objectWriter;
+    private final FlushableEncoder encoder;
+    private volatile boolean peerGone;
+
+    SharedMemoryConnection(SocketChannel socket, MappedRingBuffer incoming, MappedRingBuffer outgoing, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) {
+        this.socket = socket;
+        this.displayName = "shared memory connection from " + socket.socket().getLocalSocketAddress() + " to " + socket.socket().getRemoteSocketAddress();
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+        try {
+            readerSelector = Selector.open();
+            socket.register(readerSelector, SelectionKey.OP_READ);
+            writerSelector = Selector.open();
+            socket.register(writerSelector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        instr = new RingBufferInputStream();
+        outstr = new RingBufferOutputStream();
+        objectReader = messageSerializer.newReader(streamSerializer.newDecoder(instr));
+        encoder = streamSerializer.newEncoder(outstr);
+        objectWriter = messageSerializer.newWriter(encoder);
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    @Override
+    public T receive() throws MessageIOException {
+        try {
+            return objectReader.read();
+        } catch (EOFException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Discarding EOFException: {}", e.toString());
+            }
+            return null;
+        } catch (ObjectStreamException e) {
+            throw new RecoverableMessageIOException(String.format("Could not read message from '%s'.", displayName), e);
+        } catch (ClassNotFoundException e) {
+            throw new RecoverableMessageIOException(String.format("Could not read message from '%s'.", displayName), e);
+        } catch (IOException e) {
+            throw new RecoverableMessageIOException(String.format("Could not read message from '%s'.", displayName), e);
+        } catch (Throwable e) {
+            throw new MessageIOException(String.format("Could not read message from '%s'.", displayName), e);
+        }
+    }
+
+    @Override
+    public void dispatch(T message) throws MessageIOException {
+        try {
+            objectWriter.write(message);
+        } catch (ObjectStreamException e) {
+            throw new RecoverableMessageIOException(String.format("Could not write message %s to '%s'.", message, displayName), e);
+        } catch (ClassNotFoundException e) {
+            throw new RecoverableMessageIOException(String.format("Could not write message %s to '%s'.", message, displayName), e);
+        } catch (IOException e) {
+            throw new RecoverableMessageIOException(String.format("Could not write message %s to '%s'.", message, displayName), e);
+        } catch (Throwable e) {
+            throw new MessageIOException(String.format("Could not write message %s to '%s'.", message, displayName), e);
+        }
+    }
+
+    @Override
+    public void flush() throws MessageIOException {
+        try {
+            encoder.flush();
+            outstr.flush();
+        } catch (Throwable e) {
+            throw new MessageIOException(String.format("Could not write '%s'.", displayName), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(new Closeable() {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, instr, outstr, socket).stop();
+    }
+
+    /**
+     * Wakes up the peer, which waits for data or for space. Failures are ignored, as the peer also wakes up when this process goes away.
+     */
+    private void wakeUpPeer() {
+        try {
+            // Nothing is written when the socket buffer is full, in which case the peer has pending wakeups already
+            socket.write(ByteBuffer.wrap(new byte[]{1}));
+        } catch (IOException e) {
+            LOGGER.debug("Could not wake up peer of {}.", displayName, e);
+        }
+    }
+
+    /**
+     * Blocks until the peer sends a wakeup or goes away, or until the other stream of this connection passes on a wakeup.
+     *
+     * @return false when the given selector has been closed, as this connection has been stopped.
+     */
+    private boolean awaitWakeup(Selector selector) throws IOException {
+        try {
+            selector.select();
+        } catch (ClosedSelectorException e) {
+            return false;
+        }
+        if (!selector.isOpen()) {
+            return false;
+        }
+        selector.selectedKeys().clear();
+        if (drainWakeups()) {
+            if (selector == readerSelector) {
+                if (outgoing.isWriterWaiting()) {
+                    writerSelector.wakeup();
+                }
+            } else if (incoming.isReaderWaiting()) {
+                readerSelector.wakeup();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the wakeups that the peer has sent.
+     *
+     * @return whether there were any, or the peer has gone away.
+     */
+    private boolean drainWakeups() {
+        boolean woken = false;
+        synchronized (wakeups) {
+            while (true) {
+                BufferCaster.cast(wakeups).clear();
+                int nread;
+                try {
+                    nread = socket.read(wakeups);
+                } catch (IOException e) {
+                    LOGGER.debug("Could not read from {}.", displayName, e);
+                    nread = -1;
+                }
+                if (nread < 0) {
+                    peerGone = true;
+                    return true;
+                }
+                if (nread == 0) {
+                    return woken;
+                }
+                woken = true;
+            }
+        }
+    }
+
+    private class RingBufferInputStream extends InputStream {
+        private final byte[] readBuffer = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int nread = read(readBuffer, 0, 1);
+            if (nread <= 0) {
+                return nread;
+            }
+            return readBuffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] dest, int offset, int max) throws IOException {
+            if (max == 0) {
+                return 0;
+            }
+            int spins = 0;
+            while (true) {
+                int count = incoming.read(dest, offset, max);
+                if (count > 0) {
+                    if (incoming.isWriterWaiting()) {
+                        wakeUpPeer();
+                    }
+                    return count;
+                }
+                if (incoming.isWriterClosed() || peerGone) {
+                    // Pick up anything written before the peer closed its end
+                    count = incoming.read(dest, offset, max);
+                    return count > 0 ? count : -1;
+                }
+                if (spins++ < SPIN_COUNT) {
+                    Thread.yield();
+                    continue;
+                }
+                if (!awaitData()) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Blocks until the writer signals that data is available.
+         *
+         * @return false when this connection has been stopped.
+         */
+        private boolean awaitData() throws IOException {
+            incoming.setReaderWaiting(true);
+            try {
+                // Check again, as the writer may have written the data before noticing that this reader is waiting
+                if (!incoming.isEmpty() || incoming.isWriterClosed() || peerGone) {
+                    return true;
+                }
+                return awaitWakeup(readerSelector);
+            } finally {
+                incoming.setReaderWaiting(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            incoming.closeReader();
+            if (incoming.isWriterWaiting()) {
+                wakeUpPeer();
+            }
+            readerSelector.close();
+        }
+    }
+
+    private class RingBufferOutputStream extends OutputStream {
+        private final byte[] writeBuffer = new byte[1];
+        private volatile boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            writeBuffer[0] = (byte) b;
+            write(writeBuffer);
+        }
+
+        @Override
+        public void write(byte[] src, int offset, int max) throws IOException {
+            int remaining = max;
+            int currentPos = offset;
+            while (remaining > 0) {
+                int count = outgoing.write(src, currentPos, remaining);
+                remaining -= count;
+                currentPos += count;
+                if (count == 0) {
+                    waitForSpace();
+                }
+            }
+        }
+
+        private void waitForSpace() throws IOException {
+            // Make sure the reader is draining the buffer
+            flush();
+            int spins = 0;
+            while (outgoing.isFull()) {
+                if (closed || peerGone || outgoing.isReaderClosed()) {
+                    throw new EOFException();
+                }
+                if (spins++ < SPIN_COUNT) {
+                    Thread.yield();
+                } else if (!awaitSpace()) {
+                    throw new EOFException();
+                }
+            }
+        }
+
+        /**
+         * Blocks until the reader signals that space is available.
+         *
+         * @return false when this connection has been stopped.
+         */
+        private boolean awaitSpace() throws IOException {
+            outgoing.setWriterWaiting(true);
+            try {
+                // Check again, as the reader may have made space before noticing that this writer is waiting
+                if (!outgoing.isFull() || outgoing.isReaderClosed() || peerGone) {
+                    return true;
+                }
+                return awaitWakeup(writerSelector);
+            } finally {
+                outgoing.setWriterWaiting(false);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (outgoing.isReaderWaiting()) {
+                wakeUpPeer();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            outgoing.closeWriter();
+            // Wake up the peer unconditionally, so that it notices the end of the stream straight away
+            wakeUpPeer();
+            writerSelector.close();
+        }
+    }
+}
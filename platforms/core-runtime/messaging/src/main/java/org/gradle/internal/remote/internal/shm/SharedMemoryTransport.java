@@ -0,0 +1,374 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm;
+
+import org.gradle.internal.io.BufferCaster;
+import org.gradle.internal.os.OperatingSystem;
+import org.gradle.internal.remote.internal.MessageSerializer;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.remote.internal.inet.SocketConnection;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.StatefulSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Negotiates whether a freshly opened socket connection should carry its messages through shared memory instead.
+ *
+ * <p>The accepting side decides. When the transport is enabled, it creates a memory mapped file holding one {@link MappedRingBuffer}
+ * per direction and sends its location over the socket. The connecting side maps the file and answers, after which the accepting side
+ * confirms or aborts the switch and deletes the file. The mapping stays valid until both processes let go of it. When the transport is disabled,
+ * the file cannot be created or mapped, or the connecting side does not answer in time, both sides carry on with a plain socket connection.</p>
+ *
+ * <p>The accepting side never waits for the connecting side for longer than the negotiation timeout, as it negotiates on the thread that accepts
+ * all connections.</p>
+ *
+ * <p>Both sides of a connection must negotiate, or neither of them. A process only negotiates when the transport is enabled for it,
+ * and a process that enables the transport tells the worker processes that it starts to negotiate as well.</p>
+ */
+public class SharedMemoryTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMemoryTransport.class);
+
+    /**
+     * The system property that enables the shared memory transport for the connections accepted by this process.
+     */
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.remote.shared-memory";
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    public static final int DEFAULT_NEGOTIATION_TIMEOUT_MILLIS = 10000;
+
+    private static final byte DECLINED = 0;
+    private static final byte OFFERED = 1;
+    private static final byte ACCEPTED = 1;
+    private static final byte ABORTED = 0;
+    private static final byte CONFIRMED = 1;
+    private static final File SHARED_MEMORY_DIR = new File("/dev/shm");
+
+    private final boolean enabled;
+    private final int bufferSize;
+    private final int negotiationTimeoutMillis;
+
+    public SharedMemoryTransport(boolean enabled, int bufferSize) {
+        this(enabled, bufferSize, DEFAULT_NEGOTIATION_TIMEOUT_MILLIS);
+    }
+
+    public SharedMemoryTransport(boolean enabled, int bufferSize, int negotiationTimeoutMillis) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException(String.format("Shared memory buffer size must be a power of 2, was %s.", bufferSize));
+        }
+        this.enabled = enabled;
+        this.bufferSize = bufferSize;
+        this.negotiationTimeoutMillis = negotiationTimeoutMillis;
+    }
+
+    /**
+     * Returns whether the transport is enabled for this process, which is only the case on Linux, on Java 8 or later and when the {@value #ENABLED_PROPERTY} system property is set.
+     */
+    public static boolean isEnabledBySystemProperties() {
+        return Boolean.getBoolean(ENABLED_PROPERTY) && OperatingSystem.current().isLinux() && MappedRingBuffer.isSupported();
+    }
+
+    /**
+     * Creates the transport for this process.
+     *
+     * @return the transport, or null when it is not enabled, in which case connections must not negotiate.
+     */
+    @Nullable
+    public static SharedMemoryTransport fromSystemProperties() {
+        return isEnabledBySystemProperties() ? new SharedMemoryTransport(true, DEFAULT_BUFFER_SIZE) : null;
+    }
+
+    /**
+     * Negotiates the transport on the accepting side of the connection.
+     *
+     * @return the connection to use, or null when the messages should be exchanged over a plain socket connection.
+     */
+    @Nullable
+    public <T> RemoteConnection<T> negotiateAsAcceptor(SocketChannel socket, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) throws IOException {
+        if (!enabled) {
+            writeFully(socket, DECLINED);
+            return null;
+        }
+
+        File file;
+        MappedByteBuffer memory;
+        try {
+            file = createFile();
+        } catch (IOException e) {
+            LOGGER.debug("Could not create shared memory file, falling back to socket connection.", e);
+            writeFully(socket, DECLINED);
+            return null;
+        }
+        try {
+            try {
+                memory = map(file, 2 * MappedRingBuffer.sizeFor(bufferSize), true);
+            } catch (IOException e) {
+                LOGGER.debug("Could not map shared memory file {}, falling back to socket connection.", file, e);
+                writeFully(socket, DECLINED);
+                return null;
+            }
+
+            byte[] path = file.getAbsolutePath().getBytes("UTF-8");
+            ByteBuffer offer = ByteBuffer.allocate(1 + 4 + 4 + path.length);
+            offer.put(OFFERED).putInt(bufferSize).putInt(path.length).put(path);
+            BufferCaster.cast(offer).flip();
+
+            byte answer;
+            try {
+                writeFully(socket, offer);
+                answer = readFully(socket, 1, deadline()).get();
+            } catch (IOException e) {
+                LOGGER.debug("Peer did not answer the shared memory offer, falling back to socket connection.", e);
+                try {
+                    writeFully(socket, ABORTED);
+                } catch (IOException abortFailure) {
+                    // The peer has gone away or stopped reading, which the socket connection reports in turn
+                    LOGGER.debug("Could not abort shared memory transport.", abortFailure);
+                }
+                // The answer of the peer, if it ever arrives, precedes its first message
+                return new SocketConnection<T>(socket, new SkippingMessageSerializer(streamSerializer, 1), messageSerializer);
+            }
+            if (answer != ACCEPTED) {
+                LOGGER.debug("Peer declined shared memory transport, falling back to socket connection.");
+                writeFully(socket, ABORTED);
+                return null;
+            }
+            writeFully(socket, CONFIRMED);
+        } finally {
+            file.delete();
+        }
+        return new SharedMemoryConnection<T>(socket, ring(memory, bufferSize, 1), ring(memory, bufferSize, 0), streamSerializer, messageSerializer);
+    }
+
+    /**
+     * Negotiates the transport on the connecting side of the connection.
+     *
+     * @return the shared memory connection, or null when the messages should be exchanged over the socket.
+     */
+    @Nullable
+    public <T> RemoteConnection<T> negotiateAsConnector(SocketChannel socket, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) throws IOException {
+        // The accepting side sends its offer when it creates its end of the connection, which it may do at any time
+        if (readFully(socket, 1, Long.MAX_VALUE).get() != OFFERED) {
+            return null;
+        }
+        ByteBuffer sizes = readFully(socket, 8, deadline());
+        int offeredBufferSize = sizes.getInt();
+        int pathLength = sizes.getInt();
+        File file = new File(new String(readFully(socket, pathLength, deadline()).array(), "UTF-8"));
+
+        if (!MappedRingBuffer.isSupported()) {
+            LOGGER.debug("Shared memory is not supported by this JVM, falling back to socket connection.");
+            return decline(socket);
+        }
+        MappedByteBuffer memory;
+        try {
+            memory = map(file, 2 * MappedRingBuffer.sizeFor(offeredBufferSize), false);
+        } catch (IOException e) {
+            LOGGER.debug("Could not map shared memory file {}, falling back to socket connection.", file, e);
+            return decline(socket);
+        }
+        writeFully(socket, ACCEPTED);
+        // The accepting side confirms, or aborts when our answer arrived too late.
+        // It decides immediately, so waiting twice its timeout is enough.
+        if (readFully(socket, 1, deadline() + TimeUnit.MILLISECONDS.toNanos(negotiationTimeoutMillis)).get() != CONFIRMED) {
+            LOGGER.debug("Peer aborted shared memory transport, falling back to socket connection.");
+            return null;
+        }
+        return new SharedMemoryConnection<T>(socket, ring(memory, offeredBufferSize, 0), ring(memory, offeredBufferSize, 1), streamSerializer, messageSerializer);
+    }
+
+    @Nullable
+    private <T> RemoteConnection<T> decline(SocketChannel socket) throws IOException {
+        writeFully(socket, DECLINED);
+        // The accepting side aborts in turn
+        readFully(socket, 1, deadline());
+        return null;
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(negotiationTimeoutMillis);
+    }
+
+    private static File createFile() throws IOException {
+        // Prefer a file system that is backed by memory, so that the pages are never written back to disk
+        File dir = SHARED_MEMORY_DIR.isDirectory() && SHARED_MEMORY_DIR.canWrite() ? SHARED_MEMORY_DIR : new File(System.getProperty("java.io.tmpdir"));
+        // Only the current user may access the messages, from the moment the file exists
+        FileAttribute<Set<PosixFilePermission>> ownerOnly = PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"));
+        try {
+            return Files.createTempFile(dir.toPath(), "gradle-messaging-", ".bin", ownerOnly).toFile();
+        } catch (UnsupportedOperationException e) {
+            throw new IOException(String.format("Could not create a file that only the current user can access in %s.", dir), e);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int size, boolean create) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (create) {
+                randomAccessFile.setLength(size);
+            } else if (randomAccessFile.length() != size) {
+                throw new IOException(String.format("Unexpected size of shared memory file %s.", file));
+            }
+            // The mapping stays valid after the file has been closed
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static MappedRingBuffer ring(ByteBuffer memory, int bufferSize, int index) {
+        int size = MappedRingBuffer.sizeFor(bufferSize);
+        return new MappedRingBuffer(MappedRingBuffer.slice(memory, index * size, size), bufferSize);
+    }
+
+    private void writeFully(SocketChannel socket, byte value) throws IOException {
+        writeFully(socket, ByteBuffer.wrap(new byte[]{value}));
+    }
+
+    private void writeFully(SocketChannel socket, ByteBuffer buffer) throws IOException {
+        long deadline = deadline();
+        Selector selector = null;
+        try {
+            while (buffer.hasRemaining()) {
+                if (socket.write(buffer) == 0) {
+                    if (selector == null) {
+                        selector = Selector.open();
+                        socket.register(selector, SelectionKey.OP_WRITE);
+                    }
+                    select(selector, deadline);
+                }
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    private static ByteBuffer readFully(SocketChannel socket, int length, long deadline) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        Selector selector = null;
+        try {
+            while (buffer.hasRemaining()) {
+                int nread = socket.read(buffer);
+                if (nread < 0) {
+                    throw new EOFException("Connection closed while negotiating the transport.");
+                }
+                if (nread == 0) {
+                    if (selector == null) {
+                        selector = Selector.open();
+                        socket.register(selector, SelectionKey.OP_READ);
+                    }
+                    select(selector, deadline);
+                }
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+        BufferCaster.cast(buffer).flip();
+        return buffer;
+    }
+
+    private static void select(Selector selector, long deadline) throws IOException {
+        if (deadline == Long.MAX_VALUE) {
+            selector.select();
+        } else {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new SocketTimeoutException("Timeout while negotiating the transport.");
+            }
+            selector.select(remainingMillis);
+        }
+        selector.selectedKeys().clear();
+    }
+
+    /**
+     * Discards the given number of bytes from the start of the stream before decoding messages.
+     */
+    private static class SkippingMessageSerializer implements MessageSerializer {
+        private final MessageSerializer delegate;
+        private final int count;
+
+        SkippingMessageSerializer(MessageSerializer delegate, int count) {
+            this.delegate = delegate;
+            this.count = count;
+        }
+
+        @Override
+        public Decoder newDecoder(InputStream inputStream) {
+            return delegate.newDecoder(new SkippingInputStream(inputStream, count));
+        }
+
+        @Override
+        public FlushableEncoder newEncoder(OutputStream outputStream) {
+            return delegate.newEncoder(outputStream);
+        }
+    }
+
+    private static class SkippingInputStream extends FilterInputStream {
+        private int remaining;
+
+        SkippingInputStream(InputStream in, int count) {
+            super(in);
+            this.remaining = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int nread = read(buffer, 0, 1);
+            return nread <= 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (remaining > 0) {
+                int nread = in.read(b, off, Math.min(len, remaining));
+                if (nread < 0) {
+                    return nread;
+                }
+                remaining -= nread;
+            }
+            return in.read(b, off, len);
+        }
+    }
+}
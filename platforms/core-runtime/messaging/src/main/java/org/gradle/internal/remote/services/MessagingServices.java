@@ -28,9 +28,11 @@
 import org.gradle.internal.remote.internal.inet.InetAddressFactory;
 import org.gradle.internal.remote.internal.inet.TcpIncomingConnector;
 import org.gradle.internal.remote.internal.inet.TcpOutgoingConnector;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.gradle.internal.service.Provides;
 import org.gradle.internal.service.ServiceRegistrationProvider;
 
+import javax.annotation.Nullable;
 import java.util.UUID;
 
 /**
@@ -46,6 +48,19 @@
  */
 public class MessagingServices implements ServiceRegistrationProvider {
     private final IdGenerator<UUID> idGenerator = new UUIDGenerator();
+    @Nullable
+    private final SharedMemoryTransport sharedMemoryTransport;
+
+    public MessagingServices() {
+        this(SharedMemoryTransport.fromSystemProperties());
+    }
+
+    /**
+     * @param sharedMemoryTransport the transport to negotiate for each connection, or null to use plain socket connections without negotiating.
+     */
+    public MessagingServices(@Nullable SharedMemoryTransport sharedMemoryTransport) {
+        this.sharedMemoryTransport = sharedMemoryTransport;
+    }
 
     @Provides
     protected InetAddressFactory createInetAddressFactory() {
@@ -54,7 +69,7 @@ protected InetAddressFactory createInetAddressFactory() {
 
     @Provides
     protected OutgoingConnector createOutgoingConnector() {
-        return new TcpOutgoingConnector();
+        return new TcpOutgoingConnector(sharedMemoryTransport);
     }
 
     @Provides
@@ -62,7 +77,8 @@ protected IncomingConnector createIncomingConnector(ExecutorFactory executorFact
         return new TcpIncomingConnector(
                 executorFactory,
                 inetAddressFactory,
-                idGenerator
+                idGenerator,
+                sharedMemoryTransport
         );
     }
 
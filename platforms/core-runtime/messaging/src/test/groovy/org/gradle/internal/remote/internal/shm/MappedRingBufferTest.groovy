@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class MappedRingBufferTest extends Specification {
+    def memory = ByteBuffer.allocateDirect(MappedRingBuffer.sizeFor(16))
+    def writer = new MappedRingBuffer(memory, 16)
+    def reader = new MappedRingBuffer(memory, 16)
+
+    def "reader receives bytes written by writer"() {
+        def dest = new byte[16]
+
+        expect:
+        reader.isEmpty()
+        reader.read(dest, 0, 16) == 0
+
+        when:
+        def written = writer.write([1, 2, 3] as byte[], 0, 3)
+
+        then:
+        written == 3
+        !reader.isEmpty()
+        reader.read(dest, 0, 16) == 3
+        dest[0..2] == [1, 2, 3] as byte[]
+        reader.isEmpty()
+    }
+
+    def "writer can only fill up the free space"() {
+        def src = (0..19).collect { it as byte } as byte[]
+        def dest = new byte[20]
+
+        expect:
+        writer.write(src, 0, 20) == 16
+        writer.isFull()
+        writer.write(src, 16, 4) == 0
+
+        and:
+        reader.read(dest, 0, 10) == 10
+        writer.write(src, 16, 4) == 4
+        reader.read(dest, 10, 10) == 10
+        dest as List == src as List
+    }
+
+    def "copies bytes that wrap around the end of the buffer"() {
+        def dest = new byte[12]
+
+        given:
+        writer.write(new byte[12], 0, 12)
+        reader.read(dest, 0, 12)
+
+        when:
+        writer.write((1..12).collect { it as byte } as byte[], 0, 12)
+
+        then:
+        reader.read(dest, 0, 12) == 12
+        dest as List == (1..12).collect { it as byte }
+    }
+
+    def "tracks state of both ends"() {
+        expect:
+        !reader.isWriterClosed()
+        !writer.isReaderClosed()
+        !writer.isReaderWaiting()
+
+        when:
+        writer.closeWriter()
+        reader.closeReader()
+        reader.setReaderWaiting(true)
+
+        then:
+        reader.isWriterClosed()
+        writer.isReaderClosed()
+        writer.isReaderWaiting()
+    }
+
+    def "capacity must be a power of 2"() {
+        when:
+        new MappedRingBuffer(ByteBuffer.allocate(MappedRingBuffer.sizeFor(10)), 10)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.shm
+
+import org.gradle.api.Action
+import org.gradle.internal.id.UUIDGenerator
+import org.gradle.internal.remote.internal.ConnectCompletion
+import org.gradle.internal.remote.internal.inet.InetAddressFactory
+import org.gradle.internal.remote.internal.inet.SocketConnection
+import org.gradle.internal.remote.internal.inet.TcpIncomingConnector
+import org.gradle.internal.remote.internal.inet.TcpOutgoingConnector
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.internal.serialize.Serializers
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.precondition.Requires
+import org.gradle.test.preconditions.UnitTestPreconditions
+import spock.lang.Shared
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+@Timeout(60)
+class SharedMemoryTransportTest extends ConcurrentSpec {
+    @Shared def serializer = Serializers.stateful(BaseSerializerFactory.STRING_SERIALIZER)
+    final def outgoingConnector = new TcpOutgoingConnector(new SharedMemoryTransport(false, 1024))
+
+    def incomingConnector(boolean enabled) {
+        return new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator(), new SharedMemoryTransport(enabled, 1024))
+    }
+
+    @Requires(UnitTestPreconditions.Linux)
+    def "uses shared memory when accepting side enables it"() {
+        def received
+
+        when:
+        def acceptor = incomingConnector(true).accept({ ConnectCompletion completion ->
+            def conn = completion.create(serializer)
+            conn.dispatch("hello")
+            conn.flush()
+            received = conn.receive()
+            conn.stop()
+            instant.closed
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection instanceof SharedMemoryConnection
+        connection.receive() == "hello"
+
+        when:
+        connection.dispatch("hi")
+        connection.flush()
+        thread.blockUntil.closed
+
+        then:
+        received == "hi"
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    def "uses socket when accepting side does not enable shared memory"() {
+        when:
+        def acceptor = incomingConnector(false).accept({ ConnectCompletion completion ->
+            def conn = completion.create(serializer)
+            conn.dispatch("hello")
+            conn.stop()
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection instanceof SocketConnection
+        connection.receive() == "hello"
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    @Requires(UnitTestPreconditions.Linux)
+    def "can exchange messages that are larger than the buffer"() {
+        def message = "0123456789" * 1000
+        def messages = (1..10).collect { message + it }
+
+        when:
+        def acceptor = incomingConnector(true).accept({ ConnectCompletion completion ->
+            def conn = completion.create(serializer)
+            messages.each { conn.dispatch(it) }
+            conn.stop()
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection instanceof SharedMemoryConnection
+        messages.every { connection.receive() == it }
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    @Requires(UnitTestPreconditions.Linux)
+    def "falls back to socket when peer does not answer and keeps accepting connections"() {
+        def accepted = new CopyOnWriteArrayList()
+        def incomingConnector = new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator(), new SharedMemoryTransport(true, 1024, 200))
+
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion completion ->
+            def conn = completion.create(serializer)
+            accepted << conn
+            conn.dispatch("hello")
+            conn.flush()
+        } as Action, false)
+        // Connects, but never negotiates
+        def silent = new TcpOutgoingConnector().connect(acceptor.address)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection instanceof SharedMemoryConnection
+        connection.receive() == "hello"
+        accepted[0] instanceof SocketConnection
+        accepted[1] instanceof SharedMemoryConnection
+
+        cleanup:
+        connection?.stop()
+        silent?.create(serializer)?.stop()
+        accepted*.stop()
+        acceptor?.stop()
+    }
+
+    @Requires(UnitTestPreconditions.Linux)
+    def "receive returns null when peer goes away"() {
+        def socket
+
+        when:
+        def acceptor = incomingConnector(true).accept({ ConnectCompletion completion ->
+            def conn = completion.create(serializer)
+            // Simulate the peer process crashing, without it marking its end of the shared memory as closed
+            socket = conn.socket
+            socket.close()
+            instant.closed
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+        thread.blockUntil.closed
+
+        then:
+        connection instanceof SharedMemoryConnection
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+}
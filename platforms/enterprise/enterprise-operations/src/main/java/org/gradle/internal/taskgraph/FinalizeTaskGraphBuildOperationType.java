@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Finalizing the execution plan for a given build in the build tree once all work has been scheduled,
+ * so that it is ready to execute.
+ *
+ * @since 8.12
+ */
+public final class FinalizeTaskGraphBuildOperationType implements BuildOperationType<FinalizeTaskGraphBuildOperationType.Details, FinalizeTaskGraphBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getBuildPath();
+
+    }
+
+    public interface Result {
+
+    }
+
+    private FinalizeTaskGraphBuildOperationType() {
+    }
+}
@@ -17,11 +17,14 @@
 package org.gradle.integtests.resolve.rocache
 
 import org.gradle.api.internal.artifacts.ivyservice.CacheLayout
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheStatisticsBuildOperationType
+import org.gradle.integtests.fixtures.BuildOperationsFixture
 import org.gradle.integtests.fixtures.UnsupportedWithConfigurationCache
 import org.gradle.test.fixtures.server.http.MavenHttpModule
 import org.gradle.test.fixtures.server.http.MavenHttpRepository
 
 class StaticVersionsReadOnlyCacheDependencyResolutionTest extends AbstractReadOnlyCacheDependencyResolutionTest {
+    def operations = new BuildOperationsFixture(executer, temporaryFolder)
 
     @Override
     boolean isPublishJavadocsAndSources() {
@@ -83,6 +86,48 @@ class StaticVersionsReadOnlyCacheDependencyResolutionTest extends AbstractReadOn
         assertNotInReadOnlyCache("other-1.0.jar")
     }
 
+    def "reports lookups per cache layer"() {
+        given:
+        def other = mavenHttpRepo.module('org.other', 'other', '1.0').withModuleMetadata().publish()
+        buildFile << """
+            dependencies {
+                implementation 'org.readonly:core:1.0'
+                implementation 'org.other:other:1.0'
+            }
+        """
+
+        when:
+        withReadOnlyCache()
+
+        other.pom.expectGet()
+        other.moduleMetadata.expectGet()
+        other.artifact.expectGet()
+
+        succeeds ':checkDeps'
+
+        then:
+        def caches = operations.only(DependencyCacheStatisticsBuildOperationType).result.caches as List<Map<String, ?>>
+        def metadata = caches.find { it.cache == 'module metadata' }
+        metadata.readOnlyHits > 0
+        metadata.misses > 0
+        caches.find { it.cache == 'artifacts' }.readOnlyHits > 0
+    }
+
+    def "does not report lookups per cache layer without a read-only cache"() {
+        given:
+        buildFile << """
+            dependencies {
+                implementation 'org.readonly:core:1.0'
+            }
+        """
+
+        when:
+        succeeds ':checkDeps'
+
+        then:
+        operations.none(DependencyCacheStatisticsBuildOperationType)
+    }
+
     @UnsupportedWithConfigurationCache(because = "task uses artifact resolution API")
     def "can recover from corrupt read-only cache (#file)"() {
         given:
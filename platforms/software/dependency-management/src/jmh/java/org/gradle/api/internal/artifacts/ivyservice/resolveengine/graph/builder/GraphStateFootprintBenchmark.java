@@ -0,0 +1,328 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
+import org.gradle.api.internal.artifacts.DependencyManagementTestUtil;
+import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DefaultExcludeRuleConverter;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DefaultLocalVariantGraphResolveStateBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyMetadataFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.LatestModuleConflictResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.attributes.AttributeDesugaring;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.immutable.ImmutableAttributesSchema;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector;
+import org.gradle.internal.component.external.model.ImmutableCapabilities;
+import org.gradle.internal.component.local.model.DefaultLocalVariantGraphResolveMetadata;
+import org.gradle.internal.component.local.model.DefaultLocalVariantGraphResolveState;
+import org.gradle.internal.component.local.model.LocalComponentGraphResolveMetadata;
+import org.gradle.internal.component.local.model.LocalComponentGraphResolveState;
+import org.gradle.internal.component.local.model.LocalComponentGraphResolveStateFactory;
+import org.gradle.internal.component.local.model.LocalVariantGraphResolveState;
+import org.gradle.internal.component.model.ComponentGraphSpecificResolveState;
+import org.gradle.internal.component.model.ComponentIdGenerator;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.GraphVariantSelector;
+import org.gradle.internal.component.model.LocalComponentDependencyMetadata;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.operations.TestBuildOperationExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.util.AttributeTestUtil;
+import org.gradle.util.TestUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the heap retained by the state of the dependency graph builder once it has resolved a large graph, and reports it as the
+ * {@code retainedBytesPerNode} secondary result.
+ *
+ * <p>The graph is a fixed-seed random DAG of components, where every component is reachable from the root and depends on a few components
+ * created after it. The metadata of the components is created up front and is not part of the measurement, so the result is the heap held by
+ * the nodes, edges, components, modules and selectors of the resolved graph.</p>
+ *
+ * <p>The benchmark only uses the public API of the builder, so it can be run against earlier versions of the builder to compare them.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class GraphStateFootprintBenchmark {
+
+    @Param({"5000"})
+    int nodes;
+
+    @Param({"4"})
+    int dependenciesPerNode;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private DependencyGraphBuilder builder;
+    private RootComponentMetadataBuilder.RootComponentState rootComponent;
+    private final Map<ModuleIdentifier, LocalComponentGraphResolveState> componentsByModule = new HashMap<>();
+    private final Map<ComponentIdentifier, LocalComponentGraphResolveState> componentsById = new HashMap<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerNode;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytesPerNode = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        AttributeDesugaring desugaring = new AttributeDesugaring(AttributeTestUtil.attributesFactory());
+        LocalComponentGraphResolveStateFactory stateFactory = new LocalComponentGraphResolveStateFactory(
+            desugaring,
+            new ComponentIdGenerator(),
+            new DefaultLocalVariantGraphResolveStateBuilder(new ComponentIdGenerator(), new UnusedDependencyMetadataFactory(), new DefaultExcludeRuleConverter(new DefaultImmutableModuleIdentifierFactory())),
+            TestUtil.calculatedValueContainerFactory(),
+            TestUtil.inMemoryCacheFactory()
+        );
+        DefaultVersionComparator versionComparator = new DefaultVersionComparator();
+        builder = new DependencyGraphBuilder(
+            new ModuleExclusions(),
+            AttributeTestUtil.attributesFactory(),
+            AttributeTestUtil.services(),
+            desugaring,
+            new DefaultVersionSelectorScheme(versionComparator, new VersionParser()),
+            versionComparator,
+            new ComponentIdGenerator(),
+            new VersionParser(),
+            new GraphVariantSelector(AttributeTestUtil.services(), DependencyManagementTestUtil.newFailureHandler()),
+            new TestBuildOperationExecutor(),
+            new DefaultInternalOptions(Collections.emptyMap())
+        );
+
+        // Every component has a parent created before it, so every component is reachable from the root
+        Random random = new Random(42);
+        List<ModuleVersionIdentifier> ids = new ArrayList<>(nodes);
+        List<List<LocalOriginDependencyMetadata>> dependencies = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            ids.add(DefaultModuleVersionIdentifier.newId(DefaultModuleIdentifier.newId("org.group" + (i % 50), "module" + i), "1." + (i % 10)));
+            dependencies.add(new ArrayList<>());
+        }
+        for (int i = 1; i < nodes; i++) {
+            dependencies.get(random.nextInt(i)).add(dependencyOn(ids.get(i)));
+        }
+        for (int i = 0; i < nodes - 1; i++) {
+            int remaining = nodes - i - 1;
+            int count = Math.min(remaining, random.nextInt(dependenciesPerNode * 2));
+            for (int j = 0; j < count; j++) {
+                dependencies.get(i).add(dependencyOn(ids.get(i + 1 + random.nextInt(remaining))));
+            }
+        }
+
+        for (int i = 0; i < nodes; i++) {
+            ModuleVersionIdentifier id = ids.get(i);
+            ModuleComponentIdentifier componentId = DefaultModuleComponentIdentifier.newId(id);
+            LocalComponentGraphResolveState component = stateFactory.realizedStateFor(
+                new LocalComponentGraphResolveMetadata(id, componentId, "release", ImmutableAttributesSchema.EMPTY),
+                Collections.singletonList(variant(stateFactory, componentId, "default", dependencies.get(i)))
+            );
+            componentsByModule.put(id.getModule(), component);
+            componentsById.put(componentId, component);
+        }
+
+        ModuleVersionIdentifier rootId = DefaultModuleVersionIdentifier.newId(DefaultModuleIdentifier.newId("org.group", "root"), "1.0");
+        ModuleComponentIdentifier rootComponentId = DefaultModuleComponentIdentifier.newId(rootId);
+        LocalVariantGraphResolveState rootVariant = variant(stateFactory, rootComponentId, "root", Collections.singletonList(dependencyOn(ids.get(0))));
+        LocalComponentGraphResolveState root = stateFactory.realizedStateFor(
+            new LocalComponentGraphResolveMetadata(rootId, rootComponentId, "release", ImmutableAttributesSchema.EMPTY),
+            Collections.singletonList(rootVariant)
+        );
+        rootComponent = new RootComponentMetadataBuilder.RootComponentState() {
+            @Override
+            public LocalComponentGraphResolveState getRootComponent() {
+                return root;
+            }
+
+            @Override
+            public LocalVariantGraphResolveState getRootVariant() {
+                return rootVariant;
+            }
+        };
+    }
+
+    @Benchmark
+    public Object resolveGraph(Footprint footprint) {
+        RetainingGraphVisitor visitor = new RetainingGraphVisitor();
+        long before = usedHeapAfterGc();
+        builder.resolve(
+            rootComponent,
+            Collections.emptyList(),
+            dependency -> true,
+            new ModuleSelectorConverter(),
+            new GeneratedGraphIdResolver(),
+            new GeneratedGraphMetadataResolver(),
+            ModuleReplacementsData.NO_OP,
+            DependencySubstitutionApplicator.NO_OP,
+            new LatestModuleConflictResolver<>(new DefaultVersionComparator(), new VersionParser()),
+            Collections.emptyList(),
+            ConflictResolution.latest,
+            false,
+            false,
+            visitor
+        );
+        long after = usedHeapAfterGc();
+        if (visitor.nodes != nodes + 1) {
+            throw new IllegalStateException("Expected " + (nodes + 1) + " nodes in the resolved graph, got " + visitor.nodes);
+        }
+        footprint.retainedBytesPerNode = (after - before) / visitor.nodes;
+        return visitor.root;
+    }
+
+    private long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static LocalOriginDependencyMetadata dependencyOn(ModuleVersionIdentifier id) {
+        ModuleComponentSelector selector = DefaultModuleComponentSelector.newSelector(id.getModule(), id.getVersion());
+        return new LocalComponentDependencyMetadata(selector, "default", Collections.emptyList(), Collections.emptyList(), false, false, true, false, false, null);
+    }
+
+    private static LocalVariantGraphResolveState variant(LocalComponentGraphResolveStateFactory stateFactory, ComponentIdentifier componentId, String name, List<LocalOriginDependencyMetadata> dependencies) {
+        return stateFactory.realizedVariantStateFor(
+            componentId,
+            new DefaultLocalVariantGraphResolveMetadata(name, true, ImmutableAttributes.EMPTY, ImmutableCapabilities.EMPTY, false),
+            new DefaultLocalVariantGraphResolveState.VariantDependencyMetadata(dependencies, Collections.emptySet(), Collections.emptyList()),
+            ImmutableSet.of()
+        );
+    }
+
+    /**
+     * Keeps the root of the resolved graph, and through it the whole state of the builder, reachable while the heap is measured.
+     */
+    private static class RetainingGraphVisitor implements DependencyGraphVisitor {
+        RootGraphNode root;
+        int nodes;
+
+        @Override
+        public void start(RootGraphNode root) {
+            this.root = root;
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            nodes++;
+        }
+    }
+
+    private class GeneratedGraphIdResolver implements DependencyToComponentIdResolver {
+        @Override
+        public void resolve(DependencyMetadata dependency, VersionSelector acceptor, @Nullable VersionSelector rejector, BuildableComponentIdResolveResult result) {
+            ModuleComponentSelector selector = (ModuleComponentSelector) dependency.getSelector();
+            LocalComponentGraphResolveState component = componentsByModule.get(selector.getModuleIdentifier());
+            result.resolved(component.getId(), component.getMetadata().getModuleVersionId());
+        }
+    }
+
+    private class GeneratedGraphMetadataResolver implements ComponentMetaDataResolver {
+        @Override
+        public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+            result.resolved(componentsById.get(identifier), ComponentGraphSpecificResolveState.EMPTY_STATE);
+        }
+
+        @Override
+        public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+            return true;
+        }
+    }
+
+    private static class ModuleSelectorConverter implements ComponentSelectorConverter {
+        @Override
+        public ModuleIdentifier getModule(ComponentSelector selector) {
+            return ((ModuleComponentSelector) selector).getModuleIdentifier();
+        }
+
+        @Override
+        public ModuleVersionSelector getSelector(ComponentSelector selector) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class UnusedDependencyMetadataFactory implements DependencyMetadataFactory {
+        @Override
+        public LocalOriginDependencyMetadata createDependencyMetadata(ModuleDependency dependency) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LocalOriginDependencyMetadata createDependencyConstraintMetadata(DependencyConstraint dependencyConstraint) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, for each of the persistent dependency caches, how many lookups were served by the read-only cache layer,
+ * by the writable cache, or by neither of them, over the lifetime of a build tree.
+ *
+ * <p>Only lookups going through a read-only cache layer are counted, so all counts stay at zero when no read-only cache is configured.</p>
+ */
+@ServiceScope(Scope.BuildTree.class)
+public class DependencyCacheLayerStatistics {
+
+    public enum CacheType {
+        MODULE_VERSIONS("module versions"),
+        MODULE_METADATA("module metadata"),
+        MODULE_ARTIFACTS("module artifacts"),
+        ARTIFACTS("artifacts"),
+        EXTERNAL_RESOURCES("external resources");
+
+        private final String displayName;
+
+        CacheType(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final Map<CacheType, Counters> counters = new EnumMap<>(CacheType.class);
+
+    public DependencyCacheLayerStatistics() {
+        for (CacheType cacheType : CacheType.values()) {
+            counters.put(cacheType, new Counters());
+        }
+    }
+
+    public void readOnlyHit(CacheType cacheType) {
+        counters.get(cacheType).readOnlyHits.increment();
+    }
+
+    public void writableHit(CacheType cacheType) {
+        counters.get(cacheType).writableHits.increment();
+    }
+
+    public void miss(CacheType cacheType) {
+        counters.get(cacheType).misses.increment();
+    }
+
+    /**
+     * Records the outcome of a lookup in the read-only cache, made after the writable cache had no entry.
+     */
+    @Nullable
+    public <T> T readOnlyLookup(CacheType cacheType, @Nullable T readOnlyEntry) {
+        if (readOnlyEntry != null) {
+            readOnlyHit(cacheType);
+        } else {
+            miss(cacheType);
+        }
+        return readOnlyEntry;
+    }
+
+    /**
+     * Records the outcome of a lookup that consulted both layers, where an entry of the writable cache takes precedence.
+     */
+    @Nullable
+    public <T> T record(CacheType cacheType, @Nullable T readOnlyEntry, @Nullable T writableEntry) {
+        if (writableEntry != null) {
+            writableHit(cacheType);
+            return writableEntry;
+        }
+        return readOnlyLookup(cacheType, readOnlyEntry);
+    }
+
+    public boolean hasLookups() {
+        for (Counters value : counters.values()) {
+            if (value.readOnlyHits.sum() + value.writableHits.sum() + value.misses.sum() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ImmutableList<DependencyCacheStatisticsBuildOperationType.CacheLayerHits> snapshot() {
+        ImmutableList.Builder<DependencyCacheStatisticsBuildOperationType.CacheLayerHits> builder = ImmutableList.builder();
+        for (Map.Entry<CacheType, Counters> entry : counters.entrySet()) {
+            builder.add(new DefaultCacheLayerHits(entry.getKey().getDisplayName(), entry.getValue()));
+        }
+        return builder.build();
+    }
+
+    private static class Counters {
+        private final LongAdder readOnlyHits = new LongAdder();
+        private final LongAdder writableHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    private static class DefaultCacheLayerHits implements DependencyCacheStatisticsBuildOperationType.CacheLayerHits {
+        private final String cache;
+        private final long readOnlyHits;
+        private final long writableHits;
+        private final long misses;
+
+        DefaultCacheLayerHits(String cache, Counters counters) {
+            this.cache = cache;
+            this.readOnlyHits = counters.readOnlyHits.sum();
+            this.writableHits = counters.writableHits.sum();
+            this.misses = counters.misses.sum();
+        }
+
+        @Override
+        public String getCache() {
+            return cache;
+        }
+
+        @Override
+        public long getReadOnlyHits() {
+            return readOnlyHits;
+        }
+
+        @Override
+        public long getWritableHits() {
+            return writableHits;
+        }
+
+        @Override
+        public long getMisses() {
+            return misses;
+        }
+    }
+}
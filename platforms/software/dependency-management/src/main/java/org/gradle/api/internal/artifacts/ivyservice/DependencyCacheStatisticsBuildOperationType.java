@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import java.util.List;
+
+/**
+ * Reports, at the end of a build that uses a read-only dependency cache, how the lookups in each persistent dependency cache were served.
+ *
+ * @since 8.12
+ */
+public final class DependencyCacheStatisticsBuildOperationType implements BuildOperationType<DependencyCacheStatisticsBuildOperationType.Details, DependencyCacheStatisticsBuildOperationType.Result> {
+
+    public static final String DISPLAY_NAME = "Dependency cache statistics";
+
+    public interface Details {
+        Details INSTANCE = new Details() {};
+    }
+
+    public interface Result {
+
+        /**
+         * The number of lookups per cache and per layer.
+         */
+        List<CacheLayerHits> getCaches();
+
+    }
+
+    public interface CacheLayerHits {
+
+        /**
+         * The name of the cache, for example {@code module metadata}.
+         */
+        String getCache();
+
+        /**
+         * The number of lookups served by the read-only cache.
+         */
+        long getReadOnlyHits();
+
+        /**
+         * The number of lookups served by the writable cache.
+         */
+        long getWritableHits();
+
+        /**
+         * The number of lookups that neither cache could serve.
+         */
+        long getMisses();
+
+    }
+
+    private DependencyCacheStatisticsBuildOperationType() {
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.util.List;
+
+/**
+ * Emits a {@link DependencyCacheStatisticsBuildOperationType} operation at the end of a root build that looked up entries through a read-only dependency cache.
+ *
+ * <p>This is registered as a build tree service, so that it is attached to the {@link RootBuildLifecycleListener} broadcast before the root build starts.</p>
+ */
+@ServiceScope(Scope.BuildTree.class)
+public class DependencyCacheStatisticsReporter implements RootBuildLifecycleListener {
+    private final DependencyCacheLayerStatistics statistics;
+    private final BuildOperationRunner buildOperationRunner;
+
+    public DependencyCacheStatisticsReporter(DependencyCacheLayerStatistics statistics, BuildOperationRunner buildOperationRunner) {
+        this.statistics = statistics;
+        this.buildOperationRunner = buildOperationRunner;
+    }
+
+    @Override
+    public void afterStart() {
+    }
+
+    @Override
+    public void beforeComplete() {
+        if (!statistics.hasLookups()) {
+            return;
+        }
+        buildOperationRunner.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                List<DependencyCacheStatisticsBuildOperationType.CacheLayerHits> caches = statistics.snapshot();
+                context.setResult((DependencyCacheStatisticsBuildOperationType.Result) () -> caches);
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName(DependencyCacheStatisticsBuildOperationType.DISPLAY_NAME)
+                    .details(DependencyCacheStatisticsBuildOperationType.Details.INSTANCE);
+            }
+        });
+    }
+}
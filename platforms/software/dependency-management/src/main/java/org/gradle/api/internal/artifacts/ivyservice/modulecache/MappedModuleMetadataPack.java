@@ -0,0 +1,658 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.collect.Interner;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * A single append-only file of module descriptors, memory mapped for reading, that sits in front of the per-module descriptor files of a {@link ModuleMetadataStore}.
+ *
+ * <p>The file starts with a header identifying the generation of the pack, followed by a sequence of records. String records add an entry to a string table shared by
+ * all the descriptors of the file, so group, module, version and attribute strings are stored once. Descriptor records hold the metadata of a module encoded with
+ * {@link ModuleMetadataSerializer}, with every string replaced by its index in that table. Opening the pack only walks the record headers and keys: strings are decoded
+ * when first used and descriptors when requested. Records appended later by another process are mapped separately, and records appended by this process are indexed from
+ * memory, so the file is never mapped again as a whole.</p>
+ *
+ * <p>Each descriptor record remembers the length and modification time of the descriptor file it was copied from, and is ignored when the file has changed since,
+ * so the per-module files remain the source of truth. This only costs a file system lookup per read, unlike hashing the descriptor file. The store deletes and writes
+ * a descriptor file again when it changes, so a change is only missed when the new file has the same length and is written within the resolution of file timestamps.
+ * Any failure to read or write the pack disables it for the rest of the build, and the store falls back to the descriptor files.</p>
+ *
+ * <p>Replaced descriptors, and descriptors whose file has been deleted, are dropped by compacting the pack. This happens when most of the pack is no longer used, and
+ * whenever the artifact cache is cleaned up. Compaction writes a new file with a new generation, which atomically replaces the pack: other processes keep reading the
+ * file they have mapped, and start over with the new file once they notice the change of generation.</p>
+ *
+ * <p>All modifications of the file must happen while holding the artifact cache lock, which guarantees that no other process modifies the file at the same time.
+ * Descriptors are decoded without holding the lock of the pack, so several threads can read from the pack at the same time.</p>
+ */
+class MappedModuleMetadataPack {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedModuleMetadataPack.class);
+
+    private static final int MAGIC = 0x47_4D_50_03;
+    private static final int FILE_HEADER_SIZE = 4 + 8;
+    private static final byte STRING_RECORD = 1;
+    private static final byte DESCRIPTOR_RECORD = 2;
+    private static final int RECORD_HEADER_SIZE = 1 + 4;
+    private static final int NULL_STRING = 0;
+    // Smaller packs are never compacted automatically
+    private static final long MIN_COMPACTION_SIZE = 4 * 1024 * 1024;
+
+    private final File file;
+    private final Predicate<String> isLive;
+    private final ModuleMetadataSerializer moduleMetadataSerializer;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final Interner<String> stringInterner;
+
+    private Index index = new Index();
+    private Map<String, Integer> stringIndices;
+    private boolean opened;
+    private boolean disabled;
+
+    /**
+     * @param isLive whether the descriptor file with the given key still exists. Descriptors whose file no longer exists are dropped when the pack is compacted.
+     */
+    MappedModuleMetadataPack(File file, Predicate<String> isLive, ModuleMetadataSerializer moduleMetadataSerializer, ImmutableModuleIdentifierFactory moduleIdentifierFactory, Interner<String> stringInterner) {
+        this.file = file;
+        this.isLive = isLive;
+        this.moduleMetadataSerializer = moduleMetadataSerializer;
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+        this.stringInterner = stringInterner;
+    }
+
+    /**
+     * Returns the descriptor stored for the given key, or null when the pack has no up-to-date copy of the descriptor file.
+     */
+    @Nullable
+    MutableModuleComponentResolveMetadata read(String key, LocallyAvailableResource descriptorFile) {
+        Descriptor descriptor;
+        StringTable strings;
+        synchronized (this) {
+            if (disabled) {
+                return null;
+            }
+            try {
+                open();
+                descriptor = index.descriptors.get(key);
+                if (descriptor == null && file.length() > index.end) {
+                    // Another process has appended to the pack since it was last scanned
+                    scan();
+                    descriptor = index.descriptors.get(key);
+                }
+            } catch (Exception e) {
+                disable(e);
+                return null;
+            }
+            if (descriptor == null) {
+                return null;
+            }
+            strings = index.strings;
+        }
+
+        // Records are never modified once indexed, so the descriptor can be decoded without holding the lock
+        try {
+            if (!descriptor.isCopyOf(descriptorFile)) {
+                return null;
+            }
+            try (PooledStringDecoder decoder = new PooledStringDecoder(new ByteBufferInputStream(descriptor.metadata()), strings)) {
+                return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, new HashMap<>());
+            }
+        } catch (Exception e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    /**
+     * Appends a copy of the given descriptor file to the pack.
+     */
+    synchronized void append(String key, LocallyAvailableResource descriptorFile, ModuleComponentResolveMetadata metadata) {
+        if (disabled) {
+            return;
+        }
+        try {
+            open();
+            // New strings are numbered after the strings appended by other processes
+            scan();
+            if (stringIndices == null) {
+                stringIndices = new HashMap<>(index.strings.count * 2);
+                addStringIndices(0);
+            }
+
+            List<String> newStrings = new ArrayList<>();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            File descriptor = descriptorFile.getFile();
+            DataOutputStream header = new DataOutputStream(payload);
+            header.writeInt(keyBytes.length);
+            header.write(keyBytes);
+            header.writeLong(descriptor.length());
+            header.writeLong(descriptor.lastModified());
+            header.flush();
+            try (PooledStringEncoder encoder = new PooledStringEncoder(payload, newStrings)) {
+                moduleMetadataSerializer.write(encoder, metadata, new HashMap<>());
+            }
+
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (String newString : newStrings) {
+                writeRecord(records, STRING_RECORD, newString.getBytes(StandardCharsets.UTF_8));
+            }
+            writeRecord(records, DESCRIPTOR_RECORD, payload.toByteArray());
+            byte[] recordBytes = records.toByteArray();
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (index.end == 0) {
+                    channel.truncate(0);
+                    index.generation = newGeneration();
+                    index.end = writeFully(channel, fileHeader(index.generation), 0);
+                } else {
+                    // Drop any partially written record left behind by a process that crashed while appending
+                    channel.truncate(index.end);
+                }
+                writeFully(channel, ByteBuffer.wrap(recordBytes), index.end);
+            }
+
+            // Index the new records from memory rather than mapping the file again
+            int stringCount = index.strings.count;
+            index.end += index.addRecords(ByteBuffer.wrap(recordBytes));
+            addStringIndices(stringCount);
+
+            if (index.needsCompaction()) {
+                compact();
+            }
+        } catch (Exception e) {
+            disable(e);
+        }
+    }
+
+    private void open() throws IOException {
+        if (!opened) {
+            opened = true;
+            scan();
+            if (index.needsCompaction()) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Indexes the records appended to the file since it was last scanned.
+     */
+    private void scan() throws IOException {
+        int stringCount = index.strings.count;
+        if (!index.update(file)) {
+            // The pack has been compacted or recreated by another process
+            reset();
+            stringCount = 0;
+            if (!index.update(file)) {
+                // Written by a different version of the pack format. The pack only holds copies of the descriptor files, so start over
+                Files.deleteIfExists(file.toPath());
+                reset();
+                return;
+            }
+        }
+        addStringIndices(stringCount);
+    }
+
+    private void compact() {
+        if (compact(file, index, isLive)) {
+            reset();
+            try {
+                scan();
+            } catch (IOException e) {
+                disable(e);
+            }
+        }
+    }
+
+    private void reset() {
+        index = new Index();
+        stringIndices = null;
+    }
+
+    private void addStringIndices(int from) {
+        if (stringIndices != null) {
+            StringTable strings = index.strings;
+            for (int i = from; i < strings.count; i++) {
+                stringIndices.put(strings.get(i, stringInterner), i);
+            }
+        }
+    }
+
+    private synchronized void disable(Exception e) {
+        LOGGER.debug("Could not use metadata pack {}, falling back to descriptor files.", file, e);
+        disabled = true;
+        reset();
+    }
+
+    /**
+     * Compacts the given pack, dropping the descriptors whose file no longer exists in the given directory.
+     *
+     * <p>Must be called while holding the artifact cache lock.</p>
+     */
+    static void compact(File file, File descriptorsDirectory) {
+        try {
+            Index index = new Index();
+            if (file.isFile() && index.update(file) && index.end > 0) {
+                compact(file, index, key -> new File(descriptorsDirectory, key).isFile());
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not compact metadata pack {}.", file, e);
+        }
+    }
+
+    /**
+     * Writes the strings and the latest live copy of each descriptor of the given index to a new file, which then replaces the pack.
+     *
+     * <p>Strings are kept as they are referenced by index, even when no descriptor uses them anymore. When these strings take more space than the descriptors,
+     * the pack is emptied instead, and fills up again as descriptors are read from their files.</p>
+     *
+     * @return whether the pack was replaced.
+     */
+    private static boolean compact(File file, Index index, Predicate<String> isLive) {
+        File tempFile = new File(file.getParentFile(), file.getName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long position = writeFully(channel, fileHeader(newGeneration()), 0);
+                if (index.stringBytes <= index.descriptorBytes) {
+                    StringTable strings = index.strings;
+                    for (int i = 0; i < strings.count; i++) {
+                        position = writeRecord(channel, STRING_RECORD, strings.bytes(i), position);
+                    }
+                    for (Map.Entry<String, Descriptor> entry : index.descriptors.entrySet()) {
+                        if (isLive.test(entry.getKey())) {
+                            position = writeRecord(channel, DESCRIPTOR_RECORD, entry.getValue().payload(), position);
+                        }
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            // For example on Windows, where a file cannot be replaced while it is mapped
+            LOGGER.debug("Could not compact metadata pack {}.", file, e);
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile.toPath());
+            } catch (IOException e) {
+                LOGGER.debug("Could not delete {}.", tempFile, e);
+            }
+        }
+    }
+
+    private static long newGeneration() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private static ByteBuffer fileHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putLong(generation);
+        header.flip();
+        return header;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    private static long writeRecord(FileChannel channel, byte type, ByteBuffer payload, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.put(type);
+        header.putInt(payload.remaining());
+        header.flip();
+        return writeFully(channel, payload, writeFully(channel, header, position));
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte type, byte[] payload) {
+        out.write(type);
+        writeInt(out, payload.length);
+        out.write(payload, 0, payload.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * The strings and descriptors found in the records of one generation of the pack.
+     */
+    private static class Index {
+        private final Map<String, Descriptor> descriptors = new HashMap<>();
+        private StringTable strings = new StringTable(1024);
+        private long generation;
+        // The end of the last complete record, or 0 when nothing has been read yet
+        private long end;
+        private long stringBytes;
+        // The size of the latest record of each descriptor
+        private long descriptorBytes;
+
+        /**
+         * Indexes the records added to the file since it was last scanned.
+         *
+         * @return false when the file has been replaced since it was last scanned, or has an unknown format.
+         */
+        boolean update(File file) throws IOException {
+            if (!file.exists()) {
+                return end == 0;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < FILE_HEADER_SIZE) {
+                    return end == 0;
+                }
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                while (header.hasRemaining()) {
+                    if (channel.read(header, header.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                header.flip();
+                if (header.getInt() != MAGIC) {
+                    return false;
+                }
+                long fileGeneration = header.getLong();
+                if (end == 0) {
+                    generation = fileGeneration;
+                    end = FILE_HEADER_SIZE;
+                } else if (fileGeneration != generation || size < end) {
+                    return false;
+                }
+                while (end + RECORD_HEADER_SIZE <= size) {
+                    // Records never span regions, so map the new records in as few regions as possible
+                    long regionSize = Math.min(size - end, Integer.MAX_VALUE);
+                    int indexed = addRecords(channel.map(FileChannel.MapMode.READ_ONLY, end, regionSize));
+                    end += indexed;
+                    if (indexed == 0 || regionSize < Integer.MAX_VALUE) {
+                        break;
+                    }
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Indexes the complete records at the start of the given region.
+         *
+         * @return the size of the indexed records.
+         */
+        int addRecords(ByteBuffer region) throws IOException {
+            int position = 0;
+            while (position + RECORD_HEADER_SIZE <= region.limit()) {
+                byte type = region.get(position);
+                int length = region.getInt(position + 1);
+                int payloadOffset = position + RECORD_HEADER_SIZE;
+                if (length < 0 || payloadOffset + (long) length > region.limit()) {
+                    // Partially written record
+                    break;
+                }
+                if (type == STRING_RECORD) {
+                    strings = strings.add(region, payloadOffset, length);
+                    stringBytes += RECORD_HEADER_SIZE + length;
+                } else if (type == DESCRIPTOR_RECORD) {
+                    addDescriptor(region, payloadOffset, length);
+                } else {
+                    throw new IOException("Unexpected record of type " + type + " in metadata pack.");
+                }
+                position = payloadOffset + length;
+            }
+            return position;
+        }
+
+        private void addDescriptor(ByteBuffer region, int offset, int length) {
+            // The payload starts with the key, followed by the length and modification time of the descriptor file and the encoded metadata
+            ByteBuffer buffer = region.duplicate();
+            buffer.position(offset);
+            byte[] keyBytes = new byte[buffer.getInt()];
+            buffer.get(keyBytes);
+            long descriptorLength = buffer.getLong();
+            long descriptorLastModified = buffer.getLong();
+            Descriptor descriptor = new Descriptor(region, offset, length, buffer.position(), descriptorLength, descriptorLastModified);
+            Descriptor previous = descriptors.put(new String(keyBytes, StandardCharsets.UTF_8), descriptor);
+            descriptorBytes += RECORD_HEADER_SIZE + length;
+            if (previous != null) {
+                descriptorBytes -= RECORD_HEADER_SIZE + previous.length;
+            }
+        }
+
+        /**
+         * Whether most of the pack is taken by replaced descriptors, or by strings.
+         */
+        boolean needsCompaction() {
+            long replacedBytes = end - FILE_HEADER_SIZE - stringBytes - descriptorBytes;
+            return end >= MIN_COMPACTION_SIZE && (replacedBytes > descriptorBytes || stringBytes > descriptorBytes);
+        }
+    }
+
+    /**
+     * The string table of a pack. Strings are only ever added, and a table that runs out of capacity is copied, so a reader can keep using
+     * the table it started with while strings are added.
+     */
+    private static class StringTable {
+        private final ByteBuffer[] regions;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final String[] decoded;
+        private int count;
+
+        StringTable(int capacity) {
+            this(new ByteBuffer[capacity], new int[capacity], new int[capacity], new String[capacity], 0);
+        }
+
+        private StringTable(ByteBuffer[] regions, int[] offsets, int[] lengths, String[] decoded, int count) {
+            this.regions = regions;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.decoded = decoded;
+            this.count = count;
+        }
+
+        StringTable add(ByteBuffer region, int offset, int length) {
+            StringTable table = this;
+            if (count == offsets.length) {
+                int capacity = count * 2;
+                table = new StringTable(Arrays.copyOf(regions, capacity), Arrays.copyOf(offsets, capacity), Arrays.copyOf(lengths, capacity), Arrays.copyOf(decoded, capacity), count);
+            }
+            table.regions[count] = region;
+            table.offsets[count] = offset;
+            table.lengths[count] = length;
+            table.count++;
+            return table;
+        }
+
+        ByteBuffer bytes(int index) {
+            ByteBuffer buffer = regions[index].duplicate();
+            buffer.position(offsets[index]).limit(offsets[index] + lengths[index]);
+            return buffer;
+        }
+
+        String get(int index, Interner<String> stringInterner) {
+            // Decoding a string twice when reading from several threads is harmless
+            String value = decoded[index];
+            if (value == null) {
+                ByteBuffer buffer = bytes(index);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                value = stringInterner.intern(new String(bytes, StandardCharsets.UTF_8));
+                decoded[index] = value;
+            }
+            return value;
+        }
+    }
+
+    private static class Descriptor {
+        private final ByteBuffer region;
+        private final int offset;
+        private final int length;
+        private final int metadataOffset;
+        private final long descriptorLength;
+        private final long descriptorLastModified;
+
+        Descriptor(ByteBuffer region, int offset, int length, int metadataOffset, long descriptorLength, long descriptorLastModified) {
+            this.region = region;
+            this.offset = offset;
+            this.length = length;
+            this.metadataOffset = metadataOffset;
+            this.descriptorLength = descriptorLength;
+            this.descriptorLastModified = descriptorLastModified;
+        }
+
+        boolean isCopyOf(LocallyAvailableResource descriptorFile) {
+            File file = descriptorFile.getFile();
+            return file.length() == descriptorLength && file.lastModified() == descriptorLastModified;
+        }
+
+        ByteBuffer payload() {
+            ByteBuffer buffer = region.duplicate();
+            buffer.position(offset).limit(offset + length);
+            return buffer;
+        }
+
+        ByteBuffer metadata() {
+            ByteBuffer buffer = region.duplicate();
+            buffer.position(metadataOffset).limit(offset + length);
+            return buffer;
+        }
+    }
+
+    /**
+     * Writes strings as indices in the string table of the pack, collecting the strings that are not yet part of it.
+     */
+    private class PooledStringEncoder extends KryoBackedEncoder {
+        private final List<String> newStrings;
+
+        PooledStringEncoder(OutputStream outputStream, List<String> newStrings) {
+            super(outputStream);
+            this.newStrings = newStrings;
+        }
+
+        @Override
+        public void writeString(CharSequence value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Cannot encode a null string.");
+            }
+            writeNullableString(value);
+        }
+
+        @Override
+        public void writeNullableString(@Nullable CharSequence value) {
+            if (value == null) {
+                writeSmallInt(NULL_STRING);
+                return;
+            }
+            String key = value.toString();
+            Integer index = stringIndices.get(key);
+            if (index == null) {
+                index = MappedModuleMetadataPack.this.index.strings.count + newStrings.size();
+                newStrings.add(key);
+                stringIndices.put(key, index);
+            }
+            writeSmallInt(index + 1);
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            // The new strings are indexed again once they have been written to the file
+            for (String newString : newStrings) {
+                stringIndices.remove(newString);
+            }
+        }
+    }
+
+    private class PooledStringDecoder extends KryoBackedDecoder {
+        private final StringTable strings;
+
+        PooledStringDecoder(InputStream inputStream, StringTable strings) {
+            super(inputStream);
+            this.strings = strings;
+        }
+
+        @Override
+        public String readString() throws EOFException {
+            return readNullableString();
+        }
+
+        @Override
+        @Nullable
+        public String readNullableString() throws EOFException {
+            int index = readSmallInt();
+            return index == NULL_STRING ? null : strings.get(index - 1, stringInterner);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
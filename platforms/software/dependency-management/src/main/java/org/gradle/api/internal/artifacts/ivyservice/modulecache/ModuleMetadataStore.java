@@ -27,6 +27,8 @@
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.util.HashMap;
@@ -38,25 +40,51 @@ public class ModuleMetadataStore {
     private final ModuleMetadataSerializer moduleMetadataSerializer;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
     private final Interner<String> stringInterner;
+    @Nullable
+    private final MappedModuleMetadataPack metadataPack;
 
     public ModuleMetadataStore(PathKeyFileStore metaDataStore,
                                ModuleMetadataSerializer moduleMetadataSerializer,
                                ImmutableModuleIdentifierFactory moduleIdentifierFactory,
                                Interner<String> stringInterner) {
+        this(metaDataStore, moduleMetadataSerializer, moduleIdentifierFactory, stringInterner, null);
+    }
+
+    /**
+     * Creates a store that also keeps a copy of the descriptors in the given memory mapped pack file, and reads descriptors from it whenever it is up-to-date.
+     */
+    public ModuleMetadataStore(PathKeyFileStore metaDataStore,
+                               ModuleMetadataSerializer moduleMetadataSerializer,
+                               ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+                               Interner<String> stringInterner,
+                               @Nullable File metadataPackFile) {
         this.metaDataStore = metaDataStore;
         this.moduleMetadataSerializer = moduleMetadataSerializer;
         this.moduleIdentifierFactory = moduleIdentifierFactory;
         this.stringInterner = stringInterner;
+        this.metadataPack = metadataPackFile == null ? null : new MappedModuleMetadataPack(metadataPackFile, key -> metaDataStore.get(key) != null, moduleMetadataSerializer, moduleIdentifierFactory, stringInterner);
     }
 
     public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponentAtRepositoryKey component) {
         String[] filePath = getFilePath(component);
         LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
+            if (metadataPack != null) {
+                MutableModuleComponentResolveMetadata packed = metadataPack.read(PATH_JOINER.join(filePath), resource);
+                if (packed != null) {
+                    return packed;
+                }
+            }
             try {
+                MutableModuleComponentResolveMetadata metadata;
                 try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner)) {
-                    return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, new HashMap<>());
+                    metadata = moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, new HashMap<>());
                 }
+                if (metadataPack != null) {
+                    // Descriptor written before the pack was in use, or by a process not using it
+                    metadataPack.append(PATH_JOINER.join(filePath), resource, metadata.asImmutable());
+                }
+                return metadata;
             } catch (Exception e) {
                 throw new RuntimeException("Could not load module metadata from " + resource.getDisplayName(), e);
             }
@@ -66,7 +94,8 @@ public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponent
 
     public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryKey component, final ModuleComponentResolveMetadata metadata) {
         String[] filePath = getFilePath(component);
-        return metaDataStore.add(PATH_JOINER.join(filePath), moduleDescriptorFile -> {
+        String path = PATH_JOINER.join(filePath);
+        LocallyAvailableResource resource = metaDataStore.add(path, moduleDescriptorFile -> {
             try {
                 try (KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile))) {
                     moduleMetadataSerializer.write(encoder, metadata, new HashMap<>());
@@ -75,6 +104,10 @@ public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryK
                 throw UncheckedException.throwAsUncheckedException(e);
             }
         });
+        if (metadataPack != null) {
+            metadataPack.append(path, resource, metadata);
+        }
+        return resource;
     }
 
     private String[] getFilePath(ModuleComponentAtRepositoryKey componentId) {
@@ -26,7 +26,9 @@
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
 import org.gradle.api.internal.artifacts.repositories.metadata.IvyMutableModuleMetadataFactory;
 import org.gradle.api.internal.artifacts.repositories.metadata.MavenMutableModuleMetadataFactory;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.IndexedCache;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.hash.ChecksumService;
@@ -36,8 +38,15 @@
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.util.internal.BuildCommencedTimeProvider;
 
+import java.io.File;
+
 public class PersistentModuleMetadataCache extends AbstractModuleMetadataCache {
 
+    /**
+     * When enabled, module descriptors are also kept in a single memory mapped file, which is read instead of the individual descriptor files.
+     */
+    public static final InternalFlag METADATA_PACK = new InternalFlag("org.gradle.internal.dependency-resolution.metadata-pack");
+
     private IndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> cache;
     private final ModuleMetadataStore moduleMetadataStore;
     private final ArtifactCacheLockingAccessCoordinator artifactCacheLockingManager;
@@ -54,12 +63,46 @@ public PersistentModuleMetadataCache(
         Interner<String> stringInterner,
         ModuleSourcesSerializer moduleSourcesSerializer,
         ChecksumService checksumService
+    ) {
+        this(timeProvider, cacheAccessCoordinator, artifactCacheMetadata, moduleIdentifierFactory, attributeContainerSerializer, capabilitySelectorSerializer, mavenMetadataFactory, ivyMetadataFactory, stringInterner, moduleSourcesSerializer, checksumService, false);
+    }
+
+    public PersistentModuleMetadataCache(
+        BuildCommencedTimeProvider timeProvider,
+        ArtifactCacheLockingAccessCoordinator cacheAccessCoordinator,
+        ArtifactCacheMetadata artifactCacheMetadata,
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+        AttributeContainerSerializer attributeContainerSerializer,
+        CapabilitySelectorSerializer capabilitySelectorSerializer,
+        MavenMutableModuleMetadataFactory mavenMetadataFactory,
+        IvyMutableModuleMetadataFactory ivyMetadataFactory,
+        Interner<String> stringInterner,
+        ModuleSourcesSerializer moduleSourcesSerializer,
+        ChecksumService checksumService,
+        boolean useMetadataPack
     ) {
         super(timeProvider);
-        moduleMetadataStore = new ModuleMetadataStore(new DefaultPathKeyFileStore(checksumService, artifactCacheMetadata.getMetaDataStoreDirectory()), new ModuleMetadataSerializer(attributeContainerSerializer, capabilitySelectorSerializer, mavenMetadataFactory, ivyMetadataFactory, moduleSourcesSerializer), moduleIdentifierFactory, stringInterner);
+        File metadataPackFile = useMetadataPack ? getMetadataPackFile(artifactCacheMetadata) : null;
+        moduleMetadataStore = new ModuleMetadataStore(new DefaultPathKeyFileStore(checksumService, artifactCacheMetadata.getMetaDataStoreDirectory()), new ModuleMetadataSerializer(attributeContainerSerializer, capabilitySelectorSerializer, mavenMetadataFactory, ivyMetadataFactory, moduleSourcesSerializer), moduleIdentifierFactory, stringInterner, metadataPackFile);
         this.artifactCacheLockingManager = cacheAccessCoordinator;
     }
 
+    /**
+     * Creates an action that drops the descriptors whose file has been deleted from the metadata pack, and the descriptors that have been replaced since.
+     */
+    public static CleanupAction createMetadataPackCleanup(ArtifactCacheMetadata artifactCacheMetadata) {
+        return (cleanableStore, progressMonitor) -> {
+            File metadataPackFile = getMetadataPackFile(artifactCacheMetadata);
+            if (metadataPackFile.isFile()) {
+                MappedModuleMetadataPack.compact(metadataPackFile, artifactCacheMetadata.getMetaDataStoreDirectory());
+            }
+        };
+    }
+
+    private static File getMetadataPackFile(ArtifactCacheMetadata artifactCacheMetadata) {
+        return new File(artifactCacheMetadata.getMetaDataStoreDirectory().getParentFile(), "descriptors.pack");
+    }
+
     private IndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> getCache() {
         if (cache == null) {
             cache = initCache();
@@ -15,16 +15,19 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics;
 import org.gradle.util.internal.BuildCommencedTimeProvider;
 
 public class TwoStageModuleMetadataCache extends AbstractModuleMetadataCache {
     private final AbstractModuleMetadataCache readOnlyCache;
     private final AbstractModuleMetadataCache writableCache;
+    private final DependencyCacheLayerStatistics statistics;
 
-    public TwoStageModuleMetadataCache(BuildCommencedTimeProvider timeProvider, AbstractModuleMetadataCache readOnlyCache, AbstractModuleMetadataCache writableCache) {
+    public TwoStageModuleMetadataCache(BuildCommencedTimeProvider timeProvider, AbstractModuleMetadataCache readOnlyCache, AbstractModuleMetadataCache writableCache, DependencyCacheLayerStatistics statistics) {
         super(timeProvider);
         this.readOnlyCache = readOnlyCache;
         this.writableCache = writableCache;
+        this.statistics = statistics;
     }
 
     @Override
@@ -37,8 +40,9 @@ protected CachedMetadata store(ModuleComponentAtRepositoryKey key, ModuleMetadat
     protected CachedMetadata get(ModuleComponentAtRepositoryKey key) {
         CachedMetadata writeEntry = writableCache.get(key);
         if (writeEntry != null) {
+            statistics.writableHit(DependencyCacheLayerStatistics.CacheType.MODULE_METADATA);
             return writeEntry;
         }
-        return readOnlyCache.get(key);
+        return statistics.readOnlyLookup(DependencyCacheLayerStatistics.CacheType.MODULE_METADATA, readOnlyCache.get(key));
     }
 }
@@ -15,16 +15,19 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts;
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics;
 import org.gradle.util.internal.BuildCommencedTimeProvider;
 
 public class TwoStageArtifactsCache extends AbstractArtifactsCache {
     private final AbstractArtifactsCache readOnlyCache;
     private final AbstractArtifactsCache writableCache;
+    private final DependencyCacheLayerStatistics statistics;
 
-    public TwoStageArtifactsCache(BuildCommencedTimeProvider timeProvider, AbstractArtifactsCache readOnlyCache, AbstractArtifactsCache writableCache) {
+    public TwoStageArtifactsCache(BuildCommencedTimeProvider timeProvider, AbstractArtifactsCache readOnlyCache, AbstractArtifactsCache writableCache, DependencyCacheLayerStatistics statistics) {
         super(timeProvider);
         this.readOnlyCache = readOnlyCache;
         this.writableCache = writableCache;
+        this.statistics = statistics;
     }
 
     @Override
@@ -36,8 +39,9 @@ protected void store(ArtifactsAtRepositoryKey key, ModuleArtifactsCacheEntry ent
     protected ModuleArtifactsCacheEntry get(ArtifactsAtRepositoryKey key) {
         ModuleArtifactsCacheEntry entry = writableCache.get(key);
         if (entry != null) {
+            statistics.writableHit(DependencyCacheLayerStatistics.CacheType.MODULE_ARTIFACTS);
             return entry;
         }
-        return readOnlyCache.get(key);
+        return statistics.readOnlyLookup(DependencyCacheLayerStatistics.CacheType.MODULE_ARTIFACTS, readOnlyCache.get(key));
     }
 }
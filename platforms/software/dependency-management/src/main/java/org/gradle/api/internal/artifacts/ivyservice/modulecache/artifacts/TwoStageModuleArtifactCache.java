@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts;
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics;
 import org.gradle.internal.hash.HashCode;
 
 import javax.annotation.Nullable;
@@ -26,11 +27,13 @@ public class TwoStageModuleArtifactCache implements ModuleArtifactCache {
     private final ModuleArtifactCache readOnlyCache;
     private final ModuleArtifactCache writableCache;
     private final Path readOnlyCachePath;
+    private final DependencyCacheLayerStatistics statistics;
 
-    public TwoStageModuleArtifactCache(Path readOnlyCachePath, ModuleArtifactCache readOnlyCache, ModuleArtifactCache writableCache) {
+    public TwoStageModuleArtifactCache(Path readOnlyCachePath, ModuleArtifactCache readOnlyCache, ModuleArtifactCache writableCache, DependencyCacheLayerStatistics statistics) {
         this.readOnlyCachePath = readOnlyCachePath;
         this.readOnlyCache = readOnlyCache;
         this.writableCache = writableCache;
+        this.statistics = statistics;
     }
 
     @Override
@@ -52,9 +55,10 @@ public void storeMissing(ArtifactAtRepositoryKey key, List<String> attemptedLoca
     public CachedArtifact lookup(ArtifactAtRepositoryKey key) {
         CachedArtifact lookup = writableCache.lookup(key);
         if (lookup != null) {
+            statistics.writableHit(DependencyCacheLayerStatistics.CacheType.ARTIFACTS);
             return lookup;
         }
-        return readOnlyCache.lookup(key);
+        return statistics.readOnlyLookup(DependencyCacheLayerStatistics.CacheType.ARTIFACTS, readOnlyCache.lookup(key));
     }
 
     @Override
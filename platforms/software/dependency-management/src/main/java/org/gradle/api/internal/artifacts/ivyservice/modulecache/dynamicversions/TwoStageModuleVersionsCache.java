@@ -16,16 +16,19 @@
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions;
 
 import com.google.common.collect.Sets;
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics;
 import org.gradle.util.internal.BuildCommencedTimeProvider;
 
 public class TwoStageModuleVersionsCache extends AbstractModuleVersionsCache {
     private final AbstractModuleVersionsCache readOnlyCache;
     private final AbstractModuleVersionsCache writableCache;
+    private final DependencyCacheLayerStatistics statistics;
 
-    public TwoStageModuleVersionsCache(BuildCommencedTimeProvider timeProvider, AbstractModuleVersionsCache readOnlyCache, AbstractModuleVersionsCache writableCache) {
+    public TwoStageModuleVersionsCache(BuildCommencedTimeProvider timeProvider, AbstractModuleVersionsCache readOnlyCache, AbstractModuleVersionsCache writableCache, DependencyCacheLayerStatistics statistics) {
         super(timeProvider);
         this.readOnlyCache = readOnlyCache;
         this.writableCache = writableCache;
+        this.statistics = statistics;
     }
 
     @Override
@@ -37,6 +40,7 @@ protected void store(ModuleAtRepositoryKey key, ModuleVersionsCacheEntry entry)
     protected ModuleVersionsCacheEntry get(ModuleAtRepositoryKey key) {
         ModuleVersionsCacheEntry roEntry = readOnlyCache.get(key);
         ModuleVersionsCacheEntry writableEntry = writableCache.get(key);
+        statistics.record(DependencyCacheLayerStatistics.CacheType.MODULE_VERSIONS, roEntry, writableEntry);
         if (roEntry == null) {
             return writableEntry;
         }
@@ -44,7 +44,6 @@
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -57,8 +56,8 @@ public class ComponentState implements ComponentResolutionState, DependencyGraph
     private final ComponentIdentifier componentIdentifier;
     private final ModuleVersionIdentifier id;
     private final ComponentMetaDataResolver resolver;
-    private final List<NodeState> nodes = new LinkedList<>();
-    private final Long resultId;
+    private final List<NodeState> nodes = new ArrayList<>(1);
+    private final long resultId;
     private final ModuleResolveState module;
     private final List<ComponentSelectionDescriptorInternal> selectionCauses = new ArrayList<>();
     private final int hashCode;
@@ -486,7 +485,7 @@ public boolean equals(Object o) {
 
         ComponentState that = (ComponentState) o;
 
-        return that.resultId.equals(resultId);
+        return that.resultId == resultId;
 
     }
 
@@ -46,6 +46,9 @@
 import org.gradle.api.internal.attributes.matching.AttributeMatcher;
 import org.gradle.api.internal.capabilities.CapabilityInternal;
 import org.gradle.api.specs.Spec;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.component.model.ComponentGraphResolveMetadata;
 import org.gradle.internal.component.model.ComponentIdGenerator;
 import org.gradle.internal.component.model.DependencyMetadata;
@@ -62,6 +65,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -79,6 +83,12 @@ public class DependencyGraphBuilder {
     static final Spec<EdgeState> ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
     static final Spec<EdgeState> NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> !dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
 
+    /**
+     * When enabled, metadata for the modules declared by all nodes queued for traversal is downloaded speculatively, together with the metadata required by the node being processed.
+     */
+    public static final InternalFlag METADATA_PREFETCH = new InternalFlag("org.gradle.internal.dependency-resolution.metadata-prefetch");
+    public static final IntegerInternalOption METADATA_PREFETCH_MAX_REQUESTS_PER_REPOSITORY = new IntegerInternalOption("org.gradle.internal.dependency-resolution.metadata-prefetch.max-requests-per-repository", 8);
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphBuilder.class);
 
     private final ModuleExclusions moduleExclusions;
@@ -91,6 +101,8 @@ public class DependencyGraphBuilder {
     private final VersionParser versionParser;
     private final GraphVariantSelector variantSelector;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean metadataPrefetch;
+    private final int maxPrefetchRequestsPerRepository;
 
     @Inject
     public DependencyGraphBuilder(
@@ -103,7 +115,8 @@ public DependencyGraphBuilder(
         ComponentIdGenerator idGenerator,
         VersionParser versionParser,
         GraphVariantSelector variantSelector,
-        BuildOperationExecutor buildOperationExecutor
+        BuildOperationExecutor buildOperationExecutor,
+        InternalOptions internalOptions
     ) {
         this.moduleExclusions = moduleExclusions;
         this.attributesFactory = attributesFactory;
@@ -115,6 +128,8 @@ public DependencyGraphBuilder(
         this.versionParser = versionParser;
         this.variantSelector = variantSelector;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.metadataPrefetch = internalOptions.getOption(METADATA_PREFETCH).get();
+        this.maxPrefetchRequestsPerRepository = internalOptions.getOption(METADATA_PREFETCH_MAX_REQUESTS_PER_REPOSITORY).get();
     }
 
     public void resolve(
@@ -171,6 +186,9 @@ public void resolve(
     private void traverseGraph(final ResolveState resolveState) {
         resolveState.onMoreSelected(resolveState.getRoot());
         final List<EdgeState> dependencies = new ArrayList<>();
+        final MetadataPrefetcher prefetcher = metadataPrefetch
+            ? new MetadataPrefetcher(resolveState.getComponentMetadataResolver(), resolveState.getVersionSelectorScheme(), buildOperationExecutor, maxPrefetchRequestsPerRepository)
+            : null;
 
         ModuleConflictHandler moduleConflictHandler = resolveState.getModuleConflictHandler();
         CapabilitiesConflictHandler capabilitiesConflictHandler = resolveState.getCapabilitiesConflictHandler();
@@ -197,9 +215,9 @@ private void traverseGraph(final ResolveState resolveState) {
                 // Initialize and collect any new outgoing edges of this node
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
-                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState);
+                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState, prefetcher);
                 node.collectEndorsedStrictVersions(dependencies);
-                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState);
+                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState, prefetcher);
             } else {
                 // We have some batched up conflicts. Resolve the first, and continue traversing the graph
                 if (moduleConflictHandler.hasConflicts()) {
@@ -267,13 +285,14 @@ private boolean resolveEdges(
         final List<EdgeState> dependencies,
         final Spec<EdgeState> edgeFilter,
         final boolean recomputeSelectors,
-        final ResolveState resolveState
+        final ResolveState resolveState,
+        @Nullable final MetadataPrefetcher prefetcher
     ) {
         if (dependencies.isEmpty()) {
             return false;
         }
         if (performSelectionSerially(dependencies, edgeFilter, resolveState, recomputeSelectors)) {
-            maybeDownloadMetadataInParallel(node, dependencies, edgeFilter, buildOperationExecutor, resolveState.getComponentMetadataResolver());
+            maybeDownloadMetadataInParallel(node, dependencies, edgeFilter, buildOperationExecutor, resolveState, prefetcher);
             attachToTargetRevisionsSerially(dependencies, edgeFilter);
             return true;
         } else {
@@ -346,8 +365,10 @@ private static void checkForModuleConflicts(ResolveState resolveState, ModuleRes
     /**
      * Prepares the resolution of edges, either serially or concurrently.
      * It uses a simple heuristic to determine if we should perform concurrent resolution, based on the number of edges, and whether they have unresolved metadata.
+     * When metadata prefetching is enabled, the download also covers the modules declared by all nodes pending traversal.
      */
-    private static void maybeDownloadMetadataInParallel(NodeState node, List<EdgeState> edges, Spec<EdgeState> edgeFilter, BuildOperationExecutor buildOperationExecutor, ComponentMetaDataResolver componentMetaDataResolver) {
+    private static void maybeDownloadMetadataInParallel(NodeState node, List<EdgeState> edges, Spec<EdgeState> edgeFilter, BuildOperationExecutor buildOperationExecutor, ResolveState resolveState, @Nullable MetadataPrefetcher prefetcher) {
+        ComponentMetaDataResolver componentMetaDataResolver = resolveState.getComponentMetadataResolver();
         List<ComponentState> requiringDownload = null;
         for (EdgeState edge : edges) {
             if (!edgeFilter.isSatisfiedBy(edge)) {
@@ -364,6 +385,14 @@ private static void maybeDownloadMetadataInParallel(NodeState node, List<EdgeSta
                 }
             }
         }
+        if (prefetcher != null) {
+            if (requiringDownload != null) {
+                LOGGER.debug("Prefetching metadata of pending nodes while resolving {}", node);
+                prefetcher.visitPendingNodes(resolveState.getPendingNodes());
+                prefetcher.fetch(requiringDownload);
+            }
+            return;
+        }
         // Only download in parallel if there is more than 1 component to download
         if (requiringDownload != null && requiringDownload.size() > 1) {
             final ImmutableList<ComponentState> toDownloadInParallel = ImmutableList.copyOf(requiringDownload);
@@ -372,7 +401,7 @@ private static void maybeDownloadMetadataInParallel(NodeState node, List<EdgeSta
                 for (final ComponentState componentState : toDownloadInParallel) {
                     buildOperationQueue.add(new DownloadMetadataOperation(componentState));
                 }
-            }, BuildOperationConstraint.UNCONSTRAINED);
+            }, BuildOperationConstraint.BLOCKING_IO);
         }
     }
 
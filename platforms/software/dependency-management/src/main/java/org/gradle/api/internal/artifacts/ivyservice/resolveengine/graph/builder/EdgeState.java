@@ -34,7 +34,7 @@
 import org.gradle.internal.resolve.ModuleVersionResolveException;
 
 import javax.annotation.Nullable;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -49,7 +49,8 @@ class EdgeState implements DependencyGraphEdge {
     private final DependencyMetadata dependencyMetadata;
     private final NodeState from;
     private final ResolveState resolveState;
-    private final List<NodeState> targetNodes = new LinkedList<>();
+    // Most edges target a single node of the selected component
+    private final List<NodeState> targetNodes = new ArrayList<>(1);
     private final boolean isTransitive;
     private final boolean isConstraint;
     private final int hashCode;
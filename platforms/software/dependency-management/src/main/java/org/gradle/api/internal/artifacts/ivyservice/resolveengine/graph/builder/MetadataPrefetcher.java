@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationConstraint;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Speculatively downloads component metadata for the whole pending frontier of the graph.
+ *
+ * <p>Whenever the graph builder needs to download metadata for the targets of the node it is processing, the prefetcher
+ * adds the modules declared by every node that is queued for traversal to the same batch. The prefetched metadata only
+ * warms the caches of the {@link ComponentMetaDataResolver}: no graph state is created for it, so selection and conflict
+ * resolution still happen serially and in the same order as without prefetching.</p>
+ *
+ * <p>Speculative requests are grouped by the repository that provided the declaring component, and each group is split
+ * into at most {@code maxConcurrentRequestsPerRepository} operations that fetch their share sequentially.</p>
+ */
+class MetadataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPrefetcher.class);
+
+    private final ComponentMetaDataResolver componentMetaDataResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final int maxConcurrentRequestsPerRepository;
+
+    private final Set<NodeState> visitedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<ModuleComponentIdentifier> seen = new HashSet<>();
+    private final Set<ModuleComponentIdentifier> excluded = new HashSet<>();
+    private final Map<String, List<ModuleComponentIdentifier>> pendingByRepository = new LinkedHashMap<>();
+
+    MetadataPrefetcher(ComponentMetaDataResolver componentMetaDataResolver, VersionSelectorScheme versionSelectorScheme, BuildOperationExecutor buildOperationExecutor, int maxConcurrentRequestsPerRepository) {
+        this.componentMetaDataResolver = componentMetaDataResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.maxConcurrentRequestsPerRepository = Math.max(1, maxConcurrentRequestsPerRepository);
+    }
+
+    /**
+     * Collects the modules declared by the given nodes which have not been visited by this prefetcher yet.
+     */
+    void visitPendingNodes(Collection<NodeState> pendingNodes) {
+        for (NodeState node : pendingNodes) {
+            if (!visitedNodes.add(node)) {
+                continue;
+            }
+            ComponentState component = node.getComponent();
+            if (component.getModule().isVirtualPlatform() || !component.alreadyResolved() || component.getMetadataResolveFailure() != null) {
+                continue;
+            }
+            addCandidates(component.getRepositoryName(), node.getAllDependencies());
+        }
+    }
+
+    /**
+     * Records a speculative request for each dependency which targets a fixed version of an external module.
+     *
+     * Dependencies that may be resolved with non-default override metadata are never prefetched, so that the resolver does
+     * not cache a result computed for a different request.
+     */
+    void addCandidates(@Nullable String repositoryName, List<? extends DependencyMetadata> dependencies) {
+        for (DependencyMetadata dependency : dependencies) {
+            ModuleComponentIdentifier id = fixedVersionTarget(dependency);
+            if (id == null) {
+                continue;
+            }
+            if (dependency.isChanging() || !dependency.getArtifacts().isEmpty()) {
+                if (excluded.add(id)) {
+                    removePending(id);
+                }
+                continue;
+            }
+            if (excluded.contains(id) || !seen.add(id)) {
+                continue;
+            }
+            pendingByRepository.computeIfAbsent(repositoryName == null ? "" : repositoryName, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    @Nullable
+    private ModuleComponentIdentifier fixedVersionTarget(DependencyMetadata dependency) {
+        if (dependency.isConstraint()) {
+            return null;
+        }
+        ComponentSelector selector = dependency.getSelector();
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+        String version = versionConstraint.getStrictVersion().isEmpty() ? versionConstraint.getRequiredVersion() : versionConstraint.getStrictVersion();
+        if (version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getModuleIdentifier(), version);
+    }
+
+    private void removePending(ModuleComponentIdentifier id) {
+        for (List<ModuleComponentIdentifier> ids : pendingByRepository.values()) {
+            ids.remove(id);
+        }
+    }
+
+    /**
+     * Downloads the metadata of the given components together with all collected speculative requests, blocking until they have all completed.
+     */
+    void fetch(List<ComponentState> requiringDownload) {
+        List<List<ModuleComponentIdentifier>> batches = takeSpeculativeBatches();
+        if (batches.isEmpty() && requiringDownload.size() < 2) {
+            return;
+        }
+        LOGGER.debug("Submitting {} metadata files to resolve in parallel, with {} batches of speculative requests", requiringDownload.size(), batches.size());
+        buildOperationExecutor.runAll(buildOperationQueue -> {
+            for (ComponentState componentState : requiringDownload) {
+                buildOperationQueue.add(new DownloadMetadataOperation(componentState));
+            }
+            for (List<ModuleComponentIdentifier> batch : batches) {
+                buildOperationQueue.add(new PrefetchMetadataOperation(componentMetaDataResolver, batch));
+            }
+        }, BuildOperationConstraint.BLOCKING_IO);
+    }
+
+    private List<List<ModuleComponentIdentifier>> takeSpeculativeBatches() {
+        List<List<ModuleComponentIdentifier>> batches = new ArrayList<>();
+        for (List<ModuleComponentIdentifier> ids : pendingByRepository.values()) {
+            List<ModuleComponentIdentifier> toFetch = new ArrayList<>(ids.size());
+            for (ModuleComponentIdentifier id : ids) {
+                if (!componentMetaDataResolver.isFetchingMetadataCheap(id)) {
+                    toFetch.add(id);
+                }
+            }
+            int batchCount = Math.min(maxConcurrentRequestsPerRepository, toFetch.size());
+            List<List<ModuleComponentIdentifier>> repositoryBatches = new ArrayList<>(batchCount);
+            for (int i = 0; i < batchCount; i++) {
+                repositoryBatches.add(new ArrayList<>());
+            }
+            for (int i = 0; i < toFetch.size(); i++) {
+                repositoryBatches.get(i % batchCount).add(toFetch.get(i));
+            }
+            batches.addAll(repositoryBatches);
+        }
+        pendingByRepository.clear();
+        return batches;
+    }
+
+    private static class PrefetchMetadataOperation implements RunnableBuildOperation {
+        private final ComponentMetaDataResolver resolver;
+        private final List<ModuleComponentIdentifier> ids;
+
+        PrefetchMetadataOperation(ComponentMetaDataResolver resolver, List<ModuleComponentIdentifier> ids) {
+            this.resolver = resolver;
+            this.ids = ImmutableList.copyOf(ids);
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            for (ModuleComponentIdentifier id : ids) {
+                // Failures are ignored: the component is resolved again, and the failure reported, if it is actually selected
+                try {
+                    resolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult());
+                } catch (RuntimeException e) {
+                    LOGGER.debug("Failed to prefetch metadata for {}", id, e);
+                }
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Prefetch metadata for " + ids.size() + " components");
+        }
+    }
+}
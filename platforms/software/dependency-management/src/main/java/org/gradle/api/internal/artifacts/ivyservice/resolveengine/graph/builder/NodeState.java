@@ -101,9 +101,9 @@ public class NodeState implements DependencyGraphNode {
     private Set<EdgeState> edgesToRecompute;
     private Multimap<ModuleIdentifier, DependencyState> potentiallyActivatedConstraints;
 
-    // caches
-    private final Map<DependencyMetadata, DependencyState> dependencyStateCache = new HashMap<>();
-    private final Map<DependencyState, EdgeState> edgesCache = new HashMap<>();
+    // caches, created on first use since most nodes in a large graph are leaves
+    private Map<DependencyMetadata, DependencyState> dependencyStateCache;
+    private Map<DependencyState, EdgeState> edgesCache;
 
     // Caches the list of dependency states for dependencies
     private List<DependencyState> cachedDependencyStates;
@@ -519,6 +519,9 @@ private List<DependencyState> cacheDependencyStates(List<? extends DependencyMet
     }
 
     private DependencyState cachedDependencyStateFor(DependencyMetadata md) {
+        if (dependencyStateCache == null) {
+            dependencyStateCache = new HashMap<>();
+        }
         return dependencyStateCache.computeIfAbsent(md, this::createDependencyState);
     }
 
@@ -526,6 +529,9 @@ private DependencyState cachedDependencyStateFor(DependencyMetadata md) {
      * Creates an edge and add it to this node as an outgoing edge.
      */
     private void createAndLinkEdgeState(DependencyState dependencyState, Collection<EdgeState> discoveredEdges, ExcludeSpec resolutionFilter, boolean deferSelection) {
+        if (edgesCache == null) {
+            edgesCache = new HashMap<>();
+        }
         EdgeState dependencyEdge = edgesCache.computeIfAbsent(dependencyState, ds -> new EdgeState(this, ds, resolutionFilter, resolveState));
         dependencyEdge.computeSelector(); // the selector changes, if the 'versionProvidedByAncestors' state changes
         outgoingEdges.add(dependencyEdge);
@@ -57,6 +57,7 @@
 import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
@@ -200,6 +201,10 @@ public ComponentMetaDataResolver getComponentMetadataResolver() {
         return metaDataResolver;
     }
 
+    public VersionSelectorScheme getVersionSelectorScheme() {
+        return versionSelectorScheme;
+    }
+
     private ModuleResolveState getModule(ModuleIdentifier id, boolean rootModule) {
         return modules.computeIfAbsent(id, mid -> new ModuleResolveState(idGenerator, id, metaDataResolver, attributesFactory, versionComparator, versionParser, selectorStateResolver, resolveOptimizations, rootModule, conflictResolution));
     }
@@ -245,6 +250,13 @@ public NodeState peek() {
         return queue.isEmpty() ? null : queue.getFirst();
     }
 
+    /**
+     * Returns the nodes queued for traversal, in the order they will be visited.
+     */
+    public Collection<NodeState> getPendingNodes() {
+        return Collections.unmodifiableCollection(queue);
+    }
+
     public NodeState pop() {
         NodeState next = queue.removeFirst();
         return next.dequeue();
@@ -15,6 +15,7 @@
  */
 package org.gradle.internal.resource.cached;
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
 
 import javax.annotation.Nullable;
@@ -25,11 +26,13 @@ public class TwoStageByUrlCachedExternalResourceIndex implements CachedExternalR
     private final Path readOnlyCachePath;
     private final CachedExternalResourceIndex<String> readOnlyCache;
     private final CachedExternalResourceIndex<String> writableCache;
+    private final DependencyCacheLayerStatistics statistics;
 
-    public TwoStageByUrlCachedExternalResourceIndex(Path readOnlyCachePath, CachedExternalResourceIndex<String> readOnlyCache, CachedExternalResourceIndex<String> writableCache) {
+    public TwoStageByUrlCachedExternalResourceIndex(Path readOnlyCachePath, CachedExternalResourceIndex<String> readOnlyCache, CachedExternalResourceIndex<String> writableCache, DependencyCacheLayerStatistics statistics) {
         this.readOnlyCachePath = readOnlyCachePath;
         this.readOnlyCache = readOnlyCache;
         this.writableCache = writableCache;
+        this.statistics = statistics;
     }
 
     @Override
@@ -51,9 +54,10 @@ public void storeMissing(String key) {
     public CachedExternalResource lookup(String key) {
         CachedExternalResource lookup = writableCache.lookup(key);
         if (lookup != null) {
+            statistics.writableHit(DependencyCacheLayerStatistics.CacheType.EXTERNAL_RESOURCES);
             return lookup;
         }
-        return readOnlyCache.lookup(key);
+        return statistics.readOnlyLookup(DependencyCacheLayerStatistics.CacheType.EXTERNAL_RESOURCES, readOnlyCache.lookup(key));
     }
 
     @Override
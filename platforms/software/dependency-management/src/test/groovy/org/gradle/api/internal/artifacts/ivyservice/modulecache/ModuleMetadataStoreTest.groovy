@@ -20,6 +20,7 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DependencyManagementTestUtil
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -41,6 +42,10 @@ class ModuleMetadataStoreTest extends Specification {
     def serializer = Mock(ModuleMetadataSerializer)
     @Subject ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe())
     def mavenMetadataFactory = DependencyManagementTestUtil.mavenMetadataFactory()
+    def versionSerializer = Stub(ModuleMetadataSerializer) {
+        write(_, _, _) >> { encoder, metadata, cache -> encoder.writeString(metadata.id.version) }
+        read(_, _, _) >> { decoder, factory, cache -> mavenMetadataFactory.create(DefaultModuleComponentIdentifier.newId(moduleComponentIdentifier.moduleIdentifier, decoder.readString()), []) }
+    }
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
         when:
@@ -69,4 +74,144 @@ class ModuleMetadataStoreTest extends Specification {
         };
         1 * serializer.write(_, descriptor, _)
     }
+
+    def "reads descriptors from the metadata pack when the descriptor file is unchanged"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        File packFile = temporaryFolder.file("descriptors.pack")
+        def key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
+        def descriptor = mavenMetadataFactory.create(moduleComponentIdentifier, []).asImmutable()
+        def metadata = mavenMetadataFactory.create(moduleComponentIdentifier, [])
+        fileStoreEntry.getFile() >> descriptorFile
+        pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
+            action.execute(descriptorFile); fileStoreEntry
+        }
+        pathKeyFileStore.get("org.test", "testArtifact", "1.0", "repositoryId", "descriptor.bin") >> fileStoreEntry
+        serializer.write(_, descriptor, _) >> { encoder, md, cache ->
+            encoder.writeString("org.test")
+            encoder.writeNullableString(null)
+            encoder.writeString("org.test")
+        }
+        new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe(), packFile).putModuleDescriptor(key, descriptor)
+
+        when:
+        def result = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe(), packFile).getModuleDescriptor(key)
+
+        then:
+        result == metadata
+        1 * serializer.read(_, moduleIdentifierFactory, _) >> { decoder, factory, cache ->
+            assert !(decoder instanceof StringDeduplicatingDecoder)
+            assert decoder.readString() == "org.test"
+            assert decoder.readNullableString() == null
+            assert decoder.readString() == "org.test"
+            metadata
+        }
+        packFile.length() > 0
+    }
+
+    def "reads descriptor file when it changed after being copied to the metadata pack"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        File packFile = temporaryFolder.file("descriptors.pack")
+        def key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
+        def descriptor = mavenMetadataFactory.create(moduleComponentIdentifier, []).asImmutable()
+        def metadata = mavenMetadataFactory.create(moduleComponentIdentifier, [])
+        fileStoreEntry.getFile() >> descriptorFile
+        pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
+            action.execute(descriptorFile); fileStoreEntry
+        }
+        pathKeyFileStore.get("org.test", "testArtifact", "1.0", "repositoryId", "descriptor.bin") >> fileStoreEntry
+        new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe(), packFile).putModuleDescriptor(key, descriptor)
+        descriptorFile << "changed"
+
+        when:
+        def result = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe(), packFile).getModuleDescriptor(key)
+
+        then:
+        result == metadata
+        1 * serializer.read(_ as StringDeduplicatingDecoder, moduleIdentifierFactory, _) >> metadata
+    }
+
+    def "reads descriptor file when it was rewritten with the same length after being copied to the metadata pack"() {
+        setup:
+        File packFile = temporaryFolder.file("descriptors.pack")
+        def descriptor = descriptorFile("module/descriptor.bin")
+        metadataPack(packFile).append("module/descriptor.bin", descriptor, metadata("1.0"))
+        descriptor.file.text = descriptor.file.text.reverse()
+        descriptor.file.lastModified = descriptor.file.lastModified() + 2000
+
+        expect:
+        metadataPack(packFile).read("module/descriptor.bin", descriptor) == null
+    }
+
+    def "drops replaced and deleted descriptors when compacting the metadata pack"() {
+        setup:
+        File packFile = temporaryFolder.file("descriptors.pack")
+        def replaced = descriptorFile("replaced/descriptor.bin")
+        def deleted = descriptorFile("deleted/descriptor.bin")
+        def pack = metadataPack(packFile)
+        pack.append("replaced/descriptor.bin", replaced, metadata("1.0"))
+        pack.append("deleted/descriptor.bin", deleted, metadata("2.0"))
+        replaced.file << "changed"
+        pack.append("replaced/descriptor.bin", replaced, metadata("1.1"))
+        def length = packFile.length()
+        deleted.file.delete()
+
+        when:
+        MappedModuleMetadataPack.compact(packFile, temporaryFolder.file("descriptors"))
+
+        then:
+        packFile.length() < length
+        metadataPack(packFile).read("replaced/descriptor.bin", replaced).id.version == "1.1"
+        metadataPack(packFile).read("deleted/descriptor.bin", deleted) == null
+    }
+
+    def "reads descriptors appended after the metadata pack was compacted by another process"() {
+        setup:
+        File packFile = temporaryFolder.file("descriptors.pack")
+        def first = descriptorFile("first/descriptor.bin")
+        def second = descriptorFile("second/descriptor.bin")
+        def pack = metadataPack(packFile)
+        pack.append("first/descriptor.bin", first, metadata("1.0"))
+
+        when:
+        MappedModuleMetadataPack.compact(packFile, temporaryFolder.file("descriptors"))
+        pack.append("second/descriptor.bin", second, metadata("2.0"))
+
+        then:
+        pack.read("first/descriptor.bin", first).id.version == "1.0"
+        pack.read("second/descriptor.bin", second).id.version == "2.0"
+        metadataPack(packFile).read("first/descriptor.bin", first).id.version == "1.0"
+        metadataPack(packFile).read("second/descriptor.bin", second).id.version == "2.0"
+    }
+
+    def "recreates metadata pack written in an unknown format"() {
+        setup:
+        File packFile = temporaryFolder.file("descriptors.pack")
+        packFile.bytes = [0x47, 0x4D, 0x50, 0x01, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 1] as byte[]
+        def descriptor = descriptorFile("module/descriptor.bin")
+
+        when:
+        metadataPack(packFile).append("module/descriptor.bin", descriptor, metadata("1.0"))
+
+        then:
+        metadataPack(packFile).read("module/descriptor.bin", descriptor).id.version == "1.0"
+    }
+
+    private MappedModuleMetadataPack metadataPack(File packFile) {
+        return new MappedModuleMetadataPack(packFile, { true }, versionSerializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe())
+    }
+
+    private LocallyAvailableResource descriptorFile(String path) {
+        File file = temporaryFolder.createFile("descriptors/" + path)
+        file.text = path
+        return Stub(LocallyAvailableResource) {
+            getFile() >> file
+            getSha1() >> { throw new AssertionError("Descriptor files should not be hashed") }
+        }
+    }
+
+    private ModuleComponentResolveMetadata metadata(String version) {
+        return mavenMetadataFactory.create(DefaultModuleComponentIdentifier.newId(moduleComponentIdentifier.moduleIdentifier, version), []).asImmutable()
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.modulecache
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics
 import org.gradle.util.internal.BuildCommencedTimeProvider
 import spock.lang.Specification
 import spock.lang.Subject
@@ -27,9 +28,10 @@ class TwoStageModuleMetadataCacheTest extends Specification {
     def key = Stub(ModuleComponentAtRepositoryKey)
     def entry = Stub(ModuleMetadataCacheEntry)
     def metadata = Stub(ModuleMetadataCache.CachedMetadata)
+    def statistics = new DependencyCacheLayerStatistics()
 
     @Subject
-    def twoStageCache = new TwoStageModuleMetadataCache(timeProvider, readCache, writeCache)
+    def twoStageCache = new TwoStageModuleMetadataCache(timeProvider, readCache, writeCache, statistics)
 
     def "storing delegates to write cache"() {
         when:
@@ -55,4 +57,20 @@ class TwoStageModuleMetadataCacheTest extends Specification {
         1 * writeCache.get(key) >> metadata
         0 * readCache._
     }
+
+    def "records hits per cache layer"() {
+        given:
+        writeCache.get(key) >>> [null, null, metadata]
+        readCache.get(key) >>> [metadata, null]
+
+        when:
+        3.times { twoStageCache.get(key) }
+        def hits = statistics.snapshot().find { it.cache == DependencyCacheLayerStatistics.CacheType.MODULE_METADATA.displayName }
+
+        then:
+        statistics.hasLookups()
+        hits.readOnlyHits == 1
+        hits.writableHits == 1
+        hits.misses == 1
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics
 import org.gradle.util.internal.BuildCommencedTimeProvider
 import spock.lang.Specification
 import spock.lang.Subject
@@ -25,9 +26,10 @@ class TwoStageArtifactsCacheTest extends Specification {
     def readCache = Mock(AbstractArtifactsCache)
     def writeCache = Mock(AbstractArtifactsCache)
     def key = Stub(ArtifactsAtRepositoryKey)
+    def statistics = new DependencyCacheLayerStatistics()
 
     @Subject
-    TwoStageArtifactsCache twoStageArtifactsCache = new TwoStageArtifactsCache(timeProvider, readCache, writeCache)
+    TwoStageArtifactsCache twoStageArtifactsCache = new TwoStageArtifactsCache(timeProvider, readCache, writeCache, statistics)
 
     def "reads first in write cache then in read cache"() {
         when:
@@ -54,4 +56,22 @@ class TwoStageArtifactsCacheTest extends Specification {
         writeCache.store(key, entry)
         0 * readCache.store(key, entry)
     }
+
+    def "records hits per cache layer"() {
+        def entry = Stub(AbstractArtifactsCache.ModuleArtifactsCacheEntry)
+
+        given:
+        writeCache.get(key) >>> [null, null, entry]
+        readCache.get(key) >>> [entry, null]
+
+        when:
+        3.times { twoStageArtifactsCache.get(key) }
+        def hits = statistics.snapshot().find { it.cache == DependencyCacheLayerStatistics.CacheType.MODULE_ARTIFACTS.displayName }
+
+        then:
+        statistics.hasLookups()
+        hits.readOnlyHits == 1
+        hits.writableHits == 1
+        hits.misses == 1
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics
 import org.gradle.internal.hash.HashCode
 import spock.lang.Specification
 import spock.lang.Subject
@@ -30,9 +31,10 @@ class TwoStageModuleArtifactCacheTest extends Specification {
 
     def readCache = Mock(ModuleArtifactCache)
     def writeCache = Mock(ModuleArtifactCache)
+    def statistics = new DependencyCacheLayerStatistics()
 
     @Subject
-    def twoStageCache = new TwoStageModuleArtifactCache(readOnlyPath, readCache, writeCache)
+    def twoStageCache = new TwoStageModuleArtifactCache(readOnlyPath, readCache, writeCache, statistics)
 
     def "storing delegates to the write index"() {
         when:
@@ -76,4 +78,22 @@ class TwoStageModuleArtifactCacheTest extends Specification {
         1 * writeCache.clear(key)
         0 * readCache._
     }
+
+    def "records hits per cache layer"() {
+        def cached = Stub(CachedArtifact)
+
+        given:
+        writeCache.lookup(key) >>> [null, null, cached]
+        readCache.lookup(key) >>> [cached, null]
+
+        when:
+        3.times { twoStageCache.lookup(key) }
+        def hits = statistics.snapshot().find { it.cache == DependencyCacheLayerStatistics.CacheType.ARTIFACTS.displayName }
+
+        then:
+        statistics.hasLookups()
+        hits.readOnlyHits == 1
+        hits.writableHits == 1
+        hits.misses == 1
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics
 import org.gradle.util.internal.BuildCommencedTimeProvider
 import spock.lang.Specification
 import spock.lang.Subject
@@ -26,9 +27,10 @@ class TwoStageModuleVersionsCacheTest extends Specification {
     def writeCache = Mock(AbstractModuleVersionsCache)
     def key = Stub(ModuleAtRepositoryKey)
     def entry = Stub(ModuleVersionsCacheEntry)
+    def statistics = new DependencyCacheLayerStatistics()
 
     @Subject
-    def twoStageCache = new TwoStageModuleVersionsCache(timeProvider, readCache, writeCache)
+    def twoStageCache = new TwoStageModuleVersionsCache(timeProvider, readCache, writeCache, statistics)
 
     def "writing delegates to write cache"() {
         when:
@@ -56,4 +58,24 @@ class TwoStageModuleVersionsCacheTest extends Specification {
         result.moduleVersionListing == ["1.0", "1.1", "1.2", "1.3"] as Set
         result.createTimestamp == 123L
     }
+
+    def "records hits per cache layer when aggregating read and write caches"() {
+        def r1 = new ModuleVersionsCacheEntry(["1.0"] as Set, 0L)
+        def r2 = new ModuleVersionsCacheEntry(["1.1"] as Set, 123L)
+
+        given:
+        readCache.get(key) >>> [r1, r1, null]
+        writeCache.get(key) >>> [null, r2, null]
+
+        when:
+        3.times { twoStageCache.get(key) }
+        def hits = statistics.snapshot().find { it.cache == DependencyCacheLayerStatistics.CacheType.MODULE_VERSIONS.displayName }
+
+        then:
+        // a listing merged from both layers counts as a writable hit, as the writable entry determines its expiry
+        statistics.hasLookups()
+        hits.readOnlyHits == 1
+        hits.writableHits == 1
+        hits.misses == 1
+    }
 }
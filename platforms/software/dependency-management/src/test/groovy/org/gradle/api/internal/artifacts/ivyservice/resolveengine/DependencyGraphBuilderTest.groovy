@@ -51,6 +51,7 @@ import org.gradle.api.internal.attributes.ImmutableAttributes
 import org.gradle.api.internal.attributes.immutable.ImmutableAttributesSchema
 import org.gradle.api.specs.Spec
 import org.gradle.internal.Describables
+import org.gradle.internal.buildoption.DefaultInternalOptions
 import org.gradle.internal.component.external.descriptor.DefaultExclude
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.ImmutableCapabilities
@@ -149,7 +150,8 @@ class DependencyGraphBuilderTest extends Specification {
         new ComponentIdGenerator(),
         new VersionParser(),
         variantSelector,
-        buildOperationProcessor
+        buildOperationProcessor,
+        new DefaultInternalOptions([:])
     )
 
     def root = rootProject()
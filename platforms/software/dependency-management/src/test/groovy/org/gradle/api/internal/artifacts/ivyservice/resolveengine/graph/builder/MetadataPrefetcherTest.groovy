@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultMutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import spock.lang.Specification
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentSelector.newSelector
+
+class MetadataPrefetcherTest extends Specification {
+    def resolver = Mock(ComponentMetaDataResolver)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    List<RunnableBuildOperation> operations = []
+    def buildOperationExecutor = Mock(BuildOperationExecutor) {
+        runAll(_, _) >> { args ->
+            def queue = Mock(BuildOperationQueue) {
+                add(_) >> { RunnableBuildOperation operation ->
+                    operations << operation
+                    operation.run(null)
+                }
+            }
+            args[0].execute(queue)
+        }
+    }
+
+    def "prefetches fixed versions of declared dependencies"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 4)
+
+        when:
+        prefetcher.addCandidates("repo", [dependency("a", "1.0"), dependency("b", "[1.0,2.0)"), dependency("c", "latest.release"), dependency("d", "2.0", true)])
+        prefetcher.fetch([])
+
+        then:
+        1 * resolver.resolve(id("a", "1.0"), _, _)
+        0 * resolver.resolve(_, _, _)
+    }
+
+    def "does not prefetch changing dependencies or dependencies with artifacts"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 4)
+
+        when:
+        prefetcher.addCandidates("repo", [dependency("a", "1.0"), dependency("b", "1.0")])
+        prefetcher.addCandidates("other", [dependency("a", "1.0", false, true), dependency("b", "1.0", false, false, [Stub(IvyArtifactName)])])
+        prefetcher.fetch([])
+
+        then:
+        operations.empty
+        0 * resolver.resolve(_, _, _)
+    }
+
+    def "requests each component at most once"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 4)
+
+        when:
+        prefetcher.addCandidates("repo", [dependency("a", "1.0")])
+        prefetcher.addCandidates("other", [dependency("a", "1.0")])
+        prefetcher.fetch([])
+        prefetcher.addCandidates("repo", [dependency("a", "1.0")])
+        prefetcher.fetch([])
+
+        then:
+        1 * resolver.resolve(id("a", "1.0"), _, _)
+        0 * resolver.resolve(_, _, _)
+    }
+
+    def "skips components whose metadata is cheap to fetch"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 4)
+
+        given:
+        resolver.isFetchingMetadataCheap(id("a", "1.0")) >> true
+
+        when:
+        prefetcher.addCandidates("repo", [dependency("a", "1.0"), dependency("b", "1.0")])
+        prefetcher.fetch([])
+
+        then:
+        1 * resolver.resolve(id("b", "1.0"), _, _)
+        0 * resolver.resolve(_, _, _)
+    }
+
+    def "bounds the number of concurrent requests per repository"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 2)
+
+        when:
+        prefetcher.addCandidates("repo", (1..5).collect { dependency("a$it", "1.0") })
+        prefetcher.addCandidates("other", [dependency("b", "1.0")])
+        prefetcher.fetch([])
+
+        then:
+        operations.size() == 3
+        5 * resolver.resolve({ it.module.startsWith("a") }, _, _)
+        1 * resolver.resolve(id("b", "1.0"), _, _)
+    }
+
+    def "ignores failures of speculative requests"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 1)
+
+        when:
+        prefetcher.addCandidates("repo", [dependency("a", "1.0"), dependency("b", "1.0")])
+        prefetcher.fetch([])
+
+        then:
+        1 * resolver.resolve(id("a", "1.0"), _, _) >> { throw new RuntimeException("broken") }
+        1 * resolver.resolve(id("b", "1.0"), _, _)
+    }
+
+    def "does not download anything when there is nothing to prefetch and a single component to resolve"() {
+        def prefetcher = new MetadataPrefetcher(resolver, versionSelectorScheme, buildOperationExecutor, 4)
+
+        when:
+        prefetcher.fetch([Stub(ComponentState)])
+
+        then:
+        operations.empty
+        0 * buildOperationExecutor.runAll(_, _)
+    }
+
+    private DependencyMetadata dependency(String name, String version, boolean constraint = false, boolean changing = false, List<IvyArtifactName> artifacts = []) {
+        Stub(DependencyMetadata) {
+            getSelector() >> newSelector(DefaultModuleIdentifier.newId("org", name), new DefaultMutableVersionConstraint(version))
+            isConstraint() >> constraint
+            isChanging() >> changing
+            getArtifacts() >> artifacts
+        }
+    }
+
+    private static id(String name, String version) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), version)
+    }
+}
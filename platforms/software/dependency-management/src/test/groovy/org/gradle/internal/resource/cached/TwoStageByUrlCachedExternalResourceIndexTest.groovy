@@ -16,6 +16,7 @@
 
 package org.gradle.internal.resource.cached
 
+import org.gradle.api.internal.artifacts.ivyservice.DependencyCacheLayerStatistics
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData
 import spock.lang.Specification
 import spock.lang.Subject
@@ -29,9 +30,10 @@ class TwoStageByUrlCachedExternalResourceIndexTest extends Specification {
 
     CachedExternalResourceIndex<String> readIndex = Mock(CachedExternalResourceIndex)
     CachedExternalResourceIndex<String> writeIndex = Mock(CachedExternalResourceIndex)
+    def statistics = new DependencyCacheLayerStatistics()
 
     @Subject
-    TwoStageByUrlCachedExternalResourceIndex twoStageIndex = new TwoStageByUrlCachedExternalResourceIndex(readOnlyPath, readIndex, writeIndex)
+    TwoStageByUrlCachedExternalResourceIndex twoStageIndex = new TwoStageByUrlCachedExternalResourceIndex(readOnlyPath, readIndex, writeIndex, statistics)
 
     def "storing delegates to the write index"() {
         when:
@@ -75,4 +77,22 @@ class TwoStageByUrlCachedExternalResourceIndexTest extends Specification {
         1 * writeIndex.clear("key")
         0 * readIndex._
     }
+
+    def "records hits per cache layer"() {
+        def cached = Stub(CachedExternalResource)
+
+        given:
+        writeIndex.lookup("key") >>> [null, null, cached]
+        readIndex.lookup("key") >>> [cached, null]
+
+        when:
+        3.times { twoStageIndex.lookup("key") }
+        def hits = statistics.snapshot().find { it.cache == DependencyCacheLayerStatistics.CacheType.EXTERNAL_RESOURCES.displayName }
+
+        then:
+        statistics.hasLookups()
+        hits.readOnlyHits == 1
+        hits.writableHits == 1
+        hits.misses == 1
+    }
 }
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.api-java")
     id("gradlebuild.instrumented-java-project")
+    id("gradlebuild.jmh")
 }
 
 description = "Public and internal 'core' Gradle APIs with implementation"
@@ -294,6 +295,8 @@ dependencies {
     }
     crossVersionTestDistributionRuntimeOnly(projects.distributionsCore)
 
+    jmhImplementation(platform(projects.distributionsDependencies))
+
     annotationProcessor(projects.internalInstrumentationProcessor)
     annotationProcessor(platform(projects.distributionsDependencies))
 
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.Stat;
+import org.gradle.internal.resources.ResourceLock;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.snapshot.CaseSensitivity;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds execution plans of synthetic nodes for the execution plan benchmarks.
+ */
+class ExecutionPlanBenchmarkFixture {
+    private ExecutionPlanBenchmarkFixture() {
+    }
+
+    /**
+     * Schedules the given nodes and their dependencies, and returns the finalized plan ready to execute.
+     */
+    static FinalizedExecutionPlan finalizedPlan(
+        String displayName,
+        List<? extends Node> entryNodes,
+        ResourceLockCoordinationService coordinator,
+        NodeDurationHistory durationHistory,
+        boolean trackBlockedNodes
+    ) {
+        ExecutionNodeAccessHierarchies hierarchies = new ExecutionNodeAccessHierarchies(CaseSensitivity.CASE_SENSITIVE, new UnusedStat());
+        DefaultExecutionPlan executionPlan = new DefaultExecutionPlan(
+            displayName,
+            null,
+            new OrdinalGroupFactory(),
+            new TaskDependencyResolver(Collections.emptyList()),
+            hierarchies.getOutputHierarchy(),
+            hierarchies.getDestroyableHierarchy(),
+            coordinator,
+            durationHistory,
+            trackBlockedNodes
+        );
+        executionPlan.addEntryNodes(entryNodes);
+        executionPlan.determineExecutionPlan();
+        return executionPlan.finalizePlan();
+    }
+
+    /**
+     * A node that does nothing, optionally holding some resource locks while it runs.
+     */
+    static class SyntheticNode extends CreationOrderedNode {
+        private final String name;
+        private final List<ResourceLock> resourceLocks;
+
+        SyntheticNode(String name) {
+            this(name, Collections.emptyList());
+        }
+
+        SyntheticNode(String name, List<ResourceLock> resourceLocks) {
+            this.name = name;
+            this.resourceLocks = resourceLocks;
+        }
+
+        SyntheticNode dependsOn(Node node) {
+            addDependencySuccessor(node);
+            return this;
+        }
+
+        @Override
+        public List<? extends ResourceLock> getResourcesToLock() {
+            return resourceLocks;
+        }
+
+        @Nullable
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver) {
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class UnusedStat implements Stat {
+        @Override
+        public int getUnixMode(File f) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileMetadata stat(File f) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.execution.plan.ExecutionPlanBenchmarkFixture.SyntheticNode;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulates the execution of a task graph with a fixed number of workers, using the real execution plan to pick the next node
+ * to start, and reports the simulated wall clock time of the build as the {@code makespanMillis} secondary result.
+ *
+ * <p>The graph is shaped like a multi-project Java build: each project compiles against the jars of a few upstream projects,
+ * and has tests, javadoc and cheap checks hanging off its classes. Task durations are drawn from a fixed seed, and the same
+ * durations are used as the history for critical-path scheduling.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class ExecutionPlanSchedulingSimulationBenchmark {
+
+    @Param({"default", "critical-path"})
+    String scheduling;
+
+    @Param({"8", "32"})
+    int workers;
+
+    @Param({"200"})
+    int projects;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Makespan {
+        public long makespanMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            makespanMillis = 0;
+        }
+    }
+
+    @Benchmark
+    public void simulateBuild(Makespan makespan) {
+        SimulatedBuild build = new SimulatedBuild(projects, new Random(42));
+        makespan.makespanMillis = build.execute(workers, scheduling.equals("critical-path"));
+    }
+
+    private static class SimulatedBuild {
+        private final Map<Node, Long> durations = new IdentityHashMap<>();
+        private final List<Node> entryNodes = new ArrayList<>();
+
+        SimulatedBuild(int projects, Random random) {
+            List<SyntheticNode> jars = new ArrayList<>(projects);
+            for (int project = 0; project < projects; project++) {
+                String prefix = ":p" + project + ":";
+                SyntheticNode compileJava = node(prefix + "compileJava", duration(random, 2000, 20000));
+                for (int upstream = Math.max(0, project - 3); upstream < project; upstream++) {
+                    if (upstream == project - 1 ? random.nextInt(4) != 0 : random.nextInt(3) == 0) {
+                        compileJava.dependsOn(jars.get(upstream));
+                    }
+                }
+                SyntheticNode processResources = node(prefix + "processResources", duration(random, 50, 300));
+                SyntheticNode classes = node(prefix + "classes", 1).dependsOn(compileJava).dependsOn(processResources);
+                SyntheticNode jar = node(prefix + "jar", duration(random, 100, 500)).dependsOn(classes);
+                SyntheticNode compileTestJava = node(prefix + "compileTestJava", duration(random, 1000, 8000)).dependsOn(classes);
+                SyntheticNode test = node(prefix + "test", duration(random, 5000, 60000)).dependsOn(compileTestJava);
+                SyntheticNode javadoc = node(prefix + "javadoc", duration(random, 1000, 5000)).dependsOn(compileJava);
+                SyntheticNode checkstyle = node(prefix + "checkstyle", duration(random, 500, 3000));
+                jars.add(jar);
+                Collections.addAll(entryNodes, jar, test, javadoc, checkstyle);
+            }
+        }
+
+        private static long duration(Random random, int min, int max) {
+            return min + random.nextInt(max - min);
+        }
+
+        private SyntheticNode node(String name, long duration) {
+            SyntheticNode node = new SyntheticNode(name);
+            durations.put(node, duration);
+            return node;
+        }
+
+        long execute(int workers, boolean criticalPath) {
+            DefaultResourceLockCoordinationService coordinator = new DefaultResourceLockCoordinationService();
+            NodeDurationHistory history = criticalPath ? new RecordedDurations() : NodeDurationHistory.NONE;
+            FinalizedExecutionPlan plan = ExecutionPlanBenchmarkFixture.finalizedPlan("simulation", entryNodes, coordinator, history, false);
+            WorkSource<Node> workSource = plan.asWorkSource();
+
+            PriorityQueue<RunningNode> running = new PriorityQueue<>();
+            long now = 0;
+            while (true) {
+                long startTime = now;
+                coordinator.withStateLock(() -> {
+                    while (running.size() < workers) {
+                        WorkSource.Selection<Node> selection = workSource.selectNext();
+                        if (selection.isNoMoreWorkToStart() || selection.isNoWorkReadyToStart()) {
+                            break;
+                        }
+                        Node node = selection.getItem();
+                        running.add(new RunningNode(node, startTime + durations.getOrDefault(node, 0L)));
+                    }
+                });
+                RunningNode next = running.poll();
+                if (next == null) {
+                    break;
+                }
+                now = next.finishTime;
+                coordinator.withStateLock(() -> workSource.finishedExecuting(next.node, null));
+            }
+            plan.close();
+            return now;
+        }
+
+        private class RecordedDurations implements NodeDurationHistory {
+            @Override
+            public long[] estimateDurations(List<Node> nodes) {
+                long[] estimates = new long[nodes.size()];
+                for (int i = 0; i < estimates.length; i++) {
+                    estimates[i] = durations.getOrDefault(nodes.get(i), 0L);
+                }
+                return estimates;
+            }
+
+            @Override
+            public void recordDuration(Node node, long durationMillis) {
+            }
+        }
+    }
+
+    private static class RunningNode implements Comparable<RunningNode> {
+        final Node node;
+        final long finishTime;
+
+        RunningNode(Node node, long finishTime) {
+            this.node = node;
+            this.finishTime = finishTime;
+        }
+
+        @Override
+        public int compareTo(RunningNode other) {
+            return Long.compare(finishTime, other.finishTime);
+        }
+    }
+}
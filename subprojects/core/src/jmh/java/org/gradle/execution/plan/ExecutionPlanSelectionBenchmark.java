@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.execution.plan.ExecutionPlanBenchmarkFixture.SyntheticNode;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.resources.SharedResourceLeaseRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to select and finish every node of a large synthetic execution plan.
+ *
+ * <p>The graph is made of layers of independent nodes, where each node depends on a couple of nodes of the previous layer.
+ * Each node needs a lease of one of a small number of single-lease shared resources, so most ready nodes cannot start
+ * while a fixed number of workers execute others.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExecutionPlanSelectionBenchmark {
+    @Param({"10000", "100000"})
+    int nodes;
+
+    @Param({"1000", "10000"})
+    int layerWidth;
+
+    @Param({"16", "256"})
+    int sharedResources;
+
+    @Param({"48"})
+    int workers;
+
+    @Param({"false", "true"})
+    boolean trackBlockedNodes;
+
+    private DefaultResourceLockCoordinationService coordinator;
+    private FinalizedExecutionPlan plan;
+
+    @Setup(Level.Invocation)
+    public void createPlan() {
+        coordinator = new DefaultResourceLockCoordinationService();
+        SharedResourceLeaseRegistry leaseRegistry = new SharedResourceLeaseRegistry(coordinator);
+        for (int i = 0; i < sharedResources; i++) {
+            leaseRegistry.registerSharedResource("resource" + i, 1);
+        }
+
+        Random random = new Random(42);
+        List<Node> entryNodes = new ArrayList<>(nodes);
+        List<SyntheticNode> previousLayer = Collections.emptyList();
+        List<SyntheticNode> layer = new ArrayList<>(layerWidth);
+        for (int i = 0; i < nodes; i++) {
+            SyntheticNode node = new SyntheticNode("node" + i, Collections.singletonList(leaseRegistry.getResourceLock("resource" + random.nextInt(sharedResources))));
+            if (!previousLayer.isEmpty()) {
+                node.dependsOn(previousLayer.get(random.nextInt(previousLayer.size())));
+                node.dependsOn(previousLayer.get(random.nextInt(previousLayer.size())));
+            }
+            layer.add(node);
+            entryNodes.add(node);
+            if (layer.size() == layerWidth) {
+                previousLayer = layer;
+                layer = new ArrayList<>(layerWidth);
+            }
+        }
+
+        plan = ExecutionPlanBenchmarkFixture.finalizedPlan("benchmark", entryNodes, coordinator, NodeDurationHistory.NONE, trackBlockedNodes);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closePlan() {
+        plan.close();
+    }
+
+    @Benchmark
+    public int selectAllNodes() {
+        WorkSource<Node> workSource = plan.asWorkSource();
+        Queue<Node> running = new ArrayDeque<>(workers);
+        int executed = 0;
+        while (true) {
+            coordinator.withStateLock(() -> {
+                while (running.size() < workers) {
+                    WorkSource.Selection<Node> selection = workSource.selectNext();
+                    if (selection.isNoMoreWorkToStart() || selection.isNoWorkReadyToStart()) {
+                        break;
+                    }
+                    running.add(selection.getItem());
+                }
+            });
+            Node next = running.poll();
+            if (next == null) {
+                return executed;
+            }
+            coordinator.withStateLock(() -> workSource.finishedExecuting(next, null));
+            executed++;
+        }
+    }
+}
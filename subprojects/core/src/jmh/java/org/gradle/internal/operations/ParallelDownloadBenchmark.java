@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations;
+
+import com.google.common.collect.ImmutableMap;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.DefaultWorkerLimits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures how long it takes to complete many simulated artifact downloads that are all requested at the same time,
+ * using {@link BuildOperationExecutor#runAll(org.gradle.api.Action, BuildOperationConstraint)} with {@link BuildOperationConstraint#BLOCKING_IO}.
+ *
+ * <p>Each download blocks for a fixed latency, as a request to a remote repository would. With the {@code platform} executor the operations
+ * run on the pool used for unconstrained build operations, holding worker leases. With the {@code virtual} executor
+ * {@link DefaultBuildOperationExecutor#VIRTUAL_THREADS} is enabled, so that the operations run on virtual threads without worker leases.
+ * The virtual executor only uses virtual threads when the benchmark runs on Java 21 or later.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ParallelDownloadBenchmark {
+    @Param({"100", "500", "2000"})
+    int requests;
+
+    @Param({"20"})
+    int latencyMillis;
+
+    @Param({"8"})
+    int workers;
+
+    @Param({"platform", "virtual"})
+    String executorType;
+
+    private DefaultExecutorFactory executorFactory;
+    private DefaultWorkerLeaseService workerLeaseService;
+    private DefaultBuildOperationExecutor buildOperationExecutor;
+
+    @Setup(Level.Iteration)
+    public void createExecutor() {
+        DefaultWorkerLimits workerLimits = new DefaultWorkerLimits(workers);
+        executorFactory = new DefaultExecutorFactory();
+        workerLeaseService = new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), workerLimits);
+        workerLeaseService.startProjectExecution(true);
+        buildOperationExecutor = new DefaultBuildOperationExecutor(
+            new DefaultBuildOperationRunner(
+                CurrentBuildOperationRef.instance(),
+                System::currentTimeMillis,
+                new DefaultBuildOperationIdFactory(),
+                () -> DefaultBuildOperationRunner.BuildOperationExecutionListener.NO_OP
+            ),
+            CurrentBuildOperationRef.instance(),
+            new DefaultBuildOperationQueueFactory(workerLeaseService),
+            executorFactory,
+            workerLimits,
+            new DefaultInternalOptions(ImmutableMap.of(DefaultBuildOperationExecutor.VIRTUAL_THREADS.getSystemPropertyName(), Boolean.toString(executorType.equals("virtual"))))
+        );
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopExecutor() {
+        buildOperationExecutor.stop();
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    public void download() {
+        long latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        workerLeaseService.runAsWorkerThread(() -> buildOperationExecutor.runAll(queue -> {
+            for (int i = 0; i < requests; i++) {
+                queue.add(new DownloadOperation(latencyNanos));
+            }
+        }, BuildOperationConstraint.BLOCKING_IO));
+    }
+
+    private static class DownloadOperation implements RunnableBuildOperation {
+        private final long latencyNanos;
+
+        DownloadOperation(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Download");
+        }
+    }
+}
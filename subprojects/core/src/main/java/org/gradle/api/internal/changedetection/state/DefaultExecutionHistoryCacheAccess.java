@@ -19,20 +19,32 @@
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.scopes.ScopedCacheBuilderFactory;
 import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 
 import java.io.Closeable;
+import java.util.Locale;
 
 public class DefaultExecutionHistoryCacheAccess implements ExecutionHistoryCacheAccess, Closeable {
     private final PersistentCache cache;
 
-    public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory) {
+    public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory, HashFunction localHashFunction) {
         this.cache = cacheBuilderFactory
-            .createCacheBuilder("executionHistory")
+            .createCacheBuilder(cacheName(localHashFunction))
             .withDisplayName("execution history cache")
             .withInitialLockMode(FileLockManager.LockMode.OnDemand)
             .open();
     }
 
+    private static String cacheName(HashFunction localHashFunction) {
+        // Output snapshots contain directory hashes, which cannot be compared when calculated with a different function,
+        // so each function gets its own cache, and daemons using different functions keep their history
+        if (localHashFunction == Hashing.defaultFunction()) {
+            return "executionHistory";
+        }
+        return "executionHistory-" + localHashFunction.getAlgorithm().toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public PersistentCache get() {
         return cache;
@@ -27,21 +27,26 @@
 import org.gradle.caching.internal.controller.impl.LifecycleAwareBuildCacheControllerFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.BuildCachePackingExecutor;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
 import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
+import org.gradle.caching.internal.services.BuildCacheUploadExecutor;
 import org.gradle.caching.internal.services.DefaultBuildCacheControllerFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.RootBuildState;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
 import org.gradle.internal.file.ThreadLocalBufferProvider;
+import org.gradle.internal.hash.LocalHashFunction;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.instantiation.InstanceGenerator;
 import org.gradle.internal.instantiation.InstantiatorFactory;
@@ -59,6 +64,7 @@
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Build scoped services for build cache usage.
@@ -72,6 +78,16 @@ BufferProvider createBufferProvider() {
                 // TODO Make buffer size configurable
                 return new ThreadLocalBufferProvider(64 * 1024);
             }
+
+            @Provides
+            BuildCachePackingExecutor createBuildCachePackingExecutor(ExecutorFactory executorFactory) {
+                return new BuildCachePackingExecutor(executorFactory, Runtime.getRuntime().availableProcessors());
+            }
+
+            @Provides
+            BuildCacheUploadExecutor createBuildCacheUploadExecutor(ExecutorFactory executorFactory) {
+                return new BuildCacheUploadExecutor(executorFactory);
+            }
         });
     }
 
@@ -123,16 +139,26 @@ TarPackerFileSystemSupport createPackerFileSystemSupport(Deleter deleter) {
                 return new DefaultTarPackerFileSystemSupport(deleter);
             }
 
+            @Provides
+            FilePermissionAccess createFilePermissionAccess(FileSystem fileSystem) {
+                return new FilePermissionsAccessAdapter(fileSystem);
+            }
+
             @Provides
             BuildCacheEntryPacker createResultPacker(
                 TarPackerFileSystemSupport fileSystemSupport,
-                FileSystem fileSystem,
+                FilePermissionAccess filePermissionAccess,
                 StreamHasher fileHasher,
+                LocalHashFunction localHashFunction,
                 StringInterner stringInterner,
-                BufferProvider bufferProvider
+                BufferProvider bufferProvider,
+                BuildCachePackingExecutor packingExecutor,
+                InternalOptions internalOptions
             ) {
+                Executor executor = BuildCachePackingExecutor.isParallelPackingEnabled(internalOptions) ? packingExecutor : null;
                 return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider));
+                    new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, fileHasher, localHashFunction.getFunction(), stringInterner, bufferProvider, executor),
+                    executor);
             }
 
             @Provides
@@ -158,8 +184,12 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                 BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
                 TemporaryFileProvider temporaryFileProvider,
                 BuildCacheEntryPacker packer,
+                TarPackerFileSystemSupport packerFileSystemSupport,
+                FilePermissionAccess filePermissionAccess,
+                LocalHashFunction localHashFunction,
                 OriginMetadataFactory originMetadataFactory,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                BuildCacheUploadExecutor uploadExecutor
             ) {
                 return new DefaultBuildCacheControllerFactory(
                     startParameter,
@@ -168,7 +198,11 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                     originMetadataFactory,
                     stringInterner,
                     temporaryFileProvider,
-                    packer
+                    packer,
+                    packerFileSystemSupport,
+                    filePermissionAccess,
+                    localHashFunction,
+                    uploadExecutor
                 );
             }
         });
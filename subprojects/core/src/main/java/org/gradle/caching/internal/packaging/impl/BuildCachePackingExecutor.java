@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Executor;
+
+/**
+ * The thread pool used by all build cache entry packers to read, write and compress entries concurrently.
+ *
+ * The pool is only started when it is first used.
+ */
+public class BuildCachePackingExecutor implements Executor, Stoppable {
+    /**
+     * When set, build cache entries are packed and unpacked using multiple threads.
+     */
+    public static final InternalFlag PARALLEL_PACKING_PROPERTY = new InternalFlag("org.gradle.caching.parallel-packing");
+
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
+    @Nullable
+    private ManagedExecutor executor;
+    private boolean stopped;
+
+    public BuildCachePackingExecutor(ExecutorFactory executorFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    public static boolean isParallelPackingEnabled(InternalOptions options) {
+        return options.getOption(PARALLEL_PACKING_PROPERTY).get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        getExecutor().execute(command);
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (stopped) {
+            throw new IllegalStateException("Build cache packing executor has been stopped.");
+        }
+        if (executor == null) {
+            executor = executorFactory.create("Build cache packing", maxThreads);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopped = true;
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
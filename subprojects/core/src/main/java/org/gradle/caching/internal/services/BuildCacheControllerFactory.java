@@ -26,6 +26,7 @@
 @ServiceScope(Scope.Build.class)
 public interface BuildCacheControllerFactory {
     String REMOTE_CONTINUE_ON_ERROR_PROPERTY = "org.gradle.unsafe.build-cache.remote-continue-on-error";
+    String REMOTE_ASYNC_STORE_PROPERTY = "org.gradle.unsafe.build-cache.remote-async-store";
 
     BuildCacheController createController(Path buildIdentityPath, BuildCacheConfigurationInternal buildCacheConfiguration, InstanceGenerator instanceGenerator);
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.services;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Executor;
+
+/**
+ * The thread pool used to store entries in remote build caches in the background.
+ *
+ * The pool is only started when it is first used.
+ */
+public class BuildCacheUploadExecutor implements Executor, Stoppable {
+    /**
+     * The number of entries that are uploaded concurrently.
+     */
+    public static final int MAX_CONCURRENT_UPLOADS = 4;
+
+    private final ExecutorFactory executorFactory;
+    @Nullable
+    private ManagedExecutor executor;
+    private boolean stopped;
+
+    public BuildCacheUploadExecutor(ExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        getExecutor().execute(command);
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (stopped) {
+            throw new IllegalStateException("Build cache upload executor has been stopped.");
+        }
+        if (executor == null) {
+            executor = executorFactory.create("Build cache upload", MAX_CONCURRENT_UPLOADS);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopped = true;
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
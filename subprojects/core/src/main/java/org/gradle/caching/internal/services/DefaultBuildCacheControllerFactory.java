@@ -27,8 +27,12 @@
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.ContentAddressedBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
+import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheService;
+import org.gradle.internal.hash.LocalHashFunction;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.util.Path;
@@ -39,7 +43,11 @@ public class DefaultBuildCacheControllerFactory extends AbstractBuildCacheContro
 
     private final TemporaryFileProvider temporaryFileProvider;
     private final BuildCacheEntryPacker packer;
+    private final TarPackerFileSystemSupport packerFileSystemSupport;
+    private final FilePermissionAccess filePermissionAccess;
+    private final LocalHashFunction localHashFunction;
     private final BuildOperationProgressEventEmitter buildOperationProgressEmitter;
+    private final BuildCacheUploadExecutor uploadExecutor;
 
     public DefaultBuildCacheControllerFactory(
         StartParameter startParameter,
@@ -48,7 +56,11 @@ public DefaultBuildCacheControllerFactory(
         OriginMetadataFactory originMetadataFactory,
         StringInterner stringInterner,
         TemporaryFileProvider temporaryFileProvider,
-        BuildCacheEntryPacker packer
+        BuildCacheEntryPacker packer,
+        TarPackerFileSystemSupport packerFileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        LocalHashFunction localHashFunction,
+        BuildCacheUploadExecutor uploadExecutor
     ) {
         super(
             startParameter,
@@ -58,7 +70,11 @@ public DefaultBuildCacheControllerFactory(
         );
         this.temporaryFileProvider = temporaryFileProvider;
         this.packer = packer;
+        this.packerFileSystemSupport = packerFileSystemSupport;
+        this.filePermissionAccess = filePermissionAccess;
+        this.localHashFunction = localHashFunction;
         this.buildOperationProgressEmitter = buildOperationProgressEmitter;
+        this.uploadExecutor = uploadExecutor;
     }
 
     @Override
@@ -74,6 +90,11 @@ protected BuildCacheController doCreateController(
         );
 
         boolean logStackTraces = startParameter.getShowStacktrace() != ShowStacktrace.INTERNAL_EXCEPTIONS;
+        BuildCacheEntryPacker localPacker = localDescribedService == null
+            ? packer
+            : localDescribedService.service.getContentAddressedFileStore()
+                .<BuildCacheEntryPacker>map(fileStore -> new ContentAddressedBuildCacheEntryPacker(fileStore, packerFileSystemSupport, filePermissionAccess, localHashFunction.getFunction(), stringInterner))
+                .orElse(packer);
 
         return new DefaultBuildCacheController(
             config,
@@ -83,8 +104,10 @@ protected BuildCacheController doCreateController(
             logStackTraces,
             !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
             packer,
+            localPacker,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            Boolean.getBoolean(REMOTE_ASYNC_STORE_PROPERTY) ? uploadExecutor : null
         );
     }
 
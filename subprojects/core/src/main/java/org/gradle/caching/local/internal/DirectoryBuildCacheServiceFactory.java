@@ -28,10 +28,13 @@
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.file.PathToFileResolver;
 import org.gradle.internal.file.impl.SingleDepthFileAccessTracker;
+import org.gradle.internal.hash.StreamHasher;
 
 import javax.inject.Inject;
 import java.io.File;
@@ -42,6 +45,12 @@
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     public static final String FAILED_READ_SUFFIX = ".failed";
 
+    /**
+     * When set, the local cache stores the contents of output files once, addressed by their hash,
+     * and keeps a manifest per cache entry instead of a packed archive.
+     */
+    public static final InternalFlag CONTENT_ADDRESSED_PROPERTY = new InternalFlag("org.gradle.caching.local.content-addressed");
+
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
     private static final String DIRECTORY_BUILD_CACHE_TYPE = "directory";
@@ -53,6 +62,8 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private final FileAccessTimeJournal fileAccessTimeJournal;
     private final CacheConfigurationsInternal cacheConfigurations;
     private final CacheCleanupStrategyFactory cacheCleanupStrategyFactory;
+    private final StreamHasher streamHasher;
+    private final InternalOptions internalOptions;
 
     @Inject
     public DirectoryBuildCacheServiceFactory(
@@ -61,7 +72,9 @@ public DirectoryBuildCacheServiceFactory(
         PathToFileResolver resolver,
         FileAccessTimeJournal fileAccessTimeJournal,
         CacheConfigurationsInternal cacheConfigurations,
-        CacheCleanupStrategyFactory cacheCleanupStrategyFactory
+        CacheCleanupStrategyFactory cacheCleanupStrategyFactory,
+        StreamHasher streamHasher,
+        InternalOptions internalOptions
     ) {
         this.unscopedCacheBuilderFactory = unscopedCacheBuilderFactory;
         this.cacheBuilderFactory = cacheBuilderFactory;
@@ -69,6 +82,8 @@ public DirectoryBuildCacheServiceFactory(
         this.fileAccessTimeJournal = fileAccessTimeJournal;
         this.cacheConfigurations = cacheConfigurations;
         this.cacheCleanupStrategyFactory = cacheCleanupStrategyFactory;
+        this.streamHasher = streamHasher;
+        this.internalOptions = internalOptions;
     }
 
     @Override
@@ -96,7 +111,8 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache buildCacheC
             .open();
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX);
+        StreamHasher contentHasher = internalOptions.getOption(CONTENT_ADDRESSED_PROPERTY).get() ? streamHasher : null;
+        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX, contentHasher);
     }
 
     private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnusedEntriesTimestamp) {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.gradle.api.NonNullApi;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.process.internal.health.memory.OsMemoryInfo;
+import org.gradle.process.internal.health.memory.OsMemoryStatus;
+import org.gradle.process.internal.health.memory.OsMemoryStatusAspect;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Chooses how many worker leases to grant, between a minimum and the maximum worker count, based on the load of the machine.
+ *
+ * <p>Fewer leases are granted when the system load average is higher than the number of processors or physical memory is
+ * running low, for example because other builds or test and compiler daemons share the machine. More leases are granted
+ * again, up to the maximum, once the load goes back down.</p>
+ *
+ * <p>The system load average is a moving average over one minute, so it takes about that long to reflect a change of the limit.
+ * After each change the limit is therefore held for {@link #HOLD_OFF_MILLIS}, instead of being driven down to the minimum
+ * or back up to the maximum before the load average has caught up. Only physical memory running low, which is measured
+ * without such a delay, revokes further leases during that time.</p>
+ */
+@NonNullApi
+class AdaptiveWorkerLeaseLimit implements Runnable {
+    private static final Logger LOGGER = Logging.getLogger(AdaptiveWorkerLeaseLimit.class);
+
+    static final long SAMPLE_INTERVAL_MILLIS = 2000;
+    static final long HOLD_OFF_MILLIS = 60000;
+    @VisibleForTesting
+    static final int HOLD_OFF_SAMPLES = (int) (HOLD_OFF_MILLIS / SAMPLE_INTERVAL_MILLIS);
+
+    @VisibleForTesting
+    static final double HIGH_LOAD_PER_PROCESSOR = 1.2;
+    @VisibleForTesting
+    static final double LOW_LOAD_PER_PROCESSOR = 0.9;
+    @VisibleForTesting
+    static final double LOW_FREE_MEMORY = 0.1;
+    @VisibleForTesting
+    static final double HIGH_FREE_MEMORY = 0.2;
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final OsMemoryInfo memoryInfo;
+    private final OperatingSystemMXBean operatingSystem;
+    private final Listener listener;
+    private int currentLimit;
+    private int samplesUntilNextChange;
+
+    AdaptiveWorkerLeaseLimit(int minWorkers, int maxWorkers, OsMemoryInfo memoryInfo, Listener listener) {
+        this(minWorkers, maxWorkers, memoryInfo, ManagementFactory.getOperatingSystemMXBean(), listener);
+    }
+
+    @VisibleForTesting
+    AdaptiveWorkerLeaseLimit(int minWorkers, int maxWorkers, OsMemoryInfo memoryInfo, OperatingSystemMXBean operatingSystem, Listener listener) {
+        this.minWorkers = Math.max(1, Math.min(minWorkers, maxWorkers));
+        this.maxWorkers = maxWorkers;
+        this.memoryInfo = memoryInfo;
+        this.operatingSystem = operatingSystem;
+        this.listener = listener;
+        this.currentLimit = maxWorkers;
+    }
+
+    /**
+     * Samples the load of the machine and changes the limit when required.
+     */
+    @Override
+    public void run() {
+        double freeMemoryFraction = freeMemoryFraction();
+        int newLimit;
+        if (samplesUntilNextChange > 0) {
+            samplesUntilNextChange--;
+            newLimit = isLowOnMemory(freeMemoryFraction) ? Math.max(minWorkers, currentLimit - 1) : currentLimit;
+        } else {
+            newLimit = nextLimit(currentLimit, minWorkers, maxWorkers, loadPerProcessor(), freeMemoryFraction);
+        }
+        if (newLimit != currentLimit) {
+            samplesUntilNextChange = HOLD_OFF_SAMPLES;
+            LOGGER.info("Changing worker lease limit from {} to {}.", currentLimit, newLimit);
+            int previousLimit = currentLimit;
+            currentLimit = newLimit;
+            listener.limitChanged(previousLimit, newLimit);
+        }
+    }
+
+    /**
+     * Returns the limit to use given the current limit, the system load average divided by the number of processors
+     * and the fraction of physical memory that is free. Either measure is {@link Double#NaN} when not available.
+     */
+    @VisibleForTesting
+    static int nextLimit(int currentLimit, int minWorkers, int maxWorkers, double loadPerProcessor, double freeMemoryFraction) {
+        boolean hasLoad = !Double.isNaN(loadPerProcessor);
+        boolean hasMemory = !Double.isNaN(freeMemoryFraction);
+        if (!hasLoad && !hasMemory) {
+            return maxWorkers;
+        }
+        boolean overloaded = (hasLoad && loadPerProcessor > HIGH_LOAD_PER_PROCESSOR) || isLowOnMemory(freeMemoryFraction);
+        if (overloaded) {
+            return Math.max(minWorkers, currentLimit - 1);
+        }
+        boolean underloaded = (!hasLoad || loadPerProcessor < LOW_LOAD_PER_PROCESSOR) && (!hasMemory || freeMemoryFraction > HIGH_FREE_MEMORY);
+        if (underloaded) {
+            return Math.min(maxWorkers, currentLimit + 1);
+        }
+        return currentLimit;
+    }
+
+    private static boolean isLowOnMemory(double freeMemoryFraction) {
+        return !Double.isNaN(freeMemoryFraction) && freeMemoryFraction < LOW_FREE_MEMORY;
+    }
+
+    private double loadPerProcessor() {
+        // Negative when the load average is not available, for example on Windows
+        double loadAverage = operatingSystem.getSystemLoadAverage();
+        return loadAverage < 0 ? Double.NaN : loadAverage / operatingSystem.getAvailableProcessors();
+    }
+
+    private double freeMemoryFraction() {
+        OsMemoryStatus status;
+        try {
+            status = memoryInfo.getOsSnapshot();
+        } catch (UnsupportedOperationException e) {
+            return Double.NaN;
+        }
+        OsMemoryStatusAspect.Available physicalMemory = status.getPhysicalMemory();
+        return physicalMemory.getTotal() > 0 ? (double) physicalMemory.getFree() / physicalMemory.getTotal() : Double.NaN;
+    }
+
+    interface Listener {
+        void limitChanged(int previousLimit, int newLimit);
+    }
+}
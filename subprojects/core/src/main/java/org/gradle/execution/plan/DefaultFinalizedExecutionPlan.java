@@ -16,6 +16,7 @@
 
 package org.gradle.execution.plan;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
 import org.gradle.api.Action;
@@ -23,6 +24,8 @@
 import org.gradle.api.NonNullApi;
 import org.gradle.internal.MutableBoolean;
 import org.gradle.internal.Pair;
+import org.gradle.internal.resources.AbstractTrackedResourceLock;
+import org.gradle.internal.resources.DefaultLease;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.work.WorkerLeaseRegistry;
@@ -31,17 +34,23 @@
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static com.google.common.collect.Sets.newIdentityHashSet;
 import static java.lang.String.format;
@@ -49,6 +58,8 @@
 @NonNullApi
 public class DefaultFinalizedExecutionPlan implements WorkSource<Node>, FinalizedExecutionPlan {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFinalizedExecutionPlan.class);
+    // Checking a few nodes that cannot start over and over is cheaper than keeping track of what they wait for
+    private static final int MAX_UNSTARTED_NODES_TO_RECHECK = 32;
     public static final Comparator<Node> NODE_EXECUTION_ORDER = new Comparator<Node>() {
         @Override
         public int compare(Node node1, Node node2) {
@@ -68,6 +79,7 @@ public int compare(Node node1, Node node2) {
 
     private final Set<Node> waitingToStartNodes = new HashSet<>();
     private final ExecutionQueue readyNodes = new ExecutionQueue();
+    private final BlockedNodes blockedNodes = new BlockedNodes();
     private final List<Throwable> failures = new ArrayList<>();
     private final List<DiagnosticEvent> diagnosticEvents = new ArrayList<>();
     private final String displayName;
@@ -84,6 +96,10 @@ public int compare(Node node1, Node node2) {
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final OrdinalNodeAccess ordinalNodeAccess;
     private final Consumer<LocalTaskNode> completionHandler;
+    private final NodeDurationHistory durationHistory;
+    // When false, ready nodes that cannot start stay in the ready queue and are checked again on every selection
+    private final boolean trackBlockedNodes;
+    private final Map<Node, Long> startTimes = new IdentityHashMap<>();
 
     // When true, there may be nodes that are both ready and "selectable", which means their project and resources are able to be locked
     // When false, there are definitely no nodes that are "selectable"
@@ -100,7 +116,9 @@ public DefaultFinalizedExecutionPlan(
         List<Node> scheduledNodes,
         boolean continueOnFailure,
         QueryableExecutionPlan contents,
-        Consumer<LocalTaskNode> completionHandler
+        Consumer<LocalTaskNode> completionHandler,
+        NodeDurationHistory durationHistory,
+        boolean trackBlockedNodes
     ) {
         this.displayName = displayName;
         this.outputHierarchy = outputHierarchy;
@@ -110,6 +128,8 @@ public DefaultFinalizedExecutionPlan(
         this.continueOnFailure = continueOnFailure;
         this.contents = contents;
         this.completionHandler = completionHandler;
+        this.durationHistory = durationHistory;
+        this.trackBlockedNodes = trackBlockedNodes;
 
         SetMultimap<FinalizerGroup, FinalizerGroup> reachableGroups = LinkedHashMultimap.create();
         for (Node node : scheduledNodes) {
@@ -118,9 +138,15 @@ public DefaultFinalizedExecutionPlan(
             }
         }
 
-        for (int i = 0; i < scheduledNodes.size(); i++) {
-            Node node = scheduledNodes.get(i);
-            node.setIndex(i);
+        if (durationHistory == NodeDurationHistory.NONE) {
+            for (int i = 0; i < scheduledNodes.size(); i++) {
+                scheduledNodes.get(i).setIndex(i);
+            }
+        } else {
+            assignCriticalPathOrder(scheduledNodes, durationHistory.estimateDurations(scheduledNodes));
+        }
+
+        for (Node node : scheduledNodes) {
             node.prepareForExecution(this::monitoredNodeReady);
             node.updateAllDependenciesComplete();
             maybeNodeReady(node);
@@ -129,6 +155,42 @@ public DefaultFinalizedExecutionPlan(
         lockCoordinator.addLockReleaseListener(resourceUnlockListener);
     }
 
+    /**
+     * Assigns the node indexes, and so the order in which ready nodes are started, by the estimated length of the longest
+     * chain of work that depends on each node, falling back to the scheduled order for nodes with equal estimates.
+     *
+     * <p>The scheduled nodes are ordered so that the dependencies of a node come before it, so walking the list backwards
+     * visits each node after the nodes that depend on it. Each node counts for at least 1, so that without any history the
+     * nodes at the start of the longest dependency chains still go first.</p>
+     */
+    @VisibleForTesting
+    static void assignCriticalPathOrder(List<Node> scheduledNodes, long[] estimatedDurations) {
+        int count = scheduledNodes.size();
+        Map<Node, Long> remaining = new IdentityHashMap<>(count);
+        Integer[] order = new Integer[count];
+        long[] lengths = new long[count];
+        for (int i = count - 1; i >= 0; i--) {
+            Node node = scheduledNodes.get(i);
+            long longestDependent = 0;
+            for (Node predecessor : node.getDependencyPredecessors()) {
+                Long length = remaining.get(predecessor);
+                if (length != null && length > longestDependent) {
+                    longestDependent = length;
+                }
+            }
+            lengths[i] = Math.max(1, estimatedDurations[i]) + longestDependent;
+            remaining.put(node, lengths[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> {
+            int result = Long.compare(lengths[i2], lengths[i1]);
+            return result != 0 ? result : Integer.compare(i1, i2);
+        });
+        for (int rank = 0; rank < count; rank++) {
+            scheduledNodes.get(order[rank]).setIndex(rank);
+        }
+    }
+
     @Override
     public String getDisplayName() {
         return displayName;
@@ -149,14 +211,29 @@ public void close() {
         lockCoordinator.removeLockReleaseListener(resourceUnlockListener);
         waitingToStartNodes.clear();
         readyNodes.clear();
+        blockedNodes.clear();
         runningNodes.clear();
+        startTimes.clear();
         reachableCache.clear();
     }
 
     private void resourceUnlocked(ResourceLock resourceLock) {
-        if (!(resourceLock instanceof WorkerLeaseRegistry.WorkerLease) && !readyNodes.isEmpty()) {
+        if (!(resourceLock instanceof WorkerLeaseRegistry.WorkerLease)) {
+            blockedNodes.unblockedByLock(resourceLock, this::nodeUnblocked);
+            if (!readyNodes.isEmpty()) {
+                maybeNodesSelectable = true;
+            }
+        }
+    }
+
+    private boolean nodeUnblocked(Node node) {
+        // The node may have been cancelled since it was blocked
+        if (node.isReady()) {
             maybeNodesSelectable = true;
+            readyNodes.insert(node);
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -188,6 +265,7 @@ public Diagnostics healthDiagnostics() {
         for (Node node : readyNodes.nodes) {
             readyToStartItems.add(node.toString());
         }
+        blockedNodes.visitBlockedNodes((node, reason) -> readyToStartItems.add(node + " (" + reason + ")"));
         List<String> otherWaitingItems = new ArrayList<>();
         visitWaitingNodes(node -> {
             if (!waitingToStartNodes.contains(node)) {
@@ -238,9 +316,17 @@ public Selection<Node> selectNext() {
         }
 
         List<ResourceLock> resources = new ArrayList<>();
+        List<Object> unusedReleases = new ArrayList<>();
+        int unstartedNodes = 0;
         readyNodes.restart();
-        while (readyNodes.hasNext()) {
+        // Nodes unblocked because some other node could not use a released lock may be able to start, so check those too
+        while (readyNodes.hasNext() || unblockNextNodes(unusedReleases)) {
             Node node = readyNodes.next();
+            Object unblockedBy = blockedNodes.takeUnblockedBy(node);
+            if (unblockedBy != null) {
+                // Unless the node uses the released lock, another node blocked by it should get the chance to
+                unusedReleases.add(unblockedBy);
+            }
             if (node.allDependenciesComplete()) {
                 if (!node.allDependenciesSuccessful()) {
                     // Nodes whose dependencies have failed are added to the 'readyNodes' queue.
@@ -276,12 +362,26 @@ public Selection<Node> selectNext() {
                 }
 
                 // Node is ready to execute and all dependencies and pre-execution nodes have completed
-                if (attemptToStart(node, resources)) {
+                StartResult result = attemptToStart(node, resources, trackBlockedNodes && unstartedNodes >= MAX_UNSTARTED_NODES_TO_RECHECK);
+                if (result == StartResult.STARTED) {
                     readyNodes.remove();
                     waitingToStartNodes.remove(node);
                     node.getMutationInfo().started();
+                    if (unblockedBy != null) {
+                        unusedReleases.remove(unusedReleases.size() - 1);
+                    }
+                    unblockNextNodes(unusedReleases);
                     return Selection.of(node);
+                } else if (result == StartResult.BLOCKED) {
+                    // Cannot start until some other work releases a lock or completes, so do not check this node again until then
+                    readyNodes.remove();
+                    if (unblockedBy != null && blockedNodes.isBlockedBy(node, unblockedBy)) {
+                        // Some other node took the lock first
+                        unusedReleases.remove(unusedReleases.size() - 1);
+                    }
+                    continue;
                 }
+                unstartedNodes++;
             }
             if (node.isComplete()) {
                 // Is already complete, for example:
@@ -302,30 +402,50 @@ public Selection<Node> selectNext() {
         return Selection.noWorkReadyToStart();
     }
 
+    private boolean unblockNextNodes(List<Object> unusedReleases) {
+        boolean unblocked = false;
+        for (Object lock : unusedReleases) {
+            unblocked |= blockedNodes.unblockNext(lock, this::nodeUnblocked);
+        }
+        unusedReleases.clear();
+        if (unblocked) {
+            readyNodes.restart();
+        }
+        return unblocked;
+    }
+
     private void addNodeToPlan(Node node) {
         maybeNodeReady(node);
         maybeWaitingForNewNode(node, "runtime");
     }
 
-    private boolean attemptToStart(Node node, List<ResourceLock> resources) {
+    /**
+     * Attempts to start the given node. When the node cannot start and {@code block} is true, the node is blocked until the work it waits for is done, if possible.
+     */
+    private StartResult attemptToStart(Node node, List<ResourceLock> resources, boolean block) {
         resources.clear();
-        if (!tryAcquireLocksForNode(node, resources)) {
+        ResourceLock unavailableLock = tryAcquireLocksForNode(node, resources);
+        if (unavailableLock != null) {
             releaseLocks(resources);
-            return false;
+            return block && blockedNodes.maybeBlockedByLock(node, unavailableLock) ? StartResult.BLOCKED : StartResult.NOT_STARTED;
         }
 
         MutationInfo mutations = node.getMutationInfo();
 
         if (conflictsWithOtherNodes(node, mutations)) {
             releaseLocks(resources);
-            return false;
+            if (block) {
+                blockedNodes.blockedByOtherNodes(node);
+                return StartResult.BLOCKED;
+            }
+            return StartResult.NOT_STARTED;
         }
 
         node.startExecution(this::recordNodeExecutionStarted);
         if (mutations.hasValidationProblem) {
             invalidNodeRunning = true;
         }
-        return true;
+        return StartResult.STARTED;
     }
 
     private void releaseLocks(List<ResourceLock> resources) {
@@ -334,15 +454,22 @@ private void releaseLocks(List<ResourceLock> resources) {
         }
     }
 
-    private boolean tryAcquireLocksForNode(Node node, List<ResourceLock> resources) {
-        if (!tryLockProjectFor(node, resources)) {
+    /**
+     * Attempts to acquire the locks required by the given node. Returns the first lock that cannot be acquired, or {@code null} when all of them were acquired.
+     */
+    @Nullable
+    private ResourceLock tryAcquireLocksForNode(Node node, List<ResourceLock> resources) {
+        ResourceLock unavailableLock = tryLockProjectFor(node, resources);
+        if (unavailableLock != null) {
             LOGGER.debug("Cannot acquire project lock for node {}", node);
-            return false;
-        } else if (!tryLockSharedResourceFor(node, resources)) {
+            return unavailableLock;
+        }
+        unavailableLock = tryLockSharedResourceFor(node, resources);
+        if (unavailableLock != null) {
             LOGGER.debug("Cannot acquire shared resource lock for node {}", node);
-            return false;
+            return unavailableLock;
         }
-        return true;
+        return null;
     }
 
     private boolean conflictsWithOtherNodes(Node node, MutationInfo mutations) {
@@ -365,15 +492,16 @@ private void updateAllDependenciesCompleteForPredecessors(Node node) {
         });
     }
 
-    private boolean tryLockProjectFor(Node node, List<ResourceLock> resources) {
+    @Nullable
+    private ResourceLock tryLockProjectFor(Node node, List<ResourceLock> resources) {
         ResourceLock toLock = node.getProjectToLock();
         if (toLock == null) {
-            return true;
+            return null;
         } else if (toLock.tryLock()) {
             resources.add(toLock);
-            return true;
+            return null;
         } else {
-            return false;
+            return toLock;
         }
     }
 
@@ -384,14 +512,15 @@ private void unlockProjectFor(Node node) {
         }
     }
 
-    private boolean tryLockSharedResourceFor(Node node, List<ResourceLock> resources) {
+    @Nullable
+    private ResourceLock tryLockSharedResourceFor(Node node, List<ResourceLock> resources) {
         for (ResourceLock resource : node.getResourcesToLock()) {
             if (!resource.tryLock()) {
-                return false;
+                return resource;
             }
             resources.add(resource);
         }
-        return true;
+        return null;
     }
 
     private void unlockSharedResourcesFor(Node node) {
@@ -506,6 +635,9 @@ private boolean doesConsumerDependOnDestroyer(Node consumer, Node destroyer) {
 
     private void recordNodeExecutionStarted(Node node) {
         runningNodes.add(node);
+        if (durationHistory != NodeDurationHistory.NONE) {
+            startTimes.put(node, System.nanoTime());
+        }
     }
 
     private void recordNodeCompleted(Node node) {
@@ -526,6 +658,7 @@ private void recordNodeCompleted(Node node) {
         }
 
         updateAllDependenciesCompleteForPredecessors(node);
+        blockedNodes.otherNodeCompleted(this::nodeUnblocked);
 
         if (node instanceof LocalTaskNode) {
             try {
@@ -547,6 +680,10 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
         lockCoordinator.assertHasStateLock();
         try {
             runningNodes.remove(node);
+            Long startTime = startTimes.remove(node);
+            if (startTime != null && failure == null) {
+                durationHistory.recordDuration(node, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            }
 
             if (failure != null) {
                 node.setExecutionFailure(failure);
@@ -738,6 +875,123 @@ public void insert(Node node) {
         }
     }
 
+    private enum StartResult {
+        STARTED,
+        // Cannot start until a lock is released or another node completes
+        BLOCKED,
+        NOT_STARTED
+    }
+
+    /**
+     * Ready nodes that cannot start until some other work releases a lock or completes, indexed by what they are waiting for.
+     * These nodes are kept out of the ready queue, so that selecting the next node does not check them over and over
+     * while nothing they depend on has changed.
+     *
+     * <p>When a lock is released, only the first node waiting for it is unblocked, as usually only one node can take the lock.
+     * When that node does not use the lock after all, the next node waiting for the lock is unblocked, and so on.</p>
+     *
+     * <p>Nodes are only blocked once a selection has come across {@link #MAX_UNSTARTED_NODES_TO_RECHECK} nodes that cannot start,
+     * so that plans where few nodes wait at a time do not pay for the bookkeeping.</p>
+     */
+    static class BlockedNodes {
+        private final Map<Object, Set<Node>> blockedByLock = new HashMap<>();
+        private final Set<Node> blockedByOtherNodes = new LinkedHashSet<>();
+        private final Map<Node, Object> unblockedByLock = new HashMap<>();
+
+        /**
+         * Blocks the given node until the given lock, which the node failed to acquire, is released.
+         *
+         * <p>A tracked lock held by another thread is reported as released when that thread releases it. A lock can also be unavailable
+         * because some other lock it requires is held, such as a project lock while all projects are locked. Such a node is not
+         * blocked, as there is no way to tell which release would unblock it.</p>
+         *
+         * @return true if the node is now blocked.
+         */
+        public boolean maybeBlockedByLock(Node node, ResourceLock lock) {
+            if (lock instanceof AbstractTrackedResourceLock && (lock instanceof DefaultLease || lock.isLocked())) {
+                blockedByLock.computeIfAbsent(keyOf(lock), key -> new TreeSet<>(NODE_EXECUTION_ORDER)).add(node);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Blocks the given node until some other node completes.
+         */
+        public void blockedByOtherNodes(Node node) {
+            blockedByOtherNodes.add(node);
+        }
+
+        public boolean isBlockedBy(Node node, Object lock) {
+            Set<Node> nodes = blockedByLock.get(lock);
+            return nodes != null && nodes.contains(node);
+        }
+
+        /**
+         * Returns the lock whose release unblocked the given node, if any, and forgets about it.
+         */
+        @Nullable
+        public Object takeUnblockedBy(Node node) {
+            return unblockedByLock.isEmpty() ? null : unblockedByLock.remove(node);
+        }
+
+        public void unblockedByLock(ResourceLock lock, Predicate<Node> unblocked) {
+            unblockNext(keyOf(lock), unblocked);
+            // Nodes may also conflict with work in other plans, which does not complete in this plan
+            otherNodeCompleted(unblocked);
+        }
+
+        /**
+         * Unblocks the first node waiting for the given lock that can still be started.
+         *
+         * @return true if a node was unblocked.
+         */
+        public boolean unblockNext(Object lock, Predicate<Node> unblocked) {
+            Set<Node> nodes = blockedByLock.get(lock);
+            if (nodes == null) {
+                return false;
+            }
+            Iterator<Node> iterator = nodes.iterator();
+            while (iterator.hasNext()) {
+                Node node = iterator.next();
+                iterator.remove();
+                if (unblocked.test(node)) {
+                    unblockedByLock.put(node, lock);
+                    if (nodes.isEmpty()) {
+                        blockedByLock.remove(lock);
+                    }
+                    return true;
+                }
+            }
+            blockedByLock.remove(lock);
+            return false;
+        }
+
+        public void otherNodeCompleted(Predicate<Node> unblocked) {
+            if (!blockedByOtherNodes.isEmpty()) {
+                List<Node> nodes = new ArrayList<>(blockedByOtherNodes);
+                blockedByOtherNodes.clear();
+                nodes.forEach(unblocked::test);
+            }
+        }
+
+        public void visitBlockedNodes(BiConsumer<Node, String> visitor) {
+            blockedByLock.values().forEach(nodes -> nodes.forEach(node -> visitor.accept(node, "waiting for a lock to be released")));
+            blockedByOtherNodes.forEach(node -> visitor.accept(node, "waiting for other work to complete"));
+        }
+
+        public void clear() {
+            blockedByLock.clear();
+            blockedByOtherNodes.clear();
+            unblockedByLock.clear();
+        }
+
+        private static Object keyOf(ResourceLock lock) {
+            // Each node has its own lease of a shared resource, so wait for any lease of the resource
+            return lock instanceof DefaultLease ? ((DefaultLease) lock).getLeaseHolder() : lock;
+        }
+    }
+
     private interface DiagnosticEvent {
         String message();
     }
@@ -25,17 +25,21 @@
 import org.gradle.internal.MutableReference;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.build.ExecutionResult;
+import org.gradle.internal.buildoption.IntegerInternalOption;
 import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOption;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.logging.text.TreeFormatter;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.internal.work.WorkerLimits;
+import org.gradle.process.internal.health.memory.OsMemoryInfo;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
@@ -52,6 +56,7 @@
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.ToLongFunction;
 
@@ -61,12 +66,16 @@
 @NonNullApi
 public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     public static final InternalFlag STATS = new InternalFlag("org.gradle.internal.executor.stats");
+    public static final InternalFlag ADAPTIVE_WORKERS = new InternalFlag("org.gradle.internal.executor.adaptive-workers");
+    public static final InternalOption<Integer> ADAPTIVE_WORKERS_MIN = new IntegerInternalOption("org.gradle.internal.executor.adaptive-workers.min", 1);
     private static final Logger LOGGER = Logging.getLogger(DefaultPlanExecutor.class);
     private final WorkerLimits workerLimits;
     private final WorkerLeaseService workerLeaseService;
     private final BuildCancellationToken cancellationToken;
     private final ResourceLockCoordinationService coordinationService;
     private final ManagedExecutor executor;
+    @Nullable
+    private final ManagedScheduledExecutor workerLimitSampler;
     private final MergedQueues queue;
     private final ExecutorState state = new ExecutorState();
     private final ExecutorStats stats;
@@ -77,7 +86,8 @@ public DefaultPlanExecutor(
         WorkerLeaseService workerLeaseService,
         BuildCancellationToken cancellationToken,
         ResourceLockCoordinationService coordinationService,
-        InternalOptions internalOptions
+        InternalOptions internalOptions,
+        OsMemoryInfo osMemoryInfo
     ) {
         this.workerLimits = workerLimits;
         this.cancellationToken = cancellationToken;
@@ -86,13 +96,29 @@ public DefaultPlanExecutor(
         this.stats = internalOptions.getOption(STATS).get() ? new CollectingExecutorStats(state) : state;
         this.queue = new MergedQueues(coordinationService, false);
         this.executor = executorFactory.create("Execution worker");
+        if (internalOptions.getOption(ADAPTIVE_WORKERS).get() && workerLimits.getMaxWorkerCount() > 1) {
+            AdaptiveWorkerLeaseLimit limit = new AdaptiveWorkerLeaseLimit(internalOptions.getOption(ADAPTIVE_WORKERS_MIN).get(), workerLimits.getMaxWorkerCount(), osMemoryInfo, this::changeWorkerLeaseLimit);
+            this.workerLimitSampler = executorFactory.createScheduled("Worker lease limit", 1);
+            workerLimitSampler.scheduleWithFixedDelay(limit, AdaptiveWorkerLeaseLimit.SAMPLE_INTERVAL_MILLIS, AdaptiveWorkerLeaseLimit.SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.workerLimitSampler = null;
+        }
+    }
+
+    private void changeWorkerLeaseLimit(int previousLimit, int newLimit) {
+        stats.workerLeaseLimitChanged(previousLimit, newLimit);
+        workerLeaseService.setWorkerLeaseLimit(this, newLimit);
     }
 
     @Override
     public void stop() {
         try {
-            CompositeStoppable.stoppable(queue, executor).stop();
+            CompositeStoppable.stoppable(workerLimitSampler, queue, executor).stop();
         } finally {
+            if (workerLimitSampler != null) {
+                // The worker lease service outlives this executor, and may be shared with the executor of an enclosing build tree
+                workerLeaseService.removeWorkerLeaseLimit(this);
+            }
             stats.report();
         }
     }
@@ -493,6 +519,11 @@ private interface ExecutorStats {
         void report();
 
         WorkerStats startWorker();
+
+        /**
+         * Called when the number of worker leases that can be granted changes, either to grant more leases or to revoke some.
+         */
+        void workerLeaseLimitChanged(int previousLimit, int newLimit);
     }
 
     /**
@@ -546,6 +577,10 @@ public WorkerStats startWorker() {
         public void report() {
         }
 
+        @Override
+        public void workerLeaseLimitChanged(int previousLimit, int newLimit) {
+        }
+
         @Nullable
         public HealthState healthCheck(MergedQueues queues) {
             // Execution is healthy when:
@@ -651,6 +686,10 @@ public void finishWaitingForNextItem() {
     private static class CollectingExecutorStats implements ExecutorStats {
         private final List<CollectingWorkerStats> completedWorkers = new CopyOnWriteArrayList<>();
         private final ExecutorState delegate;
+        private final Object leaseLimitLock = new Object();
+        private int minLeaseLimit = -1;
+        private int leaseGrants;
+        private int leaseRevokes;
 
         public CollectingExecutorStats(ExecutorState delegate) {
             this.delegate = delegate;
@@ -665,6 +704,18 @@ void workerFinished(CollectingWorkerStats stats) {
             completedWorkers.add(stats);
         }
 
+        @Override
+        public void workerLeaseLimitChanged(int previousLimit, int newLimit) {
+            synchronized (leaseLimitLock) {
+                if (newLimit > previousLimit) {
+                    leaseGrants += newLimit - previousLimit;
+                } else {
+                    leaseRevokes += previousLimit - newLimit;
+                }
+                minLeaseLimit = minLeaseLimit < 0 ? newLimit : Math.min(minLeaseLimit, newLimit);
+            }
+        }
+
         @Override
         public void report() {
             LOGGER.lifecycle("WORKER THREAD STATISTICS");
@@ -675,6 +726,13 @@ public void report() {
                 LOGGER.lifecycle("average execute time: " + format(stats -> stats.totalExecuteTime));
                 LOGGER.lifecycle("average finish time: " + format(stats -> stats.totalMarkFinishedTime));
             }
+            synchronized (leaseLimitLock) {
+                if (minLeaseLimit >= 0) {
+                    LOGGER.lifecycle("worker leases granted: " + leaseGrants);
+                    LOGGER.lifecycle("worker leases revoked: " + leaseRevokes);
+                    LOGGER.lifecycle("minimum worker lease limit: " + minLeaseLimit);
+                }
+            }
             completedWorkers.clear();
         }
 
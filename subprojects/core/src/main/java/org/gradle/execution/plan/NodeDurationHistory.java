@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.util.List;
+
+/**
+ * Historical execution durations of nodes, used to start the nodes on the critical path of an execution plan first.
+ */
+@ServiceScope(Scope.Build.class)
+public interface NodeDurationHistory {
+    /**
+     * Keeps no history, which leaves the plan in its default execution order.
+     */
+    NodeDurationHistory NONE = new NodeDurationHistory() {
+        @Override
+        public long[] estimateDurations(List<Node> nodes) {
+            return new long[nodes.size()];
+        }
+
+        @Override
+        public void recordDuration(Node node, long durationMillis) {
+        }
+    };
+
+    /**
+     * Returns the estimated duration in milliseconds of each of the given nodes, or 0 for nodes without history.
+     */
+    long[] estimateDurations(List<Node> nodes);
+
+    /**
+     * Records how long the given node took to execute in the current build.
+     */
+    void recordDuration(Node node, long durationMillis);
+}
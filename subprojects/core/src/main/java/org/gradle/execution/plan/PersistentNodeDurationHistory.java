@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheParameters;
+import org.gradle.cache.PersistentCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the execution durations of local tasks next to the execution history, keyed by task identity path.
+ *
+ * <p>Durations recorded during a build are written when the build finishes, blended into the previous estimate
+ * so that a single unusually fast or slow execution does not replace it.</p>
+ */
+public class PersistentNodeDurationHistory implements NodeDurationHistory, Closeable {
+    private final PersistentCache cache;
+    private final IndexedCache<String, Long> durations;
+    private final Map<String, Long> recorded = new ConcurrentHashMap<>();
+
+    public PersistentNodeDurationHistory(Supplier<PersistentCache> cache) {
+        this.cache = cache.get();
+        this.durations = this.cache.createIndexedCache(
+            IndexedCacheParameters.of("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER)
+        );
+    }
+
+    @Override
+    public long[] estimateDurations(List<Node> nodes) {
+        long[] estimates = new long[nodes.size()];
+        cache.useCache(() -> {
+            for (int i = 0; i < estimates.length; i++) {
+                String key = keyOf(nodes.get(i));
+                if (key != null) {
+                    Long duration = durations.getIfPresent(key);
+                    estimates[i] = duration == null ? 0 : duration;
+                }
+            }
+        });
+        return estimates;
+    }
+
+    @Override
+    public void recordDuration(Node node, long durationMillis) {
+        String key = keyOf(node);
+        if (key != null) {
+            recorded.put(key, durationMillis);
+        }
+    }
+
+    @Nullable
+    private static String keyOf(Node node) {
+        if (node instanceof LocalTaskNode) {
+            return ((LocalTaskNode) node).getTask().getIdentityPath().toString();
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (recorded.isEmpty()) {
+            return;
+        }
+        cache.useCache(() -> {
+            for (Map.Entry<String, Long> entry : recorded.entrySet()) {
+                Long previous = durations.getIfPresent(entry.getKey());
+                long duration = previous == null ? entry.getValue() : (3 * previous + entry.getValue()) / 4;
+                durations.put(entry.getKey(), duration);
+            }
+        });
+        recorded.clear();
+    }
+}
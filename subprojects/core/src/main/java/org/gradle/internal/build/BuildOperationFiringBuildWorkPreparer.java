@@ -27,9 +27,11 @@
 import org.gradle.execution.plan.ToPlannedNodeConverterRegistry;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.operations.trace.CustomOperationTraceSerialization;
+import org.gradle.internal.taskgraph.FinalizeTaskGraphBuildOperationType;
 import org.gradle.internal.taskgraph.NodeIdentity;
 
 import javax.annotation.Nonnull;
@@ -69,7 +71,42 @@ public void populateWorkGraph(GradleInternal gradle, ExecutionPlan plan, Consume
 
     @Override
     public FinalizedExecutionPlan finalizeWorkGraph(GradleInternal gradle, ExecutionPlan plan) {
-        return delegate.finalizeWorkGraph(gradle, plan);
+        return buildOperationRunner.call(new FinalizeWorkGraph(delegate, gradle, plan));
+    }
+
+    private static class FinalizeWorkGraph implements CallableBuildOperation<FinalizedExecutionPlan> {
+        private static final FinalizeTaskGraphBuildOperationType.Result RESULT = new FinalizeTaskGraphBuildOperationType.Result() {
+        };
+
+        private final BuildWorkPreparer delegate;
+        private final GradleInternal gradle;
+        private final ExecutionPlan plan;
+
+        public FinalizeWorkGraph(BuildWorkPreparer delegate, GradleInternal gradle, ExecutionPlan plan) {
+            this.delegate = delegate;
+            this.gradle = gradle;
+            this.plan = plan;
+        }
+
+        @Override
+        public FinalizedExecutionPlan call(BuildOperationContext context) {
+            FinalizedExecutionPlan finalizedPlan = delegate.finalizeWorkGraph(gradle, plan);
+            context.setResult(RESULT);
+            return finalizedPlan;
+        }
+
+        @Nonnull
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            //noinspection Convert2Lambda
+            return BuildOperationDescriptor.displayName(gradle.contextualize("Finalize task graph"))
+                .details(new FinalizeTaskGraphBuildOperationType.Details() {
+                    @Override
+                    public String getBuildPath() {
+                        return gradle.getIdentityPath().getPath();
+                    }
+                });
+        }
     }
 
     private static class PopulateWorkGraph implements RunnableBuildOperation {
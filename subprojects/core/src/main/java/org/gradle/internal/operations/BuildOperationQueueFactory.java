@@ -20,4 +20,10 @@
 
 public interface BuildOperationQueueFactory {
     <T extends BuildOperation> BuildOperationQueue<T> create(ManagedExecutor executor, boolean allowAccessToProjectState, BuildOperationQueue.QueueWorker<T> worker);
+
+    /**
+     * Creates a queue whose operations run without holding a worker lease and without access to project state.
+     * The number of operations that run at the same time is only limited by the given executor.
+     */
+    <T extends BuildOperation> BuildOperationQueue<T> createWithoutWorkerLeases(ManagedExecutor executor, BuildOperationQueue.QueueWorker<T> worker);
 }
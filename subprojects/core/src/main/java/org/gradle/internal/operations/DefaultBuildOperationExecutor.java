@@ -19,6 +19,8 @@
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
@@ -34,6 +36,12 @@
 import java.util.stream.Collectors;
 
 public class DefaultBuildOperationExecutor implements BuildOperationExecutor, Stoppable {
+    /**
+     * Runs {@link BuildOperationConstraint#BLOCKING_IO} build operations on virtual threads when the JVM supports them, without holding a worker lease.
+     * Without this flag, or when the JVM does not support virtual threads, these operations run like {@link BuildOperationConstraint#UNCONSTRAINED} ones.
+     */
+    public static final InternalFlag VIRTUAL_THREADS = new InternalFlag("org.gradle.internal.operations.virtual-threads");
+
     private static final String LINE_SEPARATOR = SystemProperties.getInstance().getLineSeparator();
 
     private final BuildOperationRunner runner;
@@ -46,13 +54,18 @@ public DefaultBuildOperationExecutor(
         CurrentBuildOperationRef currentBuildOperationRef,
         BuildOperationQueueFactory buildOperationQueueFactory,
         ExecutorFactory executorFactory,
-        WorkerLimits workerLimits
+        WorkerLimits workerLimits,
+        InternalOptions internalOptions
     ) {
         this.runner = buildOperationRunner;
         this.currentBuildOperationRef = currentBuildOperationRef;
         this.buildOperationQueueFactory = buildOperationQueueFactory;
         managedExecutors.put(BuildOperationConstraint.MAX_WORKERS, executorFactory.create("Build operations", workerLimits.getMaxWorkerCount()));
         managedExecutors.put(BuildOperationConstraint.UNCONSTRAINED, executorFactory.create("Unconstrained build operations", workerLimits.getMaxWorkerCount() * 10));
+        if (internalOptions.getOption(VIRTUAL_THREADS).get() && executorFactory.supportsVirtualThreads()) {
+            // Without virtual threads, the executor for blocking work is an unbounded thread pool, so let the operations share the executor for unconstrained operations instead
+            managedExecutors.put(BuildOperationConstraint.BLOCKING_IO, executorFactory.createForBlockingWork("Blocking IO build operations"));
+        }
     }
 
     @Override
@@ -91,8 +104,7 @@ private BuildOperationState getCurrentBuildOperation() {
     }
 
     private <O extends BuildOperation> void executeInParallel(boolean allowAccessToProjectState, BuildOperationQueue.QueueWorker<O> worker, Action<BuildOperationQueue<O>> queueAction, BuildOperationConstraint buildOperationConstraint) {
-        ManagedExecutor executor = managedExecutors.get(buildOperationConstraint);
-        BuildOperationQueue<O> queue = buildOperationQueueFactory.create(executor, allowAccessToProjectState, worker);
+        BuildOperationQueue<O> queue = createQueue(allowAccessToProjectState, worker, buildOperationConstraint);
 
         List<GradleException> failures = new ArrayList<>();
         try {
@@ -115,6 +127,19 @@ private <O extends BuildOperation> void executeInParallel(boolean allowAccessToP
         }
     }
 
+    private <O extends BuildOperation> BuildOperationQueue<O> createQueue(boolean allowAccessToProjectState, BuildOperationQueue.QueueWorker<O> worker, BuildOperationConstraint buildOperationConstraint) {
+        if (buildOperationConstraint == BuildOperationConstraint.BLOCKING_IO) {
+            ManagedExecutor virtualThreads = managedExecutors.get(BuildOperationConstraint.BLOCKING_IO);
+            if (virtualThreads != null && !allowAccessToProjectState) {
+                // Each operation gets its own virtual thread, and none of them waits for a worker lease.
+                // Waiting for a lease would pin the carrier thread, as lease waits use monitors
+                return buildOperationQueueFactory.createWithoutWorkerLeases(virtualThreads, worker);
+            }
+            buildOperationConstraint = BuildOperationConstraint.UNCONSTRAINED;
+        }
+        return buildOperationQueueFactory.create(managedExecutors.get(buildOperationConstraint), allowAccessToProjectState, worker);
+    }
+
     private static String formatMultipleFailureMessage(List<GradleException> failures) {
         return failures.stream()
             .map(Throwable::getMessage)
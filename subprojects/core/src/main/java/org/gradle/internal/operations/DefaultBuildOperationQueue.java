@@ -32,6 +32,7 @@ private enum QueueState {
     }
 
     private final boolean allowAccessToProjectState;
+    private final boolean holdWorkerLeases;
     private final WorkerLeaseService workerLeases;
     private final Executor executor;
     private final QueueWorker<T> queueWorker;
@@ -48,7 +49,19 @@ private enum QueueState {
     private final LinkedList<Throwable> failures = new LinkedList<>();
 
     DefaultBuildOperationQueue(boolean allowAccessToProjectState, WorkerLeaseService workerLeases, Executor executor, QueueWorker<T> queueWorker) {
+        this(allowAccessToProjectState, true, workerLeases, executor, queueWorker);
+    }
+
+    /**
+     * @param holdWorkerLeases whether operations run while holding a worker lease. When {@code false}, a worker is started for each operation that is added,
+     * so the executor alone decides how many operations run at the same time. Such a queue does not allow access to project state.
+     */
+    DefaultBuildOperationQueue(boolean allowAccessToProjectState, boolean holdWorkerLeases, WorkerLeaseService workerLeases, Executor executor, QueueWorker<T> queueWorker) {
+        if (allowAccessToProjectState && !holdWorkerLeases) {
+            throw new IllegalArgumentException("Operations that access project state must hold a worker lease.");
+        }
         this.allowAccessToProjectState = allowAccessToProjectState;
+        this.holdWorkerLeases = holdWorkerLeases;
         this.workerLeases = workerLeases;
         this.executor = executor;
         this.queueWorker = queueWorker;
@@ -67,7 +80,7 @@ public void add(final T operation) {
             workQueue.add(operation);
             pendingOperations++;
             workAvailable.signalAll();
-            if (workerCount == 0 || workerCount < workerLeases.getMaxWorkerCount() - 1) {
+            if (!holdWorkerLeases || workerCount == 0 || workerCount < workerLeases.getMaxWorkerCount() - 1) {
                 // `getMaxWorkerCount() - 1` because main thread executes work as well. See https://github.com/gradle/gradle/issues/3273
                 // TODO This could be more efficient, so that we only start a worker when there are none idle _and_ there is a worker lease available
                 executor.execute(new WorkerRunnable());
@@ -216,6 +229,11 @@ private T waitForNextOperation() {
         }
 
         private void runBatch(final T firstOperation) {
+            if (!holdWorkerLeases) {
+                // Never wait for a worker lease, see the comment below about project lock changes
+                completeOperations(workerLeases.whileDisallowingProjectLockChanges(() -> doRunBatch(firstOperation)));
+                return;
+            }
             // We need to update pending count outside of withLocks() so that we don't have a race
             // condition where the pending count is 0, but a child worker lease is still held when
             // the parent lease is released.
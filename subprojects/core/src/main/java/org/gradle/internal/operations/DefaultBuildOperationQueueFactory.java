@@ -33,4 +33,9 @@ public DefaultBuildOperationQueueFactory(WorkerLeaseService workerLeaseService)
         workerLeaseService.getCurrentWorkerLease();
         return new DefaultBuildOperationQueue<>(allowAccessToProjectState, workerLeaseService, executor, worker);
     }
+
+    @Override
+    public <T extends BuildOperation> BuildOperationQueue<T> createWithoutWorkerLeases(ManagedExecutor executor, BuildOperationQueue.QueueWorker<T> worker) {
+        return new DefaultBuildOperationQueue<>(false, false, workerLeaseService, executor, worker);
+    }
 }
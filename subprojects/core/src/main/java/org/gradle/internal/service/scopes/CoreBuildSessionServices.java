@@ -47,6 +47,8 @@
 import org.gradle.initialization.layout.ProjectCacheDir;
 import org.gradle.internal.build.BuildLayoutValidator;
 import org.gradle.internal.buildevents.BuildStartedTime;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.file.Deleter;
@@ -102,6 +104,11 @@ CrossProjectConfigurator createCrossProjectConfigurator(BuildOperationRunner bui
         return new BuildOperationCrossProjectConfigurator(buildOperationRunner);
     }
 
+    @Provides
+    InternalOptions createInternalOptions(StartParameter startParameter) {
+        return new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
+    }
+
     @Provides
     BuildLayout createBuildLocations(BuildLayoutFactory buildLayoutFactory, StartParameter startParameter) {
         return buildLayoutFactory.getLayoutFor(new BuildLayoutConfiguration(startParameter));
@@ -22,6 +22,8 @@
 import org.gradle.configuration.internal.DefaultListenerBuildOperationDecorator;
 import org.gradle.configuration.internal.DynamicCallContextTracker;
 import org.gradle.configuration.internal.ListenerBuildOperationDecorator;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.code.DefaultUserCodeApplicationContext;
 import org.gradle.internal.code.UserCodeApplicationContext;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -63,20 +65,27 @@ WorkerLimits createWorkerLimits(CrossBuildSessionParameters buildSessionParamete
         return new DefaultWorkerLimits(buildSessionParameters.getStartParameter().getMaxWorkerCount());
     }
 
+    @Provides
+    InternalOptions createInternalOptions(CrossBuildSessionParameters buildSessionParameters) {
+        return new DefaultInternalOptions(buildSessionParameters.getStartParameter().getSystemPropertiesArgs());
+    }
+
     @Provides
     BuildOperationExecutor createBuildOperationExecutor(
         BuildOperationRunner buildOperationRunner,
         CurrentBuildOperationRef currentBuildOperationRef,
         WorkerLeaseService workerLeaseService,
         ExecutorFactory executorFactory,
-        WorkerLimits workerLimits
+        WorkerLimits workerLimits,
+        InternalOptions internalOptions
     ) {
         return new DefaultBuildOperationExecutor(
             buildOperationRunner,
             currentBuildOperationRef,
             new DefaultBuildOperationQueueFactory(workerLeaseService),
             executorFactory,
-            workerLimits
+            workerLimits,
+            internalOptions
         );
     }
 
@@ -23,7 +23,12 @@
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.execution.plan.NodeDurationHistory;
+import org.gradle.execution.plan.PersistentNodeDurationHistory;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.BuildOutputCleanupRegistry;
 import org.gradle.internal.execution.ExecutionEngine;
@@ -39,6 +44,7 @@
 import org.gradle.internal.execution.history.changes.ExecutionStateChangeDetector;
 import org.gradle.internal.execution.history.impl.DefaultExecutionHistoryStore;
 import org.gradle.internal.execution.history.impl.DefaultOutputFilesRepository;
+import org.gradle.internal.execution.history.impl.MemoryMappedExecutionHistoryStore;
 import org.gradle.internal.execution.impl.DefaultExecutionEngine;
 import org.gradle.internal.execution.steps.AssignImmutableWorkspaceStep;
 import org.gradle.internal.execution.steps.AssignMutableWorkspaceStep;
@@ -79,6 +85,7 @@
 import org.gradle.internal.execution.timeout.TimeoutHandler;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.LocalHashFunction;
 import org.gradle.internal.id.UniqueId;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
@@ -96,18 +103,44 @@
 import static org.gradle.internal.execution.steps.AfterExecutionOutputFilter.NO_FILTER;
 
 public class ExecutionBuildServices implements ServiceRegistrationProvider {
+    /**
+     * Stores execution history in an append-only memory-mapped log instead of a B-tree.
+     */
+    public static final InternalFlag MEMORY_MAPPED_EXECUTION_HISTORY = new InternalFlag("org.gradle.internal.execution-history.memory-mapped");
+
+    /**
+     * Records task durations next to the execution history and starts the ready tasks with the longest estimated remaining critical path first.
+     */
+    public static final InternalFlag CRITICAL_PATH_SCHEDULING = new InternalFlag("org.gradle.internal.execution.critical-path-scheduling");
+
+    /**
+     * Keeps ready tasks that wait for a lock or for conflicting work out of the ready queue until that work is done,
+     * instead of checking them again on every selection.
+     */
+    public static final InternalFlag TRACK_BLOCKED_NODES = new InternalFlag("org.gradle.internal.execution.track-blocked-nodes");
+
     @Provides
-    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory) {
-        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory);
+    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory, LocalHashFunction localHashFunction) {
+        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, localHashFunction.getFunction());
     }
 
     @Provides
     ExecutionHistoryStore createExecutionHistoryStore(
         ExecutionHistoryCacheAccess executionHistoryCacheAccess,
         InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        ExecutorFactory executorFactory,
+        InternalOptions internalOptions,
         StringInterner stringInterner,
         ClassLoaderHierarchyHasher classLoaderHasher
     ) {
+        if (internalOptions.getOption(MEMORY_MAPPED_EXECUTION_HISTORY).get()) {
+            return new MemoryMappedExecutionHistoryStore(
+                executionHistoryCacheAccess,
+                executorFactory,
+                stringInterner,
+                classLoaderHasher
+            );
+        }
         return new DefaultExecutionHistoryStore(
             executionHistoryCacheAccess,
             inMemoryCacheDecoratorFactory,
@@ -116,6 +149,14 @@ ExecutionHistoryStore createExecutionHistoryStore(
         );
     }
 
+    @Provides
+    NodeDurationHistory createNodeDurationHistory(ExecutionHistoryCacheAccess executionHistoryCacheAccess, InternalOptions internalOptions) {
+        if (internalOptions.getOption(CRITICAL_PATH_SCHEDULING).get()) {
+            return new PersistentNodeDurationHistory(executionHistoryCacheAccess);
+        }
+        return NodeDurationHistory.NONE;
+    }
+
     @Provides
     OutputFilesRepository createOutputFilesRepository(BuildScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         PersistentCache cacheAccess = cacheBuilderFactory
@@ -146,6 +187,7 @@ public ExecutionEngine createExecutionEngine(
         ExecutionStateChangeDetector changeDetector,
         FileSystemAccess fileSystemAccess,
         ImmutableWorkspaceMetadataStore immutableWorkspaceMetadataStore,
+        LocalHashFunction localHashFunction,
         OutputChangeListener outputChangeListener,
         WorkInputListeners workInputListeners, OutputFilesRepository outputFilesRepository,
         OutputSnapshotter outputSnapshotter,
@@ -169,7 +211,7 @@ public ExecutionEngine createExecutionEngine(
         ))));
 
         Step<IdentityContext,WorkspaceResult> immutablePipeline =
-            new AssignImmutableWorkspaceStep<>(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter,
+            new AssignImmutableWorkspaceStep<>(deleter, fileSystemAccess, immutableWorkspaceMetadataStore, outputSnapshotter, localHashFunction.getFunction(),
             new MarkSnapshottingInputsStartedStep<>(
             new CaptureNonIncrementalStateBeforeExecutionStep<>(buildOperationRunner, classLoaderHierarchyHasher,
             new ValidateStep<>(virtualFileSystem, validationWarningRecorder,
@@ -198,7 +240,7 @@ public ExecutionEngine createExecutionEngine(
             new StoreExecutionStateStep<>(
             new BuildCacheStep<>(buildCacheController, deleter, fileSystemAccess, outputChangeListener,
             new ResolveInputChangesStep<>(
-            new CaptureOutputsAfterExecutionStep<>(buildOperationRunner, buildId, outputSnapshotter, new OverlappingOutputsFilter(),
+            new CaptureOutputsAfterExecutionStep<>(buildOperationRunner, buildId, outputSnapshotter, new OverlappingOutputsFilter(localHashFunction.getFunction()),
             new BroadcastChangingOutputsStep<>(outputChangeListener,
             new RemovePreviousOutputsStep<>(deleter, outputChangeListener,
             sharedExecutionPipeline
@@ -62,6 +62,8 @@
 import org.gradle.initialization.LegacyTypesSupport;
 import org.gradle.initialization.layout.BuildLayoutFactory;
 import org.gradle.internal.Factory;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.classloader.ClassLoaderFactory;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -72,6 +74,7 @@
 import org.gradle.internal.execution.history.changes.ExecutionStateChangeDetector;
 import org.gradle.internal.execution.history.impl.DefaultOverlappingOutputDetector;
 import org.gradle.internal.execution.steps.ValidateStep;
+import org.gradle.internal.hash.LocalHashFunction;
 import org.gradle.internal.installation.GradleRuntimeShadedJarDetector;
 import org.gradle.internal.instantiation.InjectAnnotationHandler;
 import org.gradle.internal.instantiation.InstanceGenerator;
@@ -124,6 +127,7 @@
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.process.internal.health.memory.OsMemoryInfo;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -178,6 +182,12 @@ GradleBuildEnvironment createGradleBuildEnvironment() {
         return environment;
     }
 
+    @Provides
+    InternalOptions createInternalOptions() {
+        // Services shared between builds can only be configured using system properties of the process
+        return new DefaultInternalOptions(Collections.emptyMap());
+    }
+
     @Provides
     CachingServiceLocator createPluginsServiceLocator(ClassLoaderRegistry registry) {
         return CachingServiceLocator.of(
@@ -336,8 +346,8 @@ LoggingManagerInternal createLoggingManager(Factory<LoggingManagerInternal> logg
     }
 
     @Provides
-    ExecutionStateChangeDetector createExecutionStateChangeDetector() {
-        return new DefaultExecutionStateChangeDetector();
+    ExecutionStateChangeDetector createExecutionStateChangeDetector(LocalHashFunction localHashFunction) {
+        return new DefaultExecutionStateChangeDetector(localHashFunction.getFunction());
     }
 
     @Provides
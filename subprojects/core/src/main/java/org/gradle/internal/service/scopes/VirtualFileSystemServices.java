@@ -47,6 +47,7 @@
 import org.gradle.internal.buildoption.IntegerInternalOption;
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
 import org.gradle.internal.classloader.ClasspathHasher;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.FileCollectionFingerprinterRegistry;
@@ -69,6 +70,7 @@
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.LocalHashFunction;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -122,6 +124,30 @@ public class VirtualFileSystemServices extends AbstractGradleModuleServices {
     public static final IntegerInternalOption MAX_HIERARCHIES_TO_WATCH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.watch.hierarchies.max", DEFAULT_MAX_HIERARCHIES_TO_WATCH);
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
 
+    /**
+     * When set to {@code true}, directories are snapshotted by walking their subdirectories in parallel.
+     */
+    public static final InternalFlag PARALLEL_DIRECTORY_WALK_PROPERTY = new InternalFlag("org.gradle.vfs.snapshot.parallel");
+
+    /**
+     * When set to {@code true}, re-snapshotting a directory after parts of it were invalidated only reads the attributes of the entries
+     * that are not known to the virtual file system anymore.
+     */
+    public static final InternalFlag SKIP_KNOWN_ENTRIES_PROPERTY = new InternalFlag("org.gradle.vfs.snapshot.skip-known-entries");
+
+    /**
+     * When set to {@code true}, files are hashed by reading them via a {@link java.nio.channels.FileChannel} into direct buffers,
+     * instead of copying them through an input stream.
+     */
+    public static final InternalFlag FILE_CHANNEL_HASHING_PROPERTY = new InternalFlag("org.gradle.vfs.hashing.file-channel");
+
+    /**
+     * Selects the {@linkplain LocalHashFunction local hash function} for the hashes of directories by its algorithm name.
+     *
+     * The hashes of directories are shared by all builds run by the daemon, so the option can only be set using a system property of the daemon.
+     */
+    public static final StringInternalOption LOCAL_HASH_FUNCTION_PROPERTY = new StringInternalOption("org.gradle.internal.hash.local-function", null);
+
     public static boolean isDropVfs(InternalOptions options) {
         return options.getOption(VFS_DROP_PROPERTY).get();
     }
@@ -130,6 +156,18 @@ public static int getMaximumNumberOfWatchedHierarchies(InternalOptions options)
         return options.getOption(MAX_HIERARCHIES_TO_WATCH_PROPERTY).get();
     }
 
+    private static boolean isParallelDirectoryWalk(InternalOptions options) {
+        return options.getOption(PARALLEL_DIRECTORY_WALK_PROPERTY).get();
+    }
+
+    private static boolean isSkipKnownEntries(InternalOptions options) {
+        return options.getOption(SKIP_KNOWN_ENTRIES_PROPERTY).get();
+    }
+
+    private static boolean isFileChannelHashing(InternalOptions options) {
+        return options.getOption(FILE_CHANNEL_HASHING_PROPERTY).get();
+    }
+
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new GlobalScopeServices());
@@ -146,6 +184,11 @@ public void registerBuildSessionServices(ServiceRegistration registration) {
     }
 
     private static class GlobalScopeServices implements ServiceRegistrationProvider {
+        @Provides
+        LocalHashFunction createLocalHashFunction(InternalOptions internalOptions) {
+            return LocalHashFunction.forAlgorithm(internalOptions.getOption(LOCAL_HASH_FUNCTION_PROPERTY).get());
+        }
+
         @Provides
         FileHasherStatistics.Collector createCachingFileHasherStatisticsCollector() {
             return new FileHasherStatistics.Collector();
@@ -173,9 +216,10 @@ FileHasher createCachingFileHasher(
             FileSystem fileSystem,
             GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
             StreamHasher streamHasher,
-            StringInterner stringInterner
+            StringInterner stringInterner,
+            InternalOptions internalOptions
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher, isFileChannelHashing(internalOptions)), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -241,20 +285,25 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
         @Provides
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
+            LocalHashFunction localHashFunction,
             VirtualFileSystem virtualFileSystem,
             FileMetadataAccessor stat,
             StringInterner stringInterner,
             FileSystemAccess.WriteListener writeListener,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
-            ListenerManager listenerManager
+            ListenerManager listenerManager,
+            InternalOptions internalOptions
         ) {
             DefaultFileSystemAccess defaultFileSystemAccess = new DefaultFileSystemAccess(
                 hasher,
+                localHashFunction.getFunction(),
                 stringInterner,
                 stat,
                 virtualFileSystem,
                 writeListener,
                 statisticsCollector,
+                isParallelDirectoryWalk(internalOptions),
+                isSkipKnownEntries(internalOptions),
                 DirectoryScanner.getDefaultExcludes()
             );
             listenerManager.addListener(defaultFileSystemAccess);
@@ -336,29 +385,36 @@ FileHasher createFileHasher(
             FileSystem fileSystem,
             StreamHasher streamHasher,
             StringInterner stringInterner,
-            FileHasherStatistics.Collector statisticsCollector
+            FileHasherStatistics.Collector statisticsCollector,
+            InternalOptions internalOptions
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            boolean fileChannelHashing = isFileChannelHashing(internalOptions);
+            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher, fileChannelHashing), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
         @Provides
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
+            LocalHashFunction localHashFunction,
             ListenerManager listenerManager,
             FileMetadataAccessor stat,
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            InternalOptions internalOptions
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
+                localHashFunction.getFunction(),
                 stringInterner,
                 stat,
                 root,
                 writeListener,
                 statisticsCollector,
+                isParallelDirectoryWalk(internalOptions),
+                isSkipKnownEntries(internalOptions),
                 DirectoryScanner.getDefaultExcludes()
             );
 
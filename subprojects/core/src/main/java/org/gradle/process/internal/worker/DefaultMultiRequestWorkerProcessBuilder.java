@@ -133,6 +133,8 @@ public void useApplicationClassloaderOnly() {
     public MultiRequestClient<IN, OUT> build() {
         // Always publish process info for multi-request workers
         workerProcessBuilder.enableJvmMemoryInfoPublishing(true);
+        // Multi-request workers are worker daemons, which run Gradle's own code and are started over and over again with the same classpath
+        workerProcessBuilder.enableClassDataSharing(true);
         final WorkerProcess workerProcess = workerProcessBuilder.build();
 
         return new MultiRequestClient<IN, OUT>() {
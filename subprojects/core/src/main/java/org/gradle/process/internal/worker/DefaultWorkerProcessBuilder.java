@@ -71,6 +71,7 @@ public class DefaultWorkerProcessBuilder implements WorkerProcessBuilder {
     private List<URL> implementationClassPath;
     private List<URL> implementationModulePath;
     private boolean shouldPublishJvmMemoryInfo;
+    private boolean shouldUseClassDataSharing;
     private NativeServicesMode nativeServicesMode = NativeServicesMode.NOT_SET;
 
     DefaultWorkerProcessBuilder(
@@ -202,6 +203,11 @@ public void enableJvmMemoryInfoPublishing(boolean shouldPublish) {
         this.shouldPublishJvmMemoryInfo = shouldPublish;
     }
 
+    @Override
+    public void enableClassDataSharing(boolean shouldUse) {
+        this.shouldUseClassDataSharing = shouldUse;
+    }
+
     @Override
     public void setNativeServicesMode(NativeServicesMode nativeServicesMode) {
         this.nativeServicesMode = nativeServicesMode;
@@ -243,8 +249,8 @@ public WorkerProcess build() {
         JavaExecHandleBuilder javaCommand = getJavaCommand();
         javaCommand.setDisplayName(displayName);
 
-        boolean java9Compatible = jvmVersionDetector.getJavaVersionMajor(javaCommand.getExecutable()) >= 9;
-        workerImplementationFactory.prepareJavaCommand(id, displayName, this, implementationClassPath, implementationModulePath, localAddress, javaCommand, shouldPublishJvmMemoryInfo, java9Compatible);
+        int javaMajorVersion = jvmVersionDetector.getJavaVersionMajor(javaCommand.getExecutable());
+        workerImplementationFactory.prepareJavaCommand(id, displayName, this, implementationClassPath, implementationModulePath, localAddress, javaCommand, shouldPublishJvmMemoryInfo, shouldUseClassDataSharing, javaMajorVersion);
 
         javaCommand.args("'" + displayName + "'");
         if (javaCommand.getMaxHeapSize() == null) {
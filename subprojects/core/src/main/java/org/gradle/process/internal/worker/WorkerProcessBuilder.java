@@ -60,6 +60,11 @@ public interface WorkerProcessBuilder extends WorkerProcessSettings {
 
     void enableJvmMemoryInfoPublishing(boolean shouldPublish);
 
+    /**
+     * Lets the worker process use a class data sharing archive of the classes it loads. Should only be enabled for workers that run Gradle's own code.
+     */
+    void enableClassDataSharing(boolean shouldUse);
+
     void setNativeServicesMode(NativeServicesMode mode);
 
     NativeServicesMode getNativeServicesMode();
@@ -22,9 +22,11 @@
 import org.gradle.api.internal.file.temp.TemporaryFileProvider;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.io.StreamByteBuffer;
+import org.gradle.internal.jvm.ClassDataSharing;
 import org.gradle.internal.process.ArgWriter;
 import org.gradle.internal.remote.Address;
 import org.gradle.internal.remote.internal.inet.MultiChoiceAddress;
+import org.gradle.internal.remote.internal.shm.SharedMemoryTransport;
 import org.gradle.internal.serialize.OutputStreamBackedEncoder;
 import org.gradle.internal.stream.EncodedStream;
 import org.gradle.process.internal.JavaExecHandleBuilder;
@@ -32,6 +34,7 @@
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.messaging.WorkerConfig;
 import org.gradle.process.internal.worker.messaging.WorkerConfigSerializer;
+import org.gradle.util.GradleVersion;
 
 import java.io.DataOutputStream;
 import java.io.File;
@@ -70,6 +73,7 @@ public class ApplicationClassesInSystemClassLoaderWorkerImplementationFactory {
     private final ClassPathRegistry classPathRegistry;
     private final TemporaryFileProvider temporaryFileProvider;
     private final File gradleUserHomeDir;
+    private final ClassDataSharing classDataSharing;
 
     public ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(
         ClassPathRegistry classPathRegistry,
@@ -79,12 +83,14 @@ public ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(
         this.classPathRegistry = classPathRegistry;
         this.temporaryFileProvider = temporaryFileProvider;
         this.gradleUserHomeDir = gradleUserHomeDir;
+        this.classDataSharing = new ClassDataSharing(gradleUserHomeDir, GradleVersion.current().getVersion());
     }
 
     /**
      * Configures the Java command that will be used to launch the child process.
      */
-    public void prepareJavaCommand(long workerId, String displayName, WorkerProcessBuilder processBuilder, List<URL> implementationClassPath, List<URL> implementationModulePath, Address serverAddress, JavaExecHandleBuilder execSpec, boolean publishProcessInfo, boolean useOptionsFile) {
+    public void prepareJavaCommand(long workerId, String displayName, WorkerProcessBuilder processBuilder, List<URL> implementationClassPath, List<URL> implementationModulePath, Address serverAddress, JavaExecHandleBuilder execSpec, boolean publishProcessInfo, boolean useClassDataSharing, int javaMajorVersion) {
+        boolean useOptionsFile = javaMajorVersion >= 9;
         Collection<File> applicationClasspath = processBuilder.getApplicationClasspath();
         Set<File> applicationModulePath = processBuilder.getApplicationModulePath();
         LogLevel logLevel = processBuilder.getLogLevel();
@@ -99,6 +105,12 @@ public void prepareJavaCommand(long workerId, String displayName, WorkerProcessB
         }
         execSpec.getMainClass().set("worker." + GradleWorkerMain.class.getName());
         if (useOptionsFile) {
+            if (useClassDataSharing && !runAsModule) {
+                List<File> classpath = new ArrayList<>(workerMainClassPath);
+                classpath.addAll(applicationClasspath);
+                execSpec.jvmArgs(classDataSharing.jvmArgs("worker", execSpec.getExecutable(), javaMajorVersion, execSpec.getJvmArgs(), classpath));
+            }
+
             // Use an options file to pass across application classpath
             File optionsFile = temporaryFileProvider.createTemporaryFile("gradle-worker-classpath", "txt");
             List<String> jvmArgs = writeOptionsFile(runAsModule, workerMainClassPath, implementationModulePath, applicationClasspath, applicationModulePath, optionsFile);
@@ -151,6 +163,7 @@ public void prepareJavaCommand(long workerId, String displayName, WorkerProcessB
             WorkerConfig config = new WorkerConfig(
                 logLevel,
                 publishProcessInfo,
+                SharedMemoryTransport.isEnabledBySystemProperties(),
                 gradleUserHomeDir.getAbsolutePath(),
                 (MultiChoiceAddress) serverAddress,
                 workerId,
@@ -19,6 +19,7 @@ import org.gradle.cache.CacheBuilder
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.PersistentCache
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory
+import org.gradle.internal.hash.Hashing
 import spock.lang.Specification
 
 class DefaultPreviousExecutionCacheAccessTest extends Specification {
@@ -29,7 +30,7 @@ class DefaultPreviousExecutionCacheAccessTest extends Specification {
         PersistentCache backingCache = Mock()
 
         when:
-        new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory)
+        new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, Hashing.defaultFunction())
 
         then:
         1 * cacheBuilderFactory.createCacheBuilder("executionHistory") >> cacheBuilder
@@ -38,4 +39,19 @@ class DefaultPreviousExecutionCacheAccessTest extends Specification {
         1 * cacheBuilder.open() >> backingCache
         0 * _._
     }
+
+    def "uses a separate backing cache for a different local hash function"() {
+        CacheBuilder cacheBuilder = Mock()
+        PersistentCache backingCache = Mock()
+
+        when:
+        new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, Hashing.murmur3_128())
+
+        then:
+        1 * cacheBuilderFactory.createCacheBuilder("executionHistory-murmur3-128") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        1 * cacheBuilder.withInitialLockMode(FileLockManager.LockMode.OnDemand) >> cacheBuilder
+        1 * cacheBuilder.open() >> backingCache
+        0 * _._
+    }
 }
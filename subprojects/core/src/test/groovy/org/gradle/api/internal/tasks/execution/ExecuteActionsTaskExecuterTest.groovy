@@ -58,6 +58,7 @@ import org.gradle.internal.fingerprint.impl.AbsolutePathFileCollectionFingerprin
 import org.gradle.internal.fingerprint.impl.DefaultFileCollectionSnapshotter
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.id.UniqueId
 import org.gradle.internal.logging.StandardOutputCapture
@@ -123,7 +124,7 @@ class ExecuteActionsTaskExecuterTest extends Specification {
 
     def actionListener = Stub(TaskActionListener)
     def outputChangeListener = Stub(OutputChangeListener)
-    def changeDetector = new DefaultExecutionStateChangeDetector()
+    def changeDetector = new DefaultExecutionStateChangeDetector(Hashing.defaultFunction())
     def taskCacheabilityResolver = Stub(TaskCacheabilityResolver) {
         shouldDisableCaching(_) >> Optional.empty()
     }
@@ -31,10 +31,14 @@ import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistr
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType
 import org.gradle.caching.internal.origin.OriginMetadataFactory
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.caching.internal.packaging.impl.FilePermissionAccess
+import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport
+import org.gradle.caching.internal.services.BuildCacheUploadExecutor
 import org.gradle.caching.internal.services.DefaultBuildCacheControllerFactory
 import org.gradle.caching.local.DirectoryBuildCache
 import org.gradle.caching.local.internal.LocalBuildCacheService
 import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.LocalHashFunction
 import org.gradle.internal.operations.NoOpBuildOperationProgressEventEmitter
 import org.gradle.internal.operations.TestBuildOperationRunner
 import org.gradle.util.Path
@@ -68,7 +72,11 @@ class DefaultBuildCacheControllerFactoryTest extends Specification {
             Stub(OriginMetadataFactory),
             Stub(StringInterner),
             Stub(TemporaryFileProvider),
-            Stub(BuildCacheEntryPacker)
+            Stub(BuildCacheEntryPacker),
+            Stub(TarPackerFileSystemSupport),
+            Stub(FilePermissionAccess),
+            LocalHashFunction.DEFAULT,
+            Stub(BuildCacheUploadExecutor)
         ).createController(Path.path("test"), config, TestUtil.instantiatorFactory().inject())
         assert controllerType.isInstance(controller)
         controllerType.cast(controller)
@@ -28,7 +28,9 @@ import org.gradle.cache.UnscopedCacheBuilderFactory
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.local.DirectoryBuildCache
+import org.gradle.internal.buildoption.DefaultInternalOptions
 import org.gradle.internal.file.FileAccessTimeJournal
+import org.gradle.internal.hash.StreamHasher
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
@@ -49,7 +51,7 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
     }
     def cacheConfigurations = Mock(CacheConfigurationsInternal)
     def cacheCleanupStrategyFactory = Mock(CacheCleanupStrategyFactory)
-    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileAccessTimeJournal, cacheConfigurations, cacheCleanupStrategyFactory)
+    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileAccessTimeJournal, cacheConfigurations, cacheCleanupStrategyFactory, Stub(StreamHasher), new DefaultInternalOptions([:]))
     def cacheBuilder = Stub(CacheBuilder)
     def config = Mock(DirectoryBuildCache)
     def buildCacheDescriber = new NoopBuildCacheDescriber()
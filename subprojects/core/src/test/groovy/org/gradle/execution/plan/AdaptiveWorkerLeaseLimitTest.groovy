@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.process.internal.health.memory.OsMemoryInfo
+import org.gradle.process.internal.health.memory.OsMemoryStatus
+import org.gradle.process.internal.health.memory.OsMemoryStatusAspect
+import spock.lang.Specification
+
+import java.lang.management.OperatingSystemMXBean
+
+class AdaptiveWorkerLeaseLimitTest extends Specification {
+    private static final double NONE = Double.NaN
+
+    def "calculates next limit from #current with load #load and free memory #freeMemory"() {
+        expect:
+        AdaptiveWorkerLeaseLimit.nextLimit(current, 2, 8, load, freeMemory) == expected
+
+        where:
+        current | load | freeMemory | expected
+        8       | 0.5  | 0.5        | 8
+        8       | 1.5  | 0.5        | 7
+        8       | 0.5  | 0.05       | 7
+        2       | 1.5  | 0.05       | 2
+        5       | 0.5  | 0.5        | 6
+        5       | 1.0  | 0.5        | 5
+        5       | 0.5  | 0.15       | 5
+        5       | NONE | 0.5        | 6
+        5       | NONE | 0.05       | 4
+        5       | 0.5  | NONE       | 6
+        5       | 1.5  | NONE       | 4
+        5       | NONE | NONE       | 8
+    }
+
+    def "notifies listener when limit changes"() {
+        def operatingSystem = Stub(OperatingSystemMXBean) {
+            getAvailableProcessors() >> 4
+            getSystemLoadAverage() >> 8.0
+        }
+        def listener = Mock(AdaptiveWorkerLeaseLimit.Listener)
+        def limit = new AdaptiveWorkerLeaseLimit(1, 4, memory(8, 4), operatingSystem, listener)
+
+        when:
+        limit.run()
+
+        then:
+        1 * listener.limitChanged(4, 3)
+        0 * listener._
+    }
+
+    def "does not notify listener when limit does not change"() {
+        def operatingSystem = Stub(OperatingSystemMXBean) {
+            getAvailableProcessors() >> 4
+            getSystemLoadAverage() >> 1.0
+        }
+        def listener = Mock(AdaptiveWorkerLeaseLimit.Listener)
+        def limit = new AdaptiveWorkerLeaseLimit(1, 4, memory(8, 4), operatingSystem, listener)
+
+        when:
+        limit.run()
+
+        then:
+        0 * listener._
+    }
+
+    def "uses memory alone when load average is not available"() {
+        def operatingSystem = Stub(OperatingSystemMXBean) {
+            getAvailableProcessors() >> 4
+            getSystemLoadAverage() >> -1.0
+        }
+        def listener = Mock(AdaptiveWorkerLeaseLimit.Listener)
+        def limit = new AdaptiveWorkerLeaseLimit(1, 4, memory(100, 5), operatingSystem, listener)
+
+        when:
+        limit.run()
+
+        then:
+        1 * listener.limitChanged(4, 3)
+    }
+
+    def "holds the limit after a change until the load average can reflect it"() {
+        def operatingSystem = Stub(OperatingSystemMXBean) {
+            getAvailableProcessors() >> 4
+            getSystemLoadAverage() >> 8.0
+        }
+        def listener = Mock(AdaptiveWorkerLeaseLimit.Listener)
+        def limit = new AdaptiveWorkerLeaseLimit(1, 4, memory(8, 4), operatingSystem, listener)
+
+        when:
+        (AdaptiveWorkerLeaseLimit.HOLD_OFF_SAMPLES + 1).times { limit.run() }
+
+        then:
+        1 * listener.limitChanged(4, 3)
+        0 * listener._
+
+        when:
+        limit.run()
+
+        then:
+        1 * listener.limitChanged(3, 2)
+        0 * listener._
+    }
+
+    def "revokes leases while memory is low even after a change"() {
+        def operatingSystem = Stub(OperatingSystemMXBean) {
+            getAvailableProcessors() >> 4
+            getSystemLoadAverage() >> 1.0
+        }
+        def listener = Mock(AdaptiveWorkerLeaseLimit.Listener)
+        def limit = new AdaptiveWorkerLeaseLimit(1, 4, memory(100, 5), operatingSystem, listener)
+
+        when:
+        limit.run()
+        limit.run()
+
+        then:
+        1 * listener.limitChanged(4, 3)
+        1 * listener.limitChanged(3, 2)
+        0 * listener._
+    }
+
+    private OsMemoryInfo memory(long total, long free) {
+        def physicalMemory = Stub(OsMemoryStatusAspect.Available) {
+            getTotal() >> total
+            getFree() >> free
+        }
+        return Stub(OsMemoryInfo) {
+            getOsSnapshot() >> Stub(OsMemoryStatus) {
+                getPhysicalMemory() >> physicalMemory
+            }
+        }
+    }
+}
@@ -34,7 +34,9 @@ import org.gradle.api.tasks.OutputFiles
 import org.gradle.api.tasks.TaskAction
 import org.gradle.composite.internal.BuildTreeWorkGraphController
 import org.gradle.internal.file.Stat
+import org.gradle.internal.logging.text.TreeFormatter
 import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.internal.resources.SharedResourceLeaseRegistry
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.precondition.Requires
 import org.gradle.test.preconditions.UnitTestPreconditions
@@ -2061,6 +2063,217 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         continueOnFailure << [false, true]
     }
 
+    def "starts ready tasks at the head of the longest dependency chain first when duration history is enabled"() {
+        given:
+        useDurationHistory([:])
+        Task leaf1 = task("leaf1", type: Async)
+        Task leaf2 = task("leaf2", type: Async)
+        Task compile = task("compile", type: Async)
+        Task test = task("test", type: Async, dependsOn: [compile])
+
+        when:
+        addToGraphAndPopulate(leaf1, leaf2, test)
+
+        then:
+        executionPlan.tasks as List == [leaf1, leaf2, compile, test]
+        assertTasksReady(compile, leaf1, leaf2)
+        assertTaskReadyAndNoMoreToStart(test)
+        assertAllWorkComplete()
+    }
+
+    def "starts ready tasks with the longest estimated remaining critical path first"() {
+        given:
+        useDurationHistory((":leaf2"): 500L, (":compile"): 10L, (":test"): 10L)
+        Task leaf1 = task("leaf1", type: Async)
+        Task leaf2 = task("leaf2", type: Async)
+        Task compile = task("compile", type: Async)
+        Task test = task("test", type: Async, dependsOn: [compile])
+
+        when:
+        addToGraphAndPopulate(leaf1, leaf2, test)
+
+        then:
+        assertTasksReady(leaf2, compile, leaf1)
+        assertTaskReadyAndNoMoreToStart(test)
+        assertAllWorkComplete()
+    }
+
+    def "records the duration of tasks that execute successfully"() {
+        given:
+        def durationHistory = useDurationHistory([:])
+        Task a = task("a", type: Async)
+        Task broken = task("broken", type: Async)
+        Task b = task("b", type: Async, dependsOn: [a])
+
+        when:
+        addToGraphAndPopulate(b, broken)
+        def aNode = selectNextTaskNode()
+        def brokenNode = selectNextTaskNode()
+        coordinator.withStateLock {
+            finalizedPlan.finishedExecuting(brokenNode, new RuntimeException())
+        }
+        finishedExecuting(aNode)
+
+        then:
+        aNode.task == a
+        brokenNode.task == broken
+        1 * durationHistory.recordDuration({ it instanceof LocalTaskNode && it.task == a }, { it >= 0 })
+        0 * durationHistory.recordDuration(_, _)
+    }
+
+    def "task waiting for a shared resource starts once the resource is released"() {
+        given:
+        trackBlockedNodes()
+        def sharedResources = new SharedResourceLeaseRegistry(coordinator)
+        sharedResources.registerSharedResource("resource", 1)
+        Task a = task("a", type: Async, resources: [sharedResources.getResourceLock("resource")])
+        Task b = task("b", type: Async, resources: [sharedResources.getResourceLock("resource")])
+        Task c = task("c", type: Async)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        def aNode = selectNextTaskNode()
+        def cNode = selectNextTaskNode()
+
+        then:
+        aNode.task == a
+        cNode.task == c
+        assertNoWorkReadyToStart()
+
+        when:
+        finishedExecuting(cNode)
+
+        then:
+        assertNoWorkReadyToStart()
+
+        when:
+        finishedExecuting(aNode)
+
+        then:
+        assertTaskReadyAndNoMoreToStart(b)
+        assertAllWorkComplete()
+    }
+
+    def "shared resource is passed to the next waiting task when the first waiting task cannot use it"() {
+        given:
+        trackBlockedNodes()
+        def sharedResources = new SharedResourceLeaseRegistry(coordinator)
+        sharedResources.registerSharedResource("first", 1)
+        sharedResources.registerSharedResource("second", 1)
+        Task a = task("a", type: Async, resources: [sharedResources.getResourceLock("first")])
+        Task b = task("b", type: Async, resources: [sharedResources.getResourceLock("first"), sharedResources.getResourceLock("second")])
+        Task c = task("c", type: Async, resources: [sharedResources.getResourceLock("first")])
+        Task d = task("d", type: Async, resources: [sharedResources.getResourceLock("second")])
+
+        when:
+        addToGraphAndPopulate(a, b, c, d)
+        def aNode = selectNextTaskNode()
+        def dNode = selectNextTaskNode()
+
+        then:
+        aNode.task == a
+        dNode.task == d
+        assertNoWorkReadyToStart()
+
+        when:
+        finishedExecuting(aNode)
+        def cNode = selectNextTaskNode()
+
+        then:
+        cNode.task == c
+        assertNoWorkReadyToStart()
+
+        when:
+        finishedExecuting(dNode)
+
+        then:
+        assertNoWorkReadyToStartAfterSelect()
+
+        when:
+        finishedExecuting(cNode)
+
+        then:
+        assertTaskReadyAndNoMoreToStart(b)
+        assertAllWorkComplete()
+    }
+
+    def "many tasks waiting for a shared resource start in order once the resource is released"() {
+        given:
+        trackBlockedNodes()
+        def sharedResources = new SharedResourceLeaseRegistry(coordinator)
+        sharedResources.registerSharedResource("resource", 1)
+        def tasks = (0..<50).collect { task("task$it", type: Async, resources: [sharedResources.getResourceLock("resource")]) }
+
+        when:
+        addToGraphAndPopulate(tasks as Task[])
+        def first = selectNextTaskNode()
+
+        then:
+        first.task == tasks[0]
+        assertNoWorkReadyToStartAfterSelect()
+        // Past some number of nodes that cannot start, the plan stops checking them until the resource is released
+        describeHealth().contains("task49 (waiting for a lock to be released)")
+
+        when:
+        def started = [first.task]
+        def node = first
+        49.times {
+            finishedExecuting(node)
+            node = selectNextTaskNode()
+            started << node.task
+        }
+        finishedExecuting(node)
+
+        then:
+        started == tasks
+        assertAllWorkComplete()
+    }
+
+    def "tasks waiting for a shared resource stay ready unless blocked nodes are tracked"() {
+        given:
+        def sharedResources = new SharedResourceLeaseRegistry(coordinator)
+        sharedResources.registerSharedResource("resource", 1)
+        def tasks = (0..<50).collect { task("task$it", type: Async, resources: [sharedResources.getResourceLock("resource")]) }
+
+        when:
+        addToGraphAndPopulate(tasks as Task[])
+        def first = selectNextTaskNode()
+
+        then:
+        first.task == tasks[0]
+        assertNoWorkReadyToStartAfterSelect()
+        !describeHealth().contains("waiting for a lock to be released")
+
+        when:
+        finishedExecuting(first)
+
+        then:
+        selectNextTaskNode().task == tasks[1]
+    }
+
+    private String describeHealth() {
+        def formatter = new TreeFormatter()
+        coordinator.withStateLock {
+            finalizedPlan.healthDiagnostics().describeTo(formatter)
+        }
+        return formatter.toString()
+    }
+
+    private void trackBlockedNodes() {
+        def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, NodeDurationHistory.NONE, true)
+    }
+
+    private NodeDurationHistory useDurationHistory(Map<String, Long> durations) {
+        NodeDurationHistory durationHistory = Mock(NodeDurationHistory)
+        _ * durationHistory.estimateDurations(_) >> { List<Node> nodes ->
+            nodes.collect { it instanceof LocalTaskNode ? durations.getOrDefault(it.task.identityPath.path, 0L) : 0L } as long[]
+        }
+        def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, durationHistory)
+        return durationHistory
+    }
+
     private void tasksAreNotExecutedInParallel(Task first, Task second) {
         addToGraphAndPopulate(first, second)
 
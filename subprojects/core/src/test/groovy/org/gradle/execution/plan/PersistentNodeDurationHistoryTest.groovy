@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.TestInMemoryCacheFactory
+import org.gradle.util.Path
+import org.junit.Rule
+import spock.lang.Specification
+
+class PersistentNodeDurationHistoryTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def cache = new TestInMemoryCacheFactory().open(tmpDir.file("executionHistory"), "execution history")
+
+    def "has no estimate for tasks without history or nodes that are not tasks"() {
+        def history = new PersistentNodeDurationHistory({ cache })
+
+        expect:
+        history.estimateDurations([taskNode(":a"), Stub(Node)]) == [0L, 0L] as long[]
+    }
+
+    def "keeps recorded durations for later builds"() {
+        def a = taskNode(":a")
+        def b = taskNode(":b")
+        def history = new PersistentNodeDurationHistory({ cache })
+
+        when:
+        history.recordDuration(a, 100)
+        history.recordDuration(b, 20)
+
+        then:
+        history.estimateDurations([a, b]) == [0L, 0L] as long[]
+
+        when:
+        history.close()
+
+        then:
+        new PersistentNodeDurationHistory({ cache }).estimateDurations([a, b]) == [100L, 20L] as long[]
+    }
+
+    def "blends new durations into the previous estimate"() {
+        def a = taskNode(":a")
+        def history = new PersistentNodeDurationHistory({ cache })
+        history.recordDuration(a, 100)
+        history.close()
+
+        when:
+        history = new PersistentNodeDurationHistory({ cache })
+        history.recordDuration(a, 500)
+        history.close()
+
+        then:
+        new PersistentNodeDurationHistory({ cache }).estimateDurations([a]) == [200L] as long[]
+    }
+
+    def "does not record durations of nodes that are not tasks"() {
+        def node = Stub(Node)
+        def history = new PersistentNodeDurationHistory({ cache })
+
+        when:
+        history.recordDuration(node, 100)
+        history.close()
+
+        then:
+        new PersistentNodeDurationHistory({ cache }).estimateDurations([node]) == [0L] as long[]
+    }
+
+    private LocalTaskNode taskNode(String path) {
+        def task = Stub(TaskInternal) {
+            getIdentityPath() >> Path.path(path)
+        }
+        return Stub(LocalTaskNode) {
+            getTask() >> task
+        }
+    }
+}
@@ -22,12 +22,14 @@ import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.project.taskfactory.TestTaskIdentities
 import org.gradle.execution.plan.ExecutionPlan
+import org.gradle.execution.plan.FinalizedExecutionPlan
 import org.gradle.execution.plan.LocalTaskNode
 import org.gradle.execution.plan.QueryableExecutionPlan
 import org.gradle.execution.plan.ToPlannedNodeConverterRegistry
 import org.gradle.execution.plan.ToPlannedTaskConverter
 import org.gradle.internal.operations.TestBuildOperationRunner
 import org.gradle.internal.taskgraph.CalculateTaskGraphBuildOperationType
+import org.gradle.internal.taskgraph.FinalizeTaskGraphBuildOperationType
 import org.gradle.internal.taskgraph.NodeIdentity
 import org.gradle.util.Path
 import spock.lang.Specification
@@ -75,4 +77,27 @@ class BuildOperationFiringBuildWorkPreparerTest extends Specification {
             (nodeIdentity as CalculateTaskGraphBuildOperationType.TaskIdentity).taskPath == ":t1"
         }
     }
+
+    def "build operation wraps finalization of execution plan"() {
+        def gradle = Stub(GradleInternal) {
+            contextualize(_) >> { String description -> description }
+            getIdentityPath() >> Path.ROOT
+        }
+        def executionPlan = Stub(ExecutionPlan)
+        def finalizedPlan = Stub(FinalizedExecutionPlan)
+        def delegate = Mock(BuildWorkPreparer)
+        def buildOperatorsExecutor = new TestBuildOperationRunner()
+        def preparer = new BuildOperationFiringBuildWorkPreparer(buildOperatorsExecutor, delegate, new ToPlannedNodeConverterRegistry([]))
+
+        when:
+        def result = preparer.finalizeWorkGraph(gradle, executionPlan)
+
+        then:
+        1 * delegate.finalizeWorkGraph(gradle, executionPlan) >> finalizedPlan
+        result == finalizedPlan
+        def operation = buildOperatorsExecutor.log.mostRecent(FinalizeTaskGraphBuildOperationType)
+        operation.descriptor.displayName == "Finalize task graph"
+        operation.details.buildPath == ":"
+        operation.result != null
+    }
 }
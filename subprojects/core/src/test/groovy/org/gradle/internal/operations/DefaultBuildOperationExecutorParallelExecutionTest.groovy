@@ -17,6 +17,10 @@
 package org.gradle.internal.operations
 
 import org.gradle.api.GradleException
+import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
 import org.gradle.internal.exceptions.DefaultMultiCauseException
 import org.gradle.internal.resources.DefaultResourceLockCoordinationService
 import org.gradle.internal.work.DefaultWorkerLeaseService
@@ -26,17 +30,25 @@ import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.internal.work.WorkerLeaseService
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
 class DefaultBuildOperationExecutorParallelExecutionTest extends ConcurrentSpec {
     WorkerLeaseService workerRegistry
     BuildOperationExecutor buildOperationExecutor
     WorkerLeaseRegistry.WorkerLeaseCompletion outerOperationCompletion
     WorkerLeaseRegistry.WorkerLease outerOperation
 
-    def setupBuildOperationExecutor(int maxThreads) {
+    def setupBuildOperationExecutor(int maxThreads, Map<String, String> internalOptions = [:], ExecutorFactory executorFactory = new DefaultExecutorFactory()) {
         def workerLimits = new DefaultWorkerLimits(maxThreads)
         workerRegistry = new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), workerLimits)
         workerRegistry.startProjectExecution(true)
-        buildOperationExecutor = BuildOperationExecutorSupport.builder(workerLimits).withWorkerLeaseService(workerRegistry).build()
+        buildOperationExecutor = BuildOperationExecutorSupport.builder(workerLimits)
+            .withWorkerLeaseService(workerRegistry)
+            .withExecutorFactory(executorFactory)
+            .withInternalOptions(new DefaultInternalOptions(internalOptions))
+            .build()
         outerOperationCompletion = workerRegistry.startWorker()
         outerOperation = workerRegistry.getCurrentWorkerLease()
     }
@@ -79,6 +91,132 @@ class DefaultBuildOperationExecutorParallelExecutionTest extends ConcurrentSpec
         20         | 4
     }
 
+    def "unconstrained operations do not run on more than #maxThreads workers when virtual threads are enabled"() {
+        given:
+        setupBuildOperationExecutor(maxThreads, [(DefaultBuildOperationExecutor.VIRTUAL_THREADS.systemPropertyName): "true"])
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def completed = new AtomicInteger()
+        def operation = new DefaultBuildOperationQueueTest.TestBuildOperation() {
+            @Override
+            void run(BuildOperationContext context) {
+                def nowRunning = running.incrementAndGet()
+                maxRunning.accumulateAndGet(nowRunning) { a, b -> Math.max(a, b) }
+                Thread.sleep(10)
+                running.decrementAndGet()
+                completed.incrementAndGet()
+            }
+        }
+
+        when:
+        buildOperationExecutor.runAll(new SimpleWorker(), { queue ->
+            20.times { queue.add(operation) }
+        }, BuildOperationConstraint.UNCONSTRAINED)
+
+        then:
+        completed.get() == 20
+        maxRunning.get() <= maxThreads
+
+        where:
+        maxThreads << [1, 4]
+    }
+
+    def "blocking IO operations run without worker leases and are not limited by max workers when virtual threads are enabled"() {
+        given:
+        setupBuildOperationExecutor(1, [(DefaultBuildOperationExecutor.VIRTUAL_THREADS.systemPropertyName): "true"], executorFactory(true))
+        def allStarted = new CountDownLatch(20)
+        def withoutLease = new AtomicInteger()
+        def operation = new DefaultBuildOperationQueueTest.TestBuildOperation() {
+            @Override
+            void run(BuildOperationContext context) {
+                if (!workerRegistry.isWorkerThread()) {
+                    withoutLease.incrementAndGet()
+                }
+                allStarted.countDown()
+                assert allStarted.await(10, TimeUnit.SECONDS)
+            }
+        }
+
+        when:
+        buildOperationExecutor.runAll(new SimpleWorker(), { queue ->
+            20.times { queue.add(operation) }
+        }, BuildOperationConstraint.BLOCKING_IO)
+
+        then:
+        allStarted.count == 0
+        // The calling thread works on the queue as well, using its own worker lease
+        withoutLease.get() >= 19
+    }
+
+    def "blocking IO operations hold worker leases and are limited by max workers when virtual threads are not supported"() {
+        given:
+        setupBuildOperationExecutor(2, [(DefaultBuildOperationExecutor.VIRTUAL_THREADS.systemPropertyName): "true"], executorFactory(false))
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def withoutLease = new AtomicInteger()
+        def operation = new DefaultBuildOperationQueueTest.TestBuildOperation() {
+            @Override
+            void run(BuildOperationContext context) {
+                if (!workerRegistry.isWorkerThread()) {
+                    withoutLease.incrementAndGet()
+                }
+                def nowRunning = running.incrementAndGet()
+                maxRunning.accumulateAndGet(nowRunning) { a, b -> Math.max(a, b) }
+                Thread.sleep(10)
+                running.decrementAndGet()
+            }
+        }
+
+        when:
+        buildOperationExecutor.runAll(new SimpleWorker(), { queue ->
+            20.times { queue.add(operation) }
+        }, BuildOperationConstraint.BLOCKING_IO)
+
+        then:
+        withoutLease.get() == 0
+        maxRunning.get() <= 2
+    }
+
+    def "blocking IO operations hold worker leases when virtual threads are not enabled"() {
+        given:
+        setupBuildOperationExecutor(2)
+        def withoutLease = new AtomicInteger()
+        def operation = new DefaultBuildOperationQueueTest.TestBuildOperation() {
+            @Override
+            void run(BuildOperationContext context) {
+                if (!workerRegistry.isWorkerThread()) {
+                    withoutLease.incrementAndGet()
+                }
+            }
+        }
+
+        when:
+        buildOperationExecutor.runAll(new SimpleWorker(), { queue ->
+            20.times { queue.add(operation) }
+        }, BuildOperationConstraint.BLOCKING_IO)
+
+        then:
+        withoutLease.get() == 0
+    }
+
+    private static ExecutorFactory executorFactory(boolean supportsVirtualThreads) {
+        return new DefaultExecutorFactory() {
+            @Override
+            boolean supportsVirtualThreads() {
+                return supportsVirtualThreads
+            }
+
+            @Override
+            ManagedExecutor createForBlockingWork(String displayName) {
+                if (!supportsVirtualThreads) {
+                    // Without virtual threads, this would be an unbounded thread pool
+                    throw new UnsupportedOperationException()
+                }
+                return super.createForBlockingWork(displayName)
+            }
+        }
+    }
+
     def "all work run to completion for multiple queues when using multiple threads #maxThreads"() {
         given:
         def amountOfWork = 10
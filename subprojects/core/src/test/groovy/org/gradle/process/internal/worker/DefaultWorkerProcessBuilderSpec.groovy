@@ -107,4 +107,19 @@ class DefaultWorkerProcessBuilderSpec extends Specification {
         and:
         1 * memoryManager.requestFreeMemory(1024*1024*1024)
     }
+
+    def "does not use class data sharing unless enabled"() {
+        when:
+        builder.build()
+
+        then:
+        1 * applicationClassesInSystemClassLoaderWorkerImplementationFactory.prepareJavaCommand(_, _, _, _, _, _, _, _, false, _)
+
+        when:
+        builder.enableClassDataSharing(true)
+        builder.build()
+
+        then:
+        1 * applicationClassesInSystemClassLoaderWorkerImplementationFactory.prepareJavaCommand(_, _, _, _, _, _, _, _, true, _)
+    }
 }
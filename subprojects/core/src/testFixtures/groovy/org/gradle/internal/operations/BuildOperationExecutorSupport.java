@@ -16,6 +16,8 @@
 
 package org.gradle.internal.operations;
 
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.work.DefaultWorkerLimits;
@@ -23,6 +25,8 @@
 import org.gradle.internal.work.WorkerLimits;
 import org.gradle.test.fixtures.work.TestWorkerLeaseService;
 
+import java.util.Collections;
+
 public class BuildOperationExecutorSupport {
 
     public static Builder builder(int numThreads) {
@@ -41,6 +45,7 @@ public static class Builder {
         private BuildOperationQueueFactory queueFactory;
         private DefaultBuildOperationRunner.BuildOperationExecutionListenerFactory executionListenerFactory;
         private ExecutorFactory executorFactory;
+        private InternalOptions internalOptions;
 
         private Builder(WorkerLimits workerLimits) {
             this.workerLimits = workerLimits;
@@ -76,6 +81,11 @@ public Builder withExecutorFactory(ExecutorFactory executorFactory) {
             return this;
         }
 
+        public Builder withInternalOptions(InternalOptions internalOptions) {
+            this.internalOptions = internalOptions;
+            return this;
+        }
+
         public BuildOperationExecutor build() {
             WorkerLeaseService workerLeaseService = this.workerLeaseService != null
                 ? this.workerLeaseService
@@ -86,13 +96,17 @@ public BuildOperationExecutor build() {
             ExecutorFactory executorFactory = this.executorFactory != null
                 ? this.executorFactory
                 : new DefaultExecutorFactory();
+            InternalOptions internalOptions = this.internalOptions != null
+                ? this.internalOptions
+                : new DefaultInternalOptions(Collections.emptyMap());
 
             return new DefaultBuildOperationExecutor(
                 buildRunner(),
                 CurrentBuildOperationRef.instance(),
                 queueFactory,
                 executorFactory,
-                workerLimits);
+                workerLimits,
+                internalOptions);
         }
 
         private BuildOperationRunner buildRunner() {
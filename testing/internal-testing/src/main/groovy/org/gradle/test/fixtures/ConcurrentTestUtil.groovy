@@ -124,6 +124,11 @@ class ConcurrentTestUtil extends ExternalResource {
                 return new ManagedExecutorStub(ConcurrentTestUtil.this)
             }
 
+            @Override
+            ManagedExecutor createForBlockingWork(String displayName) {
+                return new ManagedExecutorStub(ConcurrentTestUtil.this)
+            }
+
             @Override
             ManagedThreadPoolExecutor createThreadPool(String displayName, int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit timeUnit) {
                 throw new UnsupportedOperationException()
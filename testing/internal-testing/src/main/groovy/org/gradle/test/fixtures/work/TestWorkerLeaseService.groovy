@@ -71,6 +71,14 @@ class TestWorkerLeaseService implements WorkerLeaseService {
         return 0
     }
 
+    @Override
+    void setWorkerLeaseLimit(Object owner, int limit) {
+    }
+
+    @Override
+    void removeWorkerLeaseLimit(Object owner) {
+    }
+
     @Override
     WorkerLease getCurrentWorkerLease() {
         return workerLease()